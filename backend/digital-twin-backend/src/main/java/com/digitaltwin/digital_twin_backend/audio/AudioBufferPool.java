@@ -0,0 +1,149 @@
+package com.digitaltwin.digital_twin_backend.audio;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide pool of fixed-size direct ByteBuffer segments backing every voice session's
+ * audio buffer. Enforces the global byte limit and exposes what this node is holding.
+ */
+@Slf4j
+@Component
+public class AudioBufferPool {
+
+    private final int segmentSize;
+    private final long globalLimitBytes;
+    private final long sessionLimitBytes;
+    private final int reorderWindow;
+    private final int maxPooledSegments;
+
+    private final ConcurrentLinkedQueue<ByteBuffer> freeSegments = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooledSegments = new AtomicInteger();
+    private final AtomicLong reservedBytes = new AtomicLong();
+    private final AtomicLong bufferedBytes = new AtomicLong();
+    private final Counter rejections;
+
+    public AudioBufferPool(MeterRegistry meterRegistry,
+            @Value("${app.voice.buffer.segment-size:32768}") int segmentSize,
+            @Value("${app.voice.buffer.global-limit-bytes:268435456}") long globalLimitBytes,
+            @Value("${app.voice.buffer.session-limit-bytes:16777216}") long sessionLimitBytes,
+            @Value("${app.voice.buffer.reorder-window:8}") int reorderWindow,
+            @Value("${app.voice.buffer.max-pooled-segments:512}") int maxPooledSegments) {
+        this.segmentSize = segmentSize;
+        this.globalLimitBytes = globalLimitBytes;
+        this.sessionLimitBytes = sessionLimitBytes;
+        this.reorderWindow = reorderWindow;
+        this.maxPooledSegments = maxPooledSegments;
+
+        Gauge.builder("voice.audio.buffer.reserved.bytes", reservedBytes, AtomicLong::get)
+                .description("Direct memory reserved by voice audio segments on this node")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("voice.audio.buffer.held.bytes", bufferedBytes, AtomicLong::get)
+                .description("Audio payload bytes currently buffered on this node")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("voice.audio.buffer.pooled.segments", pooledSegments, AtomicInteger::get)
+                .description("Idle segments kept for reuse")
+                .register(meterRegistry);
+        this.rejections = Counter.builder("voice.audio.buffer.rejections")
+                .description("Chunks rejected because a byte limit was reached")
+                .register(meterRegistry);
+    }
+
+    public SessionAudioBuffer newSessionBuffer() {
+        return new SessionAudioBuffer(this, sessionLimitBytes, reorderWindow);
+    }
+
+    int segmentSize() {
+        return segmentSize;
+    }
+
+    /**
+     * Reserve {@code count} segments atomically against the global limit, or none at all
+     */
+    List<ByteBuffer> acquire(int count) {
+        return acquire(count, 0);
+    }
+
+    /**
+     * Same, paying first with {@code credit} bytes already held through {@link #reserve};
+     * the credit is consumed either way, so a credit that covers the segments never fails
+     */
+    List<ByteBuffer> acquire(int count, long credit) {
+        long bytes = (long) count * segmentSize;
+        long current;
+        do {
+            current = reservedBytes.get();
+            if (current - credit + bytes > globalLimitBytes) {
+                return null;
+            }
+        } while (!reservedBytes.compareAndSet(current, current - credit + bytes));
+
+        List<ByteBuffer> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ByteBuffer segment = freeSegments.poll();
+            if (segment != null) {
+                pooledSegments.decrementAndGet();
+            } else {
+                segment = ByteBuffer.allocateDirect(segmentSize);
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+
+    void release(List<ByteBuffer> segments) {
+        for (ByteBuffer segment : segments) {
+            segment.clear();
+            if (pooledSegments.get() < maxPooledSegments) {
+                freeSegments.offer(segment);
+                pooledSegments.incrementAndGet();
+            }
+        }
+        reservedBytes.addAndGet(-(long) segments.size() * segmentSize);
+    }
+
+    /**
+     * Hold room under the global limit for a chunk parked in a reorder window, enough for
+     * the segments it will take once written ({@link #reservationFor})
+     */
+    boolean reserve(long bytes) {
+        long current;
+        do {
+            current = reservedBytes.get();
+            if (current + bytes > globalLimitBytes) {
+                return false;
+            }
+        } while (!reservedBytes.compareAndSet(current, current + bytes));
+        return true;
+    }
+
+    void unreserve(long bytes) {
+        reservedBytes.addAndGet(-bytes);
+    }
+
+    // Whole segments, so writing the chunk later never needs more than was reserved
+    long reservationFor(int length) {
+        return (long) ((length + segmentSize - 1) / segmentSize) * segmentSize;
+    }
+
+    void addBuffered(long delta) {
+        bufferedBytes.addAndGet(delta);
+    }
+
+    void recordRejection() {
+        rejections.increment();
+    }
+}
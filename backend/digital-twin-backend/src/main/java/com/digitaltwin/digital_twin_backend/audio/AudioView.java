@@ -0,0 +1,104 @@
+package com.digitaltwin.digital_twin_backend.audio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only, zero-copy view over a reassembled recording.
+ * The underlying segments stay owned by the view until the last holder closes it,
+ * after which they are handed back to the {@link AudioBufferPool}.
+ */
+public final class AudioView implements AutoCloseable {
+
+    private static final AudioView EMPTY = new AudioView(List.of(), 0, null);
+
+    private final List<ByteBuffer> segments;
+    private final long size;
+    private final Runnable onRelease;
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
+    AudioView(List<ByteBuffer> segments, long size, Runnable onRelease) {
+        this.segments = segments;
+        this.size = size;
+        this.onRelease = onRelease;
+    }
+
+    /**
+     * Wrap an existing array (text path, streaming STT deltas) without copying
+     */
+    public static AudioView wrap(byte[] data) {
+        if (data == null || data.length == 0) {
+            return EMPTY;
+        }
+        return new AudioView(List.of(ByteBuffer.wrap(data).asReadOnlyBuffer()), data.length, null);
+    }
+
+    public static AudioView empty() {
+        return EMPTY;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Independent read-only cursors over each segment, safe to consume more than once
+     */
+    public List<ByteBuffer> buffers() {
+        List<ByteBuffer> copies = new ArrayList<>(segments.size());
+        for (ByteBuffer segment : segments) {
+            copies.add(segment.duplicate());
+        }
+        return copies;
+    }
+
+    /**
+     * Stream every segment to the channel (e.g. an OkHttp request sink)
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        for (ByteBuffer buffer : buffers()) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Materialize a heap copy, for callers that genuinely need a byte[]
+     */
+    public byte[] toByteArray() {
+        byte[] out = new byte[(int) size];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers()) {
+            int length = buffer.remaining();
+            buffer.get(out, offset, length);
+            offset += length;
+        }
+        return out;
+    }
+
+    /**
+     * Register an additional holder; each holder must call {@link #close()}
+     */
+    public AudioView retain() {
+        if (onRelease != null) {
+            refCount.incrementAndGet();
+        }
+        return this;
+    }
+
+    @Override
+    public void close() {
+        if (onRelease != null && refCount.decrementAndGet() == 0) {
+            onRelease.run();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.digitaltwin.digital_twin_backend.audio;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Per-session audio buffer. In-order chunks are appended straight into pooled segments;
+ * chunks that arrive early are parked in a small reorder window until the gap fills.
+ * A chunk too far ahead of the window means the gap is lost, so the window is flushed.
+ *
+ * A parked chunk is charged to the global limit when it arrives (as the segments it will
+ * need), so it is rejected right away rather than dropped when the gap fills later.
+ */
+@Slf4j
+public class SessionAudioBuffer {
+
+    public enum AppendResult {
+        ACCEPTED,
+        DUPLICATE,
+        REJECTED_SESSION_LIMIT,
+        REJECTED_GLOBAL_LIMIT
+    }
+
+    private final AudioBufferPool pool;
+    private final long sessionLimitBytes;
+    private final int reorderWindow;
+
+    private List<ByteBuffer> segments = new ArrayList<>();
+    private final TreeMap<Integer, byte[]> pending = new TreeMap<>();
+    private long size = 0;
+    private long pendingBytes = 0;
+    private long pendingReserved = 0;
+    private int nextSequence = 0;
+    private int chunkCount = 0;
+
+    SessionAudioBuffer(AudioBufferPool pool, long sessionLimitBytes, int reorderWindow) {
+        this.pool = pool;
+        this.sessionLimitBytes = sessionLimitBytes;
+        this.reorderWindow = reorderWindow;
+    }
+
+    /**
+     * Append a chunk the caller already owns (e.g. freshly decoded Base64)
+     */
+    public synchronized AppendResult append(int sequenceNumber, byte[] data) {
+        return append(sequenceNumber, ByteBuffer.wrap(data), data);
+    }
+
+    /**
+     * Append a chunk straight from a transport buffer; it is copied only if it must be parked
+     */
+    public synchronized AppendResult append(int sequenceNumber, ByteBuffer data) {
+        return append(sequenceNumber, data, null);
+    }
+
+    private AppendResult append(int sequenceNumber, ByteBuffer data, byte[] owned) {
+        int length = data.remaining();
+        if (length == 0) {
+            return AppendResult.ACCEPTED;
+        }
+        if (sequenceNumber < nextSequence || pending.containsKey(sequenceNumber)) {
+            return AppendResult.DUPLICATE;
+        }
+        if (size + pendingBytes + length > sessionLimitBytes) {
+            pool.recordRejection();
+            return AppendResult.REJECTED_SESSION_LIMIT;
+        }
+
+        if (sequenceNumber > nextSequence && sequenceNumber - nextSequence <= reorderWindow) {
+            long reservation = pool.reservationFor(length);
+            if (!pool.reserve(reservation)) {
+                pool.recordRejection();
+                return AppendResult.REJECTED_GLOBAL_LIMIT;
+            }
+            byte[] parked = owned;
+            if (parked == null) {
+                parked = new byte[length];
+                data.get(parked);
+            }
+            pending.put(sequenceNumber, parked);
+            pendingBytes += length;
+            pendingReserved += reservation;
+            pool.addBuffered(length);
+            chunkCount++;
+            return AppendResult.ACCEPTED;
+        }
+
+        if (sequenceNumber > nextSequence) {
+            log.warn("Audio gap {}..{} fell outside the reorder window, skipping it",
+                    nextSequence, sequenceNumber - 1);
+            flushPending();
+        }
+
+        if (!write(data)) {
+            pool.recordRejection();
+            return AppendResult.REJECTED_GLOBAL_LIMIT;
+        }
+        chunkCount++;
+        nextSequence = sequenceNumber + 1;
+        drainContiguous();
+        return AppendResult.ACCEPTED;
+    }
+
+    /**
+     * Detach everything buffered so far as a read-only view and start a fresh utterance.
+     * Parked chunks are appended in order even if earlier gaps never arrived.
+     */
+    public synchronized AudioView takeRecording() {
+        flushPending();
+        if (size == 0) {
+            reset();
+            return AudioView.empty();
+        }
+
+        List<ByteBuffer> owned = segments;
+        long recordedBytes = size;
+        List<ByteBuffer> views = new ArrayList<>(owned.size());
+        for (ByteBuffer segment : owned) {
+            ByteBuffer view = segment.duplicate();
+            view.flip();
+            views.add(view.asReadOnlyBuffer());
+        }
+
+        segments = new ArrayList<>();
+        size = 0;
+        reset();
+        return new AudioView(views, recordedBytes, () -> {
+            pool.addBuffered(-recordedBytes);
+            pool.release(owned);
+        });
+    }
+
+    /**
+     * Drop all buffered audio and return the segments to the pool
+     */
+    public synchronized void release() {
+        pool.addBuffered(-size);
+        pool.release(segments);
+        segments = new ArrayList<>();
+        size = 0;
+        reset();
+    }
+
+    /**
+     * Lowest sequence number not yet received; every chunk before it is in the recording
+     */
+    public synchronized int nextSequence() {
+        return nextSequence;
+    }
+
+    public synchronized int getChunkCount() {
+        return chunkCount;
+    }
+
+    public synchronized long size() {
+        return size + pendingBytes;
+    }
+
+    private void reset() {
+        pool.addBuffered(-pendingBytes);
+        pool.unreserve(pendingReserved);
+        pending.clear();
+        pendingBytes = 0;
+        pendingReserved = 0;
+        nextSequence = 0;
+        chunkCount = 0;
+    }
+
+    private void drainContiguous() {
+        while (!pending.isEmpty() && pending.firstKey() == nextSequence) {
+            writeParked(pending.pollFirstEntry().getValue());
+            nextSequence++;
+        }
+    }
+
+    private void flushPending() {
+        while (!pending.isEmpty()) {
+            Map.Entry<Integer, byte[]> entry = pending.pollFirstEntry();
+            writeParked(entry.getValue());
+            nextSequence = entry.getKey() + 1;
+        }
+    }
+
+    // Paid for by the reservation taken when the chunk was parked, so this cannot hit the limit
+    private void writeParked(byte[] parked) {
+        long reservation = pool.reservationFor(parked.length);
+        pendingBytes -= parked.length;
+        pendingReserved -= reservation;
+        pool.addBuffered(-parked.length);
+        write(ByteBuffer.wrap(parked), reservation);
+    }
+
+    private boolean write(ByteBuffer data) {
+        return write(data, 0);
+    }
+
+    private boolean write(ByteBuffer data, long credit) {
+        int length = data.remaining();
+        ByteBuffer tail = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        int tailSpace = tail != null ? tail.remaining() : 0;
+        int needed = length > tailSpace
+                ? (length - tailSpace + pool.segmentSize() - 1) / pool.segmentSize()
+                : 0;
+
+        int index = tailSpace > 0 ? segments.size() - 1 : segments.size();
+        if (needed > 0 || credit > 0) {
+            List<ByteBuffer> fresh = pool.acquire(needed, credit);
+            if (fresh == null) {
+                return false;
+            }
+            segments.addAll(fresh);
+        }
+
+        ByteBuffer source = data.duplicate();
+        while (source.hasRemaining()) {
+            ByteBuffer segment = segments.get(index++);
+            int n = Math.min(segment.remaining(), source.remaining());
+            ByteBuffer slice = source.slice();
+            slice.limit(n);
+            segment.put(slice);
+            source.position(source.position() + n);
+        }
+        data.position(data.limit());
+        size += length;
+        pool.addBuffered(length);
+        return true;
+    }
+}
@@ -0,0 +1,26 @@
+package com.digitaltwin.digital_twin_backend.config;
+
+import com.digitaltwin.digital_twin_backend.websocket.BinaryAudioWebSocketHandler;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+/**
+ * Raw WebSocket endpoint for binary audio frames.
+ * Sits next to the STOMP /ws-voice endpoint, which keeps handling control messages.
+ */
+@Configuration
+@EnableWebSocket
+@RequiredArgsConstructor
+public class AudioWebSocketConfig implements WebSocketConfigurer {
+
+    private final BinaryAudioWebSocketHandler binaryAudioWebSocketHandler;
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(binaryAudioWebSocketHandler, "/ws-voice-audio")
+                .setAllowedOriginPatterns("*");
+    }
+}
@@ -0,0 +1,246 @@
+package com.digitaltwin.digital_twin_backend.config;
+
+import com.digitaltwin.digital_twin_backend.model.DerivedArtifact;
+import com.digitaltwin.digital_twin_backend.model.Note;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
+import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.model.RoutineLogEntry;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexField;
+import org.springframework.data.mongodb.core.index.IndexInfo;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Indexes that cannot be expressed with annotations on the model classes. They are
+ * created on a background thread once the application is ready, so an unreachable
+ * database can't hold up startup; the thread waits for Mongo to answer, and startup
+ * work that needs the indexes (the routine log migration) runs after them on it.
+ *
+ * Notes get a compound text index {userId: 1, title/content/category: "text"}, so a
+ * search only walks the caller's own postings. Language "none" disables English
+ * stemming and stop words, which would mangle Hindi and Roman Hindi notes.
+ *
+ * Routine logs get a unique (routineId, scheduledDateTime, status) index: inserts
+ * double as the "already reminded / already alerted" check.
+ *
+ * The notification outbox is indexed for the dispatcher's claim query; sent entries
+ * are removed by a TTL index, dead letters stay until someone looks at them.
+ *
+ * Derived artifacts are indexed by content hash so releasing the last copy of a blob
+ * can drop its cached text and summaries in one delete.
+ *
+ * Summarization jobs are indexed for the worker's claim query and the per-user job
+ * list; finished jobs expire after a month (the results stay on the file and notes).
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class MongoIndexConfig {
+
+    public static final String NOTES_TEXT_INDEX = "notes_user_text";
+    public static final String NOTES_TEXT_LANGUAGE = "none";
+    public static final String ROUTINE_LOG_SLOT_INDEX = "routine_log_slot_unique";
+    public static final int NOTIFICATION_OUTBOX_RETENTION_DAYS = 7;
+    public static final int SUMMARIZATION_JOB_RETENTION_DAYS = 30;
+
+    private final MongoTemplate mongoTemplate;
+
+    @Value("${app.mongo.startup-retry-ms:30000}")
+    private long startupRetryMs;
+
+    private final CompletableFuture<Void> indexesReady = new CompletableFuture<>();
+    private ExecutorService startupExecutor;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureIndexesInBackground() {
+        startupExecutor().execute(() -> {
+            awaitMongo();
+            ensureIndexes();
+            indexesReady.complete(null);
+        });
+    }
+
+    /**
+     * Run {@code task} on the startup thread once the indexes exist
+     */
+    public CompletableFuture<Void> afterIndexes(Runnable task) {
+        return indexesReady.thenRunAsync(task, startupExecutor());
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (startupExecutor != null) {
+            startupExecutor.shutdownNow();
+        }
+    }
+
+    private synchronized ExecutorService startupExecutor() {
+        if (startupExecutor == null) {
+            startupExecutor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "mongo-startup");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+        return startupExecutor;
+    }
+
+    // Each failed call takes the driver's server selection timeout, so check once before six of them
+    private void awaitMongo() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                mongoTemplate.executeCommand(new Document("ping", 1));
+                return;
+            } catch (Exception e) {
+                log.error("❌ MongoDB unreachable, creating indexes in {}s: {}", startupRetryMs / 1000, e.getMessage());
+            }
+            try {
+                Thread.sleep(startupRetryMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public void ensureIndexes() {
+        ensureNotesTextIndex();
+        ensureRoutineLogIndex();
+        ensureRoutineChangeIndex();
+        ensureNotificationOutboxIndexes();
+        ensureDerivedArtifactIndex();
+        ensureSummarizationJobIndexes();
+    }
+
+    private void ensureNotesTextIndex() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(Note.class);
+
+            // MongoDB allows one text index per collection; an older one would block ours
+            for (IndexInfo info : indexOps.getIndexInfo()) {
+                boolean isText = info.getIndexFields().stream().anyMatch(IndexField::isText);
+                if (isText && !NOTES_TEXT_INDEX.equals(info.getName())) {
+                    log.info("🗂️ Replacing text index {} on notes with {}", info.getName(), NOTES_TEXT_INDEX);
+                    indexOps.dropIndex(info.getName());
+                }
+            }
+
+            indexOps.createIndex(notesTextIndex());
+            log.info("✅ Notes text index {} ready", NOTES_TEXT_INDEX);
+        } catch (Exception e) {
+            log.error("❌ Could not create notes text index, note search will fail: {}", e.getMessage());
+        }
+    }
+
+    private void ensureRoutineLogIndex() {
+        try {
+            mongoTemplate.indexOps(RoutineLogEntry.class).createIndex(new Index()
+                    .on("routineId", Sort.Direction.ASC)
+                    .on("scheduledDateTime", Sort.Direction.ASC)
+                    .on("status", Sort.Direction.ASC)
+                    .unique()
+                    .named(ROUTINE_LOG_SLOT_INDEX));
+            log.info("✅ Routine log index {} ready", ROUTINE_LOG_SLOT_INDEX);
+        } catch (Exception e) {
+            log.error("❌ Could not create routine log index, reminders may repeat: {}", e.getMessage());
+        }
+    }
+
+    // Lets each scheduler node find routines edited elsewhere since its last sync
+    private void ensureRoutineChangeIndex() {
+        try {
+            mongoTemplate.indexOps(Routine.class).createIndex(new Index()
+                    .on("updatedAt", Sort.Direction.ASC)
+                    .named("routine_updated_at"));
+        } catch (Exception e) {
+            log.error("❌ Could not create routine updatedAt index: {}", e.getMessage());
+        }
+    }
+
+    // Claim query walks due entries most-urgent first; delivered entries expire after a week
+    private void ensureNotificationOutboxIndexes() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(NotificationOutboxEntry.class);
+            indexOps.createIndex(new Index()
+                    .on("status", Sort.Direction.ASC)
+                    .on("priority", Sort.Direction.DESC)
+                    .on("nextAttemptAt", Sort.Direction.ASC)
+                    .named("notification_outbox_due"));
+            indexOps.createIndex(new Index()
+                    .on("sentAt", Sort.Direction.ASC)
+                    .expire(Duration.ofDays(NOTIFICATION_OUTBOX_RETENTION_DAYS))
+                    .named("notification_outbox_sent_ttl"));
+            log.info("✅ Notification outbox indexes ready");
+        } catch (Exception e) {
+            log.error("❌ Could not create notification outbox indexes: {}", e.getMessage());
+        }
+    }
+
+    private void ensureDerivedArtifactIndex() {
+        try {
+            mongoTemplate.indexOps(DerivedArtifact.class).createIndex(new Index()
+                    .on("contentHash", Sort.Direction.ASC)
+                    .named("derived_artifacts_content_hash"));
+        } catch (Exception e) {
+            log.error("❌ Could not create derived artifact index: {}", e.getMessage());
+        }
+    }
+
+    private void ensureSummarizationJobIndexes() {
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(SummarizationJob.class);
+            indexOps.createIndex(new Index()
+                    .on("status", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.ASC)
+                    .named("summarization_jobs_runnable"));
+            indexOps.createIndex(new Index()
+                    .on("userId", Sort.Direction.ASC)
+                    .on("createdAt", Sort.Direction.DESC)
+                    .named("summarization_jobs_user"));
+            indexOps.createIndex(new Index()
+                    .on("finishedAt", Sort.Direction.ASC)
+                    .expire(Duration.ofDays(SUMMARIZATION_JOB_RETENTION_DAYS))
+                    .named("summarization_jobs_finished_ttl"));
+            log.info("✅ Summarization job indexes ready");
+        } catch (Exception e) {
+            log.error("❌ Could not create summarization job indexes: {}", e.getMessage());
+        }
+    }
+
+    private static IndexDefinition notesTextIndex() {
+        return new IndexDefinition() {
+            @Override
+            public Document getIndexKeys() {
+                return new Document("userId", 1)
+                        .append("title", "text")
+                        .append("content", "text")
+                        .append("category", "text");
+            }
+
+            @Override
+            public Document getIndexOptions() {
+                return new Document("name", NOTES_TEXT_INDEX)
+                        .append("default_language", NOTES_TEXT_LANGUAGE)
+                        .append("weights", new Document("title", 5)
+                                .append("category", 3)
+                                .append("content", 1));
+            }
+        };
+    }
+}
@@ -0,0 +1,118 @@
+package com.digitaltwin.digital_twin_backend.config;
+
+import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.model.RoutineLogEntry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moves logs embedded in routine documents into routine_logs, then removes them from
+ * the routine. Idempotent: routines without a logs field are skipped, and entries
+ * already present are rejected by the unique slot index. Runs in the background after
+ * {@link MongoIndexConfig} has created that index.
+ */
+@Slf4j
+@Configuration
+@RequiredArgsConstructor
+public class RoutineLogMigration {
+
+    private static final String ROUTINES = "routines";
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final MongoTemplate mongoTemplate;
+    private final MongoIndexConfig mongoIndexConfig;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateInBackground() {
+        mongoIndexConfig.afterIndexes(this::migrateEmbeddedLogs);
+    }
+
+    public void migrateEmbeddedLogs() {
+        try {
+            Query withLogs = new Query(Criteria.where("logs").exists(true));
+            withLogs.fields().include("_id", "userId", "logs");
+
+            int routines = 0;
+            int moved = 0;
+            int failed = 0;
+            for (Document routine : mongoTemplate.find(withLogs, Document.class, ROUTINES)) {
+                try {
+                    moved += migrate(routine);
+                } catch (BulkOperationException e) {
+                    // Some entries didn't make it; the embedded logs stay so the next start retries them
+                    log.error("❌ Could not migrate logs of routine {}: {}", routine.get("_id"), e.getMessage());
+                    failed++;
+                    continue;
+                }
+                mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(routine.get("_id"))),
+                        new Update().unset("logs"), ROUTINES);
+                routines++;
+            }
+
+            if (routines > 0) {
+                log.info("✅ Migrated {} embedded logs from {} routines to routine_logs", moved, routines);
+            }
+            if (failed > 0) {
+                log.warn("⚠️ {} routines kept their embedded logs, will retry on next start", failed);
+            }
+        } catch (Exception e) {
+            log.error("❌ Routine log migration failed, will retry on next start: {}", e.getMessage());
+        }
+    }
+
+    private int migrate(Document routine) {
+        List<?> logs = routine.getList("logs", Object.class);
+        if (logs == null || logs.isEmpty()) {
+            return 0;
+        }
+
+        String routineId = routine.get("_id").toString();
+        String userId = routine.getString("userId");
+        List<RoutineLogEntry> entries = new ArrayList<>();
+        for (Object raw : logs) {
+            if (!(raw instanceof Document document)) {
+                continue;
+            }
+            Routine.RoutineLog old = mongoTemplate.getConverter().read(Routine.RoutineLog.class, document);
+            LocalDateTime slot = old.getScheduledDateTime() != null
+                    ? old.getScheduledDateTime()
+                    : old.getCompletedDateTime();
+            if (slot == null || old.getStatus() == null) {
+                continue;
+            }
+            entries.add(new RoutineLogEntry(null, routineId, userId, slot, old.getCompletedDateTime(),
+                    old.getStatus(), old.getNotes(), old.getCompletedBy(), slot));
+        }
+        if (entries.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            return mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RoutineLogEntry.class)
+                    .insert(entries)
+                    .execute()
+                    .getInsertedCount();
+        } catch (BulkOperationException e) {
+            // Duplicates of already-migrated entries are expected on a re-run; anything else is a real failure
+            boolean onlyDuplicates = e.getErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY);
+            if (!onlyDuplicates) {
+                throw e;
+            }
+            return e.getResult().getInsertedCount();
+        }
+    }
+}
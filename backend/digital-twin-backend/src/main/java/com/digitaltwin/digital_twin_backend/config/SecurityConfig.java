@@ -70,6 +70,7 @@ public class SecurityConfig {
                         .requestMatchers("/api/auth/**", "/actuator/health", "/api/public/**").permitAll()
                         .requestMatchers("/ws-voice/**").permitAll()
                         .requestMatchers("/ws-voice-direct/**").permitAll()
+                        .requestMatchers("/ws-voice-audio/**").permitAll()
                         .requestMatchers("/api/dementia/**").hasRole("DEMENTIA_PATIENT")
                         .requestMatchers("/api/caregiver/**").hasRole("CAREGIVER")
                         .requestMatchers("/api/emergency-alerts/**").hasAnyRole("DEMENTIA_PATIENT", "CAREGIVER")
@@ -2,23 +2,37 @@ package com.digitaltwin.digital_twin_backend.controller;
 
 import com.digitaltwin.digital_twin_backend.model.FileUpload;
 import com.digitaltwin.digital_twin_backend.model.Note;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob;
 import com.digitaltwin.digital_twin_backend.security.CustomUserDetails;
+import com.digitaltwin.digital_twin_backend.service.BatchSummarizationService;
 import com.digitaltwin.digital_twin_backend.service.FileUploadService;
+import com.digitaltwin.digital_twin_backend.service.SummarizationJobService;
 import com.digitaltwin.digital_twin_backend.service.SummarizationService;
 import com.digitaltwin.digital_twin_backend.service.NoteService;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 
 @RestController
@@ -29,9 +43,15 @@ public class FileUploadController {
 
     private final FileUploadService fileUploadService;
     private final SummarizationService summarizationService;
+    private final SummarizationJobService summarizationJobService;
+    private final BatchSummarizationService batchSummarizationService;
     private final NoteService noteService;
     private final GridFsTemplate gridFsTemplate;
 
+    private static final Duration DOWNLOAD_MAX_AGE = Duration.ofDays(1);
+    private static final int DOWNLOAD_BUFFER_BYTES = 64 * 1024;
+    private static final Duration BATCH_RESPONSE_GRACE = Duration.ofSeconds(30);
+
     /**
      * Helper method to get current user ID from authentication
      */
@@ -140,8 +160,15 @@ public class FileUploadController {
 
     // ==================== FILE DOWNLOAD ====================
 
+    /**
+     * Streams the file straight from GridFS; supports single byte ranges (206) for media
+     * seeking, and a content-hash ETag so unchanged files are answered with 304
+     */
     @GetMapping("/{fileId}/download")
-    public ResponseEntity<?> downloadFile(@PathVariable String fileId) {
+    public ResponseEntity<?> downloadFile(
+            @PathVariable String fileId,
+            @RequestParam(defaultValue = "false") boolean inline,
+            @RequestHeader HttpHeaders requestHeaders) {
         try {
             String userId = getCurrentUserId();
             FileUpload file = fileUploadService.getFileById(fileId);
@@ -154,12 +181,64 @@ public class FileUploadController {
                 return ResponseEntity.notFound().build();
             }
 
-            InputStream inputStream = gridFsTemplate.getResource(gridFsFile).getInputStream();
+            long length = gridFsFile.getLength();
+            // Stored bytes never change for a file id, so the hash is a strong validator
+            String etag = "\"" + (file.getContentHash() != null ? file.getContentHash() : file.getGridFsFileId()) + "\"";
+            CacheControl cacheControl = CacheControl.maxAge(DOWNLOAD_MAX_AGE).cachePrivate();
+
+            if (etagMatches(requestHeaders.getIfNoneMatch(), etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(etag)
+                        .cacheControl(cacheControl)
+                        .build();
+            }
+
+            // If-Range with a stale validator means "send the whole thing"
+            String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+            List<HttpRange> ranges = List.of();
+            if (ifRange == null || ifRange.equals(etag)) {
+                try {
+                    ranges = requestHeaders.getRange();
+                } catch (IllegalArgumentException e) {
+                    return rangeNotSatisfiable(length);
+                }
+            }
+
+            // Multi-range requests are rare for media; answering them with the full body is allowed
+            boolean partial = ranges.size() == 1;
+            long start = 0;
+            long end = length - 1;
+            if (partial) {
+                HttpRange range = ranges.get(0);
+                try {
+                    start = range.getRangeStart(length);
+                    end = range.getRangeEnd(length);
+                } catch (IllegalArgumentException e) {
+                    return rangeNotSatisfiable(length);
+                }
+                if (start >= length || end < start) {
+                    return rangeNotSatisfiable(length);
+                }
+            }
 
-            return ResponseEntity.ok()
-                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file.getOriginalFileName() + "\"")
+            ContentDisposition disposition = (inline ? ContentDisposition.inline() : ContentDisposition.attachment())
+                    .filename(file.getOriginalFileName(), StandardCharsets.UTF_8)
+                    .build();
+            ResponseEntity.BodyBuilder response = ResponseEntity.status(partial ? HttpStatus.PARTIAL_CONTENT : HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, disposition.toString())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                     .contentType(MediaType.parseMediaType(file.getFileType()))
-                    .body(inputStream.readAllBytes());
+                    .eTag(etag)
+                    .cacheControl(cacheControl);
+            if (partial) {
+                response.header(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            }
+
+            long from = start;
+            long count = end - start + 1;
+            return response
+                    .contentLength(count)
+                    .body((StreamingResponseBody) out -> copyRange(gridFsFile, from, count, out));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
@@ -168,6 +247,43 @@ public class FileUploadController {
         }
     }
 
+    /**
+     * Copy {@code count} bytes starting at {@code start} from GridFS to the response;
+     * the GridFS stream skips whole chunks, so a seek doesn't read what it skips
+     */
+    private void copyRange(GridFSFile gridFsFile, long start, long count, OutputStream out) throws IOException {
+        try (InputStream in = gridFsTemplate.getResource(gridFsFile).getInputStream()) {
+            in.skipNBytes(start);
+            byte[] buffer = new byte[DOWNLOAD_BUFFER_BYTES];
+            long remaining = count;
+            while (remaining > 0) {
+                int read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (read < 0) {
+                    break;
+                }
+                out.write(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+    }
+
+    private static boolean etagMatches(List<String> candidates, String etag) {
+        for (String candidate : candidates) {
+            // If-None-Match uses weak comparison
+            String tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ResponseEntity<?> rangeNotSatisfiable(long length) {
+        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                .header(HttpHeaders.CONTENT_RANGE, "bytes */" + length)
+                .build();
+    }
+
     // ==================== FILE DELETION ====================
 
     @DeleteMapping("/{fileId}")
@@ -197,15 +313,19 @@ public class FileUploadController {
 
     // ==================== PDF SUMMARIZATION ====================
 
+    /**
+     * Starts a background summarization job and returns it right away (202);
+     * progress arrives on /user/queue/jobs.progress and GET /api/files/jobs/{jobId}
+     */
     @PostMapping("/summarize/pdf/{fileId}")
     public ResponseEntity<?> summarizePDF(
             @PathVariable String fileId,
             @RequestParam(defaultValue = "standard") String mode,
             @RequestParam(defaultValue = "true") boolean saveAsNote) {
         try {
-            String userId = getCurrentUserId();
+            CustomUserDetails user = getCurrentUserDetails();
             FileUpload file = fileUploadService.getFileById(fileId);
-            if (!file.getUserId().equals(userId)) {
+            if (!file.getUserId().equals(user.getId())) {
                 return ResponseEntity.status(403).body(Map.of(
                         "success", false,
                         "message", "Access denied"
@@ -219,37 +339,11 @@ public class FileUploadController {
                 ));
             }
 
-            // Get file from GridFS
-            GridFSFile gridFsFile = fileUploadService.downloadFile(file.getGridFsFileId());
-            InputStream inputStream = gridFsTemplate.getResource(gridFsFile).getInputStream();
-
-            // Extract text from PDF
-            String extractedText = summarizationService.extractTextFromPDF(inputStream);
-
-            // Generate summary
-            String summary = mode.equalsIgnoreCase("dementia")
-                    ? summarizationService.summarizeForDementiaPatient(extractedText)
-                    : summarizationService.summarizeText(extractedText);
-
-            // Mark file as processed
-            fileUploadService.markAsProcessed(fileId, extractedText, summary);
-
-            // Save as note if requested using the dedicated createSummaryNote method
-            if (saveAsNote) {
-                noteService.createSummaryNote(
-                        userId,
-                        "PDF Summary: " + file.getOriginalFileName(),
-                        summary,
-                        fileId,
-                        file.getOriginalFileName()
-                );
-            }
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "PDF summarized successfully",
-                    "data", summary
-            ));
+            SummarizationJob job = summarizationJobService.submit(user.getId(), user.getUsername(), file,
+                    SummarizationJob.JobType.SUMMARIZE, mode, saveAsNote, false);
+            return jobAccepted(job, "PDF summarization started");
+        } catch (IllegalStateException e) {
+            return quotaExceeded(e);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of(
@@ -268,9 +362,9 @@ public class FileUploadController {
             @RequestParam(defaultValue = "true") boolean saveAsNote,
             @RequestParam(defaultValue = "true") boolean saveTranscription) {
         try {
-            String userId = getCurrentUserId();
+            CustomUserDetails user = getCurrentUserDetails();
             FileUpload file = fileUploadService.getFileById(fileId);
-            if (!file.getUserId().equals(userId)) {
+            if (!file.getUserId().equals(user.getId())) {
                 return ResponseEntity.status(403).body(Map.of(
                         "success", false,
                         "message", "Access denied"
@@ -285,54 +379,12 @@ public class FileUploadController {
                 ));
             }
 
-            // Get file from GridFS
-            GridFSFile gridFsFile = fileUploadService.downloadFile(file.getGridFsFileId());
-            InputStream inputStream = gridFsTemplate.getResource(gridFsFile).getInputStream();
-
-            // Transcribe and summarize
-            boolean dementiaMode = mode.equalsIgnoreCase("dementia");
-            SummarizationService.TranscriptionResult result =
-                    summarizationService.transcribeAndSummarize(inputStream, file.getOriginalFileName(), dementiaMode);
-
-            // Mark file as processed
-            fileUploadService.markAsProcessed(fileId, result.getTranscription(), result.getSummary());
-
-            // Save transcription as note if requested
-            if (saveTranscription) {
-                Note transcriptionNote = new Note();
-                transcriptionNote.setUserId(userId);
-                transcriptionNote.setTitle("Transcription: " + file.getOriginalFileName());
-                transcriptionNote.setContent(result.getTranscription());
-                transcriptionNote.setType(Note.NoteType.TEXT);
-                transcriptionNote.setPriority(Note.NotePriority.MEDIUM);
-                transcriptionNote.setSourceFileId(fileId);
-                transcriptionNote.setSourceFileName(file.getOriginalFileName());
-                transcriptionNote.setColor("#DBEAFE"); // Blue for transcriptions
-                transcriptionNote.setCategory("Transcription");
-                transcriptionNote.setPinned(false);
-                transcriptionNote.setArchived(false);
-                noteService.createNote(transcriptionNote);
-            }
-
-            // Save summary as note if requested using createSummaryNote
-            if (saveAsNote) {
-                noteService.createSummaryNote(
-                        userId,
-                        file.getCategory() + " Summary: " + file.getOriginalFileName(),
-                        result.getSummary(),
-                        fileId,
-                        file.getOriginalFileName()
-                );
-            }
-
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "message", "Audio/Video transcribed and summarized successfully",
-                    "data", Map.of(
-                            "transcription", result.getTranscription(),
-                            "summary", result.getSummary()
-                    )
-            ));
+            // Transcription can take minutes; it runs as a job instead of holding this thread
+            SummarizationJob job = summarizationJobService.submit(user.getId(), user.getUsername(), file,
+                    SummarizationJob.JobType.SUMMARIZE, mode, saveAsNote, saveTranscription);
+            return jobAccepted(job, "Audio/Video transcription started");
+        } catch (IllegalStateException e) {
+            return quotaExceeded(e);
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.badRequest().body(Map.of(
@@ -474,90 +526,126 @@ public class FileUploadController {
 
     // ==================== BATCH SUMMARIZATION ====================
 
+    /**
+     * Files run through the extract/transcribe/summarize pipeline in parallel; the
+     * response is sent once every file has finished or the deadline has passed.
+     * Optional "deadlineSeconds" can only shorten the configured deadline.
+     */
     @PostMapping("/summarize/batch")
-    public ResponseEntity<?> batchSummarize(@RequestBody Map<String, Object> request) {
+    public DeferredResult<ResponseEntity<?>> batchSummarize(@RequestBody Map<String, Object> request) {
         try {
             String userId = getCurrentUserId();
+            BatchRequest batch = BatchRequest.from(request, batchSummarizationService.defaultDeadline());
+
+            // The servlet's default async timeout is far shorter than a batch may take
+            DeferredResult<ResponseEntity<?>> response =
+                    new DeferredResult<>(batch.deadline().plus(BATCH_RESPONSE_GRACE).toMillis());
+            batchSummarizationService
+                    .summarize(userId, batch.fileIds(), batch.mode(), batch.saveAsNote(), batch.deadline(),
+                            result -> { })
+                    .thenApply(all -> {
+                        List<Map<String, Object>> results = new ArrayList<>();
+                        List<String> errors = new ArrayList<>();
+                        for (BatchSummarizationService.FileResult r : all) {
+                            if (r.success()) {
+                                results.add(Map.of(
+                                        "fileId", r.fileId(),
+                                        "fileName", r.fileName(),
+                                        "success", true,
+                                        "summary", r.summary()
+                                ));
+                            } else {
+                                errors.add("Failed to process " + r.fileId() + ": " + r.error());
+                                results.add(Map.of(
+                                        "fileId", r.fileId(),
+                                        "success", false,
+                                        "error", String.valueOf(r.error())
+                                ));
+                            }
+                        }
+                        return ResponseEntity.ok(Map.of(
+                                "success", true,
+                                "results", results,
+                                "errors", errors
+                        ));
+                    })
+                    .exceptionally(e -> ResponseEntity.internalServerError().body(Map.of(
+                            "success", false,
+                            "message", "Batch processing failed: " + e.getMessage()
+                    )))
+                    .thenAccept(response::setResult);
+            return response;
+        } catch (IllegalStateException e) {
+            DeferredResult<ResponseEntity<?>> response = new DeferredResult<>();
+            response.setResult(quotaExceeded(e));
+            return response;
+        } catch (Exception e) {
+            DeferredResult<ResponseEntity<?>> response = new DeferredResult<>();
+            response.setResult(ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "Batch processing failed: " + e.getMessage()
+            )));
+            return response;
+        }
+    }
 
-            @SuppressWarnings("unchecked")
-            List<String> fileIds = (List<String>) request.get("fileIds");
-            String mode = (String) request.getOrDefault("mode", "standard");
-            boolean saveAsNote = (boolean) request.getOrDefault("saveAsNote", true);
+    /**
+     * Same batch, streamed: one "result" event per file as soon as it finishes, then a
+     * "complete" event with the totals. Chosen with Accept: text/event-stream.
+     */
+    @PostMapping(value = "/summarize/batch", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter batchSummarizeStream(@RequestBody Map<String, Object> request) {
+        String userId = getCurrentUserId();
+        BatchRequest batch = BatchRequest.from(request, batchSummarizationService.defaultDeadline());
+        SseEmitter emitter = new SseEmitter(batch.deadline().plus(BATCH_RESPONSE_GRACE).toMillis());
 
-            List<Map<String, Object>> results = new ArrayList<>();
-            List<String> errors = new ArrayList<>();
+        try {
+            batchSummarizationService
+                    .summarize(userId, batch.fileIds(), batch.mode(), batch.saveAsNote(), batch.deadline(),
+                            r -> sendEvent(emitter, "result", r))
+                    .whenComplete((all, error) -> {
+                        if (error != null) {
+                            emitter.completeWithError(error);
+                            return;
+                        }
+                        long succeeded = all.stream().filter(BatchSummarizationService.FileResult::success).count();
+                        sendEvent(emitter, "complete", Map.of(
+                                "total", all.size(),
+                                "succeeded", succeeded,
+                                "failed", all.size() - succeeded
+                        ));
+                        emitter.complete();
+                    });
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            sendEvent(emitter, "error", Map.of("success", false, "message", e.getMessage()));
+            emitter.complete();
+        }
+        return emitter;
+    }
 
-            for (String fileId : fileIds) {
-                try {
-                    FileUpload file = fileUploadService.getFileById(fileId);
-                    if (!file.getUserId().equals(userId)) {
-                        errors.add("Access denied for file: " + fileId);
-                        continue;
-                    }
-
-                    // Process based on file type
-                    String summary = null;
-                    String extractedText = null;
-
-                    if (file.getCategory() == FileUpload.FileCategory.PDF) {
-                        // Process PDF
-                        GridFSFile gridFsFile = fileUploadService.downloadFile(file.getGridFsFileId());
-                        InputStream inputStream = gridFsTemplate.getResource(gridFsFile).getInputStream();
-                        extractedText = summarizationService.extractTextFromPDF(inputStream);
-                        summary = mode.equalsIgnoreCase("dementia")
-                                ? summarizationService.summarizeForDementiaPatient(extractedText)
-                                : summarizationService.summarizeText(extractedText);
-                        fileUploadService.markAsProcessed(fileId, extractedText, summary);
-                    } else if (file.getCategory() == FileUpload.FileCategory.AUDIO ||
-                            file.getCategory() == FileUpload.FileCategory.VIDEO) {
-                        // Process Audio/Video
-                        GridFSFile gridFsFile = fileUploadService.downloadFile(file.getGridFsFileId());
-                        InputStream inputStream = gridFsTemplate.getResource(gridFsFile).getInputStream();
-                        boolean dementiaMode = mode.equalsIgnoreCase("dementia");
-                        SummarizationService.TranscriptionResult result =
-                                summarizationService.transcribeAndSummarize(inputStream, file.getOriginalFileName(), dementiaMode);
-                        summary = result.getSummary();
-                        extractedText = result.getTranscription();
-                        fileUploadService.markAsProcessed(fileId, result.getTranscription(), result.getSummary());
-                    }
-
-                    // Save summary as note using createSummaryNote
-                    if (summary != null && saveAsNote) {
-                        noteService.createSummaryNote(
-                                userId,
-                                file.getCategory() + " Summary: " + file.getOriginalFileName(),
-                                summary,
-                                fileId,
-                                file.getOriginalFileName()
-                        );
-                    }
-
-                    results.add(Map.of(
-                            "fileId", fileId,
-                            "fileName", file.getOriginalFileName(),
-                            "success", true,
-                            "summary", summary != null ? summary : "Could not process this file type"
-                    ));
-                } catch (Exception e) {
-                    errors.add("Failed to process " + fileId + ": " + e.getMessage());
-                    results.add(Map.of(
-                            "fileId", fileId,
-                            "success", false,
-                            "error", e.getMessage()
-                    ));
-                }
+    // Results arrive from several pipeline threads; SseEmitter.send must not interleave
+    private static void sendEvent(SseEmitter emitter, String name, Object data) {
+        synchronized (emitter) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                // Client went away; the remaining files still finish and are saved
             }
+        }
+    }
 
-            return ResponseEntity.ok(Map.of(
-                    "success", true,
-                    "results", results,
-                    "errors", errors
-            ));
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body(Map.of(
-                    "success", false,
-                    "message", "Batch processing failed: " + e.getMessage()
-            ));
+    private record BatchRequest(List<String> fileIds, String mode, boolean saveAsNote, Duration deadline) {
+
+        @SuppressWarnings("unchecked")
+        static BatchRequest from(Map<String, Object> request, Duration maxDeadline) {
+            List<String> fileIds = (List<String>) request.get("fileIds");
+            String mode = (String) request.getOrDefault("mode", "standard");
+            boolean saveAsNote = (boolean) request.getOrDefault("saveAsNote", true);
+            Duration deadline = maxDeadline;
+            if (request.get("deadlineSeconds") instanceof Number seconds && seconds.longValue() > 0) {
+                deadline = Duration.ofSeconds(Math.min(seconds.longValue(), maxDeadline.toSeconds()));
+            }
+            return new BatchRequest(fileIds, mode, saveAsNote, deadline);
         }
     }
 
@@ -606,60 +694,110 @@ public class FileUploadController {
             @RequestParam(defaultValue = "standard") String mode,
             @RequestParam(defaultValue = "false") boolean saveAsNote) {
         try {
-            String userId = getCurrentUserId();
+            CustomUserDetails user = getCurrentUserDetails();
             FileUpload file = fileUploadService.getFileById(fileId);
-            if (!file.getUserId().equals(userId)) {
+            if (!file.getUserId().equals(user.getId())) {
                 return ResponseEntity.status(403).body(Map.of(
                         "success", false,
                         "message", "Access denied"
                 ));
             }
 
-            String summary;
-            String extractedText = file.getExtractedText();
-
-            // If no extracted text, need to re-extract
-            if (extractedText == null || extractedText.isEmpty()) {
-                GridFSFile gridFsFile = fileUploadService.downloadFile(file.getGridFsFileId());
-                InputStream inputStream = gridFsTemplate.getResource(gridFsFile).getInputStream();
-
-                if (file.getCategory() == FileUpload.FileCategory.PDF) {
-                    extractedText = summarizationService.extractTextFromPDF(inputStream);
-                } else if (file.getCategory() == FileUpload.FileCategory.AUDIO ||
-                        file.getCategory() == FileUpload.FileCategory.VIDEO) {
-                    extractedText = summarizationService.transcribeAudio(inputStream, file.getOriginalFileName());
-                }
-            }
+            SummarizationJob job = summarizationJobService.submit(user.getId(), user.getUsername(), file,
+                    SummarizationJob.JobType.REGENERATE, mode, saveAsNote, false);
+            return jobAccepted(job, "Summary regeneration started");
+        } catch (IllegalStateException e) {
+            return quotaExceeded(e);
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", "Failed to regenerate summary: " + e.getMessage()
+            ));
+        }
+    }
 
-            // Generate new summary
-            summary = mode.equalsIgnoreCase("dementia")
-                    ? summarizationService.summarizeForDementiaPatient(extractedText)
-                    : summarizationService.summarizeText(extractedText);
+    // ==================== SUMMARIZATION JOBS ====================
 
-            // Update file
-            fileUploadService.markAsProcessed(fileId, extractedText, summary);
+    @GetMapping("/jobs")
+    public ResponseEntity<?> getJobs() {
+        try {
+            String userId = getCurrentUserId();
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "data", summarizationJobService.getUserJobs(userId)
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", e.getMessage()
+            ));
+        }
+    }
 
-            // Save as note using createSummaryNote
-            if (saveAsNote) {
-                noteService.createSummaryNote(
-                        userId,
-                        file.getCategory() + " Summary (Regenerated): " + file.getOriginalFileName(),
-                        summary,
-                        fileId,
-                        file.getOriginalFileName()
-                );
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<?> getJob(@PathVariable String jobId) {
+        try {
+            String userId = getCurrentUserId();
+            SummarizationJob job = summarizationJobService.getJob(jobId);
+            if (!job.getUserId().equals(userId)) {
+                return ResponseEntity.status(403).body(Map.of(
+                        "success", false,
+                        "message", "Access denied"
+                ));
             }
+            return ResponseEntity.ok(Map.of(
+                    "success", true,
+                    "data", job
+            ));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "success", false,
+                    "message", e.getMessage()
+            ));
+        }
+    }
 
+    @PostMapping("/jobs/{jobId}/cancel")
+    public ResponseEntity<?> cancelJob(@PathVariable String jobId) {
+        try {
+            String userId = getCurrentUserId();
+            SummarizationJob job = summarizationJobService.getJob(jobId);
+            if (!job.getUserId().equals(userId)) {
+                return ResponseEntity.status(403).body(Map.of(
+                        "success", false,
+                        "message", "Access denied"
+                ));
+            }
             return ResponseEntity.ok(Map.of(
                     "success", true,
-                    "message", "Summary regenerated successfully",
-                    "data", summary
+                    "message", "Cancellation requested",
+                    "data", summarizationJobService.cancel(job)
             ));
         } catch (Exception e) {
             return ResponseEntity.badRequest().body(Map.of(
                     "success", false,
-                    "message", "Failed to regenerate summary: " + e.getMessage()
+                    "message", e.getMessage()
             ));
         }
     }
+
+    private static ResponseEntity<?> jobAccepted(SummarizationJob job, String message) {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of(
+                "success", true,
+                "message", message,
+                "data", Map.of(
+                        "jobId", job.getId(),
+                        "status", job.getStatus(),
+                        "stage", job.getStage(),
+                        "progress", job.getProgress()
+                )
+        ));
+    }
+
+    private static ResponseEntity<?> quotaExceeded(IllegalStateException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).body(Map.of(
+                "success", false,
+                "message", e.getMessage()
+        ));
+    }
 }
\ No newline at end of file
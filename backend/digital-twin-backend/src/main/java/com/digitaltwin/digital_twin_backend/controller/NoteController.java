@@ -108,15 +108,17 @@ public class NoteController {
 
     /**
      * Search notes
-     * GET /api/notes/search?q={keyword}
+     * GET /api/notes/search?q={keyword}&page=0&size=20
      */
     @GetMapping("/search")
     public ResponseEntity<ApiResponse<List<Note>>> searchNotes(
             @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size,
             Authentication authentication) {
         try {
             CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
-            List<Note> notes = noteService.searchNotes(userDetails.getId(), q);
+            List<Note> notes = noteService.searchNotes(userDetails.getId(), q, page, size);
             return ResponseEntity.ok(ApiResponse.success("Search results", notes));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
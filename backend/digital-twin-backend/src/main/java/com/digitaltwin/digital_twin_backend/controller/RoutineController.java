@@ -59,7 +59,7 @@ public class RoutineController {
             @PathVariable String id,
             Authentication authentication) {
         try {
-            Routine routine = routineService.getRoutineById(id);
+            Routine routine = routineService.getRoutineWithLogs(id);
             CustomUserDetails userDetails = (CustomUserDetails) authentication.getPrincipal();
 
             if (!routine.getUserId().equals(userDetails.getId())) {
@@ -0,0 +1,40 @@
+package com.digitaltwin.digital_twin_backend.controller;
+
+import com.digitaltwin.digital_twin_backend.dto.ApiResponse;
+import com.digitaltwin.digital_twin_backend.service.TranscriptionJobManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+/**
+ * Transcription Webhook Controller
+ * Receives AssemblyAI completion callbacks (public; verified by shared secret header)
+ */
+@RestController
+@RequestMapping("/api/public/transcriptions")
+@RequiredArgsConstructor
+public class TranscriptionWebhookController {
+
+    private final TranscriptionJobManager transcriptionJobManager;
+
+    @PostMapping("/webhook")
+    public ResponseEntity<ApiResponse<Void>> onTranscriptionWebhook(
+            @RequestBody Map<String, Object> payload,
+            @RequestHeader(value = TranscriptionJobManager.WEBHOOK_SECRET_HEADER, required = false) String secret) {
+
+        Object transcriptId = payload.get("transcript_id");
+        Object status = payload.get("status");
+        if (transcriptId == null || status == null) {
+            return ResponseEntity.badRequest().body(ApiResponse.error("transcript_id and status are required"));
+        }
+
+        boolean accepted = transcriptionJobManager.onWebhook(transcriptId.toString(), status.toString(), secret);
+        if (!accepted) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(ApiResponse.error("Invalid webhook secret"));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Webhook received"));
+    }
+}
@@ -21,6 +21,7 @@ public class Intent {
     private String type;              // MEMORY_OFFLOAD, MEDICATION_QUERY, etc.
     private String subType;           // DOCTOR_VISIT, MEDICINE_TIME, etc.
     private float confidence;         // 0.0 to 1.0
+    private List<Candidate> rankedIntents; // All scored intents, best first
 
     // Extracted entities
     private Map<String, String> entities;  // e.g., {"date": "kal", "person": "doctor"}
@@ -41,6 +42,15 @@ public class Intent {
     private boolean emergency;
     private String emergencyType;     // "FALL", "SOS", "MEDICAL"
 
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Candidate {
+        private String type;
+        private double score;         // Summed phrase weights
+        private float confidence;     // Calibrated 0.0 to 1.0
+    }
+
     public enum TimeReference {
         TODAY,
         YESTERDAY,
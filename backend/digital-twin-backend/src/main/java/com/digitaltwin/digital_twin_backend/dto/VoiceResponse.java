@@ -35,6 +35,13 @@ public class VoiceResponse {
     private String audioFormat;
     private int audioDurationSeconds;
 
+    // Streaming (status STREAMING): text arrives as deltas, audio per sentence
+    private String textDelta;
+    private Integer deltaSequence;
+    private boolean streamed;                // Final response whose audio was already streamed
+    private boolean streamReset;             // Discard the deltas so far; the full answer follows
+    private List<String> audioSegmentUrls;  // Sentence audio, in playback order
+
     // For HITL
     private boolean requiresReview;
     private String reviewId;               // HITL queue ID
@@ -65,6 +72,7 @@ public class VoiceResponse {
     public enum ResponseStatus {
         SUCCESS,                    // Everything done
         PROCESSING,                 // Still working (for polling)
+        STREAMING,                  // Incremental delta of a response in progress
         REVIEW_REQUIRED,            // Sent to HITL
         REVIEW_COMPLETED,           // HITL response ready
         ERROR,                       // Something failed
@@ -96,6 +104,37 @@ public class VoiceResponse {
                 .build();
     }
 
+    public static VoiceResponse textDelta(String interactionId, int sequence, String delta) {
+        return VoiceResponse.builder()
+                .interactionId(interactionId)
+                .status(ResponseStatus.STREAMING)
+                .textDelta(delta)
+                .deltaSequence(sequence)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public static VoiceResponse audioDelta(String interactionId, int sequence, String sentence, String audioUrl) {
+        return VoiceResponse.builder()
+                .interactionId(interactionId)
+                .status(ResponseStatus.STREAMING)
+                .textResponse(sentence)
+                .audioUrl(audioUrl)
+                .deltaSequence(sequence)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
+    public static VoiceResponse streamReset(String interactionId, int sequence) {
+        return VoiceResponse.builder()
+                .interactionId(interactionId)
+                .status(ResponseStatus.STREAMING)
+                .streamReset(true)
+                .deltaSequence(sequence)
+                .timestamp(LocalDateTime.now())
+                .build();
+    }
+
     public static VoiceResponse reviewRequired(String interactionId,
                                                String transcription,
                                                String reviewId,
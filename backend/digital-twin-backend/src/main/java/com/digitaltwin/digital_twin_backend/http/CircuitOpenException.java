@@ -0,0 +1,13 @@
+package com.digitaltwin.digital_twin_backend.http;
+
+import java.io.IOException;
+
+/**
+ * Thrown without touching the network while a provider's circuit breaker is open
+ */
+public class CircuitOpenException extends IOException {
+
+    public CircuitOpenException(String provider) {
+        super("Circuit open for provider " + provider);
+    }
+}
@@ -0,0 +1,101 @@
+package com.digitaltwin.digital_twin_backend.http;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One pooled OkHttpClient per outbound provider (openrouter, assemblyai, elevenlabs, ...).
+ * Each provider gets its own connection pool and dispatcher, HTTP/2 where the server
+ * offers it, configured timeouts, a per-host concurrency cap, jittered retries,
+ * a circuit breaker and latency metrics. Tuning lives under {@code app.http.<provider>.*}.
+ *
+ * Callers that need a longer timeout for one endpoint should use
+ * {@code forProvider(name).newBuilder()...build()}, which keeps the shared pool.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OutboundHttpClients {
+
+    private final Environment environment;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, OkHttpClient> clients = new ConcurrentHashMap<>();
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    public OkHttpClient forProvider(String provider) {
+        return clients.computeIfAbsent(provider, this::build);
+    }
+
+    public CircuitBreaker.State breakerState(String provider) {
+        CircuitBreaker breaker = breakers.get(provider);
+        return breaker != null ? breaker.getState() : CircuitBreaker.State.CLOSED;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        clients.values().forEach(client -> {
+            client.dispatcher().executorService().shutdown();
+            client.connectionPool().evictAll();
+        });
+    }
+
+    private OkHttpClient build(String provider) {
+        OutboundHttpSettings settings = OutboundHttpSettings.from(environment, provider);
+
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequestsPerHost(settings.maxConcurrentPerHost());
+        dispatcher.setMaxRequests(Math.max(64, settings.maxConcurrentPerHost() * 4));
+
+        CircuitBreaker breaker = new CircuitBreaker(settings.breakerFailureThreshold(), settings.breakerOpenMs());
+        breakers.put(provider, breaker);
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .protocols(List.of(Protocol.HTTP_2, Protocol.HTTP_1_1))
+                .connectionPool(new ConnectionPool(settings.maxIdleConnections(),
+                        settings.keepAliveMs(), TimeUnit.MILLISECONDS))
+                .dispatcher(dispatcher)
+                .connectTimeout(settings.connectTimeoutMs(), TimeUnit.MILLISECONDS)
+                .readTimeout(settings.readTimeoutMs(), TimeUnit.MILLISECONDS)
+                .writeTimeout(settings.writeTimeoutMs(), TimeUnit.MILLISECONDS)
+                // Transport replays (other route, stale pooled connection); backoff retries live in Retry
+                .retryOnConnectionFailure(true)
+                .addInterceptor(new OutboundInterceptors.Metrics(provider, meterRegistry))
+                .addInterceptor(new OutboundInterceptors.Breaker(provider, breaker))
+                .addInterceptor(new OutboundInterceptors.Retry(provider, settings))
+                .addInterceptor(new OutboundInterceptors.HostLimit(settings))
+                .build();
+
+        Gauge.builder("http.client.pool.connections", client.connectionPool(), ConnectionPool::connectionCount)
+                .description("Open pooled connections")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("http.client.pool.idle", client.connectionPool(), ConnectionPool::idleConnectionCount)
+                .description("Idle pooled connections")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        Gauge.builder("http.client.breaker.open", breaker, b -> b.getState() == CircuitBreaker.State.OPEN ? 1 : 0)
+                .description("1 while the provider's circuit breaker is open")
+                .tag("provider", provider)
+                .register(meterRegistry);
+
+        log.info("🌐 Outbound HTTP client for '{}' (connect {}ms, read {}ms, per-host {}, retries {})",
+                provider, settings.connectTimeoutMs(), settings.readTimeoutMs(),
+                settings.maxConcurrentPerHost(), settings.maxRetries());
+        return client;
+    }
+}
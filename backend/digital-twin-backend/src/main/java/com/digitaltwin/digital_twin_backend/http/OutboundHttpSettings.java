@@ -0,0 +1,45 @@
+package com.digitaltwin.digital_twin_backend.http;
+
+import org.springframework.core.env.Environment;
+
+/**
+ * Tuning for one outbound provider, read from {@code app.http.<provider>.*}
+ * with {@code app.http.default.*} as the fallback.
+ */
+public record OutboundHttpSettings(
+        long connectTimeoutMs,
+        long readTimeoutMs,
+        long writeTimeoutMs,
+        int maxIdleConnections,
+        long keepAliveMs,
+        int maxConcurrentPerHost,
+        long acquireTimeoutMs,
+        int maxRetries,
+        long retryBaseDelayMs,
+        long retryMaxDelayMs,
+        int breakerFailureThreshold,
+        long breakerOpenMs) {
+
+    static OutboundHttpSettings from(Environment env, String provider) {
+        return new OutboundHttpSettings(
+                get(env, provider, "connect-timeout-ms", 10_000L),
+                get(env, provider, "read-timeout-ms", 30_000L),
+                get(env, provider, "write-timeout-ms", 30_000L),
+                get(env, provider, "max-idle-connections", 10),
+                get(env, provider, "keep-alive-ms", 300_000L),
+                get(env, provider, "max-concurrent-per-host", 32),
+                get(env, provider, "acquire-timeout-ms", 10_000L),
+                get(env, provider, "max-retries", 2),
+                get(env, provider, "retry-base-delay-ms", 250L),
+                get(env, provider, "retry-max-delay-ms", 4_000L),
+                get(env, provider, "breaker-failure-threshold", 5),
+                get(env, provider, "breaker-open-ms", 30_000L));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T get(Environment env, String provider, String key, T defaultValue) {
+        Class<T> type = (Class<T>) defaultValue.getClass();
+        T fallback = env.getProperty("app.http.default." + key, type, defaultValue);
+        return env.getProperty("app.http." + provider + "." + key, type, fallback);
+    }
+}
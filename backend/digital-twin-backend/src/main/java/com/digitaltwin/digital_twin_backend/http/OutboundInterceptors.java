@@ -0,0 +1,297 @@
+package com.digitaltwin.digital_twin_backend.http;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.UnknownHostException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Interceptors installed on every provider client, outermost first:
+ * metrics, circuit breaker, retry, per-host concurrency limit.
+ *
+ * A call is only over when its response body is closed (an SSE stream may stay open for
+ * minutes), so the latency timer and the host permit end there, not when headers arrive.
+ */
+@Slf4j
+final class OutboundInterceptors {
+
+    private static final Set<Integer> RETRYABLE_STATUS = Set.of(429, 502, 503, 504);
+    private static final Pattern ID_SEGMENT = Pattern.compile("^(?=.*\\d)[A-Za-z0-9_-]{8,}$|^\\d+$");
+
+    private OutboundInterceptors() {
+    }
+
+    /**
+     * Records {@code http.client.outbound} per provider, endpoint and outcome
+     */
+    static final class Metrics implements Interceptor {
+
+        private final String provider;
+        private final MeterRegistry meterRegistry;
+
+        Metrics(String provider, MeterRegistry meterRegistry) {
+            this.provider = provider;
+            this.meterRegistry = meterRegistry;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (CircuitOpenException e) {
+                record(request, "CIRCUIT_OPEN", start);
+                throw e;
+            } catch (IOException | RuntimeException e) {
+                record(request, "IO_ERROR", start);
+                throw e;
+            }
+            String outcome = outcomeOf(response.code());
+            return onBodyClose(response, () -> record(request, outcome, start));
+        }
+
+        private void record(Request request, String outcome, long start) {
+            Timer.builder("http.client.outbound")
+                    .description("Outbound provider calls including retries, until the body is closed")
+                    .tag("provider", provider)
+                    .tag("method", request.method())
+                    .tag("endpoint", endpointOf(request))
+                    .tag("outcome", outcome)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+
+        private static String outcomeOf(int code) {
+            if (code >= 500) return "SERVER_ERROR";
+            if (code >= 400) return "CLIENT_ERROR";
+            return "SUCCESS";
+        }
+
+        // Keep tag cardinality bounded: drop query strings and collapse id-like path segments
+        private static String endpointOf(Request request) {
+            StringBuilder path = new StringBuilder();
+            for (String segment : request.url().pathSegments()) {
+                if (segment.isEmpty()) continue;
+                path.append('/').append(ID_SEGMENT.matcher(segment).matches() ? "{id}" : segment);
+            }
+            return path.length() == 0 ? "/" : path.toString();
+        }
+    }
+
+    /**
+     * Fails fast while the provider is unhealthy; 5xx, 429 and I/O errors count as failures
+     */
+    static final class Breaker implements Interceptor {
+
+        private final String provider;
+        private final CircuitBreaker circuitBreaker;
+
+        Breaker(String provider, CircuitBreaker circuitBreaker) {
+            this.provider = provider;
+            this.circuitBreaker = circuitBreaker;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new CircuitOpenException(provider);
+            }
+            try {
+                Response response = chain.proceed(chain.request());
+                if (response.code() >= 500 || response.code() == 429) {
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                return response;
+            } catch (IOException | RuntimeException e) {
+                circuitBreaker.onFailure();
+                if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+                    log.warn("⚠️ Circuit opened for {}: {}", provider, e.getMessage());
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Exponential backoff with jitter. Idempotent methods retry on I/O errors and retryable
+     * statuses. POST/PATCH retry only when the provider cannot have seen the request: the
+     * connection was never made, or a 503 with Retry-After (a 502/504 may have been processed).
+     *
+     * Transport-level recovery stays with OkHttp ({@code retryOnConnectionFailure(true)}):
+     * it silently replays on another route or after a stale pooled connection, immediately and
+     * only when nothing was sent. This layer adds the backoff retries on top and nothing else.
+     */
+    static final class Retry implements Interceptor {
+
+        private final String provider;
+        private final OutboundHttpSettings settings;
+
+        Retry(String provider, OutboundHttpSettings settings) {
+            this.provider = provider;
+            this.settings = settings;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            Request request = chain.request();
+            boolean idempotent = !"POST".equals(request.method()) && !"PATCH".equals(request.method());
+            boolean replayable = request.body() == null || !request.body().isOneShot();
+
+            for (int attempt = 0; ; attempt++) {
+                boolean canRetry = attempt < settings.maxRetries() && replayable;
+                long delay = backoff(attempt);
+                try {
+                    Response response = chain.proceed(request);
+                    if (!canRetry || !shouldRetry(response, idempotent)) {
+                        return response;
+                    }
+                    log.warn("🔁 {} {} returned {}, retrying (attempt {})",
+                            provider, request.url().encodedPath(), response.code(), attempt + 1);
+                    delay = Math.min(settings.retryMaxDelayMs(), Math.max(delay, retryAfterMs(response)));
+                    response.close();
+                } catch (InterruptedIOException e) {
+                    // Call timeout or cancellation: the caller has given up, don't try again
+                    throw e;
+                } catch (IOException e) {
+                    if (!canRetry || !(idempotent || neverSent(e))) {
+                        throw e;
+                    }
+                    log.warn("🔁 {} {} failed: {}, retrying (attempt {})",
+                            provider, request.url().encodedPath(), e.getMessage(), attempt + 1);
+                }
+                sleep(delay);
+            }
+        }
+
+        private static boolean shouldRetry(Response response, boolean idempotent) {
+            if (idempotent) {
+                return RETRYABLE_STATUS.contains(response.code());
+            }
+            return response.code() == 503 && response.header("Retry-After") != null;
+        }
+
+        // No connection, so nothing reached the provider
+        private static boolean neverSent(IOException e) {
+            return e instanceof ConnectException
+                    || e instanceof UnknownHostException
+                    || e instanceof NoRouteToHostException;
+        }
+
+        // Delay-seconds form only; an HTTP-date falls back to the normal backoff
+        private static long retryAfterMs(Response response) {
+            String retryAfter = response.header("Retry-After");
+            if (retryAfter == null) {
+                return 0;
+            }
+            try {
+                return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+
+        private long backoff(int attempt) {
+            long ceiling = Math.min(settings.retryMaxDelayMs(), settings.retryBaseDelayMs() << Math.min(attempt, 16));
+            return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+        }
+
+        private static void sleep(long millis) throws InterruptedIOException {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted during retry backoff");
+            }
+        }
+    }
+
+    /**
+     * Caps in-flight requests per host. The Dispatcher only limits enqueue()d calls,
+     * and most callers here use execute(), so the limit is enforced per attempt. The
+     * permit is held until the response body is closed.
+     */
+    static final class HostLimit implements Interceptor {
+
+        private final OutboundHttpSettings settings;
+        private final Map<String, Semaphore> permits = new ConcurrentHashMap<>();
+
+        HostLimit(OutboundHttpSettings settings) {
+            this.settings = settings;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            String host = chain.request().url().host();
+            Semaphore semaphore = permits.computeIfAbsent(host,
+                    h -> new Semaphore(settings.maxConcurrentPerHost(), true));
+            try {
+                if (!semaphore.tryAcquire(settings.acquireTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                    throw new IOException("Too many concurrent requests to " + host);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for " + host);
+            }
+            Response response;
+            try {
+                response = chain.proceed(chain.request());
+            } catch (IOException | RuntimeException e) {
+                semaphore.release();
+                throw e;
+            }
+            return onBodyClose(response, semaphore::release);
+        }
+    }
+
+    /**
+     * Runs {@code action} once, when the response body is closed (or right away without a body)
+     */
+    static Response onBodyClose(Response response, Runnable action) {
+        ResponseBody body = response.body();
+        if (body == null) {
+            action.run();
+            return response;
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        BufferedSource source = Okio.buffer(new ForwardingSource(body.source()) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (done.compareAndSet(false, true)) {
+                        action.run();
+                    }
+                }
+            }
+        });
+        return response.newBuilder()
+                .body(ResponseBody.create(source, body.contentType(), body.contentLength()))
+                .build();
+    }
+}
@@ -1,5 +1,6 @@
 package com.digitaltwin.digital_twin_backend.model;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
@@ -18,6 +19,7 @@ public class AudioChunk {
     private String data;                 // Base64 encoded audio data
     private String format;                // "webm", "wav", etc.
     private int sampleRate;               // 16000, 44100, etc.
+    @JsonProperty("isLast")
     private boolean isLast;                // Is this the final chunk?
 
     // Metadata
@@ -0,0 +1,33 @@
+package com.digitaltwin.digital_twin_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Output of an expensive step (PDF text, transcription, summary per mode) for a piece of
+ * content, keyed by content hash so re-uploads and shared files never repeat the work
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "derived_artifacts")
+public class DerivedArtifact {
+
+    @Id
+    private String id;              // contentHash + ":" + kind
+
+    private String contentHash;
+    private String kind;            // pdf-text, transcription, summary:standard, summary:dementia
+    private String value;
+
+    private LocalDateTime createdAt;
+
+    public static String key(String contentHash, String kind) {
+        return contentHash + ":" + kind;
+    }
+}
@@ -31,6 +31,7 @@ public class FileUpload {
     private FileCategory category; // PDF, IMAGE, AUDIO, VIDEO
 
     private String gridFsFileId; // GridFS file ID for large files
+    private String contentHash; // SHA-256 of the stored bytes (hex), computed while streaming
     private String fileUrl; // URL or path to access the file
 
     private String description;
@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.TextScore;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -45,6 +46,9 @@ public class Note {
 
     private Map<String, String> metadata;  // For additional data like HITL queue ID
 
+    @TextScore
+    private Float score;  // Relevance from $text search; read-only, null elsewhere
+
     public enum NoteType {
         SUMMARY,
         PERSONAL,
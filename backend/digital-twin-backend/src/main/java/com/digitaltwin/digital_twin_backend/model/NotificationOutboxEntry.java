@@ -0,0 +1,86 @@
+package com.digitaltwin.digital_twin_backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One SMS or email waiting to be sent. Callers only insert these; the dispatcher
+ * claims, sends, retries and finally marks them SENT or DEAD (dead letter).
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "notification_outbox")
+public class NotificationOutboxEntry {
+
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_URGENT = 10;
+
+    @Id
+    private String id;
+
+    private Channel channel;
+    private String recipient;      // Phone number or email address
+    private String subject;        // Email only
+    private String body;
+
+    private int priority = PRIORITY_NORMAL;   // Higher is claimed first
+    private Status status;
+    private int attempts;
+    private LocalDateTime nextAttemptAt;
+    private String lockedBy;       // Node currently sending it
+    private LocalDateTime lockedUntil;
+    private String lastError;
+
+    // Set for emergency alert notifications; delivery is written back to the alert
+    private String alertId;
+    private String caregiverId;
+    private String caregiverName;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime sentAt;
+
+    public enum Channel {
+        SMS,
+        EMAIL
+    }
+
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        DEAD
+    }
+
+    public static NotificationOutboxEntry sms(String phoneNumber, String text) {
+        NotificationOutboxEntry entry = new NotificationOutboxEntry();
+        entry.setChannel(Channel.SMS);
+        entry.setRecipient(phoneNumber);
+        entry.setBody(text);
+        return entry;
+    }
+
+    public static NotificationOutboxEntry email(String toEmail, String subject, String htmlBody) {
+        NotificationOutboxEntry entry = new NotificationOutboxEntry();
+        entry.setChannel(Channel.EMAIL);
+        entry.setRecipient(toEmail);
+        entry.setSubject(subject);
+        entry.setBody(htmlBody);
+        return entry;
+    }
+
+    public NotificationOutboxEntry urgent() {
+        this.priority = PRIORITY_URGENT;
+        return this;
+    }
+
+    public NotificationOutboxEntry forAlert(String alertId, String caregiverId, String caregiverName) {
+        this.alertId = alertId;
+        this.caregiverId = caregiverId;
+        this.caregiverName = caregiverName;
+        return this;
+    }
+}
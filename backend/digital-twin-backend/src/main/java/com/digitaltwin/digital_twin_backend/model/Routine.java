@@ -6,6 +6,7 @@ import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.annotation.Transient;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import java.time.LocalDateTime;
@@ -41,6 +42,8 @@ public class Routine {
 
     private boolean active = true;
 
+    // Recent entries from routine_logs, attached by RoutineService for the API; not stored here
+    @Transient
     private List<RoutineLog> logs = new ArrayList<>();
 
     @CreatedDate
@@ -0,0 +1,39 @@
+package com.digitaltwin.digital_twin_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One routine event (reminder sent, completed, skipped, missed), stored outside the
+ * routine document so history never has to be loaded or rewritten with the routine.
+ * (routineId, scheduledDateTime, status) is unique: each event happens once per slot.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "routine_logs")
+public class RoutineLogEntry {
+
+    @Id
+    private String id;
+
+    private String routineId;
+    private String userId;
+
+    private LocalDateTime scheduledDateTime;  // The slot this event belongs to
+    private LocalDateTime completedDateTime;
+    private Routine.RoutineStatus status;
+    private String notes;
+    private String completedBy;
+
+    private LocalDateTime createdAt;
+
+    public Routine.RoutineLog toRoutineLog() {
+        return new Routine.RoutineLog(scheduledDateTime, completedDateTime, status, notes, completedBy);
+    }
+}
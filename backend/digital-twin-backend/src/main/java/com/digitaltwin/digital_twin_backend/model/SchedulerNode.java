@@ -0,0 +1,26 @@
+package com.digitaltwin.digital_twin_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * Heartbeat record of one backend instance taking part in scheduled work
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "scheduler_nodes")
+public class SchedulerNode {
+
+    @Id
+    private String id;          // Node id, unique per running instance
+
+    private String host;
+    private LocalDateTime startedAt;
+    private LocalDateTime heartbeatAt;
+}
@@ -0,0 +1,31 @@
+package com.digitaltwin.digital_twin_backend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * One distinct piece of uploaded content in GridFS, shared by every FileUpload with the
+ * same bytes. The GridFS object is deleted when the last reference goes away.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document(collection = "stored_blobs")
+public class StoredBlob {
+
+    @Id
+    private String id;              // SHA-256 of the content (hex)
+
+    private String gridFsFileId;
+    private long size;
+    private String contentType;
+    private int refCount;           // FileUploads pointing at this blob
+
+    private LocalDateTime createdAt;
+    private LocalDateTime lastReferencedAt;
+}
@@ -0,0 +1,89 @@
+package com.digitaltwin.digital_twin_backend.model;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.LocalDateTime;
+
+/**
+ * A file summarization running in the background. The request only inserts this;
+ * a worker claims it, runs the stages and stores each stage's output, so a job
+ * picked up again after a restart continues where it stopped.
+ */
+@Data
+@NoArgsConstructor
+@Document(collection = "summarization_jobs")
+public class SummarizationJob {
+
+    @Id
+    private String id;
+
+    private String userId;
+    private String username;       // Progress events go to /user/{username}/queue/jobs.progress
+    private String fileId;
+    private String fileName;
+
+    private JobType type;
+    private String mode;           // "standard" or "dementia"
+    private boolean saveAsNote;
+    private boolean saveTranscription;
+
+    private Status status;
+    private Stage stage;
+    private boolean cancelRequested;
+    private int attempts;
+    private String lockedBy;       // Node currently running it
+    private LocalDateTime lockedUntil;
+
+    // Stage outputs
+    private String extractedText;  // PDF text or transcription
+    private String summary;
+    private boolean notesSaved;    // File marked processed and notes created
+    private String error;
+
+    private LocalDateTime createdAt;
+    private LocalDateTime startedAt;
+    private LocalDateTime updatedAt;
+    private LocalDateTime finishedAt;
+
+    public enum JobType {
+        SUMMARIZE,
+        REGENERATE
+    }
+
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    public enum Stage {
+        QUEUED(0),
+        EXTRACTING(10),       // PDF text extraction or AssemblyAI transcription
+        SUMMARIZING(60),
+        SAVING(90),           // File marked processed, notes created
+        DONE(100);
+
+        private final int progress;
+
+        Stage(int progress) {
+            this.progress = progress;
+        }
+
+        public int getProgress() {
+            return progress;
+        }
+    }
+
+    public int getProgress() {
+        return stage != null ? stage.getProgress() : 0;
+    }
+}
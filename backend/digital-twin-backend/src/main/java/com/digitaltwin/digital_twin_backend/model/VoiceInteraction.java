@@ -96,11 +96,17 @@ public class VoiceInteraction {
     @NoArgsConstructor
     @AllArgsConstructor
     public static class ContextSource {
+        public static final String RETRIEVED = "RETRIEVED";
+        public static final String SKIPPED = "SKIPPED";
+        public static final String FAILED = "FAILED";
+
         private String sourceType;      // NOTE, MEDICATION, ROUTINE, FILE
         private String sourceId;        // ID of the document
         private String sourceTitle;     // Title/name for display
         private double relevanceScore;  // How relevant (0-1)
         private LocalDateTime retrievedAt;
+        private String strategy;        // TIME, MEMORY, MEDICATION, ROUTINE, KEYWORD
+        private String status;          // RETRIEVED, or SKIPPED/FAILED for a whole strategy
     }
 
     @Data
@@ -0,0 +1,11 @@
+package com.digitaltwin.digital_twin_backend.repository;
+
+import com.digitaltwin.digital_twin_backend.model.DerivedArtifact;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface DerivedArtifactRepository extends MongoRepository<DerivedArtifact, String> {
+
+    void deleteByContentHash(String contentHash);
+}
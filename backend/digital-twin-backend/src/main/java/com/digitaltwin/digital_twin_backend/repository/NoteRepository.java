@@ -1,18 +1,25 @@
 package com.digitaltwin.digital_twin_backend.repository;
 
 import com.digitaltwin.digital_twin_backend.model.Note;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface NoteRepository extends MongoRepository<Note, String> {
 
     List<Note> findByUserId(String userId);
 
+    long countByUserId(String userId);
+
+    Optional<Note> findFirstByUserIdOrderByUpdatedAtDesc(String userId);
+
     List<Note> findByUserIdAndArchivedOrderByCreatedAtDesc(String userId, boolean archived);
 
     // FIX: Use Note.NoteType enum directly, not String
@@ -30,8 +37,8 @@ public interface NoteRepository extends MongoRepository<Note, String> {
             String userId2, String title
     );
 
-    @Query("{ 'userId': ?0, $text: { $search: ?1 } }")
-    List<Note> searchByText(String userId, String searchText);
+    // $text search over the notes_user_text index, best textScore first; no count query
+    List<Note> findByUserIdAndArchivedFalseOrderByScoreDesc(String userId, TextCriteria criteria, Pageable pageable);
     
     @Query("{ 'userId': ?0, 'type': ?1, 'createdAt': { $gte: ?2, $lt: ?3 } }")
     List<Note> findByUserIdAndTypeAndDateRange(String userId, Note.NoteType type, LocalDateTime start, LocalDateTime end);
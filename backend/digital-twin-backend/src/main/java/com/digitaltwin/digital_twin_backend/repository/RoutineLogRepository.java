@@ -0,0 +1,23 @@
+package com.digitaltwin.digital_twin_backend.repository;
+
+import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.model.RoutineLogEntry;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface RoutineLogRepository extends MongoRepository<RoutineLogEntry, String> {
+
+    // Point lookups on the unique (routineId, scheduledDateTime, status) index
+    boolean existsByRoutineIdAndStatusInAndScheduledDateTimeBetween(
+            String routineId, Collection<Routine.RoutineStatus> statuses, LocalDateTime start, LocalDateTime end);
+
+    List<RoutineLogEntry> findByRoutineIdInAndScheduledDateTimeGreaterThanEqual(
+            Collection<String> routineIds, LocalDateTime from);
+
+    void deleteByRoutineId(String routineId);
+}
@@ -4,6 +4,7 @@ import com.digitaltwin.digital_twin_backend.model.Routine;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -12,5 +13,6 @@ public interface RoutineRepository extends MongoRepository<Routine,String> {
     List<Routine> findByUserIdAndActiveTrue(String userId);
     List<Routine> findByActiveTrue();
     List<Routine> findByUserIdAndCategory(String userId,Routine.ActivityCategory category);
+    List<Routine> findByUpdatedAtAfter(LocalDateTime since);
 
 }
@@ -0,0 +1,22 @@
+package com.digitaltwin.digital_twin_backend.repository;
+
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SummarizationJobRepository extends MongoRepository<SummarizationJob, String> {
+
+    List<SummarizationJob> findTop50ByUserIdOrderByCreatedAtDesc(String userId);
+
+    long countByUserIdAndStatusIn(String userId, Collection<SummarizationJob.Status> statuses);
+
+    // An unfinished job for the same file and request, reused instead of starting a second one
+    Optional<SummarizationJob> findFirstByUserIdAndFileIdAndTypeAndModeAndStatusIn(
+            String userId, String fileId, SummarizationJob.JobType type, String mode,
+            Collection<SummarizationJob.Status> statuses);
+}
@@ -0,0 +1,224 @@
+package com.digitaltwin.digital_twin_backend.scheduler;
+
+import com.digitaltwin.digital_twin_backend.model.SchedulerNode;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live backend instances, discovered through heartbeats in the scheduler_nodes
+ * collection, and the split of scheduled work between them.
+ *
+ * Work is keyed by patient id and assigned with rendezvous hashing, so every node
+ * handles a disjoint share and adding a node adds capacity. When a node joins or
+ * dies only the keys it gains or loses move. With clustering disabled, or while the
+ * membership is unknown, this node owns everything (the single-instance behaviour).
+ *
+ * Heartbeats run on their own thread rather than the shared @Scheduled one, so a long
+ * routine tick or dispatch batch can't delay them past the TTL and make the other
+ * nodes drop this one.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ClusterMembership {
+
+    private final MongoTemplate mongoTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.cluster.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.cluster.node-id:}")
+    private String configuredNodeId;
+
+    // A node that has not heartbeated for this long is considered gone
+    @Value("${app.cluster.node-ttl-ms:15000}")
+    private long nodeTtlMs;
+
+    @Value("${app.cluster.heartbeat-ms:5000}")
+    private long heartbeatMs;
+
+    // How long startup waits for the first heartbeat before going on as the only member
+    @Value("${app.cluster.startup-wait-ms:2000}")
+    private long startupWaitMs;
+
+    private String nodeId;
+    private LocalDateTime startedAt;
+    private volatile List<String> members = List.of();
+    private final AtomicLong version = new AtomicLong();
+    private ScheduledExecutorService heartbeater;
+
+    @PostConstruct
+    public void init() {
+        nodeId = configuredNodeId != null && !configuredNodeId.isBlank()
+                ? configuredNodeId
+                : hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        startedAt = LocalDateTime.now();
+        members = List.of(nodeId);
+
+        Gauge.builder("scheduler.cluster.members", this, m -> m.members.size())
+                .description("Live backend instances sharing scheduled work")
+                .register(meterRegistry);
+
+        if (enabled) {
+            heartbeater = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r);
+                t.setName("cluster-heartbeat-" + t.threadId());
+                t.setDaemon(true);
+                return t;
+            });
+            awaitFirstHeartbeat(heartbeater.submit(this::heartbeat));
+            heartbeater.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        }
+        log.info("🛰️ Scheduler node {} ({})", nodeId, enabled ? "clustered" : "standalone");
+    }
+
+    // An unreachable Mongo would hold startup for the driver's server selection timeout
+    private void awaitFirstHeartbeat(Future<?> first) {
+        try {
+            first.get(startupWaitMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warn("⚠️ First scheduler heartbeat still pending after {}ms, starting as the only known member",
+                    startupWaitMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.warn("⚠️ First scheduler heartbeat failed: {}", e.getCause().getMessage());
+        }
+    }
+
+    public void heartbeat() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            mongoTemplate.upsert(new Query(Criteria.where("_id").is(nodeId)),
+                    new Update()
+                            .set("host", hostName())
+                            .set("heartbeatAt", now)
+                            .setOnInsert("startedAt", startedAt),
+                    SchedulerNode.class);
+
+            List<String> live = new ArrayList<>(mongoTemplate.find(
+                            new Query(Criteria.where("heartbeatAt").gte(now.minusNanos(nodeTtlMs * 1_000_000))),
+                            SchedulerNode.class)
+                    .stream()
+                    .map(SchedulerNode::getId)
+                    .sorted()
+                    .toList());
+            if (!live.contains(nodeId)) {
+                live.add(nodeId);
+            }
+
+            if (!live.equals(members)) {
+                log.info("🛰️ Scheduler membership changed: {} -> {}", members, live);
+                members = List.copyOf(live);
+                version.incrementAndGet();
+            }
+        } catch (Exception e) {
+            // Keep the last known membership; the unique slot index still prevents duplicates
+            log.warn("⚠️ Scheduler heartbeat failed for node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void leave() {
+        if (!enabled) {
+            return;
+        }
+        if (heartbeater != null) {
+            heartbeater.shutdownNow();
+        }
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(nodeId)), SchedulerNode.class);
+        } catch (Exception e) {
+            log.debug("Could not deregister scheduler node {}: {}", nodeId, e.getMessage());
+        }
+    }
+
+    /**
+     * Whether this node handles scheduled work for the given key (normally a patient id)
+     */
+    public boolean owns(String key) {
+        List<String> current = members;
+        if (!enabled || current.size() <= 1 || key == null) {
+            return true;
+        }
+
+        long keyHash = hash64(key);
+        String owner = null;
+        long best = 0;
+        for (String member : current) {
+            long weight = mix64(keyHash ^ hash64(member));
+            if (owner == null || Long.compareUnsigned(weight, best) > 0) {
+                owner = member;
+                best = weight;
+            }
+        }
+        return nodeId.equals(owner);
+    }
+
+    /**
+     * Incremented on every membership change; owners of cached work should re-check
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public List<String> getMembers() {
+        return members;
+    }
+
+    // 64-bit FNV-1a over UTF-8, identical on every node
+    private static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb93fe53ec0fbL;
+        return z ^ (z >>> 33);
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (Exception e) {
+            return "node";
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package com.digitaltwin.digital_twin_backend.scheduler;
+
+import com.digitaltwin.digital_twin_backend.model.Routine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Time-ordered queue of the next reminder and missed-check instant of every active
+ * routine with reminders enabled. The scheduler only polls what is due, so a tick
+ * costs O(due routines) instead of O(all routines).
+ *
+ * Each routine has at most one live entry per kind; re-scheduling replaces it and
+ * the superseded entry is discarded when it reaches the head of the queue.
+ */
+@Component
+@RequiredArgsConstructor
+public class RoutineDueQueue {
+
+    public static final int MISSED_ROUTINE_GRACE_MINUTES = 3;
+
+    // Weekly schedules always recur within this many days
+    private static final int LOOKAHEAD_DAYS = 8;
+
+    public enum Kind {
+        REMINDER,
+        MISSED_CHECK
+    }
+
+    /**
+     * One pending check: at {@code dueAt}, evaluate {@code kind} for the occurrence at {@code scheduledDateTime}
+     */
+    public record Due(String routineId, Kind kind, LocalDateTime scheduledDateTime, LocalDateTime dueAt) {
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final PriorityQueue<Due> queue = new PriorityQueue<>(Comparator.comparing(Due::dueAt));
+    private final Map<String, Map<Kind, Due>> live = new HashMap<>();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("routines.due.queue.size", this, RoutineDueQueue::size)
+                .description("Routines with a pending reminder or missed check")
+                .register(meterRegistry);
+    }
+
+    /**
+     * (Re)compute both checks for a routine from its current state; call after create,
+     * update, completion and at startup. Inactive routines are simply removed.
+     */
+    public synchronized void schedule(Routine routine, LocalDateTime now) {
+        live.remove(routine.getId());
+        if (!isSchedulable(routine)) {
+            return;
+        }
+
+        // A reminder is still useful until the routine starts
+        LocalDateTime reminderFor = nextOccurrence(routine, now);
+        if (reminderFor != null) {
+            push(new Due(routine.getId(), Kind.REMINDER, reminderFor,
+                    reminderFor.minusMinutes(routine.getReminderMinutesBefore())));
+        }
+
+        // A missed check is still useful on the day its grace period ends, so yesterday's
+        // late-evening routine can still be caught just after midnight
+        LocalDateTime missedFrom = now.toLocalDate().atStartOfDay()
+                .minusMinutes(MISSED_ROUTINE_GRACE_MINUTES).minusNanos(1);
+        LocalDateTime missedFor = nextOccurrence(routine, missedFrom);
+        if (missedFor != null) {
+            push(new Due(routine.getId(), Kind.MISSED_CHECK, missedFor,
+                    missedFor.plusMinutes(MISSED_ROUTINE_GRACE_MINUTES)));
+        }
+    }
+
+    /**
+     * Move one check of a routine on to its next occurrence after {@code handled}
+     */
+    public synchronized void advance(Routine routine, Kind kind, LocalDateTime handled, LocalDateTime now) {
+        Map<Kind, Due> entries = live.get(routine.getId());
+        if (entries != null) {
+            entries.remove(kind);
+        }
+        if (!isSchedulable(routine)) {
+            return;
+        }
+
+        LocalDateTime after = kind == Kind.REMINDER && now.isAfter(handled) ? now : handled;
+        LocalDateTime next = nextOccurrence(routine, after);
+        if (next == null) {
+            return;
+        }
+        LocalDateTime dueAt = kind == Kind.REMINDER
+                ? next.minusMinutes(routine.getReminderMinutesBefore())
+                : next.plusMinutes(MISSED_ROUTINE_GRACE_MINUTES);
+        push(new Due(routine.getId(), kind, next, dueAt));
+    }
+
+    public synchronized void remove(String routineId) {
+        live.remove(routineId);
+    }
+
+    /**
+     * Remove and return every live entry due at or before {@code now}, earliest first
+     */
+    public synchronized List<Due> pollDue(LocalDateTime now) {
+        List<Due> due = new ArrayList<>();
+        while (!queue.isEmpty() && !queue.peek().dueAt().isAfter(now)) {
+            Due head = queue.poll();
+            Map<Kind, Due> entries = live.get(head.routineId());
+            if (entries != null && entries.get(head.kind()) == head) {
+                entries.remove(head.kind());
+                if (entries.isEmpty()) {
+                    live.remove(head.routineId());
+                }
+                due.add(head);
+            }
+        }
+        return due;
+    }
+
+    public synchronized void clear() {
+        queue.clear();
+        live.clear();
+    }
+
+    public synchronized int size() {
+        return live.values().stream().mapToInt(Map::size).sum();
+    }
+
+    public static boolean isScheduledOnDate(Routine routine, LocalDate date) {
+        if (routine.getDaysOfWeek() == null || routine.getDaysOfWeek().isEmpty()) {
+            return true; // No restriction = daily
+        }
+        String dayOfWeek = date.getDayOfWeek().name();
+        return routine.getDaysOfWeek().stream()
+                .anyMatch(day -> day.equalsIgnoreCase(dayOfWeek));
+    }
+
+    private void push(Due due) {
+        live.computeIfAbsent(due.routineId(), id -> new HashMap<>()).put(due.kind(), due);
+        queue.add(due);
+
+        // Superseded entries are dropped lazily; compact if they start to dominate
+        if (queue.size() > 8 * Math.max(64, live.size())) {
+            queue.removeIf(d -> {
+                Map<Kind, Due> entries = live.get(d.routineId());
+                return entries == null || entries.get(d.kind()) != d;
+            });
+        }
+    }
+
+    private static boolean isSchedulable(Routine routine) {
+        return routine.isActive() && routine.isReminderEnabled() && routine.getScheduledTime() != null;
+    }
+
+    // First occurrence strictly after the given instant, or null if the routine never recurs
+    private static LocalDateTime nextOccurrence(Routine routine, LocalDateTime after) {
+        LocalDate date = after.toLocalDate();
+        for (int i = 0; i <= LOOKAHEAD_DAYS; i++) {
+            LocalDate candidate = date.plusDays(i);
+            if (!isScheduledOnDate(routine, candidate)) {
+                continue;
+            }
+            LocalDateTime occurrence = LocalDateTime.of(candidate, routine.getScheduledTime());
+            if (occurrence.isAfter(after)) {
+                return occurrence;
+            }
+        }
+        return null;
+    }
+}
@@ -1,23 +1,26 @@
 package com.digitaltwin.digital_twin_backend.scheduler;
 
 import com.digitaltwin.digital_twin_backend.model.EmergencyAlert;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
 import com.digitaltwin.digital_twin_backend.model.Routine;
 import com.digitaltwin.digital_twin_backend.model.User;
 import com.digitaltwin.digital_twin_backend.repository.EmergencyAlertRepository;
 import com.digitaltwin.digital_twin_backend.repository.RoutineRepository;
-import com.digitaltwin.digital_twin_backend.repository.UserRepository;
+import com.digitaltwin.digital_twin_backend.service.CaregiverGraphService;
+import com.digitaltwin.digital_twin_backend.service.CaregiverGraphService.CareCircle;
 import com.digitaltwin.digital_twin_backend.service.NotificationService;
 import com.digitaltwin.digital_twin_backend.service.RoutineService;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 
 @Component
@@ -25,49 +28,109 @@ import java.util.List;
 public class RoutineScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(RoutineScheduler.class);
-    private static final int MISSED_ROUTINE_GRACE_MINUTES = 3;
 
     private final RoutineRepository routineRepository;
     private final RoutineService routineService;
-    private final UserRepository userRepository;
+    private final CaregiverGraphService caregiverGraphService;
     private final NotificationService notificationService;
     private final EmergencyAlertRepository emergencyAlertRepository;
+    private final RoutineDueQueue dueQueue;
+    private final ClusterMembership clusterMembership;
+
+    // Membership version the due-queue was last built for
+    private volatile long builtForMembership = -1;
+    private volatile LocalDateTime lastChangeSync = LocalDateTime.now();
+
+    /**
+     * Fill the due-queue from the database with the routines of the patients this
+     * node owns; the only full scan of routines. Repeated when cluster membership
+     * changes and every {@code app.routines.scheduler.resync-ms} as a safety net.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuildDueQueue() {
+        long membershipVersion = clusterMembership.getVersion();
+        LocalDateTime now = LocalDateTime.now();
+        List<Routine> ownedRoutines = routineRepository.findByActiveTrue().stream()
+                .filter(routine -> clusterMembership.owns(routine.getUserId()))
+                .toList();
+        dueQueue.clear();
+        ownedRoutines.forEach(routine -> dueQueue.schedule(routine, now));
+        builtForMembership = membershipVersion;
+        lastChangeSync = now;
+        logger.info("📅 Routine due-queue rebuilt on node {}: {} owned routines, {} pending checks",
+                clusterMembership.getNodeId(), ownedRoutines.size(), dueQueue.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.routines.scheduler.resync-ms:3600000}",
+            initialDelayString = "${app.routines.scheduler.resync-ms:3600000}")
+    public void resyncDueQueue() {
+        rebuildDueQueue();
+    }
+
+    /**
+     * Routines created or edited through another node are picked up here by their
+     * owner; changes made on this node are already scheduled by RoutineService.
+     */
+    @Scheduled(fixedDelayString = "${app.routines.scheduler.change-sync-ms:30000}")
+    public synchronized void syncChangedRoutines() {
+        if (builtForMembership != clusterMembership.getVersion()) {
+            rebuildDueQueue();
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        // Overlap the previous window slightly; re-scheduling a routine is idempotent
+        List<Routine> changed = routineRepository.findByUpdatedAtAfter(lastChangeSync.minusSeconds(5));
+        for (Routine routine : changed) {
+            if (clusterMembership.owns(routine.getUserId())) {
+                dueQueue.schedule(routine, now);
+            } else {
+                dueQueue.remove(routine.getId());
+            }
+        }
+        lastChangeSync = now;
+    }
 
     /**
-     * Runs every 60 seconds.
+     * Only routines whose reminder or missed-check instant has arrived are loaded.
      * 1. Remind patient before a scheduled routine
      * 2. Alert caregivers if a routine was not marked done within the grace period
      */
-    @Scheduled(fixedRate = 60000)
+    @Scheduled(fixedDelayString = "${app.routines.scheduler.tick-ms:15000}")
     public void checkRoutines() {
-        logger.debug("📅 Scheduler tick — checking routines");
-
-        List<Routine> activeRoutines = routineRepository.findByActiveTrue();
-        if (activeRoutines.isEmpty()) {
+        if (builtForMembership != clusterMembership.getVersion()) {
+            rebuildDueQueue();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        List<RoutineDueQueue.Due> dueChecks = dueQueue.pollDue(now);
+        if (dueChecks.isEmpty()) {
             return;
         }
+        logger.debug("📅 Scheduler tick — {} due routine checks", dueChecks.size());
 
-        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
-        List<LocalDate> candidateDates = Arrays.asList(now.toLocalDate(), now.toLocalDate().minusDays(1));
-
-        for (Routine routine : activeRoutines) {
-            if (routine.getScheduledTime() == null) {
+        for (RoutineDueQueue.Due due : dueChecks) {
+            Routine routine = routineRepository.findById(due.routineId()).orElse(null);
+            if (routine == null) {
                 continue;
             }
-
-            // Only process reminders/alerts for routines that have reminderEnabled=true
-            if (!routine.isReminderEnabled()) {
+            if (!clusterMembership.owns(routine.getUserId())) {
+                dueQueue.remove(routine.getId());
                 continue;
             }
 
-            for (LocalDate scheduledDate : candidateDates) {
-                if (!isScheduledOnDate(routine, scheduledDate)) {
-                    continue;
+            try {
+                // Only process reminders/alerts for routines that are still active with reminderEnabled=true
+                if (routine.isActive() && routine.isReminderEnabled() && routine.getScheduledTime() != null
+                        && routine.getScheduledTime().equals(due.scheduledDateTime().toLocalTime())) {
+                    if (due.kind() == RoutineDueQueue.Kind.REMINDER) {
+                        checkReminder(routine, due.scheduledDateTime(), now);
+                    } else {
+                        checkMissed(routine, due.scheduledDateTime(), now);
+                    }
                 }
-
-                LocalDateTime scheduledDateTime = LocalDateTime.of(scheduledDate, routine.getScheduledTime());
-                checkReminder(routine, scheduledDateTime, now);
-                checkMissed(routine, scheduledDateTime, now);
+            } catch (Exception e) {
+                logger.error("❌ Routine check failed for {}: {}", routine.getId(), e.getMessage());
+            } finally {
+                dueQueue.advance(routine, due.kind(), due.scheduledDateTime(), now);
             }
         }
     }
@@ -78,111 +141,110 @@ public class RoutineScheduler {
 
         if (!now.isBefore(reminderTime) && now.isBefore(scheduledDateTime)) {
             // Don't remind if already completed
-            if (isCompletedForSchedule(routine, scheduledDateTime))
+            if (routineService.isCompletedForSchedule(routine.getId(), scheduledDateTime))
                 return;
 
-            // Don't send the same reminder every scheduler tick
-            if (reminderAlreadySent(routine, scheduledDateTime))
+            // Claim the slot first; only one sender ever wins it
+            if (!routineService.logRoutineReminderSent(routine, scheduledDateTime))
                 return;
 
             logger.info("📅 Sending routine reminder — Activity: {}, Patient: {}, Due at: {}",
                     routine.getActivityName(), routine.getUserId(), scheduledDateTime.toLocalTime());
 
-            routineService.logRoutineReminderSent(routine.getId(), scheduledDateTime);
+            caregiverGraphService.getCareCircle(routine.getUserId()).ifPresent(circle -> {
+                User patient = circle.patient();
+                List<NotificationOutboxEntry> notifications = new ArrayList<>();
 
-            userRepository.findById(routine.getUserId()).ifPresent(patient -> {
                 // SMS reminder to patient
                 if (patient.getPhoneNumber() != null && !patient.getPhoneNumber().isBlank()) {
-                    notificationService.sendRoutineReminder(
+                    notifications.add(notificationService.routineReminderSms(
                             patient.getPhoneNumber(),
                             routine.getActivityName(),
-                            scheduledDateTime.toLocalTime().toString());
+                            scheduledDateTime.toLocalTime().toString()));
                 }
 
                 // Email reminder to patient
                 if (patient.getEmail() != null && !patient.getEmail().isBlank()) {
-                    notificationService.sendRoutineReminderEmail(
+                    notifications.add(notificationService.routineReminderEmail(
                             patient.getEmail(),
                             patient.getFullName(),
                             routine.getActivityName(),
-                            scheduledDateTime.toLocalTime().toString());
+                            scheduledDateTime.toLocalTime().toString()));
                 }
 
                 // SMS reminder to caregiver(s)
-                if (patient.getCaregiverIds() != null && !patient.getCaregiverIds().isEmpty()) {
-                    for (String caregiverId : patient.getCaregiverIds()) {
-                        userRepository.findById(caregiverId).ifPresent(caregiver -> {
-                            if (caregiver.getPhoneNumber() != null && !caregiver.getPhoneNumber().isBlank()) {
-                                notificationService.sendSMS(
-                                        caregiver.getPhoneNumber(),
-                                        String.format("Reminder: Patient %s has a routine '%s' scheduled at %s.", 
-                                                patient.getFullName(), routine.getActivityName(), scheduledDateTime.toLocalTime()));
-                            }
-                        });
+                for (User caregiver : circle.caregivers()) {
+                    if (caregiver.getPhoneNumber() != null && !caregiver.getPhoneNumber().isBlank()) {
+                        notifications.add(NotificationOutboxEntry.sms(
+                                caregiver.getPhoneNumber(),
+                                String.format("Reminder: Patient %s has a routine '%s' scheduled at %s.", 
+                                        patient.getFullName(), routine.getActivityName(), scheduledDateTime.toLocalTime())));
                     }
                 }
                 
                 // SMS reminder to emergency contacts as well, if any
-                if (patient.getEmergencyContacts() != null && !patient.getEmergencyContacts().isEmpty()) {
-                    for (User.EmergencyContact contact : patient.getEmergencyContacts()) {
-                        if (contact.getPhoneNumber() != null && !contact.getPhoneNumber().isBlank()) {
-                            notificationService.sendSMS(
-                                    contact.getPhoneNumber(),
-                                    String.format("Reminder: Patient %s has a routine '%s' scheduled at %s.", 
-                                            patient.getFullName(), routine.getActivityName(), scheduledDateTime.toLocalTime()));
-                        }
+                for (User.EmergencyContact contact : circle.emergencyContacts()) {
+                    if (contact.getPhoneNumber() != null && !contact.getPhoneNumber().isBlank()) {
+                        notifications.add(NotificationOutboxEntry.sms(
+                                contact.getPhoneNumber(),
+                                String.format("Reminder: Patient %s has a routine '%s' scheduled at %s.", 
+                                        patient.getFullName(), routine.getActivityName(), scheduledDateTime.toLocalTime())));
                     }
                 }
+
+                notificationService.enqueue(notifications);
             });
         }
     }
 
     private void checkMissed(Routine routine, LocalDateTime scheduledDateTime, LocalDateTime now) {
         // Give the patient a short grace period after the scheduled start time.
-        LocalDateTime missedThreshold = scheduledDateTime.plusMinutes(MISSED_ROUTINE_GRACE_MINUTES);
+        LocalDateTime missedThreshold = scheduledDateTime.plusMinutes(RoutineDueQueue.MISSED_ROUTINE_GRACE_MINUTES);
         if (!missedThreshold.toLocalDate().equals(now.toLocalDate())) {
             return;
         }
 
         if (!now.isBefore(missedThreshold)) {
             // Already taken/completed — no alert needed
-            if (isCompletedForSchedule(routine, scheduledDateTime))
+            if (routineService.isCompletedForSchedule(routine.getId(), scheduledDateTime))
                 return;
 
-            // Already alerted for this — avoid duplicate alerts
-            if (alertAlreadyCreated(routine, scheduledDateTime))
+            // Log it internally as MISSED; already logged means already alerted
+            if (!routineService.logRoutineMissed(routine, scheduledDateTime))
                 return;
 
             logger.warn("🚨 Missed routine detected — {}, Patient: {}, Was due at: {}",
                     routine.getActivityName(), routine.getUserId(), scheduledDateTime.toLocalTime());
 
-            // Log it internally as MISSED
-            routineService.logRoutineMissed(routine.getId(), scheduledDateTime);
+            caregiverGraphService.getCareCircle(routine.getUserId()).ifPresent(circle -> {
+                User patient = circle.patient();
+
+                List<NotificationOutboxEntry> notifications = new ArrayList<>();
 
-            userRepository.findById(routine.getUserId()).ifPresent(patient -> {
                 // Create emergency alert
                 createMissedAlert(patient, routine, scheduledDateTime.toLocalTime());
                 
                 if (patient.getEmail() != null && !patient.getEmail().isBlank()) {
-                    notificationService.sendMissedRoutineEmail(
+                    notifications.add(notificationService.missedRoutineEmail(
                             patient.getEmail(),
                             patient.getFullName(),
                             patient.getFullName(),
                             routine.getActivityName(),
                             scheduledDateTime.toLocalTime().toString()
-                    );
+                    ));
                 }
                 
                 if (patient.getPhoneNumber() != null && !patient.getPhoneNumber().isBlank()) {
-                    notificationService.sendSMS(
+                    notifications.add(NotificationOutboxEntry.sms(
                             patient.getPhoneNumber(),
                             String.format("🚨 You missed an important routine: %s scheduled at %s. Please complete it!",
                                     routine.getActivityName(), scheduledDateTime.toLocalTime())
-                    );
+                    ));
                 }
                 
                 // Notify all caregivers
-                notifyCaregivers(patient, routine, scheduledDateTime.toLocalTime());
+                addCaregiverNotifications(notifications, circle, routine, scheduledDateTime.toLocalTime());
+                notificationService.enqueue(notifications);
             });
         }
     }
@@ -203,79 +265,29 @@ public class RoutineScheduler {
         logger.info("✅ Emergency alert created for missed routine: {}", routine.getActivityName());
     }
 
-    private void notifyCaregivers(User patient, Routine routine, LocalTime scheduledTime) {
-        if (patient.getCaregiverIds() == null || patient.getCaregiverIds().isEmpty()) {
-            return;
-        }
-
-        for (String caregiverId : patient.getCaregiverIds()) {
-            userRepository.findById(caregiverId).ifPresent(caregiver -> {
-
-                // SMS to caregiver
-                if (caregiver.getPhoneNumber() != null && !caregiver.getPhoneNumber().isBlank()) {
-                    notificationService.sendSMS(
-                            caregiver.getPhoneNumber(),
-                            String.format(
-                                    "🚨 MISSED ROUTINE\nPatient: %s\nActivity: %s\nWas due at: %s\nPlease follow up!",
-                                    patient.getFullName(), routine.getActivityName(), scheduledTime));
-                }
-
-                // Email to caregiver
-                if (caregiver.getEmail() != null && !caregiver.getEmail().isBlank()) {
-                    notificationService.sendMissedRoutineEmail(
-                            caregiver.getEmail(),
-                            caregiver.getFullName(),
-                            patient.getFullName(),
-                            routine.getActivityName(),
-                            scheduledTime.toString());
-                }
-            });
-        }
-    }
+    private void addCaregiverNotifications(List<NotificationOutboxEntry> notifications, CareCircle circle,
+                                           Routine routine, LocalTime scheduledTime) {
+        User patient = circle.patient();
+
+        for (User caregiver : circle.caregivers()) {
+            // SMS to caregiver
+            if (caregiver.getPhoneNumber() != null && !caregiver.getPhoneNumber().isBlank()) {
+                notifications.add(NotificationOutboxEntry.sms(
+                        caregiver.getPhoneNumber(),
+                        String.format(
+                                "🚨 MISSED ROUTINE\nPatient: %s\nActivity: %s\nWas due at: %s\nPlease follow up!",
+                                patient.getFullName(), routine.getActivityName(), scheduledTime)));
+            }
 
-    private boolean isScheduledOnDate(Routine routine, LocalDate date) {
-        if (routine.getDaysOfWeek() == null || routine.getDaysOfWeek().isEmpty()) {
-            return true; // No restriction = daily
+            // Email to caregiver
+            if (caregiver.getEmail() != null && !caregiver.getEmail().isBlank()) {
+                notifications.add(notificationService.missedRoutineEmail(
+                        caregiver.getEmail(),
+                        caregiver.getFullName(),
+                        patient.getFullName(),
+                        routine.getActivityName(),
+                        scheduledTime.toString()));
+            }
         }
-        String dayOfWeek = date.getDayOfWeek().name();
-        return routine.getDaysOfWeek().stream()
-                .anyMatch(day -> day.equalsIgnoreCase(dayOfWeek));
-    }
-
-    private boolean isCompletedForSchedule(Routine routine, LocalDateTime scheduledDateTime) {
-        if (routine.getLogs() == null || routine.getLogs().isEmpty())
-            return false;
-
-        return routine.getLogs().stream().anyMatch(log -> 
-                (log.getStatus() == Routine.RoutineStatus.COMPLETED || log.getStatus() == Routine.RoutineStatus.SKIPPED)
-                && log.getScheduledDateTime() != null
-                && log.getScheduledDateTime().toLocalDate().equals(scheduledDateTime.toLocalDate()));
-    }
-
-    private boolean reminderAlreadySent(Routine routine, LocalDateTime scheduledDateTime) {
-        if (routine.getLogs() == null || routine.getLogs().isEmpty())
-            return false;
-
-        return routine.getLogs().stream().anyMatch(log ->
-                log.getStatus() == Routine.RoutineStatus.PENDING
-                && "Reminder sent by scheduler".equals(log.getNotes())
-                && log.getScheduledDateTime() != null
-                && log.getScheduledDateTime().equals(scheduledDateTime));
-    }
-
-    private boolean alertAlreadyCreated(Routine routine, LocalDateTime scheduledDateTime) {
-        LocalDateTime startOfDay = scheduledDateTime.toLocalDate().atStartOfDay();
-        LocalDateTime endOfDay = startOfDay.plusDays(1);
-
-        List<EmergencyAlert> existing = emergencyAlertRepository
-                .findByPatientIdAndAlertTypeAndCreatedAtBetween(
-                        routine.getUserId(),
-                        EmergencyAlert.AlertType.ROUTINE_MISSED,
-                        startOfDay,
-                        endOfDay);
-
-        return existing.stream().anyMatch(alert -> alert.getMessage() != null &&
-                alert.getMessage().contains(routine.getActivityName()) &&
-                alert.getMessage().contains(scheduledDateTime.toLocalTime().toString()));
     }
 }
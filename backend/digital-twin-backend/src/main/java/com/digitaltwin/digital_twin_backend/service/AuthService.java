@@ -25,6 +25,7 @@ public class AuthService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuthenticationManager authenticationManager;
+    private final CaregiverGraphService caregiverGraphService;
 
     /**
      * Register a new user
@@ -157,6 +158,8 @@ public class AuthService {
         }
 
         User saved = userRepository.save(user);
+        // Phone, email and emergency contacts feed notification fan-out
+        caregiverGraphService.invalidate(userId);
         return new UserDTO(saved);
     }
 
@@ -188,6 +191,7 @@ public class AuthService {
 
         user.setActive(false);
         userRepository.save(user);
+        caregiverGraphService.invalidate(userId);
 
         return true;
     }
@@ -0,0 +1,304 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Batch summarization as a pipeline: every file moves through load → extract (PDF) or
+ * transcribe (audio/video) → summarize → save on its own, and each stage has its own
+ * concurrency limit, so a slow video only holds a transcription slot while PDFs and
+ * summaries keep flowing. Results are handed back one by one as files finish.
+ *
+ * The whole batch has one deadline. Files still waiting for a stage when it passes are
+ * reported as timed out and never started; a stage already running is left to finish
+ * (its output still lands in the artifact cache) but the file is not saved or reported.
+ *
+ * One user runs at most {@code app.batch.per-user-concurrency} files at a time (across all
+ * their batches on this node); the rest wait without holding a stage slot, so one large
+ * batch can't starve other users. The default is the sum of the stage limits, so a single
+ * user alone on the node can still fill every stage.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class BatchSummarizationService {
+
+    private final FileUploadService fileUploadService;
+    private final FileProcessingService fileProcessingService;
+    private final NoteService noteService;
+    private final StageExecutorFactory stageExecutorFactory;
+
+    @Value("${app.batch.extract.concurrency:4}")
+    private int extractConcurrency;
+
+    @Value("${app.batch.transcribe.concurrency:3}")
+    private int transcribeConcurrency;
+
+    @Value("${app.batch.summarize.concurrency:4}")
+    private int summarizeConcurrency;
+
+    @Value("${app.batch.max-files:50}")
+    private int maxFiles;
+
+    @Value("${app.batch.deadline-seconds:600}")
+    private long defaultDeadlineSeconds;
+
+    @Value("${app.batch.per-user-concurrency:11}")
+    private int perUserConcurrency;
+
+    // Per-user running/waiting batch files, guarded by itself
+    private final Map<String, UserSlots> userSlots = new HashMap<>();
+
+    // GridFS reads, ownership checks and PDF extraction
+    private StageExecutor extractExecutor;
+    // AssemblyAI upload + wait
+    private StageExecutor transcribeExecutor;
+    // LLM call, file update and notes
+    private StageExecutor summarizeExecutor;
+
+    /**
+     * Outcome for one file; {@code error} is set when {@code success} is false
+     */
+    public record FileResult(String fileId, String fileName, boolean success, String summary,
+                             String error, long elapsedMs) {
+    }
+
+    @PostConstruct
+    public void init() {
+        extractExecutor = stageExecutorFactory.create("batch-extract", extractConcurrency);
+        transcribeExecutor = stageExecutorFactory.create("batch-transcribe", transcribeConcurrency);
+        summarizeExecutor = stageExecutorFactory.create("batch-summarize", summarizeConcurrency);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        extractExecutor.shutdown();
+        transcribeExecutor.shutdown();
+        summarizeExecutor.shutdown();
+    }
+
+    public Duration defaultDeadline() {
+        return Duration.ofSeconds(defaultDeadlineSeconds);
+    }
+
+    /**
+     * Start the batch. {@code onResult} is called exactly once per distinct file id, from
+     * pipeline threads, in completion order; the returned future completes after the last call.
+     *
+     * @throws IllegalArgumentException when there are no files or more than {@code app.batch.max-files}
+     * @throws IllegalStateException when the user's batches already in progress would exceed that limit
+     */
+    public CompletableFuture<List<FileResult>> summarize(String userId, List<String> fileIds, String mode,
+                                                         boolean saveAsNote, Duration deadline,
+                                                         Consumer<FileResult> onResult) {
+        if (fileIds == null || fileIds.isEmpty()) {
+            throw new IllegalArgumentException("fileIds is required");
+        }
+        List<String> distinct = new ArrayList<>(new LinkedHashSet<>(fileIds));
+        if (distinct.size() > maxFiles) {
+            throw new IllegalArgumentException("Too many files in one batch (limit " + maxFiles + ")");
+        }
+
+        admit(userId, distinct.size());
+
+        long startedAt = System.nanoTime();
+        long deadlineAt = startedAt + deadline.toNanos();
+        log.info("📚 Batch of {} file(s) for user {} started (deadline {}s)", distinct.size(), userId,
+                deadline.toSeconds());
+
+        List<CompletableFuture<FileResult>> results = new ArrayList<>(distinct.size());
+        for (String fileId : distinct) {
+            // Whichever comes first, the save or the deadline, decides what is reported for this file
+            AtomicBoolean settled = new AtomicBoolean();
+            CompletableFuture<FileResult> result = new CompletableFuture<>();
+
+            acquire(userId)
+                    .thenCompose(slot -> process(userId, fileId, mode, saveAsNote, startedAt, deadlineAt, settled))
+                    .whenComplete((r, e) -> release(userId))
+                    .thenAccept(result::complete);
+
+            FileResult timedOut = new FileResult(fileId, null, false, null, "Batch deadline exceeded",
+                    deadline.toMillis());
+            CompletableFuture.delayedExecutor(Math.max(0, deadlineAt - System.nanoTime()), TimeUnit.NANOSECONDS)
+                    .execute(() -> {
+                        if (settled.compareAndSet(false, true)) {
+                            result.complete(timedOut);
+                        }
+                    });
+
+            results.add(result.thenApply(r -> {
+                try {
+                    onResult.accept(r);
+                } catch (Exception e) {
+                    log.warn("⚠️ Batch result listener failed for {}: {}", fileId, e.getMessage());
+                }
+                return r;
+            }));
+        }
+
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .thenApply(done -> {
+                    List<FileResult> all = results.stream().map(CompletableFuture::join).toList();
+                    log.info("📚 Batch for user {} finished: {}/{} succeeded in {} ms", userId,
+                            all.stream().filter(FileResult::success).count(), all.size(),
+                            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                    return all;
+                });
+    }
+
+    // One file through the stages; failures become a FileResult instead of failing the batch
+    private CompletableFuture<FileResult> process(String userId, String fileId, String mode, boolean saveAsNote,
+                                                  long startedAt, long deadlineAt, AtomicBoolean settled) {
+        return CompletableFuture
+                .supplyAsync(() -> {
+                    checkDeadline(deadlineAt);
+                    FileUpload file = fileUploadService.getFileById(fileId);
+                    if (!file.getUserId().equals(userId)) {
+                        throw new IllegalStateException("Access denied for file: " + fileId);
+                    }
+                    return file;
+                }, extractExecutor)
+                .thenCompose(file -> {
+                    boolean media = file.getCategory() == FileUpload.FileCategory.AUDIO
+                            || file.getCategory() == FileUpload.FileCategory.VIDEO;
+                    if (!media && file.getCategory() != FileUpload.FileCategory.PDF) {
+                        throw new IllegalStateException("Could not process this file type");
+                    }
+                    return CompletableFuture
+                            .supplyAsync(() -> {
+                                checkDeadline(deadlineAt);
+                                return unchecked(() -> fileProcessingService.extractText(file));
+                            }, media ? transcribeExecutor : extractExecutor)
+                            .thenApplyAsync(text -> {
+                                checkDeadline(deadlineAt);
+                                String summary = unchecked(() -> fileProcessingService.summarize(file, text, mode, false));
+                                // Already reported as timed out: the summary stays cached but nothing is saved
+                                checkDeadline(deadlineAt);
+                                if (!settled.compareAndSet(false, true)) {
+                                    throw new IllegalStateException("Batch deadline exceeded");
+                                }
+                                save(userId, file, text, summary, saveAsNote);
+                                return new FileResult(fileId, file.getOriginalFileName(), true, summary, null,
+                                        elapsedMs(startedAt));
+                            }, summarizeExecutor);
+                })
+                .exceptionally(e -> {
+                    Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                    log.warn("⚠️ Batch file {} failed: {}", fileId, cause.getMessage());
+                    return new FileResult(fileId, null, false, null, cause.getMessage(), elapsedMs(startedAt));
+                });
+    }
+
+    private void save(String userId, FileUpload file, String text, String summary, boolean saveAsNote) {
+        fileUploadService.markAsProcessed(file.getId(), text, summary);
+
+        // Save summary as note using createSummaryNote
+        if (saveAsNote) {
+            noteService.createSummaryNote(
+                    userId,
+                    file.getCategory() + " Summary: " + file.getOriginalFileName(),
+                    summary,
+                    file.getId(),
+                    file.getOriginalFileName()
+            );
+        }
+    }
+
+    // Files of this user's batches that are running or waiting, at most max-files at once
+    private void admit(String userId, int files) {
+        synchronized (userSlots) {
+            UserSlots slots = userSlots.computeIfAbsent(userId, id -> new UserSlots());
+            if (slots.pending + files > maxFiles) {
+                if (slots.pending == 0) {
+                    userSlots.remove(userId);
+                }
+                throw new IllegalStateException("Too many files being summarized (limit " + maxFiles
+                        + "). Please wait for the current batch to finish.");
+            }
+            slots.pending += files;
+        }
+    }
+
+    // Completes once the user has fewer than per-user-concurrency files running
+    private CompletableFuture<Void> acquire(String userId) {
+        synchronized (userSlots) {
+            UserSlots slots = userSlots.get(userId);
+            if (slots.running < perUserConcurrency) {
+                slots.running++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> slot = new CompletableFuture<>();
+            slots.waiting.add(slot);
+            return slot;
+        }
+    }
+
+    private void release(String userId) {
+        CompletableFuture<Void> next;
+        synchronized (userSlots) {
+            UserSlots slots = userSlots.get(userId);
+            slots.pending--;
+            next = slots.waiting.poll();
+            if (next == null) {
+                slots.running--;
+                if (slots.pending == 0) {
+                    userSlots.remove(userId);
+                }
+            }
+        }
+        // The slot passes straight to the next waiting file; completed outside the lock
+        if (next != null) {
+            next.complete(null);
+        }
+    }
+
+    private static final class UserSlots {
+        private int pending;
+        private int running;
+        private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    }
+
+    // A stage that would start after the deadline is skipped; its slot goes to the next file
+    private static void checkDeadline(long deadlineAt) {
+        if (System.nanoTime() > deadlineAt) {
+            throw new IllegalStateException("Batch deadline exceeded");
+        }
+    }
+
+    private static long elapsedMs(long startedAt) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+    }
+
+    private static String unchecked(IoCall call) {
+        try {
+            return call.call();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoCall {
+        String call() throws IOException;
+    }
+}
@@ -0,0 +1,179 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.User;
+import com.digitaltwin.digital_twin_backend.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves patient → caregivers → contact channels for notification fan-out.
+ * Caregivers are loaded with one {@code $in} query instead of one findById each,
+ * and the result is cached for a short TTL.
+ *
+ * Entries are dropped when the patient's profile or caregiver links change, and
+ * when any caregiver in the circle edits their own phone or email. Cached users
+ * are shared between callers and must not be modified.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class CaregiverGraphService {
+
+    /**
+     * A patient and everyone who should hear about them, in the patient's caregiver order
+     */
+    public record CareCircle(User patient, List<User> caregivers) {
+
+        public List<User.EmergencyContact> emergencyContacts() {
+            return patient.getEmergencyContacts() != null ? patient.getEmergencyContacts() : List.of();
+        }
+
+        public boolean contains(String userId) {
+            return patient.getId().equals(userId)
+                    || caregivers.stream().anyMatch(c -> c.getId().equals(userId));
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.caregiver-graph.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.caregiver-graph.max-entries:5000}")
+    private int maxEntries;
+
+    private Map<String, Entry> circles;
+    // Bumped on every invalidation so a load that raced one is not cached
+    private long generation;
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        circles = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        hits = Counter.builder("caregiver.graph.requests").tag("result", "hit")
+                .description("Care circles served from cache")
+                .register(meterRegistry);
+        misses = Counter.builder("caregiver.graph.requests").tag("result", "miss")
+                .description("Care circles loaded from MongoDB")
+                .register(meterRegistry);
+        Gauge.builder("caregiver.graph.size", this, CaregiverGraphService::size)
+                .register(meterRegistry);
+
+        log.info("Caregiver graph cache ready (max {} patients, ttl {}s)", maxEntries, ttlSeconds);
+    }
+
+    /**
+     * Care circle of a patient, or empty if the patient does not exist
+     */
+    public Optional<CareCircle> getCareCircle(String patientId) {
+        if (patientId == null) {
+            return Optional.empty();
+        }
+        CareCircle cached = cached(patientId);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return userRepository.findById(patientId).map(this::load);
+    }
+
+    /**
+     * Same as {@link #getCareCircle(String)} for a caller that already holds the patient,
+     * so a cache miss only costs the caregiver query
+     */
+    public CareCircle getCareCircle(User patient) {
+        CareCircle cached = cached(patient.getId());
+        return cached != null ? cached : load(patient);
+    }
+
+    /**
+     * Drop every circle the user belongs to, as patient or as caregiver; call after
+     * any change to their profile, contacts or caregiver links
+     */
+    public void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        synchronized (this) {
+            generation++;
+            circles.values().removeIf(entry -> entry.circle.contains(userId));
+        }
+        log.debug("Invalidated care circles containing user {}", userId);
+    }
+
+    public synchronized int size() {
+        return circles.size();
+    }
+
+    private CareCircle cached(String patientId) {
+        Entry entry;
+        synchronized (this) {
+            entry = circles.get(patientId);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                circles.remove(patientId);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+        hits.increment();
+        return entry.circle;
+    }
+
+    private CareCircle load(User patient) {
+        misses.increment();
+        long loadedAt;
+        synchronized (this) {
+            loadedAt = generation;
+        }
+        List<String> caregiverIds = patient.getCaregiverIds();
+        List<User> caregivers = List.of();
+        if (caregiverIds != null && !caregiverIds.isEmpty()) {
+            Map<String, User> byId = userRepository.findCaregiversByIds(caregiverIds).stream()
+                    .collect(Collectors.toMap(User::getId, Function.identity(), (a, b) -> a));
+            List<String> linked = caregiverIds.stream().distinct().toList();
+            caregivers = linked.stream()
+                    .map(byId::get)
+                    .filter(caregiver -> caregiver != null)
+                    .toList();
+            if (caregivers.size() < linked.size()) {
+                log.warn("⚠️ Patient {} links {} caregiver(s) that no longer exist",
+                        patient.getId(), linked.size() - caregivers.size());
+            }
+        }
+
+        CareCircle circle = new CareCircle(patient, caregivers);
+        Entry entry = new Entry(circle, System.currentTimeMillis() + ttlSeconds * 1000);
+        synchronized (this) {
+            if (generation == loadedAt) {
+                circles.put(patient.getId(), entry);
+            }
+        }
+        return circle;
+    }
+
+    private record Entry(CareCircle circle, long expiresAt) {
+    }
+}
@@ -2,6 +2,7 @@ package com.digitaltwin.digital_twin_backend.service;
 
 import com.digitaltwin.digital_twin_backend.dto.ConfidenceScore;
 import com.digitaltwin.digital_twin_backend.dto.Intent;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -12,6 +13,7 @@ import java.util.Map;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class ConfidenceScorer {
 
     private static final double CONTEXT_WEIGHT = 0.40; // 40%
@@ -22,9 +24,7 @@ public class ConfidenceScorer {
     private static final double DEMENTIA_THRESHOLD = 65.0;
     private static final double NORMAL_THRESHOLD = 70.0;
 
-    private static final List<String> EMERGENCY_KEYWORDS = List.of(
-            "help", "bachao", "emergency", "sos", "ambulance",
-            "hospital", "doctor", "pain", "dard", "gir gaya");
+    private final PhraseIndex phraseIndex;
 
     public ConfidenceScore calculate(String query, String context, Intent intent, String userType) {
 
@@ -94,6 +94,11 @@ public class ConfidenceScorer {
             reasons.add("Clear intent");
         }
 
+        List<Intent.Candidate> ranked = intent.getRankedIntents();
+        if (ranked != null && ranked.size() > 1 && ranked.get(1).getScore() >= 0.8 * ranked.get(0).getScore()) {
+            reasons.add("Ambiguous intent: " + ranked.get(0).getType() + " vs " + ranked.get(1).getType());
+        }
+
         // Factor 3: Query specificity (20%) — sub-score is 0.0–1.0
         double specificityScore = calculateSpecificity(query);
         factors.put("specificity", specificityScore);
@@ -144,8 +149,7 @@ public class ConfidenceScorer {
     }
 
     private boolean isEmergency(String query) {
-        String lowerQuery = query.toLowerCase();
-        return EMERGENCY_KEYWORDS.stream().anyMatch(lowerQuery::contains);
+        return phraseIndex.match(query).hasTag(PhraseIndex.SCORER_EMERGENCY);
     }
 
     private double calculateContextScore(String context) {
@@ -3,21 +3,40 @@ package com.digitaltwin.digital_twin_backend.service;
 import com.digitaltwin.digital_twin_backend.dto.Intent;
 import com.digitaltwin.digital_twin_backend.model.Note;
 import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.model.VoiceInteraction;
 import com.digitaltwin.digital_twin_backend.repository.NoteRepository;
 import com.digitaltwin.digital_twin_backend.repository.RoutineRepository;
-import com.digitaltwin.digital_twin_backend.repository.RoutineRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Gathers LLM context for a voice query. Every applicable strategy (time, intent,
+ * keyword) runs concurrently; whatever has arrived when the deadline passes is
+ * merged, de-duplicated by document id, and the late strategies are reported as
+ * skipped rather than waited for.
+ */
 @Slf4j
 @Service
 @RequiredArgsConstructor
@@ -25,54 +44,225 @@ public class ContextRetrievalService {
 
     private final NoteRepository noteRepository;
     private final RoutineRepository routineRepository;
+    private final NoteIndex noteIndex;
+    private final StageExecutorFactory stageExecutorFactory;
+    private final MeterRegistry meterRegistry;
+
+    private static final int MAX_KEYWORD_MATCHES = 5;
 
     private static final List<String> STOP_WORDS = List.of("hai", "hain", "tha", "the", "ko",
             "se", "mein", "ka", "ki", "ke", "aur", "to", "bhi", "kya", "kyun", "kaise");
 
+    @Value("${app.context.retrieval.deadline-ms:150}")
+    private long deadlineMs;
+
+    @Value("${app.context.retrieval.concurrency:64}")
+    private int concurrency;
+
+    private StageExecutor retrievalExecutor;
+
+    @PostConstruct
+    public void init() {
+        retrievalExecutor = stageExecutorFactory.create("context-retrieval", concurrency);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        retrievalExecutor.shutdown();
+    }
+
+    /**
+     * Context text plus one source entry per document used and per strategy skipped
+     */
+    public record Result(String context, List<VoiceInteraction.ContextSource> sources) {
+
+        public List<String> skippedStrategies() {
+            return sources.stream()
+                    .filter(s -> VoiceInteraction.ContextSource.SKIPPED.equals(s.getStatus()))
+                    .map(VoiceInteraction.ContextSource::getStrategy)
+                    .toList();
+        }
+    }
+
+    /**
+     * Today's reminders and active routines for the personal assistant shortcut
+     */
+    public record TodaySchedule(List<Note> reminders, List<Routine> routines) {
+    }
+
     public String retrieveContext(String userId, String query, Intent intent) {
+        return retrieve(userId, query, intent).context();
+    }
+
+    public Result retrieve(String userId, String query, Intent intent) {
         log.info("Retrieving context for user: {}, query: {}", userId, query);
 
-        // Use a LinkedHashSet to avoid duplicate notes from overlapping strategies
-        Set<String> contextPieces = new LinkedHashSet<>();
+        // Ranked once and shared by the memory and keyword strategies
+        List<String> keywords = extractKeywords(query);
+        CompletableFuture<List<Note>> keywordMatches = keywords.isEmpty()
+                ? CompletableFuture.completedFuture(List.of())
+                : launch("KEYWORD_INDEX", () -> searchNotesByKeywords(userId, keywords));
+
+        // Insertion order is merge order: time, then intent, then keyword
+        Map<String, CompletableFuture<Piece>> strategies = new LinkedHashMap<>();
 
-        // Strategy 1: Time-based retrieval
         if (intent.getTimeReference() != Intent.TimeReference.NO_REFERENCE) {
-            String timeContext = getTimeBasedContext(userId, intent.getTimeReference());
-            if (timeContext != null) contextPieces.add(timeContext);
+            strategies.put("TIME", launch("TIME", () -> getTimeBasedContext(userId, intent.getTimeReference())));
         }
 
-        // Strategy 2: Intent-based retrieval
         switch (intent.getType()) {
             case "MEMORY_OFFLOAD":
-                String memoryContext = getMemoryContext(userId, query, intent.getSubType());
-                if (memoryContext != null) contextPieces.add(memoryContext);
+                String subType = intent.getSubType();
+                strategies.put("MEMORY", subType != null && !subType.isEmpty()
+                        ? launch("MEMORY", () -> getCategoryContext(userId, subType))
+                        : keywordMatches.thenApply(this::getMemoryContext));
                 break;
             case "MEDICATION_QUERY":
-                String medicationContext = getMedicationContext(userId);
-                if (medicationContext != null) contextPieces.add(medicationContext);
+                strategies.put("MEDICATION", launch("MEDICATION", () -> getMedicationContext(userId)));
                 break;
             case "ROUTINE_QUERY":
-                String routineContext = getRoutineContext(userId);
-                if (routineContext != null) contextPieces.add(routineContext);
+                strategies.put("ROUTINE", launch("ROUTINE", () -> getRoutineContext(userId)));
                 break;
         }
 
-        // Strategy 3: Keyword search — always try
-        List<String> keywords = extractKeywords(query);
-        String keywordContext = getKeywordSearchContext(userId, keywords);
-        if (keywordContext != null) contextPieces.add(keywordContext);
+        // Keyword search — always try
+        strategies.put("KEYWORD", keywordMatches.thenApply(this::getKeywordSearchContext));
 
-        if (contextPieces.isEmpty()) {
+        awaitDeadline(strategies.values());
+
+        Result result = merge(strategies);
+        if (!result.skippedStrategies().isEmpty()) {
+            log.warn("⏱️ Context deadline ({} ms) hit for user {}, skipped: {}",
+                    deadlineMs, userId, result.skippedStrategies());
+        }
+        if (result.context() == null) {
             log.info("No context found for user: {}", userId);
-            return null;
+        } else {
+            log.info("Retrieved context length: {}", result.context().length());
+        }
+        return result;
+    }
+
+    /**
+     * Reminders and routines are fetched concurrently under the same deadline;
+     * a source that misses it comes back empty.
+     */
+    public TodaySchedule getTodaySchedule(String userId) {
+        LocalDateTime startOfDay = LocalDate.now().atStartOfDay();
+        LocalDateTime endOfDay = startOfDay.plusDays(1);
+
+        CompletableFuture<List<Note>> reminders = launch("REMINDERS", () ->
+                noteRepository.findByUserIdAndTypeAndDateRange(userId, Note.NoteType.REMINDER, startOfDay, endOfDay));
+        CompletableFuture<List<Routine>> routines = launch("ROUTINES", () ->
+                routineRepository.findByUserIdAndActiveTrue(userId));
+
+        awaitDeadline(List.of(reminders, routines));
+        return new TodaySchedule(resultOrEmpty(reminders, "REMINDERS", userId),
+                resultOrEmpty(routines, "ROUTINES", userId));
+    }
+
+    private <T> CompletableFuture<T> launch(String strategy, Supplier<T> task) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future = CompletableFuture.supplyAsync(task, retrievalExecutor);
+        future.whenComplete((value, error) -> Timer.builder("context.retrieval.strategy")
+                .description("Latency of one context retrieval strategy, including late ones")
+                .tag("strategy", strategy)
+                .tag("outcome", error == null ? "success" : "failure")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        return future;
+    }
+
+    private void awaitDeadline(Iterable<? extends CompletableFuture<?>> futures) {
+        List<CompletableFuture<?>> all = new ArrayList<>();
+        futures.forEach(all::add);
+        try {
+            CompletableFuture.allOf(all.toArray(new CompletableFuture[0])).get(deadlineMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            // Use what has arrived
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            // A failed strategy is reported by merge(); the rest are still usable
+        }
+    }
+
+    private <T> List<T> resultOrEmpty(CompletableFuture<List<T>> future, String source, String userId) {
+        if (!future.isDone()) {
+            skipped(source);
+            log.warn("⏱️ {} missed the {} ms deadline for user {}", source, deadlineMs, userId);
+            return new ArrayList<>();
+        }
+        try {
+            List<T> value = future.join();
+            return value == null ? new ArrayList<>() : value;
+        } catch (Exception e) {
+            log.warn("Could not fetch {} for user {}: {}", source.toLowerCase(), userId, e.getMessage());
+            return new ArrayList<>();
         }
+    }
+
+    private Result merge(Map<String, CompletableFuture<Piece>> strategies) {
+        LocalDateTime now = LocalDateTime.now();
+        List<VoiceInteraction.ContextSource> sources = new ArrayList<>();
+        List<String> contextPieces = new ArrayList<>();
+        Set<String> seenIds = new HashSet<>();
+
+        strategies.forEach((strategy, future) -> {
+            if (!future.isDone()) {
+                skipped(strategy);
+                sources.add(strategySource(strategy, VoiceInteraction.ContextSource.SKIPPED, now));
+                return;
+            }
+            Piece piece;
+            try {
+                piece = future.join();
+            } catch (Exception e) {
+                log.warn("Context strategy {} failed: {}", strategy, e.getMessage());
+                sources.add(strategySource(strategy, VoiceInteraction.ContextSource.FAILED, now));
+                return;
+            }
+            if (piece == null) {
+                return;
+            }
+
+            // The same note found by two strategies is only given to the LLM once
+            List<Item> fresh = piece.items().stream()
+                    .filter(item -> item.id() == null || seenIds.add(item.id()))
+                    .toList();
+            if (fresh.isEmpty()) {
+                return;
+            }
 
-        String combinedContext = String.join("\n\n", contextPieces);
-        log.info("Retrieved context length: {}", combinedContext.length());
-        return combinedContext;
+            StringBuilder text = new StringBuilder(piece.header()).append("\n");
+            for (int i = 0; i < fresh.size(); i++) {
+                Item item = fresh.get(i);
+                text.append("- ").append(item.line()).append("\n");
+                sources.add(new VoiceInteraction.ContextSource(item.type(), item.id(), item.title(),
+                        piece.ranked() ? 1.0 / (i + 1) : 1.0, now,
+                        strategy, VoiceInteraction.ContextSource.RETRIEVED));
+            }
+            contextPieces.add(text.toString());
+        });
+
+        String context = contextPieces.isEmpty() ? null : String.join("\n\n", contextPieces);
+        return new Result(context, sources);
     }
 
-    private String getTimeBasedContext(String userId, Intent.TimeReference timeRef) {
+    private void skipped(String strategy) {
+        Counter.builder("context.retrieval.skipped")
+                .description("Context strategies dropped because they missed the deadline")
+                .tag("strategy", strategy)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private static VoiceInteraction.ContextSource strategySource(String strategy, String status, LocalDateTime now) {
+        return new VoiceInteraction.ContextSource(strategy, null, null, 0.0, now, strategy, status);
+    }
+
+    private Piece getTimeBasedContext(String userId, Intent.TimeReference timeRef) {
         LocalDateTime now = LocalDateTime.now();
         LocalDateTime start, end;
 
@@ -94,79 +284,63 @@ public class ContextRetrievalService {
         }
 
         List<Note> notes = noteRepository.findByUserIdAndCreatedAtBetween(userId, start, end);
-        if (notes.isEmpty()) return null;
-
-        StringBuilder context = new StringBuilder("Related notes from this time:\n");
-        notes.forEach(n -> context.append("- ").append(n.getContent()).append("\n"));
-        return context.toString();
+        return notePiece("Related notes from this time:", notes, notes.size(), false);
     }
 
-    private String getMemoryContext(String userId, String query, String subType) {
-        List<Note> notes;
-
-        if (subType != null && !subType.isEmpty()) {
-            // ✅ DB-level category filter — no full scan
-            notes = noteRepository.findByUserIdAndCategory(userId, subType);
-        } else {
-            // ✅ DB-level keyword search — no full scan
-            List<String> keywords = extractKeywords(query);
-            notes = searchNotesByKeywordsInDB(userId, keywords);
-        }
-
-        if (notes.isEmpty()) return null;
+    private Piece getCategoryContext(String userId, String subType) {
+        // ✅ DB-level category filter — no full scan
+        List<Note> notes = noteRepository.findByUserIdAndCategory(userId, subType);
+        return notePiece("Previous notes and memories:", notes, 3, false);
+    }
 
-        List<Note> limited = notes.stream().limit(3).collect(Collectors.toList());
-        StringBuilder context = new StringBuilder("Previous notes and memories:\n");
-        limited.forEach(n -> context.append("- ").append(n.getContent()).append("\n"));
-        return context.toString();
+    private Piece getMemoryContext(List<Note> keywordMatches) {
+        return notePiece("Previous notes and memories:", keywordMatches, 3, true);
     }
 
-    private String getMedicationContext(String userId) {
+    private Piece getMedicationContext(String userId) {
         List<Routine> medications = routineRepository.findByUserIdAndCategory(userId, Routine.ActivityCategory.MEDICATION);
         if (medications.isEmpty()) return null;
 
-        LocalTime now = LocalTime.now();
-        StringBuilder context = new StringBuilder("Current medications:\n");
-
+        List<Item> items = new ArrayList<>();
         for (Routine med : medications) {
-            context.append("- ").append(med.getActivityName()).append(" at ");
-
             LocalTime nextDose = med.getScheduledTime();
-            context.append(nextDose != null ? nextDose.toString() : "today").append("\n");
+            String line = med.getActivityName() + " at " + (nextDose != null ? nextDose.toString() : "today");
+            items.add(new Item("MEDICATION", med.getId(), med.getActivityName(), line));
         }
 
-        return context.toString();
+        return new Piece("Current medications:", items, false);
     }
 
-    private String getRoutineContext(String userId) {
+    private Piece getRoutineContext(String userId) {
         List<Routine> routines = routineRepository.findByUserIdAndActiveTrue(userId);
         if (routines.isEmpty()) return null;
 
         LocalTime now = LocalTime.now();
-        StringBuilder context = new StringBuilder("Today's routine:\n");
 
-        // Find the single next routine
-        routines.stream()
+        // Find the next few routines
+        List<Item> items = routines.stream()
                 .filter(r -> r.getScheduledTime() != null && r.getScheduledTime().isAfter(now))
                 .sorted((a, b) -> a.getScheduledTime().compareTo(b.getScheduledTime()))
                 .limit(3)
-                .forEach(r -> context.append("- ").append(r.getActivityName())
-                        .append(" at ").append(r.getScheduledTime()).append("\n"));
+                .map(r -> new Item("ROUTINE", r.getId(), r.getActivityName(),
+                        r.getActivityName() + " at " + r.getScheduledTime()))
+                .collect(Collectors.toList());
 
-        return context.toString();
+        return new Piece("Today's routine:", items, false);
     }
 
-    private String getKeywordSearchContext(String userId, List<String> keywords) {
-        if (keywords.isEmpty()) return null;
+    private Piece getKeywordSearchContext(List<Note> notes) {
+        return notePiece("Related information:", notes, 2, true);
+    }
 
-        // ✅ DB-level keyword search — no full scan
-        List<Note> notes = searchNotesByKeywordsInDB(userId, keywords);
-        if (notes.isEmpty()) return null;
+    private static Piece notePiece(String header, List<Note> notes, int limit, boolean ranked) {
+        if (notes == null || notes.isEmpty()) return null;
 
-        List<Note> limited = notes.stream().limit(2).collect(Collectors.toList());
-        StringBuilder context = new StringBuilder("Related information:\n");
-        limited.forEach(n -> context.append("- ").append(n.getContent()).append("\n"));
-        return context.toString();
+        List<Item> items = notes.stream()
+                .limit(limit)
+                .map(n -> new Item("NOTE", n.getId(), n.getTitle(), n.getContent()))
+                .collect(Collectors.toList());
+        return new Piece(header, items, ranked);
     }
 
     private List<String> extractKeywords(String query) {
@@ -181,23 +355,25 @@ public class ContextRetrievalService {
     }
 
     /**
-     * ✅ FIX: DB-level keyword search using repository OR queries per keyword.
-     * Previously this loaded ALL notes for the user into memory and filtered
-     * in Java — O(n) memory usage per request, catastrophic at scale.
-     *
-     * Now each keyword triggers a targeted DB query (content OR title match),
-     * results are deduplicated via a LinkedHashSet keyed by note ID.
-     *
-     * NOTE: For best performance, ensure a text index exists on the notes
-     * collection in MongoDB:
-     *   db.notes.createIndex({ content: "text", title: "text" })
-     * Then replace the per-keyword loop with a single $text search query.
+     * Notes ranked by BM25 from the per-user in-memory index; no Mongo round trip
+     * once the user's index is warm.
+     */
+    private List<Note> searchNotesByKeywords(String userId, List<String> keywords) {
+        if (keywords.isEmpty()) return new ArrayList<>();
+        if (!noteIndex.isEnabled()) return searchNotesByKeywordsInDB(userId, keywords);
+
+        return noteIndex.search(userId, keywords, MAX_KEYWORD_MATCHES);
+    }
+
+    /**
+     * Fallback when the note index is disabled: one unanchored regex query per keyword,
+     * deduplicated by note ID, in no particular order.
      */
     private List<Note> searchNotesByKeywordsInDB(String userId, List<String> keywords) {
         if (keywords.isEmpty()) return new ArrayList<>();
 
         // Deduplicate results across keyword queries using note ID
-        Set<String> seenIds = new LinkedHashSet<>();
+        Set<String> seenIds = new HashSet<>();
         List<Note> results = new ArrayList<>();
 
         for (String keyword : keywords) {
@@ -213,9 +389,16 @@ public class ContextRetrievalService {
             }
 
             // Stop early once we have enough
-            if (results.size() >= 5) break;
+            if (results.size() >= MAX_KEYWORD_MATCHES) break;
         }
 
         return results;
     }
-}
\ No newline at end of file
+
+    // One strategy's contribution: a header line and the documents under it
+    private record Piece(String header, List<Item> items, boolean ranked) {
+    }
+
+    private record Item(String type, String id, String title, String line) {
+    }
+}
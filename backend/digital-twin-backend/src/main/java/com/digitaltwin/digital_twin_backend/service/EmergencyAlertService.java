@@ -2,17 +2,22 @@ package com.digitaltwin.digital_twin_backend.service;
 
 
 import com.digitaltwin.digital_twin_backend.model.EmergencyAlert;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
 import com.digitaltwin.digital_twin_backend.model.User;
 import com.digitaltwin.digital_twin_backend.repository.EmergencyAlertRepository;
 import com.digitaltwin.digital_twin_backend.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
-import java.net.URLEncoder;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,7 +35,9 @@ public class EmergencyAlertService {
 
     private final EmergencyAlertRepository emergencyAlertRepository;
     private final UserRepository userRepository;
+    private final CaregiverGraphService caregiverGraphService;
     private final NotificationService notificationService;
+    private final MongoTemplate mongoTemplate;
 
     /**
      * Create emergency alert
@@ -63,6 +70,9 @@ public class EmergencyAlertService {
         alert.setStatus(EmergencyAlert.AlertStatus.ACTIVE);
         alert.setCreatedAt(LocalDateTime.now());
 
+        // Patient fresh load hua hai; caregivers ek hi bulk query se (ya cache se) aate hain
+        CaregiverGraphService.CareCircle circle = caregiverGraphService.getCareCircle(patient);
+
         // Caregiver IDs set karo
         List<String> caregiverIds = patient.getCaregiverIds();
         alert.setNotifiedCaregiverIds(caregiverIds);
@@ -74,80 +84,62 @@ public class EmergencyAlertService {
         EmergencyAlert savedAlert = emergencyAlertRepository.save(alert);
         logger.info("✅ Alert saved with ID: {}", savedAlert.getId());
 
+        // SMS sirf outbox mein queue hote hain (ek batch insert); Twilio ka wait SOS request pe nahi hota.
+        // Delivery status dispatcher baad mein alert.notifications mein likhta hai.
+        String alertMessage = buildAlertMessage(savedAlert);
+        List<NotificationOutboxEntry> notifications = new ArrayList<>();
+
         // ─── Step 1: Caregivers ko notify karo ───
         if (caregiverIds.isEmpty()) {
             logger.warn("⚠️ NO CAREGIVERS ASSIGNED TO PATIENT {}! No caregiver notifications sent.",
                     patient.getFullName());
         } else {
-            notifyAllCaregivers(savedAlert, caregiverIds);
+            addCaregiverNotifications(notifications, savedAlert, circle.caregivers(), alertMessage);
         }
 
         // ─── Step 2: Emergency Contacts ko notify karo (NEW FIX) ───
-        notifyEmergencyContacts(savedAlert, patient);
+        addEmergencyContactNotifications(notifications, circle, alertMessage);
+
+        notificationService.enqueue(notifications);
+        logger.info("📤 {} SOS notification(s) queued for alert {}", notifications.size(), savedAlert.getId());
 
         return savedAlert;
     }
 
     /**
-     * Caregivers ko SMS bhejo
+     * Caregivers ke SMS queue karo
      */
-    private void notifyAllCaregivers(EmergencyAlert alert, List<String> caregiverIds) {
-        logger.info("📢 Starting SMS notification for {} caregiver(s)", caregiverIds.size());
-
-        int smsSuccess = 0;
-        int smsFailed = 0;
+    private void addCaregiverNotifications(List<NotificationOutboxEntry> notifications, EmergencyAlert alert,
+                                           List<User> caregivers, String alertMessage) {
         int skipped = 0;
 
-        for (String caregiverId : caregiverIds) {
-            try {
-                User caregiver = userRepository.findById(caregiverId).orElse(null);
-                if (caregiver == null) {
-                    logger.warn("⚠️ Caregiver ID {} not found — skipping", caregiverId);
-                    skipped++;
-                    continue;
-                }
-
-                logger.info("👤 Caregiver: {} | Phone: {}", caregiver.getFullName(), caregiver.getPhoneNumber());
-
-                if (caregiver.getPhoneNumber() == null || caregiver.getPhoneNumber().isBlank()) {
-                    logger.warn("⚠️ No phone number for caregiver {} — SMS skipped", caregiver.getFullName());
-                    skipped++;
-                    continue;
-                }
-
-                boolean sent = notificationService.sendSMS(
-                        caregiver.getPhoneNumber(),
-                        buildAlertMessage(alert)
-                );
-
-                if (sent) {
-                    smsSuccess++;
-                    logger.info("✅ SMS delivered to caregiver {}", caregiver.getFullName());
-                } else {
-                    smsFailed++;
-                    logger.error("❌ SMS failed for caregiver {} at {}", caregiver.getFullName(), caregiver.getPhoneNumber());
-                }
-
-                logNotification(alert, caregiverId, caregiver.getFullName(),
-                        EmergencyAlert.NotificationMethod.SMS, sent);
-
-            } catch (Exception e) {
-                logger.error("❌ Error notifying caregiver {}: {}", caregiverId, e.getMessage(), e);
-                smsFailed++;
+        for (User caregiver : caregivers) {
+            logger.info("👤 Caregiver: {} | Phone: {}", caregiver.getFullName(), caregiver.getPhoneNumber());
+
+            if (caregiver.getPhoneNumber() == null || caregiver.getPhoneNumber().isBlank()) {
+                logger.warn("⚠️ No phone number for caregiver {} — SMS skipped", caregiver.getFullName());
+                skipped++;
+                continue;
             }
+
+            notifications.add(NotificationOutboxEntry.sms(caregiver.getPhoneNumber(), alertMessage)
+                    .urgent()
+                    .forAlert(alert.getId(), caregiver.getId(), caregiver.getFullName()));
         }
 
-        logger.info("📊 Caregiver SMS Summary: {} sent, {} failed, {} skipped", smsSuccess, smsFailed, skipped);
+        logger.info("📊 Caregiver SMS: {} queued, {} skipped", caregivers.size() - skipped, skipped);
     }
 
     /**
-     * ✅ NEW FIX: Emergency Contacts ko SMS bhejo
+     * ✅ NEW FIX: Emergency Contacts ke SMS queue karo
      * Pehle yeh method exist hi nahi karta tha — isliye emergency contacts ko koi notification nahi jaati thi
      */
-    private void notifyEmergencyContacts(EmergencyAlert alert, User patient) {
-        List<User.EmergencyContact> emergencyContacts = patient.getEmergencyContacts();
+    private void addEmergencyContactNotifications(List<NotificationOutboxEntry> notifications,
+                                                  CaregiverGraphService.CareCircle circle, String alertMessage) {
+        User patient = circle.patient();
+        List<User.EmergencyContact> emergencyContacts = circle.emergencyContacts();
 
-        if (emergencyContacts == null || emergencyContacts.isEmpty()) {
+        if (emergencyContacts.isEmpty()) {
             logger.warn("⚠️ No emergency contacts found for patient {} — skipping", patient.getFullName());
             return;
         }
@@ -155,93 +147,28 @@ public class EmergencyAlertService {
         logger.info("📢 Notifying {} emergency contact(s) for patient {}",
                 emergencyContacts.size(), patient.getFullName());
 
-        int success = 0;
-        int failed = 0;
-
         for (User.EmergencyContact contact : emergencyContacts) {
-            try {
-                if (contact.getPhoneNumber() == null || contact.getPhoneNumber().isBlank()) {
-                    logger.warn("⚠️ No phone number for emergency contact {} — skipping", contact.getName());
-                    continue;
-                }
-
-                logger.info("📞 Sending SMS to emergency contact: {} | {}", contact.getName(), contact.getPhoneNumber());
-
-                boolean sent = notificationService.sendSMS(
-                        contact.getPhoneNumber(),
-                        buildAlertMessage(alert)
-                );
-
-                if (sent) {
-                    success++;
-                    logger.info("✅ SMS sent to emergency contact {}", contact.getName());
-                } else {
-                    failed++;
-                    logger.error("❌ SMS failed for emergency contact {} at {}", contact.getName(), contact.getPhoneNumber());
-                }
-
-                // Emergency contacts ke liye alag se log nahi kar rahe kyunki unka caregiverId nahi hota
-
-            } catch (Exception e) {
-                logger.error("❌ Error notifying emergency contact {}: {}", contact.getName(), e.getMessage(), e);
-                failed++;
+            if (contact.getPhoneNumber() == null || contact.getPhoneNumber().isBlank()) {
+                logger.warn("⚠️ No phone number for emergency contact {} — skipping", contact.getName());
+                continue;
             }
-        }
 
-        logger.info("📊 Emergency Contact SMS Summary: {} sent, {} failed", success, failed);
-    }
-
-    /**
-     * ✅ YEH METHOD ADD KIYA - Notification log save karo
-     * Pehle yeh method missing tha jiski wajah se error aa raha tha
-     */
-    private void logNotification(EmergencyAlert alert, String caregiverId, String caregiverName,
-                                 EmergencyAlert.NotificationMethod method, boolean delivered) {
-        try {
-            // Agar notifications list null hai toh nayi banao
-            if (alert.getNotifications() == null) {
-                alert.setNotifications(new java.util.ArrayList<>());
-            }
-
-            EmergencyAlert.NotificationLog log = new EmergencyAlert.NotificationLog();
-            log.setCaregiverId(caregiverId);
-            log.setCaregiverName(caregiverName);
-            log.setMethod(method);
-            log.setSentAt(LocalDateTime.now());
-            log.setDelivered(delivered);
-
-            alert.getNotifications().add(log);
-            emergencyAlertRepository.save(alert);
-
-            logger.debug("📝 Logged notification: {} to {} - Delivered: {}",
-                    method, caregiverName, delivered);
-        } catch (Exception e) {
-            // Logging fail ho bhi gaya to koi baat nahi, main functionality toh kaam karegi
-            logger.error("❌ Failed to log notification (non-critical): {}", e.getMessage());
+            // Emergency contacts ke liye alert pe log nahi hota kyunki unka caregiverId nahi hota
+            notifications.add(NotificationOutboxEntry.sms(contact.getPhoneNumber(), alertMessage).urgent());
         }
     }
 
     /**
-     * ✅ FIXED: SMS message build karo
-     * Location ab Google Maps clickable link format mein aata hai
-     * (Frontend se already "https://maps.google.com/?q=lat,lng" format mein aata hai)
+     * SMS message build karo
+     * Location Google Maps link ki tarah hi jaata hai (frontend "https://maps.google.com/?q=lat,lng" bhejta hai).
+     * TinyURL short link NotificationDispatcher bhejte waqt banata hai, taaki SOS request us call pe na ruke.
      */
-
-
     private String buildAlertMessage(EmergencyAlert alert) {
         String location = alert.getLocation();
 
-        // Real-time location Google Maps link hai
         String locationForSMS;
         if (location != null && location.startsWith("https://maps.google.com/?q=")) {
-            // Coordinates nikaalo
-            String coordinates = location.replace("https://maps.google.com/?q=", "");
-
-            // TinyURL ya apna khud ka short URL service use karo
-            // Short URL banao: tinyurl.com/api-create.php?url=...
-            String shortUrl = makeShortUrl(location); // Custom method
-
-            locationForSMS = "📍 Live Location: " + shortUrl;
+            locationForSMS = "📍 Live Location: " + location;
         } else {
             locationForSMS = "📍 Location: " + (location != null ? location : "Unavailable");
         }
@@ -258,22 +185,6 @@ public class EmergencyAlertService {
         );
     }
 
-    // Short URL banane ka method
-    private String makeShortUrl(String longUrl) {
-        try {
-            // TinyURL API - free hai
-            String apiUrl = "https://tinyurl.com/api-create.php?url=" +
-                    URLEncoder.encode(longUrl, "UTF-8");
-
-            RestTemplate restTemplate = new RestTemplate();
-            String shortUrl = restTemplate.getForObject(apiUrl, String.class);
-            return shortUrl;
-        } catch (Exception e) {
-            logger.error("Short URL error: {}", e.getMessage());
-            return longUrl; // Fail ho to original URL bhejo
-        }
-    }
-
     /**
      * Alert email body build karo (future use)
      */
@@ -328,54 +239,55 @@ public class EmergencyAlertService {
 
     /**
      * Acknowledge alert
+     * Field-level updates: dispatcher isi waqt alert.notifications mein delivery push kar sakta hai,
+     * poora document save karne se woh entries overwrite ho jaati
      */
     public EmergencyAlert acknowledgeAlert(String alertId, String caregiverId) {
-        EmergencyAlert alert = getAlertById(alertId);
-
-        for (EmergencyAlert.NotificationLog log : alert.getNotifications()) {
-            if (log.getCaregiverId().equals(caregiverId)) {
-                log.setAcknowledgedAt(LocalDateTime.now());
-            }
-        }
-
-        alert.setStatus(EmergencyAlert.AlertStatus.ACKNOWLEDGED);
-        return emergencyAlertRepository.save(alert);
+        Update update = new Update()
+                .set("status", EmergencyAlert.AlertStatus.ACKNOWLEDGED)
+                .set("notifications.$[log].acknowledgedAt", LocalDateTime.now())
+                .filterArray(Criteria.where("log.caregiverId").is(caregiverId));
+        return updateAlert(alertId, update);
     }
 
     /**
      * Resolve alert
      */
     public EmergencyAlert resolveAlert(String alertId, String caregiverId, String resolutionNotes) {
-        EmergencyAlert alert = getAlertById(alertId);
-
-        alert.setStatus(EmergencyAlert.AlertStatus.RESOLVED);
-        alert.setResolvedBy(caregiverId);
-        alert.setResolvedAt(LocalDateTime.now());
-        alert.setResolutionNotes(
-                resolutionNotes != null && !resolutionNotes.trim().isEmpty()
-                        ? resolutionNotes
-                        : "No resolution notes provided"
-        );
-
-        return emergencyAlertRepository.save(alert);
+        Update update = new Update()
+                .set("status", EmergencyAlert.AlertStatus.RESOLVED)
+                .set("resolvedBy", caregiverId)
+                .set("resolvedAt", LocalDateTime.now())
+                .set("resolutionNotes",
+                        resolutionNotes != null && !resolutionNotes.trim().isEmpty()
+                                ? resolutionNotes
+                                : "No resolution notes provided");
+        return updateAlert(alertId, update);
     }
 
     /**
      * Mark as false alarm
      */
     public EmergencyAlert markAsFalseAlarm(String alertId, String caregiverId, String notes) {
-        EmergencyAlert alert = getAlertById(alertId);
-
-        alert.setStatus(EmergencyAlert.AlertStatus.FALSE_ALARM);
-        alert.setResolvedBy(caregiverId);
-        alert.setResolvedAt(LocalDateTime.now());
-        alert.setResolutionNotes(
-                notes != null && !notes.trim().isEmpty()
-                        ? notes
-                        : "Marked as false alarm - no notes provided"
-        );
+        Update update = new Update()
+                .set("status", EmergencyAlert.AlertStatus.FALSE_ALARM)
+                .set("resolvedBy", caregiverId)
+                .set("resolvedAt", LocalDateTime.now())
+                .set("resolutionNotes",
+                        notes != null && !notes.trim().isEmpty()
+                                ? notes
+                                : "Marked as false alarm - no notes provided");
+        return updateAlert(alertId, update);
+    }
 
-        return emergencyAlertRepository.save(alert);
+    private EmergencyAlert updateAlert(String alertId, Update update) {
+        EmergencyAlert updated = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(alertId)), update,
+                FindAndModifyOptions.options().returnNew(true), EmergencyAlert.class);
+        if (updated == null) {
+            throw new RuntimeException("Alert not found");
+        }
+        return updated;
     }
 
     /**
@@ -0,0 +1,136 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.DerivedArtifact;
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.repository.DerivedArtifactRepository;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * Text extraction, transcription and summarization of uploaded files, cached by
+ * content hash. The same PDF or recording uploaded again (by anyone) is answered
+ * from the cache without calling AssemblyAI or OpenRouter.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class FileProcessingService {
+
+    public static final String PDF_TEXT = "pdf-text";
+    public static final String TRANSCRIPTION = "transcription";
+    private static final String SUMMARY_PREFIX = "summary:";
+
+    private final FileUploadService fileUploadService;
+    private final SummarizationService summarizationService;
+    private final DerivedArtifactRepository derivedArtifactRepository;
+    private final GridFsTemplate gridFsTemplate;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Extracted text (PDF) or transcription (audio/video) plus the summary for one mode
+     */
+    public record Result(String extractedText, String summary) {
+    }
+
+    /**
+     * Extract (or transcribe) and summarize, reusing whatever is already cached
+     */
+    public Result process(FileUpload file, String mode) throws IOException {
+        String text = extractText(file);
+        return new Result(text, summarize(file, text, mode, false));
+    }
+
+    /**
+     * PDF text or audio/video transcription for the file's content
+     */
+    public String extractText(FileUpload file) throws IOException {
+        if (file.getCategory() == FileUpload.FileCategory.PDF) {
+            return cached(file, PDF_TEXT, false, () -> {
+                try (InputStream in = openContent(file)) {
+                    return summarizationService.extractTextFromPDF(in);
+                }
+            });
+        }
+        if (file.getCategory() == FileUpload.FileCategory.AUDIO
+                || file.getCategory() == FileUpload.FileCategory.VIDEO) {
+            return cached(file, TRANSCRIPTION, false, () -> {
+                try (InputStream in = openContent(file)) {
+                    return summarizationService.transcribeAudio(in, file.getOriginalFileName());
+                }
+            });
+        }
+        throw new IllegalArgumentException("Cannot extract text from " + file.getCategory() + " files");
+    }
+
+    /**
+     * Summary of {@code text} in the given mode ("dementia" or standard).
+     * {@code refresh} skips the cached summary and replaces it with a fresh one.
+     */
+    public String summarize(FileUpload file, String text, String mode, boolean refresh) throws IOException {
+        boolean dementia = "dementia".equalsIgnoreCase(mode);
+        String kind = SUMMARY_PREFIX + (dementia ? "dementia" : "standard");
+        return cached(file, kind, refresh, () -> dementia
+                ? summarizationService.summarizeForDementiaPatient(text)
+                : summarizationService.summarizeText(text));
+    }
+
+    private String cached(FileUpload file, String kind, boolean refresh, ArtifactLoader loader) throws IOException {
+        String hash = file.getContentHash();
+        // Uploads from before content hashing can't be matched, so they always go to the provider
+        if (hash == null) {
+            count(kind, "uncached");
+            return loader.load();
+        }
+
+        String key = DerivedArtifact.key(hash, kind);
+        if (!refresh) {
+            Optional<DerivedArtifact> hit = derivedArtifactRepository.findById(key);
+            if (hit.isPresent()) {
+                count(kind, "hit");
+                log.info("♻️ Reusing cached {} for content {}", kind, hash);
+                return hit.get().getValue();
+            }
+        }
+
+        count(kind, refresh ? "refresh" : "miss");
+        String value = loader.load();
+        try {
+            derivedArtifactRepository.save(new DerivedArtifact(key, hash, kind, value, LocalDateTime.now()));
+        } catch (Exception e) {
+            // The result is still good; the next request just computes it again
+            log.warn("⚠️ Could not cache {} for content {}: {}", kind, hash, e.getMessage());
+        }
+        return value;
+    }
+
+    private InputStream openContent(FileUpload file) throws IOException {
+        GridFSFile gridFsFile = fileUploadService.downloadFile(file.getGridFsFileId());
+        if (gridFsFile == null) {
+            throw new IOException("Stored content missing for file " + file.getId());
+        }
+        return gridFsTemplate.getResource(gridFsFile).getInputStream();
+    }
+
+    private void count(String kind, String result) {
+        Counter.builder("files.artifacts.requests")
+                .tag("kind", kind)
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    @FunctionalInterface
+    private interface ArtifactLoader {
+        String load() throws IOException;
+    }
+}
@@ -2,33 +2,54 @@ package com.digitaltwin.digital_twin_backend.service;
 
 
 import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.model.StoredBlob;
+import com.digitaltwin.digital_twin_backend.repository.DerivedArtifactRepository;
 import com.digitaltwin.digital_twin_backend.repository.FileUploadRepository;
 import com.mongodb.client.gridfs.model.GridFSFile;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
+import org.bson.types.ObjectId;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.LocalDateTime;
+import java.util.HexFormat;
 import java.util.List;
 
 /**
  * File Upload Service
- * Handles file uploads (PDF, images, audio, video) and storage in MongoDB GridFS
+ * Handles file uploads (PDF, images, audio, video) and storage in MongoDB GridFS.
+ * Identical content is stored once: uploads share a reference-counted {@link StoredBlob}.
  */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class FileUploadService {
 
     private final FileUploadRepository fileUploadRepository;
     private final GridFsTemplate gridFsTemplate;
+    private final MongoTemplate mongoTemplate;
+    private final DerivedArtifactRepository derivedArtifactRepository;
     private final Tika tika = new Tika();
 
+    // Enough for every magic-byte signature Tika knows; the rest of the upload is never buffered
+    private static final int SNIFF_BYTES = 64 * 1024;
+
     /**
      * Upload file to GridFS and save metadata
      */
@@ -38,27 +59,22 @@ public class FileUploadService {
             throw new IllegalArgumentException("File is empty");
         }
 
-        // Detect file type
-        String contentType = tika.detect(file.getBytes());
-        FileUpload.FileCategory category = determineFileCategory(contentType);
-
-        // Store file in GridFS
-        InputStream inputStream = file.getInputStream();
-        org.bson.types.ObjectId gridFsFileId = gridFsTemplate.store(
-                inputStream,
-                file.getOriginalFilename(),
-                contentType
-        );
+        StoredContent stored;
+        try (InputStream inputStream = file.getInputStream()) {
+            stored = storeContent(inputStream, file.getOriginalFilename());
+        }
+        String gridFsFileId = acquireBlob(stored);
 
         // Create file metadata
         FileUpload fileUpload = new FileUpload();
         fileUpload.setUserId(userId);
         fileUpload.setFileName(generateUniqueFileName(file.getOriginalFilename()));
         fileUpload.setOriginalFileName(file.getOriginalFilename());
-        fileUpload.setFileType(contentType);
-        fileUpload.setFileSize(file.getSize());
-        fileUpload.setCategory(category);
-        fileUpload.setGridFsFileId(gridFsFileId.toString());
+        fileUpload.setFileType(stored.contentType());
+        fileUpload.setFileSize(stored.size());
+        fileUpload.setCategory(determineFileCategory(stored.contentType()));
+        fileUpload.setGridFsFileId(gridFsFileId);
+        fileUpload.setContentHash(stored.sha256());
         fileUpload.setDescription(description);
         fileUpload.setUploadedAt(LocalDateTime.now());
         fileUpload.setProcessed(false);
@@ -67,6 +83,93 @@ public class FileUploadService {
         return fileUploadRepository.save(fileUpload);
     }
 
+    /**
+     * Result of streaming one upload into GridFS
+     */
+    public record StoredContent(ObjectId gridFsFileId, String contentType, String sha256, long size) {
+    }
+
+    /**
+     * Stream bytes into GridFS in a single pass. The MIME type is sniffed from a bounded
+     * prefix (mark/reset) and the SHA-256 is computed as the bytes go by, so memory use
+     * is independent of the file size.
+     */
+    public StoredContent storeContent(InputStream source, String originalFileName) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(source, SNIFF_BYTES);
+
+        // Detect file type from the first SNIFF_BYTES only
+        buffered.mark(SNIFF_BYTES);
+        byte[] prefix = buffered.readNBytes(SNIFF_BYTES);
+        buffered.reset();
+        String contentType = tika.detect(prefix, originalFileName);
+
+        MessageDigest sha256 = newSha256();
+        CountingInputStream counted = new CountingInputStream(new DigestInputStream(buffered, sha256));
+
+        ObjectId gridFsFileId = gridFsTemplate.store(counted, originalFileName, contentType);
+
+        return new StoredContent(gridFsFileId, contentType,
+                HexFormat.of().formatHex(sha256.digest()), counted.count);
+    }
+
+    /**
+     * Take a reference on the blob for this content and return the GridFS id to use.
+     * When the bytes are already stored, the copy just written is dropped again; the
+     * hash is only known once the stream has been consumed, so it can't be checked up front.
+     */
+    public String acquireBlob(StoredContent stored) {
+        String gridFsFileId = stored.gridFsFileId().toString();
+        Query existing = new Query(Criteria.where("_id").is(stored.sha256()));
+        Update reference = new Update().inc("refCount", 1).set("lastReferencedAt", LocalDateTime.now());
+
+        while (true) {
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                mongoTemplate.insert(new StoredBlob(stored.sha256(), gridFsFileId, stored.size(),
+                        stored.contentType(), 1, now, now));
+                return gridFsFileId;
+            } catch (DuplicateKeyException e) {
+                StoredBlob blob = mongoTemplate.findAndModify(existing, reference,
+                        FindAndModifyOptions.options().returnNew(true), StoredBlob.class);
+                if (blob != null) {
+                    gridFsTemplate.delete(new Query(Criteria.where("_id").is(stored.gridFsFileId())));
+                    log.info("♻️ Content {} already stored, now shared by {} upload(s)",
+                            stored.sha256(), blob.getRefCount());
+                    return blob.getGridFsFileId();
+                }
+                // Last reference was released in between; insert again
+            }
+        }
+    }
+
+    /**
+     * Drop one reference; the GridFS object and the cached derived artifacts go with the last one
+     */
+    private void releaseBlob(FileUpload fileUpload) {
+        String hash = fileUpload.getContentHash();
+        if (hash != null) {
+            Query owned = new Query(Criteria.where("_id").is(hash)
+                    .and("gridFsFileId").is(fileUpload.getGridFsFileId()));
+            StoredBlob blob = mongoTemplate.findAndModify(owned, new Update().inc("refCount", -1),
+                    FindAndModifyOptions.options().returnNew(true), StoredBlob.class);
+            if (blob != null) {
+                if (blob.getRefCount() > 0) {
+                    return;
+                }
+                // Conditional, so an upload that re-acquired the blob meanwhile keeps it
+                boolean removed = mongoTemplate.remove(new Query(Criteria.where("_id").is(hash)
+                        .and("refCount").lte(0)), StoredBlob.class).getDeletedCount() > 0;
+                if (!removed) {
+                    return;
+                }
+                derivedArtifactRepository.deleteByContentHash(hash);
+            }
+        }
+
+        // Last reference, or an upload from before blobs were shared
+        gridFsTemplate.delete(new Query(Criteria.where("_id").is(fileUpload.getGridFsFileId())));
+    }
+
     /**
      * Get file by ID
      */
@@ -103,9 +206,8 @@ public class FileUploadService {
     public void deleteFile(String fileId) {
         FileUpload fileUpload = getFileById(fileId);
 
-        // Delete from GridFS
-        Query query = new Query(Criteria.where("_id").is(fileUpload.getGridFsFileId()));
-        gridFsTemplate.delete(query);
+        // Delete from GridFS unless other uploads share the content
+        releaseBlob(fileUpload);
 
         // Delete metadata
         fileUploadRepository.deleteById(fileId);
@@ -137,6 +239,14 @@ public class FileUploadService {
         return timestamp + "_" + originalFileName;
     }
 
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
     /**
      * Mark file as processed
      */
@@ -157,4 +267,56 @@ public class FileUploadService {
         }
         return fileUploadRepository.save(fileUpload);
     }
+
+    // Counts bytes that pass through, so the stored size is exact without buffering
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            return skipByReading(this, n);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+    }
+
+    // Skipped bytes still have to be hashed and counted
+    private static long skipByReading(InputStream in, long n) throws IOException {
+        byte[] discard = new byte[(int) Math.min(8192, Math.max(0, n))];
+        long skipped = 0;
+        while (skipped < n) {
+            int read = in.read(discard, 0, (int) Math.min(discard.length, n - skipped));
+            if (read < 0) {
+                break;
+            }
+            skipped += read;
+        }
+        return skipped;
+    }
 }
@@ -3,9 +3,11 @@ package com.digitaltwin.digital_twin_backend.service;
 import com.digitaltwin.digital_twin_backend.dto.ConfidenceScore;
 import com.digitaltwin.digital_twin_backend.dto.VoiceResponse;
 import com.digitaltwin.digital_twin_backend.model.HITLQueueItem;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
 import com.digitaltwin.digital_twin_backend.model.User;
 import com.digitaltwin.digital_twin_backend.repository.HITLQueueRepository;
 import com.digitaltwin.digital_twin_backend.repository.UserRepository;
+import com.digitaltwin.digital_twin_backend.scheduler.ClusterMembership;
 import com.digitaltwin.digital_twin_backend.websocket.VoiceSessionRegistry;
 import com.digitaltwin.digital_twin_backend.websocket.WebSocketService;
 import lombok.RequiredArgsConstructor;
@@ -13,10 +15,17 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
@@ -33,6 +42,9 @@ public class HITLQueueService {
     private final TTSService ttsService;
     private final NoteService noteService;
     private final NotificationService notificationService;
+    private final CaregiverGraphService caregiverGraphService;
+    private final MongoTemplate mongoTemplate;
+    private final ClusterMembership clusterMembership;
 
     @Value("${app.hitl.review-timeout:300}")
     private int reviewTimeoutSeconds;
@@ -40,6 +52,24 @@ public class HITLQueueService {
     @Value("${app.hitl.max-retries:2}")
     private int maxRetries;
 
+    private final StageExecutorFactory stageExecutorFactory;
+
+    @Value("${app.hitl.executor.concurrency:8}")
+    private int suggestionConcurrency;
+
+    // AI suggestions used to run on the common ForkJoin pool
+    private StageExecutor suggestionExecutor;
+
+    @PostConstruct
+    public void init() {
+        suggestionExecutor = stageExecutorFactory.create("hitl-suggestion", suggestionConcurrency);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        suggestionExecutor.shutdown();
+    }
+
     @EventListener(ApplicationReadyEvent.class)
     public void cancelExpiredAnonymousBacklog() {
         List<HITLQueueItem> staleItems = queueRepository.findByStatusAndUsernameIsNullAndExpiresAtBefore(
@@ -102,10 +132,10 @@ public class HITLQueueService {
             } catch (Exception e) {
                 log.error("Failed to generate AI suggestion: {}", e.getMessage());
             }
-        });
+        }, suggestionExecutor);
 
-        // Notify reviewers
-        notifyReviewers(saved);
+        // Notify reviewers; the patient is already loaded, so only caregivers are looked up
+        notifyReviewers(saved, user != null ? caregiverGraphService.getCareCircle(user) : null);
 
         log.info("Added to HITL queue with ID: {}", saved.getId());
 
@@ -117,6 +147,10 @@ public class HITLQueueService {
     }
 
     private void notifyReviewers(HITLQueueItem item) {
+        notifyReviewers(item, caregiverGraphService.getCareCircle(item.getUserId()).orElse(null));
+    }
+
+    private void notifyReviewers(HITLQueueItem item, CaregiverGraphService.CareCircle circle) {
         webSocketService.notifyReviewers(Map.of(
                 "id", item.getId(),
                 "userFullName", item.getUserFullName(),
@@ -129,33 +163,32 @@ public class HITLQueueService {
         log.info("Notified reviewers via WebSocket about new HITL item: {}", item.getId());
 
         // Notify patient's specific caregivers via SMS & Email
-        if (item.getUserId() != null) {
-            userRepository.findById(item.getUserId()).ifPresent(patient -> {
-                if (patient.getCaregiverIds() != null && !patient.getCaregiverIds().isEmpty()) {
-                    for (String caregiverId : patient.getCaregiverIds()) {
-                        userRepository.findById(caregiverId).ifPresent(caregiver -> {
-                            String messageText = String.format("🚨 HITL Alert: Your patient %s asked a question the AI couldn't answer: '%s'. Please log in to assist.",
-                                    patient.getFullName(), item.getQuery());
-                            
-                            if (caregiver.getPhoneNumber() != null && !caregiver.getPhoneNumber().isBlank()) {
-                                notificationService.sendSMS(caregiver.getPhoneNumber(), messageText);
-                            }
-                            
-                            if (caregiver.getEmail() != null && !caregiver.getEmail().isBlank()) {
-                                String emailBody = String.format("""
-                                        <h2>🚨 Patient Assistance Required</h2>
-                                        <p>Dear %s,</p>
-                                        <p>Your patient <strong>%s</strong> asked a question that the AI could not confidently answer:</p>
-                                        <blockquote style="border-left: 4px solid #ccc; padding-left: 10px;">%s</blockquote>
-                                        <p>Please log in to the caregiver dashboard to provide an answer.</p>
-                                        """, caregiver.getFullName(), patient.getFullName(), item.getQuery());
-                                notificationService.sendEmail(caregiver.getEmail(), "Patient Assistance Required - " + patient.getFullName(), emailBody);
-                            }
-                        });
-                    }
-                }
-            });
+        if (circle == null) {
+            return;
+        }
+        User patient = circle.patient();
+        String messageText = String.format("🚨 HITL Alert: Your patient %s asked a question the AI couldn't answer: '%s'. Please log in to assist.",
+                patient.getFullName(), item.getQuery());
+
+        // Queued, not sent: this runs inside the voice pipeline
+        List<NotificationOutboxEntry> notifications = new ArrayList<>();
+        for (User caregiver : circle.caregivers()) {
+            if (caregiver.getPhoneNumber() != null && !caregiver.getPhoneNumber().isBlank()) {
+                notifications.add(NotificationOutboxEntry.sms(caregiver.getPhoneNumber(), messageText));
+            }
+
+            if (caregiver.getEmail() != null && !caregiver.getEmail().isBlank()) {
+                String emailBody = String.format("""
+                        <h2>🚨 Patient Assistance Required</h2>
+                        <p>Dear %s,</p>
+                        <p>Your patient <strong>%s</strong> asked a question that the AI could not confidently answer:</p>
+                        <blockquote style="border-left: 4px solid #ccc; padding-left: 10px;">%s</blockquote>
+                        <p>Please log in to the caregiver dashboard to provide an answer.</p>
+                        """, caregiver.getFullName(), patient.getFullName(), item.getQuery());
+                notifications.add(NotificationOutboxEntry.email(caregiver.getEmail(), "Patient Assistance Required - " + patient.getFullName(), emailBody));
+            }
         }
+        notificationService.enqueue(notifications);
     }
 
     public List<HITLQueueItem> getPendingQueue(String reviewerId) {
@@ -350,6 +383,10 @@ public class HITLQueueService {
         }
     }
 
+    /**
+     * Each node handles the expired items of the patients it owns, and claims an item
+     * atomically before acting on it, so reviewers are re-notified once per expiry.
+     */
     @Scheduled(fixedDelay = 30000)
     public void checkExpiredItems() {
         List<HITLQueueItem> expired = queueRepository.findByStatusAndExpiresAtBefore(
@@ -359,6 +396,11 @@ public class HITLQueueService {
         int cancelledAnonymousCount = 0;
 
         for (HITLQueueItem item : expired) {
+            String partitionKey = item.getUserId() != null ? item.getUserId() : item.getId();
+            if (!clusterMembership.owns(partitionKey) || !claimExpired(item)) {
+                continue;
+            }
+
             if (isAbandonedAnonymousSession(item)) {
                 item.setStatus(HITLQueueItem.QueueStatus.CANCELLED);
                 item.setNotifiedAt(LocalDateTime.now());
@@ -410,6 +452,15 @@ public class HITLQueueService {
         }
     }
 
+    // Push the expiry forward only if no other node has touched the item since we read it
+    private boolean claimExpired(HITLQueueItem item) {
+        Query unchanged = new Query(Criteria.where("_id").is(item.getId())
+                .and("status").is(HITLQueueItem.QueueStatus.PENDING)
+                .and("expiresAt").is(item.getExpiresAt()));
+        Update lease = new Update().set("expiresAt", LocalDateTime.now().plusSeconds(reviewTimeoutSeconds));
+        return mongoTemplate.updateFirst(unchanged, lease, HITLQueueItem.class).getModifiedCount() == 1;
+    }
+
     private boolean isAbandonedAnonymousSession(HITLQueueItem item) {
         String username = item.getUsername();
         String sessionId = item.getSessionId();
@@ -1,6 +1,8 @@
 package com.digitaltwin.digital_twin_backend.service;
 
 import com.digitaltwin.digital_twin_backend.dto.Intent;
+import com.digitaltwin.digital_twin_backend.text.PhraseMatcher;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
@@ -8,141 +10,150 @@ import java.util.*;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class IntentClassifier {
 
-    private static final Map<String, List<String>> INTENT_PATTERNS = new HashMap<>();
-    private static final Map<String, List<String>> SUBTYPE_PATTERNS = new HashMap<>();
-    private static final Map<String, List<String>> ENTITY_PATTERNS = new HashMap<>();
-
-    static {
-        // Add to INTENT_PATTERNS static block
-        INTENT_PATTERNS.put("GREETING", List.of(
-            "hello", "hi", "hey", "namaste", "helo",
-            "good morning", "good afternoon", "good evening",
-            "how are you", "kaise ho", "हेलो", "हैलो", "नमस्ते", "कैसे हो"
-        ));
-        // MEMORY_OFFLOAD patterns
-        INTENT_PATTERNS.put("MEMORY_OFFLOAD", List.of(
-                "kal kya padha", "kya likha tha", "kya note kiya",
-                "kya yaad hai", "kya bataya tha", "kya hua tha",
-                "कल क्या पढ़ा", "क्या लिखा था", "क्या नोट किया",
-                "क्या याद है", "क्या बताया था", "क्या हुआ था",
-                "what did i read", "what did i write", "what happened",
-                "note", "notes", "summary", "summarized", "summarize"));
-
-        // MEDICATION_QUERY patterns
-        INTENT_PATTERNS.put("MEDICATION_QUERY", List.of(
-                "medicine", "dawai", "kab lena", "kya khana",
-                "medication", "pill", "dose", "tablet",
-                "दवाई", "दवा", "कब लेना", "क्या खाना", "गोली"));
-
-        // ROUTINE_QUERY patterns
-        INTENT_PATTERNS.put("ROUTINE_QUERY", List.of(
-                "next", "routine", "schedule", "kya karna",
-                "ab kya", "uske baad", "time kya",
-                "रूटीन", "शेड्यूल", "क्या करना", "अब क्या", "उसके बाद", "समय क्या"));
-
-        // Subtype patterns
-        SUBTYPE_PATTERNS.put("DOCTOR_VISIT", List.of("doctor", "dr", "hospital", "clinic", "डॉक्टर", "अस्पताल", "क्लिनिक"));
-        SUBTYPE_PATTERNS.put("MEDICINE_TIME", List.of("time", "kab", "baje", "समय", "कब", "बजे"));
-        SUBTYPE_PATTERNS.put("FAMILY", List.of("beta", "beti", "pati", "wife", "husband", "बेटा", "बेटी", "पति", "पत्नी"));
-
-        // Entity patterns
-        ENTITY_PATTERNS.put("date", List.of("kal", "aaj", "parson", "yesterday", "today", "कल", "आज", "परसों"));
-        ENTITY_PATTERNS.put("person", List.of("doctor", "beta", "beti", "pati", "डॉक्टर", "बेटा", "बेटी", "पति"));
-        ENTITY_PATTERNS.put("medicine", List.of("dawai", "medicine", "tablet", "pill", "दवाई", "दवा", "गोली"));
-    }
+    // Tie-break when two intents score the same: the safety-relevant one wins
+    private static final List<String> INTENT_PRIORITY = List.of(
+            "MEDICATION_QUERY", "ROUTINE_QUERY", "MEMORY_OFFLOAD", "GREETING");
+
+    // Phrases this short ("hi", "kal") only count as whole words, not inside "this" or "kalpana"
+    private static final int SHORT_PHRASE_CHARS = 3;
+
+    // "hello, meri dawai kab hai": the greeting comes first but the question is the intent
+    private static final double GREETING_WEIGHT = 0.5;
+
+    private final PhraseIndex phraseIndex;
 
     public Intent classify(String text, String userType) {
         String lowerText = text.toLowerCase();
+        PhraseMatcher.Matches matches = phraseIndex.match(lowerText);
 
-        Map<String, String> entities = extractEntities(lowerText);
-        String intentType = detectIntentType(lowerText);
-        String subType = detectSubType(lowerText, intentType);
-        float confidence = calculateConfidence(lowerText, intentType);
+        Map<String, String> entities = extractEntities(matches);
+        List<Intent.Candidate> ranked = rankIntents(matches);
+        String intentType = ranked.isEmpty() ? "GENERAL_CHAT" : ranked.get(0).getType();
+        String subType = detectSubType(matches, intentType);
+        float confidence = ranked.isEmpty() ? 0.3f : ranked.get(0).getConfidence();
         List<String> keywords = extractKeywords(lowerText);
-        Intent.TimeReference timeRef = detectTimeReference(lowerText);
+        Intent.TimeReference timeRef = detectTimeReference(matches);
 
         // ✅ FIX: Use .emergency() instead of .isEmergency() to match renamed field
         return Intent.builder()
                 .type(intentType)
                 .subType(subType)
                 .confidence(confidence)
+                .rankedIntents(ranked)
                 .entities(entities)
                 .keywords(keywords)
                 .timeReference(timeRef)
-                .emergency(isEmergency(lowerText)) // ✅ fixed: was .isEmergency()
-                .emergencyType(detectEmergencyType(lowerText))
-                .memoryTopic(extractMemoryTopic(lowerText, intentType))
+                .emergency(isEmergency(matches)) // ✅ fixed: was .isEmergency()
+                .emergencyType(detectEmergencyType(matches))
+                .memoryTopic(extractMemoryTopic(matches, intentType))
                 .build();
     }
 
-    private String detectIntentType(String text) {
-        for (Map.Entry<String, List<String>> entry : INTENT_PATTERNS.entrySet()) {
-            for (String pattern : entry.getValue()) {
-                if (text.contains(pattern)) {
-                    return entry.getKey();
+    /**
+     * Score every intent from one match result: each phrase contributes by length
+     * (multi-word phrases are more specific) and position (earlier weighs more);
+     * a phrase inside a longer matched phrase of the same intent isn't counted twice.
+     */
+    private List<Intent.Candidate> rankIntents(PhraseMatcher.Matches matches) {
+        List<Intent.Candidate> ranked = new ArrayList<>();
+        for (String intent : INTENT_PRIORITY) {
+            List<PhraseMatcher.Hit> hits = matches.hits(PhraseIndex.intent(intent));
+            double score = 0;
+            for (PhraseMatcher.Hit hit : hits) {
+                if (hit.phrase().length() <= SHORT_PHRASE_CHARS && !hit.wholeWord()) {
+                    continue;
+                }
+                if (isInsideLongerHit(hit, hits)) {
+                    continue;
                 }
+                score += phraseWeight(hit, matches.textLength());
             }
+            if ("GREETING".equals(intent)) {
+                score *= GREETING_WEIGHT;
+            }
+            if (score > 0) {
+                ranked.add(new Intent.Candidate(intent, score, 0f));
+            }
+        }
+
+        // Stable sort keeps INTENT_PRIORITY order for equal scores
+        ranked.sort(Comparator.comparingDouble(Intent.Candidate::getScore).reversed());
+        calibrate(ranked);
+        return ranked;
+    }
+
+    private static double phraseWeight(PhraseMatcher.Hit hit, int textLength) {
+        String phrase = hit.phrase();
+        int words = phrase.split(" ").length;
+        double weight = 1.0 + 0.5 * (words - 1) + Math.min(phrase.length(), 16) / 32.0;
+        double position = textLength > 0 ? (double) hit.start() / textLength : 0;
+        return weight * (1.0 + 0.2 * (1.0 - position));
+    }
+
+    private static boolean isInsideLongerHit(PhraseMatcher.Hit hit, List<PhraseMatcher.Hit> hits) {
+        for (PhraseMatcher.Hit other : hits) {
+            if (other.phrase().length() > hit.phrase().length() && other.phrase().contains(hit.phrase())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Confidence grows with the winner's absolute score and its share against the
+     * runner-up: a clear single intent lands near 0.8-0.95, a close call near 0.5.
+     * A lone greeting keeps its fixed 0.95.
+     */
+    private static void calibrate(List<Intent.Candidate> ranked) {
+        if (ranked.isEmpty()) {
+            return;
+        }
+        if (ranked.size() == 1 && "GREETING".equals(ranked.get(0).getType())) {
+            ranked.get(0).setConfidence(0.95f);
+            return;
+        }
+
+        double total = ranked.stream().mapToDouble(Intent.Candidate::getScore).sum();
+        double top = ranked.get(0).getScore();
+        double runnerUp = ranked.size() > 1 ? ranked.get(1).getScore() : 0;
+        for (Intent.Candidate candidate : ranked) {
+            double share = candidate == ranked.get(0)
+                    ? top / (top + runnerUp)
+                    : candidate.getScore() / total;
+            double strength = 1.0 - Math.exp(-candidate.getScore());
+            candidate.setConfidence((float) Math.min(0.95, 0.3 + 0.65 * share * strength));
         }
-        return "GENERAL_CHAT";
     }
 
-    private String detectSubType(String text, String intentType) {
+    private String detectSubType(PhraseMatcher.Matches matches, String intentType) {
         if (!"MEMORY_OFFLOAD".equals(intentType)) {
             return null;
         }
 
-        for (Map.Entry<String, List<String>> entry : SUBTYPE_PATTERNS.entrySet()) {
-            for (String pattern : entry.getValue()) {
-                if (text.contains(pattern)) {
-                    return entry.getKey();
-                }
+        for (String subType : PhraseIndex.SUBTYPE_PHRASES.keySet()) {
+            if (matches.hasTag(PhraseIndex.subType(subType))) {
+                return subType;
             }
         }
         return null;
     }
 
-    private Map<String, String> extractEntities(String text) {
+    private Map<String, String> extractEntities(PhraseMatcher.Matches matches) {
         Map<String, String> entities = new HashMap<>();
 
-        for (Map.Entry<String, List<String>> entry : ENTITY_PATTERNS.entrySet()) {
-            for (String pattern : entry.getValue()) {
-                if (text.contains(pattern)) {
-                    entities.put(entry.getKey(), pattern);
-                    break;
-                }
+        for (String entity : PhraseIndex.ENTITY_PHRASES.keySet()) {
+            String phrase = matches.first(PhraseIndex.entity(entity));
+            if (phrase != null) {
+                entities.put(entity, phrase);
             }
         }
 
         return entities;
     }
 
-    private float calculateConfidence(String text, String intentType) {
-        if ("GREETING".equals(intentType)) {
-            return 0.95f;
-        }
-        if ("GENERAL_CHAT".equals(intentType)) {
-            return 0.3f;
-        }
-
-        List<String> patterns = INTENT_PATTERNS.get(intentType);
-        if (patterns == null)
-            return 0.5f;
-
-        long matches = patterns.stream()
-                .filter(text::contains)
-                .count();
-
-        if (matches == 0)
-            return 0.3f;
-        if (matches == 1)
-            return 0.6f;
-        if (matches == 2)
-            return 0.8f;
-        return 0.9f;
-    }
-
     private List<String> extractKeywords(String text) {
         List<String> stopWords = List.of("hai", "hain", "tha", "the", "ko", "se",
                 "mein", "ka", "ki", "ke", "aur", "to", "bhi");
@@ -154,42 +165,34 @@ public class IntentClassifier {
                 .toList();
     }
 
-    private Intent.TimeReference detectTimeReference(String text) {
-        if (text.contains("kal") || text.contains("yesterday")) {
-            return Intent.TimeReference.YESTERDAY;
-        }
-        if (text.contains("aaj") || text.contains("today")) {
-            return Intent.TimeReference.TODAY;
-        }
-        if (text.contains("parson") || text.contains("tomorrow")) {
-            return Intent.TimeReference.TOMORROW;
+    private Intent.TimeReference detectTimeReference(PhraseMatcher.Matches matches) {
+        for (String reference : PhraseIndex.TIME_PHRASES.keySet()) {
+            if (matches.hasTag(PhraseIndex.time(reference))) {
+                return Intent.TimeReference.valueOf(reference);
+            }
         }
         return Intent.TimeReference.NO_REFERENCE;
     }
 
-    private boolean isEmergency(String text) {
-        List<String> emergencyWords = List.of("bachao", "help", "sos", "emergency", "बचाओ", "मदद", "आपातकाल");
-        return emergencyWords.stream().anyMatch(text::contains);
+    private boolean isEmergency(PhraseMatcher.Matches matches) {
+        return matches.hasTag(PhraseIndex.EMERGENCY);
     }
 
-    private String detectEmergencyType(String text) {
-        if (text.contains("gir") || text.contains("fall") || text.contains("गिर"))
-            return "FALL";
-        if (text.contains("dard") || text.contains("pain") || text.contains("दर्द"))
-            return "MEDICAL";
+    private String detectEmergencyType(PhraseMatcher.Matches matches) {
+        for (String type : PhraseIndex.EMERGENCY_TYPE_PHRASES.keySet()) {
+            if (matches.hasTag(PhraseIndex.emergencyType(type))) {
+                return type;
+            }
+        }
         return "SOS";
     }
 
-    private String extractMemoryTopic(String text, String intentType) {
+    private String extractMemoryTopic(PhraseMatcher.Matches matches, String intentType) {
         if (!"MEMORY_OFFLOAD".equals(intentType)) {
             return null;
         }
 
-        for (String topic : List.of("doctor", "medicine", "family", "hospital", "डॉक्टर", "दवाई", "परिवार", "अस्पताल")) {
-            if (text.contains(topic)) {
-                return topic;
-            }
-        }
-        return "general";
+        String topic = matches.first(PhraseIndex.MEMORY_TOPIC);
+        return topic != null ? topic : "general";
     }
 }
@@ -1,20 +1,28 @@
 package com.digitaltwin.digital_twin_backend.service;
 
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import java.io.IOException;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Slf4j
 @Service
+@RequiredArgsConstructor
 public class LLMService {
 
+    private final OutboundHttpClients outboundHttpClients;
+    private final LlmResponseCache responseCache;
+
     @Value("${app.ai.service.url:https://openrouter.ai/api/v1}")
     private String aiServiceUrl;
 
@@ -24,11 +32,12 @@ public class LLMService {
     @Value("${app.ai.model:openai/gpt-4o-mini}")
     private String model;
 
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(60, TimeUnit.SECONDS)
-            .writeTimeout(60, TimeUnit.SECONDS)
-            .build();
+    private OkHttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        httpClient = outboundHttpClients.forProvider("openrouter");
+    }
 
     /**
      * Legacy call without language
@@ -38,14 +47,158 @@ public class LLMService {
     }
 
     /**
-     * Call LLM with prompt, mode, and explicit language
+     * Call LLM with prompt, mode, and explicit language (shared cache scope)
      */
     public String callLLM(String prompt, String mode, String language) throws IOException {
+        return callLLM(prompt, mode, language, LlmResponseCache.SHARED_SCOPE);
+    }
+
+    /**
+     * Call LLM through the response cache. {@code cacheScope} is the user id when the
+     * prompt carries personal context, {@link LlmResponseCache#SHARED_SCOPE} otherwise,
+     * or null to bypass the cache.
+     */
+    public String callLLM(String prompt, String mode, String language, String cacheScope) throws IOException {
+        String cacheKey = cacheScope != null ? cacheKey(cacheScope, prompt, mode, language) : null;
+        String cached = cacheKey != null ? responseCache.get(cacheKey) : null;
+        if (cached != null) {
+            log.info("LLM cache hit, length: {}", cached.length());
+            return cached;
+        }
+
+        long start = System.currentTimeMillis();
+        String content = executeLLM(prompt, mode, language);
+        cache(cacheKey, content, System.currentTimeMillis() - start);
+        return content;
+    }
+
+    private String executeLLM(String prompt, String mode, String language) throws IOException {
         log.info("Calling LLM with prompt length: {}, language: {}", prompt.length(), language);
 
+        JsonObject requestBody = buildRequestBody(prompt, mode, language);
+        Request request = buildRequest(requestBody);
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            String responseBody = response.body().string();
+
+            if (!response.isSuccessful()) {
+                log.error("LLM call failed: {} - {}", response.code(), responseBody);
+                throw new IOException("LLM call failed: " + response.code());
+            }
+
+            JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
+            String content = json.getAsJsonArray("choices")
+                    .get(0).getAsJsonObject()
+                    .getAsJsonObject("message")
+                    .get("content").getAsString();
+
+            log.info("LLM response received, length: {}", content.length());
+            return content;
+        }
+    }
+
+    /**
+     * Same request as {@link #callLLM(String, String, String)} with {@code stream: true}.
+     * Each content delta from the SSE stream is handed to {@code onToken} as it arrives;
+     * the full completion is returned at the end. Throws if the stream fails, so callers
+     * can fall back to the blocking call. A cache hit is delivered as a single token.
+     */
+    public String streamLLM(String prompt, String mode, String language, String cacheScope,
+                            Consumer<String> onToken) throws IOException {
+        String cacheKey = cacheScope != null ? cacheKey(cacheScope, prompt, mode, language) : null;
+        String cached = cacheKey != null ? responseCache.get(cacheKey) : null;
+        if (cached != null) {
+            log.info("LLM cache hit (stream), length: {}", cached.length());
+            onToken.accept(cached);
+            return cached;
+        }
+
+        log.info("Streaming LLM with prompt length: {}, language: {}", prompt.length(), language);
+
+        JsonObject requestBody = buildRequestBody(prompt, mode, language);
+        requestBody.addProperty("stream", true);
+        Request request = buildRequest(requestBody).newBuilder()
+                .header("Accept", "text/event-stream")
+                .build();
+
+        long start = System.currentTimeMillis();
+        long firstTokenAt = 0;
+        StringBuilder content = new StringBuilder();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            if (!response.isSuccessful()) {
+                String errorBody = response.body() != null ? response.body().string() : "";
+                log.error("LLM stream failed: {} - {}", response.code(), errorBody);
+                throw new IOException("LLM stream failed: " + response.code());
+            }
+
+            BufferedSource source = response.body().source();
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                // Blank lines separate events; ':' lines are keep-alive comments
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                String data = line.substring(5).trim();
+                if ("[DONE]".equals(data)) {
+                    break;
+                }
+
+                JsonObject chunk = JsonParser.parseString(data).getAsJsonObject();
+                if (chunk.has("error")) {
+                    throw new IOException("LLM stream error: " + chunk.get("error"));
+                }
+                JsonArray choices = chunk.getAsJsonArray("choices");
+                if (choices == null || choices.isEmpty()) {
+                    continue;
+                }
+                JsonObject delta = choices.get(0).getAsJsonObject().getAsJsonObject("delta");
+                if (delta == null || !delta.has("content") || delta.get("content").isJsonNull()) {
+                    continue;
+                }
+
+                String token = delta.get("content").getAsString();
+                if (token.isEmpty()) {
+                    continue;
+                }
+                if (firstTokenAt == 0) {
+                    firstTokenAt = System.currentTimeMillis();
+                }
+                content.append(token);
+                onToken.accept(token);
+            }
+        }
+
+        if (content.length() == 0) {
+            throw new IOException("LLM stream returned no content");
+        }
+
+        log.info("LLM stream complete, length: {}, first token after {}ms, total {}ms",
+                content.length(), firstTokenAt - start, System.currentTimeMillis() - start);
+        cache(cacheKey, content.toString(), System.currentTimeMillis() - start);
+        return content.toString();
+    }
+
+    // A hand-off to a caregiver is decided per request, never replayed from the cache
+    private void cache(String cacheKey, String content, long latencyMs) {
+        if (cacheKey == null || content.contains(LlmResponseStreamer.UNKNOWN_QUERY)) {
+            return;
+        }
+        responseCache.put(cacheKey, content, latencyMs);
+    }
+
+    private String cacheKey(String scope, String prompt, String mode, String language) {
+        return responseCache.key(scope, prompt, mode, language, model, temperatureFor(mode));
+    }
+
+    private static double temperatureFor(String mode) {
+        return "dementia".equals(mode) ? 0.3 : 0.7;
+    }
+
+    private JsonObject buildRequestBody(String prompt, String mode, String language) {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("model", model);
-        requestBody.addProperty("temperature", mode.equals("dementia") ? 0.3 : 0.7);
+        requestBody.addProperty("temperature", temperatureFor(mode));
         requestBody.addProperty("max_tokens", 300);
 
         JsonArray messages = new JsonArray();
@@ -86,8 +239,11 @@ public class LLMService {
         messages.add(userMessage);
 
         requestBody.add("messages", messages);
+        return requestBody;
+    }
 
-        Request request = new Request.Builder()
+    private Request buildRequest(JsonObject requestBody) {
+        return new Request.Builder()
                 .url(aiServiceUrl + "/chat/completions")
                 .addHeader("Authorization", "Bearer " + aiApiKey)
                 .addHeader("Content-Type", "application/json")
@@ -96,24 +252,6 @@ public class LLMService {
                 .post(RequestBody.create(requestBody.toString(),
                         MediaType.parse("application/json")))
                 .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            String responseBody = response.body().string();
-
-            if (!response.isSuccessful()) {
-                log.error("LLM call failed: {} - {}", response.code(), responseBody);
-                throw new IOException("LLM call failed: " + response.code());
-            }
-
-            JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
-            String content = json.getAsJsonArray("choices")
-                    .get(0).getAsJsonObject()
-                    .getAsJsonObject("message")
-                    .get("content").getAsString();
-
-            log.info("LLM response received, length: {}", content.length());
-            return content;
-        }
     }
 
     /**
@@ -132,7 +270,9 @@ public class LLMService {
 
         prompt.append("Provide a helpful, accurate response suggestion:");
 
-        return callLLM(prompt.toString(), "standard");
+        // Personal context with no user to scope it to: don't cache
+        boolean personal = context != null && !context.isEmpty();
+        return callLLM(prompt.toString(), "standard", "auto", personal ? null : LlmResponseCache.SHARED_SCOPE);
     }
 
     /**
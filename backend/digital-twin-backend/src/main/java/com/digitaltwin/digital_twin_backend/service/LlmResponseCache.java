@@ -0,0 +1,162 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact-match cache for LLM completions, keyed on (scope, normalized prompt, mode,
+ * language, model, temperature bucket). Scope is the user id when the prompt carries
+ * personal context, so one patient's answers are never served to another; prompts
+ * without personal context share the global scope. LRU by size, plus a TTL.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LlmResponseCache {
+
+    public static final String SHARED_SCOPE = "*";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.ai.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.ai.cache.max-entries:2000}")
+    private int maxEntries;
+
+    @Value("${app.ai.cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Map<String, Entry> entries;
+
+    private Counter hits;
+    private Counter misses;
+    private Timer savedLatency;
+
+    @PostConstruct
+    public void init() {
+        entries = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        hits = Counter.builder("llm.cache.requests").tag("result", "hit")
+                .description("LLM calls answered from the response cache")
+                .register(meterRegistry);
+        misses = Counter.builder("llm.cache.requests").tag("result", "miss")
+                .description("LLM calls that went to the provider")
+                .register(meterRegistry);
+        savedLatency = Timer.builder("llm.cache.saved.latency")
+                .description("Provider latency avoided by cache hits")
+                .register(meterRegistry);
+        Gauge.builder("llm.cache.hit.ratio", this, LlmResponseCache::hitRatio)
+                .description("Share of cacheable LLM calls served from cache")
+                .register(meterRegistry);
+        Gauge.builder("llm.cache.size", this, LlmResponseCache::size)
+                .register(meterRegistry);
+
+        log.info("LLM response cache {} (max {} entries, ttl {}s)",
+                enabled ? "enabled" : "disabled", maxEntries, ttlSeconds);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String key(String scope, String prompt, String mode, String language, String model, double temperature) {
+        String normalizedPrompt = normalize(prompt);
+        String material = String.join("\u0000",
+                scope != null ? scope : SHARED_SCOPE,
+                normalizedPrompt,
+                mode != null ? mode : "",
+                language != null ? language.toLowerCase(Locale.ROOT) : "auto",
+                model != null ? model : "",
+                String.valueOf(Math.round(temperature * 10)));
+        return sha256(material);
+    }
+
+    /**
+     * Cached completion, or null on a miss (expired entries count as misses)
+     */
+    public String get(String key) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && entry.expiresAt < System.currentTimeMillis()) {
+                entries.remove(key);
+                entry = null;
+            }
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        savedLatency.record(entry.latencyMs, TimeUnit.MILLISECONDS);
+        return entry.content;
+    }
+
+    public void put(String key, String content, long latencyMs) {
+        if (!enabled || content == null || content.isBlank()) {
+            return;
+        }
+        Entry entry = new Entry(content, latencyMs, System.currentTimeMillis() + ttlSeconds * 1000);
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0.0 : hits.count() / total;
+    }
+
+    // Case, Unicode form and whitespace differences don't change the answer
+    private static String normalize(String prompt) {
+        if (prompt == null) {
+            return "";
+        }
+        return Normalizer.normalize(prompt, Normalizer.Form.NFKC)
+                .toLowerCase(Locale.ROOT)
+                .replaceAll("\\s+", " ")
+                .trim();
+    }
+
+    private static String sha256(String value) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(value.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record Entry(String content, long latencyMs, long expiresAt) {
+    }
+}
@@ -0,0 +1,158 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.dto.VoiceResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Turns one streamed LLM completion into client deltas: text as it arrives, and
+ * each finished sentence synthesized and pushed as an audio delta, in order.
+ *
+ * Output is held back while the completion could still be the UNKNOWN_QUERY
+ * sentinel, so a HITL hand-off never leaks half a word to the user. If the stream
+ * fails after output was released, {@link #abandon()} tells the client to discard it.
+ */
+@Slf4j
+class LlmResponseStreamer {
+
+    static final String UNKNOWN_QUERY = "UNKNOWN_QUERY";
+
+    private final String sessionId;
+    private final String userId;
+    private final TTSService ttsService;
+    private final Executor ttsExecutor;
+    private final Consumer<VoiceResponse> deltaListener;
+    private final int minSentenceChars;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+    private final StringBuilder received = new StringBuilder();
+    private final StringBuilder pendingSentence = new StringBuilder();
+    private final List<String> segmentUrls = Collections.synchronizedList(new ArrayList<>());
+
+    // Sentences are synthesized one after another so audio deltas stay in order
+    private CompletableFuture<Void> ttsChain = CompletableFuture.completedFuture(null);
+    private boolean released = false;
+    private volatile boolean abandoned = false;
+
+    LlmResponseStreamer(String sessionId, String userId, TTSService ttsService, Executor ttsExecutor,
+                        Consumer<VoiceResponse> deltaListener, int minSentenceChars) {
+        this.sessionId = sessionId;
+        this.userId = userId;
+        this.ttsService = ttsService;
+        this.ttsExecutor = ttsExecutor;
+        this.deltaListener = deltaListener;
+        this.minSentenceChars = minSentenceChars;
+    }
+
+    /**
+     * Called from the streaming thread for every content token
+     */
+    void onToken(String token) {
+        if (abandoned) {
+            return;
+        }
+        received.append(token);
+
+        if (!released) {
+            String soFar = received.toString().trim();
+            if (UNKNOWN_QUERY.startsWith(soFar)) {
+                return;
+            }
+            released = true;
+            emitText(received.toString());
+            return;
+        }
+        emitText(token);
+    }
+
+    /**
+     * Flush the last sentence and wait for its audio; returns the sentence audio URLs
+     * in playback order, or an empty list when nothing was released to the client.
+     */
+    List<String> complete(long timeoutMs) {
+        if (!released || abandoned) {
+            return List.of();
+        }
+        flushSentence();
+        try {
+            ttsChain.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.warn("⚠️ Sentence TTS did not finish for session {}: {}", sessionId, e.getMessage());
+        }
+        return List.copyOf(segmentUrls);
+    }
+
+    /**
+     * Stop emitting; used when the stream fails and the caller falls back. Anything
+     * already released is withdrawn with a reset delta, so the client doesn't show the
+     * partial answer (or play its audio) in front of the fallback response.
+     */
+    synchronized void abandon() {
+        if (abandoned) {
+            return;
+        }
+        abandoned = true;
+        if (released) {
+            deltaListener.accept(VoiceResponse.streamReset(sessionId, sequence.getAndIncrement()));
+        }
+    }
+
+    boolean hasReleasedOutput() {
+        return released;
+    }
+
+    private void emitText(String text) {
+        deltaListener.accept(VoiceResponse.textDelta(sessionId, sequence.getAndIncrement(), text));
+
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            pendingSentence.append(c);
+            if (isSentenceEnd(c) && pendingSentence.length() >= minSentenceChars) {
+                flushSentence();
+            }
+        }
+    }
+
+    private void flushSentence() {
+        String sentence = pendingSentence.toString().trim();
+        pendingSentence.setLength(0);
+        if (sentence.isEmpty()) {
+            return;
+        }
+
+        ttsChain = ttsChain.thenRunAsync(() -> {
+            if (abandoned) {
+                return;
+            }
+            try {
+                String audioUrl = ttsService.textToSpeech(sentence, userId);
+                if (audioUrl != null) {
+                    emitAudio(sentence, audioUrl);
+                }
+            } catch (Exception e) {
+                log.warn("⚠️ Sentence TTS failed for session {}: {}", sessionId, e.getMessage());
+            }
+        }, ttsExecutor);
+    }
+
+    // Checked under the same lock as abandon(), so no audio delta follows a reset
+    private synchronized void emitAudio(String sentence, String audioUrl) {
+        if (abandoned) {
+            return;
+        }
+        segmentUrls.add(audioUrl);
+        deltaListener.accept(VoiceResponse.audioDelta(sessionId, sequence.getAndIncrement(), sentence, audioUrl));
+    }
+
+    private static boolean isSentenceEnd(char c) {
+        return c == '.' || c == '!' || c == '?' || c == '।' || c == '\n';
+    }
+}
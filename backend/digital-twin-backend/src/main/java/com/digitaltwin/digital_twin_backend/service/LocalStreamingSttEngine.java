@@ -0,0 +1,272 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.audio.AudioView;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * Local stand-in for a realtime STT provider, built on the batch {@link TranscriptionService}.
+ * Audio is transcribed in deltas: once enough new chunks have arrived, only those chunks
+ * (behind the recording's WebM init segment, so the provider can decode them) are sent,
+ * and the text is appended to the running transcript. Every byte is uploaded once; on
+ * finish only the untranscribed tail is sent. Words cut at a delta boundary may come out
+ * slightly differently than in a batch transcript.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalStreamingSttEngine implements StreamingSttEngine {
+
+    // EBML id of a WebM Cluster; the bytes before the first one are the init segment
+    private static final byte[] WEBM_CLUSTER_ID = {0x1F, 0x43, (byte) 0xB6, 0x75};
+
+    // The batch provider rejects smaller uploads
+    static final int MIN_UPLOAD_BYTES = 1000;
+
+    // Chunks parked ahead of a gap before the stream gives up and defers to the batch path
+    private static final int MAX_PARKED_CHUNKS = 64;
+
+    private final TranscriptionService transcriptionService;
+    private final StageExecutorFactory stageExecutorFactory;
+
+    @Value("${app.voice.stt.streaming.partial-interval-ms:1500}")
+    private long partialIntervalMs;
+
+    @Value("${app.voice.stt.streaming.min-new-bytes:8000}")
+    private int minNewBytes;
+
+    @Value("${app.voice.stt.streaming.concurrency:8}")
+    private int concurrency;
+
+    private StageExecutor deltaExecutor;
+
+    @PostConstruct
+    public void init() {
+        deltaExecutor = stageExecutorFactory.create("stt-delta", concurrency);
+        log.info("LocalStreamingSttEngine initialized (interval={}ms, minNewBytes={})", partialIntervalMs, minNewBytes);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        deltaExecutor.shutdown();
+    }
+
+    @Override
+    public Stream open(String sessionId, String language, Consumer<String> partialListener) {
+        return new DeltaStream(sessionId, language, partialListener);
+    }
+
+    /**
+     * Bytes before the first Cluster of a WebM recording, or nothing for other containers
+     */
+    static byte[] initSegment(byte[] firstChunk) {
+        outer:
+        for (int i = 0; i <= firstChunk.length - WEBM_CLUSTER_ID.length; i++) {
+            for (int j = 0; j < WEBM_CLUSTER_ID.length; j++) {
+                if (firstChunk[i + j] != WEBM_CLUSTER_ID[j]) {
+                    continue outer;
+                }
+            }
+            byte[] header = new byte[i];
+            System.arraycopy(firstChunk, 0, header, 0, i);
+            return header;
+        }
+        return new byte[0];
+    }
+
+    private class DeltaStream implements Stream {
+
+        private final String sessionId;
+        private final String language;
+        private final Consumer<String> partialListener;
+
+        private final TreeMap<Integer, byte[]> parked = new TreeMap<>();
+        private final List<byte[]> delta = new ArrayList<>();
+        private final StringBuilder transcript = new StringBuilder();
+        private byte[] header;
+        private int nextSequence = 0;
+        private long receivedBytes = 0;
+        private long deltaBytes = 0;
+        private long takenBytes = 0;
+        private long lastDeltaAt = System.currentTimeMillis();
+        private CompletableFuture<Void> inFlight = CompletableFuture.completedFuture(null);
+        private boolean busy = false;
+        private boolean broken = false;
+        private boolean finished = false;
+        private boolean cancelled = false;
+
+        DeltaStream(String sessionId, String language, Consumer<String> partialListener) {
+            this.sessionId = sessionId;
+            this.language = language;
+            this.partialListener = partialListener;
+        }
+
+        @Override
+        public synchronized void accept(int sequenceNumber, byte[] audioData) {
+            if (finished || cancelled || broken || audioData == null || audioData.length == 0
+                    || sequenceNumber < nextSequence) {
+                return;
+            }
+
+            parked.put(sequenceNumber, audioData);
+            while (!parked.isEmpty() && parked.firstKey() == nextSequence) {
+                append(parked.pollFirstEntry().getValue());
+            }
+            if (parked.size() > MAX_PARKED_CHUNKS) {
+                log.debug("Streaming STT for session {} lost chunk {}, deferring to batch", sessionId, nextSequence);
+                markBroken();
+                return;
+            }
+
+            if (!busy && deltaBytes >= minNewBytes
+                    && System.currentTimeMillis() - lastDeltaAt >= partialIntervalMs) {
+                startDelta();
+            }
+        }
+
+        private void append(byte[] chunk) {
+            if (header == null) {
+                header = initSegment(chunk);
+            }
+            delta.add(chunk);
+            deltaBytes += chunk.length;
+            receivedBytes += chunk.length;
+            nextSequence++;
+        }
+
+        // Caller holds the lock
+        private void startDelta() {
+            byte[] payload = takeDelta();
+            busy = true;
+            inFlight = CompletableFuture.runAsync(() -> transcribeDelta(payload), deltaExecutor);
+        }
+
+        private void transcribeDelta(byte[] payload) {
+            String text;
+            try {
+                text = transcriptionService.transcribe(payload, language);
+            } catch (Exception e) {
+                log.debug("Partial transcription failed for session {}: {}", sessionId, e.getMessage());
+                synchronized (this) {
+                    busy = false;
+                    markBroken();
+                }
+                return;
+            }
+
+            String partial;
+            synchronized (this) {
+                busy = false;
+                lastDeltaAt = System.currentTimeMillis();
+                appendText(text);
+                partial = !finished && !cancelled && transcript.length() > 0 ? transcript.toString() : null;
+            }
+
+            if (partial != null) {
+                log.debug("📝 Partial transcript for session {}: {}", sessionId, partial);
+                partialListener.accept(partial);
+            }
+        }
+
+        @Override
+        public CompletableFuture<String> finish(String requestedLanguage, AudioView completeAudio) {
+            CompletableFuture<Void> pending;
+            synchronized (this) {
+                finished = true;
+                parked.clear();
+                pending = inFlight;
+            }
+
+            AudioView audio = completeAudio.retain();
+            return pending.thenApplyAsync(ignored -> {
+                byte[] tail;
+                synchronized (this) {
+                    if (cancelled || broken || receivedBytes != audio.size() || !languageMatches(requestedLanguage)) {
+                        tail = null;
+                    } else if (deltaBytes == 0) {
+                        return transcript.toString();
+                    } else {
+                        tail = takeDelta();
+                    }
+                }
+
+                try {
+                    if (tail == null) {
+                        log.debug("Streaming STT for session {} does not cover the recording, transcribing it whole",
+                                sessionId);
+                        return transcriptionService.transcribe(audio, requestedLanguage);
+                    }
+                    if (tail.length >= MIN_UPLOAD_BYTES) {
+                        String text = transcriptionService.transcribe(tail, language);
+                        synchronized (this) {
+                            appendText(text);
+                        }
+                    }
+                    synchronized (this) {
+                        log.info("⚡ Streamed transcript used for session {}", sessionId);
+                        return transcript.toString();
+                    }
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, deltaExecutor).whenComplete((text, error) -> audio.close());
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            parked.clear();
+            delta.clear();
+        }
+
+        private void markBroken() {
+            broken = true;
+            parked.clear();
+            delta.clear();
+        }
+
+        // Header plus the chunks not yet transcribed; the first delta already starts with the header
+        private byte[] takeDelta() {
+            byte[] prefix = takenBytes == 0 ? new byte[0] : header;
+            byte[] payload = new byte[prefix.length + (int) deltaBytes];
+            System.arraycopy(prefix, 0, payload, 0, prefix.length);
+            int offset = prefix.length;
+            for (byte[] chunk : delta) {
+                System.arraycopy(chunk, 0, payload, offset, chunk.length);
+                offset += chunk.length;
+            }
+            delta.clear();
+            takenBytes += deltaBytes;
+            deltaBytes = 0;
+            return payload;
+        }
+
+        private void appendText(String text) {
+            if (text == null || text.isBlank()) {
+                return;
+            }
+            if (transcript.length() > 0) {
+                transcript.append(' ');
+            }
+            transcript.append(text.trim());
+        }
+
+        private boolean languageMatches(String requestedLanguage) {
+            return requestedLanguage == null
+                    || requestedLanguage.isBlank()
+                    || "auto".equalsIgnoreCase(requestedLanguage)
+                    || requestedLanguage.equalsIgnoreCase(language);
+        }
+    }
+}
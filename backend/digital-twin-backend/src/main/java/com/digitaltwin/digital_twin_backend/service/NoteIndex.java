@@ -0,0 +1,303 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.Note;
+import com.digitaltwin.digital_twin_backend.repository.NoteRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user in-memory inverted index over note title and content, ranked with BM25.
+ *
+ * A user's index is loaded from Mongo on first search and then kept current by
+ * NoteService on every create, update and delete. Writes made on another node never
+ * reach this one, so at most every {@code refresh-check-seconds} a search compares the
+ * note count and newest updatedAt in Mongo with the index and rebuilds it on a mismatch.
+ * Only the most recently searched users are kept; an evicted user is simply reloaded
+ * on their next query.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NoteIndex {
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // Title terms are counted this many times, so a title hit outranks a passing mention
+    private static final int TITLE_BOOST = 2;
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final Pattern TOKEN_SPLIT = Pattern.compile("[^\\p{L}\\p{M}\\p{N}]+");
+
+    private final NoteRepository noteRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.context.note-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.context.note-index.max-users:500}")
+    private int maxUsers;
+
+    @Value("${app.context.note-index.refresh-check-seconds:30}")
+    private long refreshCheckSeconds;
+
+    private Map<String, UserIndex> users;
+
+    @PostConstruct
+    public void init() {
+        users = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserIndex> eldest) {
+                return size() > maxUsers;
+            }
+        };
+
+        Gauge.builder("notes.index.users", this, NoteIndex::indexedUsers)
+                .description("Users whose notes are held in the in-memory search index")
+                .register(meterRegistry);
+
+        log.info("Note index {} (max {} users)", enabled ? "enabled" : "disabled", maxUsers);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Notes ranked by BM25 against the given terms, best first
+     */
+    public List<Note> search(String userId, Collection<String> terms, int limit) {
+        if (userId == null || terms == null || terms.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        Set<String> queryTerms = new LinkedHashSet<>();
+        for (String term : terms) {
+            queryTerms.addAll(tokenize(term));
+        }
+        if (queryTerms.isEmpty()) {
+            return List.of();
+        }
+
+        UserIndex index = loaded(userId);
+        synchronized (index) {
+            return index.search(queryTerms, limit);
+        }
+    }
+
+    /**
+     * Called after a note is saved; a no-op for users not currently indexed
+     */
+    public void upsert(Note note) {
+        if (note == null || note.getUserId() == null || note.getId() == null) {
+            return;
+        }
+        UserIndex index = existing(note.getUserId());
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            index.add(note);
+        }
+    }
+
+    /**
+     * Called after a note is deleted
+     */
+    public void remove(String userId, String noteId) {
+        if (userId == null || noteId == null) {
+            return;
+        }
+        UserIndex index = existing(userId);
+        if (index == null) {
+            return;
+        }
+        synchronized (index) {
+            index.remove(noteId);
+        }
+    }
+
+    public void evict(String userId) {
+        synchronized (this) {
+            users.remove(userId);
+        }
+    }
+
+    private synchronized UserIndex existing(String userId) {
+        return users.get(userId);
+    }
+
+    /*
+     * The user's monitor is held while loading, so writes that race the first
+     * search wait and are applied on top of what Mongo returned.
+     */
+    private UserIndex loaded(String userId) {
+        UserIndex index;
+        synchronized (this) {
+            index = users.computeIfAbsent(userId, id -> new UserIndex());
+        }
+        synchronized (index) {
+            if (index.built && isStale(userId, index)) {
+                log.debug("Note index for user {} is behind Mongo, rebuilding", userId);
+                index.clear();
+            }
+            if (!index.built) {
+                long start = System.nanoTime();
+                List<Note> notes = noteRepository.findByUserId(userId);
+                notes.forEach(index::add);
+                index.built = true;
+                index.checkedAt = System.nanoTime();
+                log.debug("Indexed {} notes for user {} in {} ms", notes.size(), userId,
+                        (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+        return index;
+    }
+
+    // Two cheap queries instead of a reload; catches creates, updates and deletes from other nodes
+    private boolean isStale(String userId, UserIndex index) {
+        long now = System.nanoTime();
+        if (now - index.checkedAt < TimeUnit.SECONDS.toNanos(refreshCheckSeconds)) {
+            return false;
+        }
+        index.checkedAt = now;
+        if (noteRepository.countByUserId(userId) != index.notes.size()) {
+            return true;
+        }
+        LocalDateTime newest = noteRepository.findFirstByUserIdOrderByUpdatedAtDesc(userId)
+                .map(Note::getUpdatedAt)
+                .orElse(null);
+        return !Objects.equals(newest, index.newestUpdate());
+    }
+
+    private synchronized int indexedUsers() {
+        return users.size();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String normalized = Normalizer.normalize(text, Normalizer.Form.NFKC).toLowerCase(Locale.ROOT);
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SPLIT.split(normalized)) {
+            if (token.length() >= MIN_TERM_LENGTH) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private static final class UserIndex {
+
+        private final Map<String, IndexedNote> notes = new HashMap<>();
+        private final Map<String, Map<String, Integer>> postings = new HashMap<>();
+        private long totalLength;
+        private boolean built;
+        private long checkedAt;
+
+        void add(Note note) {
+            remove(note.getId());
+
+            Map<String, Integer> termFreqs = new HashMap<>();
+            int length = 0;
+            for (String term : tokenize(note.getTitle())) {
+                termFreqs.merge(term, TITLE_BOOST, Integer::sum);
+                length += TITLE_BOOST;
+            }
+            for (String term : tokenize(note.getContent())) {
+                termFreqs.merge(term, 1, Integer::sum);
+                length++;
+            }
+
+            notes.put(note.getId(), new IndexedNote(note, termFreqs, length));
+            totalLength += length;
+            termFreqs.forEach((term, tf) ->
+                    postings.computeIfAbsent(term, t -> new HashMap<>()).put(note.getId(), tf));
+        }
+
+        void remove(String noteId) {
+            IndexedNote previous = notes.remove(noteId);
+            if (previous == null) {
+                return;
+            }
+            totalLength -= previous.length();
+            for (String term : previous.termFreqs().keySet()) {
+                Map<String, Integer> posting = postings.get(term);
+                if (posting != null) {
+                    posting.remove(noteId);
+                    if (posting.isEmpty()) {
+                        postings.remove(term);
+                    }
+                }
+            }
+        }
+
+        void clear() {
+            notes.clear();
+            postings.clear();
+            totalLength = 0;
+            built = false;
+        }
+
+        LocalDateTime newestUpdate() {
+            LocalDateTime newest = null;
+            for (IndexedNote indexed : notes.values()) {
+                LocalDateTime updatedAt = indexed.note().getUpdatedAt();
+                if (updatedAt != null && (newest == null || updatedAt.isAfter(newest))) {
+                    newest = updatedAt;
+                }
+            }
+            return newest;
+        }
+
+        List<Note> search(Set<String> queryTerms, int limit) {
+            int docCount = notes.size();
+            if (docCount == 0) {
+                return List.of();
+            }
+            double avgLength = Math.max(1.0, (double) totalLength / docCount);
+
+            Map<String, Double> scores = new HashMap<>();
+            for (String term : queryTerms) {
+                Map<String, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                int df = posting.size();
+                double idf = Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+                posting.forEach((noteId, tf) -> {
+                    int length = notes.get(noteId).length();
+                    double norm = tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / avgLength));
+                    scores.merge(noteId, idf * norm, Double::sum);
+                });
+            }
+
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                    .limit(limit)
+                    .map(e -> notes.get(e.getKey()).note())
+                    .toList();
+        }
+    }
+
+    private record IndexedNote(Note note, Map<String, Integer> termFreqs, int length) {
+    }
+}
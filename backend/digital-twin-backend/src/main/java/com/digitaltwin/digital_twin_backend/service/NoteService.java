@@ -1,21 +1,27 @@
 package com.digitaltwin.digital_twin_backend.service;
 
+import com.digitaltwin.digital_twin_backend.config.MongoIndexConfig;
 import com.digitaltwin.digital_twin_backend.model.Note;
 import com.digitaltwin.digital_twin_backend.repository.NoteRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.mongodb.core.query.TextCriteria;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class NoteService {
 
     private final NoteRepository noteRepository;
+    private final NoteIndex noteIndex;
+
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
 
     /**
      * Create a new note
@@ -23,7 +29,7 @@ public class NoteService {
     public Note createNote(Note note) {
         note.setCreatedAt(LocalDateTime.now());
         note.setUpdatedAt(LocalDateTime.now());
-        return noteRepository.save(note);
+        return save(note);
     }
 
     /**
@@ -46,7 +52,7 @@ public class NoteService {
         note.setCreatedAt(LocalDateTime.now());
         note.setUpdatedAt(LocalDateTime.now());
 
-        return noteRepository.save(note);
+        return save(note);
     }
 
     /**
@@ -118,7 +124,7 @@ public class NoteService {
         }
 
         note.setUpdatedAt(LocalDateTime.now());
-        return noteRepository.save(note);
+        return save(note);
     }
 
     /**
@@ -128,7 +134,7 @@ public class NoteService {
         Note note = getNoteById(noteId);
         note.setPinned(!note.isPinned());
         note.setUpdatedAt(LocalDateTime.now());
-        return noteRepository.save(note);
+        return save(note);
     }
 
     /**
@@ -138,7 +144,7 @@ public class NoteService {
         Note note = getNoteById(noteId);
         note.setArchived(!note.isArchived());
         note.setUpdatedAt(LocalDateTime.now());
-        return noteRepository.save(note);
+        return save(note);
     }
 
     /**
@@ -148,30 +154,32 @@ public class NoteService {
         Note note = getNoteById(noteId);
         note.setShowOnDashboard(!note.isShowOnDashboard());
         note.setUpdatedAt(LocalDateTime.now());
-        return noteRepository.save(note);
+        return save(note);
     }
 
     /**
      * Delete note
      */
     public void deleteNote(String noteId) {
+        Note existing = noteRepository.findById(noteId).orElse(null);
         noteRepository.deleteById(noteId);
+        if (existing != null) {
+            noteIndex.remove(existing.getUserId(), noteId);
+        }
     }
 
     /**
-     * Search notes by keyword
+     * Search notes by keyword: one $text query on the notes text index, ranked by
+     * textScore, excluding archived notes. Matches whole words, not substrings.
      */
-    public List<Note> searchNotes(String userId, String keyword) {
-        List<Note> allNotes = getUserNotes(userId);
-        String lowerKeyword = keyword.toLowerCase();
-
-        return allNotes.stream()
-                .filter(note ->
-                        note.getTitle().toLowerCase().contains(lowerKeyword) ||
-                                note.getContent().toLowerCase().contains(lowerKeyword) ||
-                                (note.getCategory() != null && note.getCategory().toLowerCase().contains(lowerKeyword))
-                )
-                .collect(Collectors.toList());
+    public List<Note> searchNotes(String userId, String keyword, int page, int size) {
+        if (keyword == null || keyword.isBlank()) {
+            return List.of();
+        }
+        TextCriteria criteria = TextCriteria.forLanguage(MongoIndexConfig.NOTES_TEXT_LANGUAGE)
+                .matching(keyword.trim());
+        Pageable pageable = PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_SEARCH_PAGE_SIZE));
+        return noteRepository.findByUserIdAndArchivedFalseOrderByScoreDesc(userId, criteria, pageable);
     }
 
     // Add this method in NoteService class
@@ -192,6 +200,13 @@ public class NoteService {
         metadata.put("hitlQueueId", hitlQueueId);
         note.setMetadata(metadata);
 
-        return noteRepository.save(note);
+        return save(note);
+    }
+
+    // Every write goes through here so the voice search index stays current
+    private Note save(Note note) {
+        Note saved = noteRepository.save(note);
+        noteIndex.upsert(saved);
+        return saved;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,429 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.EmergencyAlert;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry.Channel;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry.Status;
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
+import com.digitaltwin.digital_twin_backend.scheduler.ClusterMembership;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Drains the notification outbox: claims due entries, sends them concurrently with a
+ * per-channel rate limit, retries failures with exponential backoff and dead-letters
+ * entries that used up their attempts. Emergency alert deliveries are written back to
+ * {@code EmergencyAlert.notifications} with one bulk update per batch.
+ *
+ * Runs every {@code app.notifications.dispatcher.poll-ms} and immediately after any
+ * enqueue, so SOS messages don't wait for the next poll. Urgent entries (SOS) have a
+ * lane of their own: a separate claim loop, send stage and rate limiters, so they never
+ * wait behind a batch of routine reminders that is still sending. Leases are renewed
+ * while a batch is sending, so no other node claims an entry that is still in flight;
+ * a send stuck past {@code send-timeout-ms} is interrupted and retried.
+ *
+ * SOS SMS get their Google Maps link shortened through TinyURL here, off the SOS request.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationDispatcher {
+
+    private static final Pattern MAPS_LINK = Pattern.compile("https://maps\\.google\\.com/\\?q=\\S+");
+
+    private final NotificationOutbox outbox;
+    private final NotificationService notificationService;
+    private final MongoTemplate mongoTemplate;
+    private final ClusterMembership clusterMembership;
+    private final StageExecutorFactory stageExecutorFactory;
+    private final OutboundHttpClients outboundHttpClients;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.notifications.dispatcher.concurrency:16}")
+    private int concurrency;
+
+    @Value("${app.notifications.dispatcher.urgent-concurrency:4}")
+    private int urgentConcurrency;
+
+    @Value("${app.notifications.dispatcher.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.notifications.dispatcher.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.notifications.dispatcher.send-timeout-ms:120000}")
+    private long sendTimeoutMs;
+
+    @Value("${app.notifications.dispatcher.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.notifications.dispatcher.retry-base-ms:5000}")
+    private long retryBaseMs;
+
+    @Value("${app.notifications.dispatcher.retry-max-ms:600000}")
+    private long retryMaxMs;
+
+    @Value("${app.notifications.sms.per-second:10}")
+    private double smsPerSecond;
+
+    @Value("${app.notifications.email.per-second:5}")
+    private double emailPerSecond;
+
+    private Lane routine;
+    private Lane urgent;
+
+    private Timer deliveryLatency;
+
+    @PostConstruct
+    public void init() {
+        routine = new Lane("notification", false, concurrency);
+        urgent = new Lane("notification-urgent", true, urgentConcurrency);
+
+        deliveryLatency = Timer.builder("notifications.delivery.latency")
+                .description("Time from enqueue to successful send")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+
+        outbox.onEnqueue(this::wakeUp);
+        log.info("📤 Notification dispatcher ready (concurrency {}, sms {}/s, email {}/s, max attempts {})",
+                concurrency, smsPerSecond, emailPerSecond, maxAttempts);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        urgent.shutdown();
+        routine.shutdown();
+    }
+
+    public void wakeUp() {
+        urgent.wakeUp();
+        routine.wakeUp();
+    }
+
+    // Hands off to the drain executors so slow providers never hold up the shared scheduler thread
+    @Scheduled(fixedDelayString = "${app.notifications.dispatcher.poll-ms:1000}")
+    public void poll() {
+        urgent.poll();
+        routine.poll();
+    }
+
+    private void dispatch(List<NotificationOutboxEntry> batch, Lane lane) {
+        String nodeId = clusterMembership.getNodeId();
+        Map<String, Thread> sending = new ConcurrentHashMap<>();
+        Map<String, String> shortLinks = new ConcurrentHashMap<>();
+        List<CompletableFuture<NotificationOutbox.Attempt>> sends = new ArrayList<>(batch.size());
+        for (NotificationOutboxEntry entry : batch) {
+            sends.add(CompletableFuture.supplyAsync(() -> {
+                sending.put(entry.getId(), Thread.currentThread());
+                try {
+                    return send(entry, shortLinks, lane);
+                } finally {
+                    sending.remove(entry.getId());
+                }
+            }, lane.sendExecutor));
+        }
+
+        // Renew well before the lease runs out, for as long as something is still sending
+        long renewEveryNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, leaseMs / 3));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        long nextRenewal = System.nanoTime() + renewEveryNanos;
+        List<NotificationOutbox.Attempt> attempts = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            NotificationOutboxEntry entry = batch.get(i);
+            while (true) {
+                long now = System.nanoTime();
+                if (now >= nextRenewal) {
+                    renewUnfinished(nodeId, batch, sends);
+                    nextRenewal = now + renewEveryNanos;
+                }
+                try {
+                    long wait = Math.max(0, Math.min(deadline, nextRenewal) - now);
+                    attempts.add(sends.get(i).get(wait, TimeUnit.NANOSECONDS));
+                    break;
+                } catch (TimeoutException e) {
+                    if (System.nanoTime() < deadline) {
+                        continue;
+                    }
+                    // Stuck past the send timeout: stop it and retry later under backoff
+                    Thread thread = sending.get(entry.getId());
+                    if (thread != null) {
+                        thread.interrupt();
+                    }
+                    sends.get(i).cancel(false);
+                    log.warn("⏱️ Notification {} still sending after {} ms, interrupted", entry.getId(), sendTimeoutMs);
+                    attempts.add(failed(entry, "send timed out after " + sendTimeoutMs + " ms"));
+                    break;
+                } catch (Exception e) {
+                    attempts.add(failed(entry, e.getMessage()));
+                    break;
+                }
+            }
+        }
+
+        outbox.complete(nodeId, attempts);
+        writeBackAlertDeliveries(attempts);
+    }
+
+    private void renewUnfinished(String nodeId, List<NotificationOutboxEntry> batch,
+                                 List<CompletableFuture<NotificationOutbox.Attempt>> sends) {
+        List<String> unfinished = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (!sends.get(i).isDone()) {
+                unfinished.add(batch.get(i).getId());
+            }
+        }
+        try {
+            outbox.renew(nodeId, unfinished, leaseMs);
+        } catch (Exception e) {
+            log.error("❌ Could not renew notification leases: {}", e.getMessage());
+        }
+    }
+
+    private NotificationOutbox.Attempt send(NotificationOutboxEntry entry, Map<String, String> shortLinks, Lane lane) {
+        try {
+            lane.rateLimiters.get(entry.getChannel()).acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(entry, "interrupted");
+        }
+
+        boolean sent = entry.getChannel() == Channel.SMS
+                ? notificationService.sendSMS(entry.getRecipient(), withShortLinks(entry, shortLinks))
+                : notificationService.sendEmail(entry.getRecipient(), entry.getSubject(), entry.getBody());
+        if (!sent) {
+            return failed(entry, entry.getChannel() + " provider rejected or failed");
+        }
+
+        count(entry, "sent");
+        if (entry.getCreatedAt() != null) {
+            deliveryLatency.record(Duration.between(entry.getCreatedAt(), LocalDateTime.now()));
+        }
+        return new NotificationOutbox.Attempt(entry, Status.SENT, null, null);
+    }
+
+    /*
+     * SOS SMS: swap the Google Maps link for a TinyURL one (once per link per batch, since
+     * every caregiver of an alert gets the same message). Falls back to the full link.
+     */
+    private String withShortLinks(NotificationOutboxEntry entry, Map<String, String> shortLinks) {
+        String body = entry.getBody();
+        if (entry.getAlertId() == null || body == null) {
+            return body;
+        }
+        Matcher matcher = MAPS_LINK.matcher(body);
+        StringBuilder shortened = new StringBuilder();
+        while (matcher.find()) {
+            String link = shortLinks.computeIfAbsent(matcher.group(), this::shortenUrl);
+            matcher.appendReplacement(shortened, Matcher.quoteReplacement(link));
+        }
+        matcher.appendTail(shortened);
+        return shortened.toString();
+    }
+
+    private String shortenUrl(String longUrl) {
+        try {
+            // TinyURL API - free hai; short timeouts (app.http.tinyurl.*) so the SMS isn't held up
+            HttpUrl apiUrl = HttpUrl.get("https://tinyurl.com/api-create.php").newBuilder()
+                    .addQueryParameter("url", longUrl)
+                    .build();
+            Request request = new Request.Builder().url(apiUrl).get().build();
+            try (Response response = outboundHttpClients.forProvider("tinyurl").newCall(request).execute()) {
+                String shortUrl = response.body() != null ? response.body().string().trim() : "";
+                if (!response.isSuccessful() || !shortUrl.startsWith("http")) {
+                    log.warn("⚠️ Short URL failed: {}", response.code());
+                    return longUrl;
+                }
+                return shortUrl;
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Short URL error, sending full link: {}", e.getMessage());
+            return longUrl;
+        }
+    }
+
+    private NotificationOutbox.Attempt failed(NotificationOutboxEntry entry, String error) {
+        if (entry.getAttempts() >= maxAttempts) {
+            count(entry, "dead");
+            log.error("☠️ Notification {} ({} to {}) dead-lettered after {} attempts: {}",
+                    entry.getId(), entry.getChannel(), entry.getRecipient(), entry.getAttempts(), error);
+            return new NotificationOutbox.Attempt(entry, Status.DEAD, error, null);
+        }
+
+        // Exponential backoff with ±20% jitter so a provider outage doesn't end in a burst
+        long delay = Math.min(retryMaxMs, retryBaseMs << Math.min(20, entry.getAttempts() - 1));
+        delay = (long) (delay * ThreadLocalRandom.current().nextDouble(0.8, 1.2));
+        count(entry, "retry");
+        log.warn("🔁 Notification {} failed (attempt {}/{}), retrying in {} ms: {}",
+                entry.getId(), entry.getAttempts(), maxAttempts, delay, error);
+        return new NotificationOutbox.Attempt(entry, Status.PENDING, error,
+                LocalDateTime.now().plusNanos(delay * 1_000_000));
+    }
+
+    /*
+     * Final outcomes (sent or dead) of caregiver notifications for an emergency alert,
+     * appended to the alert with one $push per alert in a single bulk write
+     */
+    private void writeBackAlertDeliveries(List<NotificationOutbox.Attempt> attempts) {
+        Map<String, List<EmergencyAlert.NotificationLog>> byAlert = new LinkedHashMap<>();
+        for (NotificationOutbox.Attempt attempt : attempts) {
+            NotificationOutboxEntry entry = attempt.entry();
+            if (entry.getAlertId() == null || entry.getCaregiverId() == null || attempt.status() == Status.PENDING) {
+                continue;
+            }
+            EmergencyAlert.NotificationLog delivery = new EmergencyAlert.NotificationLog();
+            delivery.setCaregiverId(entry.getCaregiverId());
+            delivery.setCaregiverName(entry.getCaregiverName());
+            delivery.setMethod(entry.getChannel() == Channel.SMS
+                    ? EmergencyAlert.NotificationMethod.SMS
+                    : EmergencyAlert.NotificationMethod.EMAIL);
+            delivery.setSentAt(LocalDateTime.now());
+            delivery.setDelivered(attempt.status() == Status.SENT);
+            byAlert.computeIfAbsent(entry.getAlertId(), id -> new ArrayList<>()).add(delivery);
+        }
+        if (byAlert.isEmpty()) {
+            return;
+        }
+
+        try {
+            BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, EmergencyAlert.class);
+            byAlert.forEach((alertId, deliveries) -> bulk.updateOne(
+                    new Query(Criteria.where("_id").is(alertId)),
+                    new Update().push("notifications").each(deliveries.toArray())));
+            bulk.execute();
+        } catch (Exception e) {
+            // Delivery already happened; only the alert's audit trail is incomplete
+            log.error("❌ Failed to record alert deliveries (non-critical): {}", e.getMessage());
+        }
+    }
+
+    private void count(NotificationOutboxEntry entry, String outcome) {
+        Counter.builder("notifications.dispatch")
+                .tag("channel", entry.getChannel().name())
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * One claim loop with its own send stage and per-channel rate limiters. The urgent
+     * lane only claims urgent entries and the routine lane everything else. SOS traffic
+     * is small, so giving it its own limiters lets a channel briefly exceed its rate
+     * rather than make an SOS wait for slots already promised to reminders.
+     */
+    private final class Lane {
+
+        private final boolean urgent;
+        private final StageExecutor drainExecutor;
+        private final StageExecutor sendExecutor;
+        private final Map<Channel, RateLimiter> rateLimiters = new EnumMap<>(Channel.class);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean wakeRequested = new AtomicBoolean();
+
+        Lane(String name, boolean urgent, int sendConcurrency) {
+            this.urgent = urgent;
+            drainExecutor = stageExecutorFactory.create(name + "-drain", 1);
+            sendExecutor = stageExecutorFactory.create(name + "-send", sendConcurrency);
+            rateLimiters.put(Channel.SMS, new RateLimiter(smsPerSecond));
+            rateLimiters.put(Channel.EMAIL, new RateLimiter(emailPerSecond));
+        }
+
+        void wakeUp() {
+            wakeRequested.set(true);
+            drainExecutor.execute(this::drain);
+        }
+
+        void poll() {
+            if (!draining.get()) {
+                drainExecutor.execute(this::drain);
+            }
+        }
+
+        void shutdown() {
+            drainExecutor.shutdown();
+            sendExecutor.shutdown();
+        }
+
+        /*
+         * One drainer at a time per lane and node. A wake-up that arrives while another
+         * thread is draining is picked up by that thread before it lets go.
+         */
+        private void drain() {
+            while (draining.compareAndSet(false, true)) {
+                try {
+                    wakeRequested.set(false);
+                    List<NotificationOutboxEntry> batch;
+                    while (!(batch = outbox.claim(clusterMembership.getNodeId(), batchSize, leaseMs, urgent)).isEmpty()) {
+                        dispatch(batch, this);
+                    }
+                } catch (Exception e) {
+                    log.error("❌ Notification dispatch failed: {}", e.getMessage(), e);
+                    return;
+                } finally {
+                    draining.set(false);
+                }
+                if (!wakeRequested.get()) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Spaces out sends on one channel to at most {@code perSecond}; callers sleep
+     * until their slot comes up
+     */
+    private static final class RateLimiter {
+
+        private final long intervalNanos;
+        private long nextFreeAt = System.nanoTime();
+
+        RateLimiter(double perSecond) {
+            this.intervalNanos = perSecond > 0 ? (long) (1_000_000_000L / perSecond) : 0;
+        }
+
+        void acquire() throws InterruptedException {
+            long waitNanos;
+            synchronized (this) {
+                long now = System.nanoTime();
+                long slot = Math.max(now, nextFreeAt);
+                nextFreeAt = slot + intervalNanos;
+                waitNanos = slot - now;
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry.Status;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Persistent queue behind NotificationService. Enqueueing is a single batch insert,
+ * so callers (SOS requests, scheduler ticks, the voice pipeline) never wait on
+ * Twilio or SMTP. Entries are claimed atomically, so any number of nodes can drain
+ * the same collection without sending anything twice while a lease is held.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class NotificationOutbox {
+
+    private final MongoTemplate mongoTemplate;
+
+    private final List<Runnable> enqueueListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Outcome of one send attempt, applied by {@link #complete(String, Collection)}
+     */
+    public record Attempt(NotificationOutboxEntry entry, Status status, String error, LocalDateTime retryAt) {
+    }
+
+    /**
+     * Insert entries in one batch; entries without a recipient are dropped here so
+     * callers don't have to check every contact channel themselves
+     */
+    public List<NotificationOutboxEntry> enqueue(Collection<NotificationOutboxEntry> entries) {
+        LocalDateTime now = LocalDateTime.now();
+        List<NotificationOutboxEntry> valid = new ArrayList<>(entries.size());
+        for (NotificationOutboxEntry entry : entries) {
+            if (entry.getRecipient() == null || entry.getRecipient().isBlank()) {
+                log.warn("⚠️ Dropping {} notification without recipient", entry.getChannel());
+                continue;
+            }
+            entry.setStatus(Status.PENDING);
+            entry.setAttempts(0);
+            entry.setNextAttemptAt(now);
+            entry.setCreatedAt(now);
+            valid.add(entry);
+        }
+        if (valid.isEmpty()) {
+            return List.of();
+        }
+
+        mongoTemplate.insertAll(valid);
+        log.debug("📤 Queued {} notification(s)", valid.size());
+        enqueueListeners.forEach(Runnable::run);
+        return valid;
+    }
+
+    /**
+     * Called after every successful enqueue (the dispatcher uses it to start immediately)
+     */
+    public void onEnqueue(Runnable listener) {
+        enqueueListeners.add(listener);
+    }
+
+    /**
+     * Claim up to {@code limit} due entries for this node: only urgent ones (SOS), or
+     * only the rest, oldest first. An entry whose lease ran out (its node died
+     * mid-send) is due again.
+     */
+    public List<NotificationOutboxEntry> claim(String nodeId, int limit, long leaseMs, boolean urgent) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria priority = urgent
+                ? Criteria.where("priority").gte(NotificationOutboxEntry.PRIORITY_URGENT)
+                : Criteria.where("priority").lt(NotificationOutboxEntry.PRIORITY_URGENT);
+        Query due = new Query(new Criteria().andOperator(priority, new Criteria().orOperator(
+                Criteria.where("status").is(Status.PENDING).and("nextAttemptAt").lte(now),
+                Criteria.where("status").is(Status.SENDING).and("lockedUntil").lt(now))))
+                .with(Sort.by(Sort.Order.desc("priority"), Sort.Order.asc("nextAttemptAt")));
+        Update lease = new Update()
+                .set("status", Status.SENDING)
+                .set("lockedBy", nodeId)
+                .set("lockedUntil", now.plusNanos(leaseMs * 1_000_000))
+                .inc("attempts", 1);
+
+        List<NotificationOutboxEntry> claimed = new ArrayList<>();
+        while (claimed.size() < limit) {
+            NotificationOutboxEntry entry = mongoTemplate.findAndModify(due, lease,
+                    FindAndModifyOptions.options().returnNew(true), NotificationOutboxEntry.class);
+            if (entry == null) {
+                break;
+            }
+            claimed.add(entry);
+        }
+        return claimed;
+    }
+
+    /**
+     * Extend this node's lease on entries that are still being sent
+     */
+    public void renew(String nodeId, Collection<String> ids, long leaseMs) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        mongoTemplate.updateMulti(
+                new Query(Criteria.where("_id").in(ids)
+                        .and("status").is(Status.SENDING)
+                        .and("lockedBy").is(nodeId)),
+                new Update().set("lockedUntil", LocalDateTime.now().plusNanos(leaseMs * 1_000_000)),
+                NotificationOutboxEntry.class);
+    }
+
+    /**
+     * Write back a batch of attempts; ignored for entries this node no longer holds
+     */
+    public void complete(String nodeId, Collection<Attempt> attempts) {
+        if (attempts.isEmpty()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, NotificationOutboxEntry.class);
+        for (Attempt attempt : attempts) {
+            Query held = new Query(Criteria.where("_id").is(attempt.entry().getId())
+                    .and("status").is(Status.SENDING)
+                    .and("lockedBy").is(nodeId));
+            Update update = new Update()
+                    .set("status", attempt.status())
+                    .unset("lockedBy")
+                    .unset("lockedUntil");
+            if (attempt.status() == Status.SENT) {
+                update.set("sentAt", now).unset("lastError");
+            } else {
+                update.set("lastError", attempt.error());
+                if (attempt.retryAt() != null) {
+                    update.set("nextAttemptAt", attempt.retryAt());
+                }
+            }
+            bulk.updateOne(held, update);
+        }
+        bulk.execute();
+    }
+}
@@ -1,5 +1,6 @@
 package com.digitaltwin.digital_twin_backend.service;
 
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
 import com.twilio.Twilio;
 import com.twilio.rest.api.v2010.account.Message;
 import com.twilio.type.PhoneNumber;
@@ -13,7 +14,13 @@ import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
 import jakarta.mail.internet.MimeMessage;
+import java.util.Collection;
 
+/**
+ * SMS (Twilio) and email (SMTP) delivery.
+ * Application code queues notifications with {@link #enqueue}; only NotificationDispatcher
+ * calls {@link #sendSMS} and {@link #sendEmail}, which block on the provider.
+ */
 @Service
 @RequiredArgsConstructor
 public class NotificationService {
@@ -35,6 +42,7 @@ public class NotificationService {
     private String emailFrom;
 
     private final JavaMailSender mailSender;
+    private final NotificationOutbox outbox;
 
     @PostConstruct
     public void initTwilio() {
@@ -46,6 +54,17 @@ public class NotificationService {
         }
     }
 
+    // ==================== OUTBOX ====================
+
+    /**
+     * Queue notifications in one batch and return immediately; entries without a
+     * recipient are skipped
+     */
+    public void enqueue(Collection<NotificationOutboxEntry> notifications) {
+        if (notifications == null || notifications.isEmpty()) return;
+        outbox.enqueue(notifications);
+    }
+
     // ==================== EMAIL ====================
 
     /**
@@ -82,12 +101,10 @@ public class NotificationService {
     }
 
     /**
-     * Send medication reminder email
+     * Medication reminder email, ready to enqueue
      */
-    public void sendMedicationReminderEmail(String toEmail, String patientName,
-                                             String medicationName, String dosage) {
-        if (toEmail == null || toEmail.isBlank()) return;
-
+    public NotificationOutboxEntry medicationReminderEmail(String toEmail, String patientName,
+                                                           String medicationName, String dosage) {
         String subject = "💊 Medication Reminder — " + medicationName;
         String body = String.format("""
                 <h2>Medication Reminder</h2>
@@ -100,17 +117,15 @@ public class NotificationService {
                 <p>Please take it now and mark it as taken in the app.</p>
                 """, patientName, medicationName, dosage);
 
-        sendEmail(toEmail, subject, body);
+        return NotificationOutboxEntry.email(toEmail, subject, body);
     }
 
     /**
-     * Send missed medication alert email to caregiver
+     * Missed medication alert email to caregiver, ready to enqueue
      */
-    public void sendMissedMedicationEmail(String caregiverEmail, String caregiverName,
-                                           String patientName, String medicationName,
-                                           String dosage, String scheduledTime) {
-        if (caregiverEmail == null || caregiverEmail.isBlank()) return;
-
+    public NotificationOutboxEntry missedMedicationEmail(String caregiverEmail, String caregiverName,
+                                                         String patientName, String medicationName,
+                                                         String dosage, String scheduledTime) {
         String subject = "🚨 Missed Medication Alert — " + patientName;
         String body = String.format("""
                 <h2>⚠️ Missed Medication Alert</h2>
@@ -124,16 +139,14 @@ public class NotificationService {
                 <p>Please follow up immediately.</p>
                 """, caregiverName, patientName, medicationName, dosage, scheduledTime);
 
-        sendEmail(caregiverEmail, subject, body);
+        return NotificationOutboxEntry.email(caregiverEmail, subject, body);
     }
 
     /**
-     * Send routine reminder email
+     * Routine reminder email, ready to enqueue
      */
-    public void sendRoutineReminderEmail(String toEmail, String patientName,
-                                             String activityName, String scheduledTime) {
-        if (toEmail == null || toEmail.isBlank()) return;
-
+    public NotificationOutboxEntry routineReminderEmail(String toEmail, String patientName,
+                                                        String activityName, String scheduledTime) {
         String subject = "📅 Routine Reminder — " + activityName;
         String body = String.format("""
                 <h2>Routine Reminder</h2>
@@ -146,17 +159,15 @@ public class NotificationService {
                 <p>Please complete it and mark it as done in the app.</p>
                 """, patientName, activityName, scheduledTime);
 
-        sendEmail(toEmail, subject, body);
+        return NotificationOutboxEntry.email(toEmail, subject, body);
     }
 
     /**
-     * Send missed routine alert email to caregiver
+     * Missed routine alert email, ready to enqueue
      */
-    public void sendMissedRoutineEmail(String caregiverEmail, String caregiverName,
-                                           String patientName, String activityName,
-                                           String scheduledTime) {
-        if (caregiverEmail == null || caregiverEmail.isBlank()) return;
-
+    public NotificationOutboxEntry missedRoutineEmail(String caregiverEmail, String caregiverName,
+                                                      String patientName, String activityName,
+                                                      String scheduledTime) {
         String subject = "🚨 Missed Routine Alert — " + patientName;
         String body = String.format("""
                 <h2>⚠️ Missed Routine Alert</h2>
@@ -169,7 +180,7 @@ public class NotificationService {
                 <p>Please follow up immediately.</p>
                 """, caregiverName, patientName, activityName, scheduledTime);
 
-        sendEmail(caregiverEmail, subject, body);
+        return NotificationOutboxEntry.email(caregiverEmail, subject, body);
     }
 
     // ==================== SMS ====================
@@ -221,15 +232,13 @@ public class NotificationService {
         }
     }
 
-    public void sendMedicationReminder(String phoneNumber, String medicationName, String dosage) {
-        if (phoneNumber == null || phoneNumber.isBlank()) return;
-        sendSMS(phoneNumber, String.format(
+    public NotificationOutboxEntry medicationReminderSms(String phoneNumber, String medicationName, String dosage) {
+        return NotificationOutboxEntry.sms(phoneNumber, String.format(
                 "💊 Reminder: Time to take %s (%s). Please don't forget!", medicationName, dosage));
     }
 
-    public void sendRoutineReminder(String phoneNumber, String activityName, String time) {
-        if (phoneNumber == null || phoneNumber.isBlank()) return;
-        sendSMS(phoneNumber, String.format(
+    public NotificationOutboxEntry routineReminderSms(String phoneNumber, String activityName, String time) {
+        return NotificationOutboxEntry.sms(phoneNumber, String.format(
                 "📅 Routine Reminder: Time for %s at %s", activityName, time));
     }
-}
\ No newline at end of file
+}
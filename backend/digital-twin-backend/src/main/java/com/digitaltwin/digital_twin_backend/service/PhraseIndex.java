@@ -0,0 +1,142 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.text.PhraseMatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Every keyword list the voice pipeline matches against, compiled once into a single
+ * {@link PhraseMatcher}. Detectors call {@link #match(String)} once per utterance and
+ * read their categories off the result instead of scanning the text per phrase.
+ *
+ * Intents are all scored by {@link IntentClassifier}, so their order here doesn't matter
+ * (ties go by its INTENT_PRIORITY). Subtypes and emergency types are still checked in
+ * the order listed here, and the first one with a match wins.
+ */
+@Slf4j
+@Component
+public class PhraseIndex {
+
+    public static final String EMERGENCY = "emergency";
+    public static final String SCORER_EMERGENCY = "scorer-emergency";
+    public static final String MEMORY_TOPIC = "memory-topic";
+    public static final String SCHEDULE_QUERY = "schedule-query";
+    public static final String ROMAN_HINDI = "roman-hindi";
+
+    static final Map<String, List<String>> INTENT_PHRASES = new LinkedHashMap<>();
+    static final Map<String, List<String>> SUBTYPE_PHRASES = new LinkedHashMap<>();
+    static final Map<String, List<String>> ENTITY_PHRASES = new LinkedHashMap<>();
+    static final Map<String, List<String>> TIME_PHRASES = new LinkedHashMap<>();
+    static final Map<String, List<String>> EMERGENCY_TYPE_PHRASES = new LinkedHashMap<>();
+
+    static final List<String> EMERGENCY_PHRASES = List.of(
+            "bachao", "help", "sos", "emergency", "बचाओ", "मदद", "आपातकाल");
+
+    // ConfidenceScorer's wider net: anything that should skip scoring and go to a human
+    static final List<String> SCORER_EMERGENCY_PHRASES = List.of(
+            "help", "bachao", "emergency", "sos", "ambulance",
+            "hospital", "doctor", "pain", "dard", "gir gaya");
+
+    static final List<String> MEMORY_TOPIC_PHRASES = List.of(
+            "doctor", "medicine", "family", "hospital", "डॉक्टर", "दवाई", "परिवार", "अस्पताल");
+
+    static final List<String> SCHEDULE_QUERY_PHRASES = List.of(
+            "schedule", "dawai", "medicine", "tablet", "aaj kya hai", "reminder", "kaam", "task",
+            "kya lena hai", "routine", "today", "what do i need", "what do i need today",
+            "what should i do", "what should i take", "today plan", "my medications", "my medicine",
+            "mera schedule", "meri dawai", "meri davai", "aaj mujhe kya karna hai",
+            "aaj mujhe kya lena hai", "aaj ka schedule",
+            "आज", "दवाई", "दवा", "गोली", "रूटीन", "शेड्यूल", "रिमाइंडर", "काम",
+            "मुझे क्या करना है", "मुझे क्या लेना है");
+
+    static final List<String> ROMAN_HINDI_PHRASES = List.of(
+            "mujhe", "mera", "meri", "aaj", "kal", "kya", "kaise", "dawai", "davai",
+            "hai", "karna", "lena", "kab", "namaste", "yaad", "poochhiye");
+
+    static {
+        // Each intent is scored from its own hits; see IntentClassifier for weights and ties
+        INTENT_PHRASES.put("MEMORY_OFFLOAD", List.of(
+                "kal kya padha", "kya likha tha", "kya note kiya",
+                "kya yaad hai", "kya bataya tha", "kya hua tha",
+                "कल क्या पढ़ा", "क्या लिखा था", "क्या नोट किया",
+                "क्या याद है", "क्या बताया था", "क्या हुआ था",
+                "what did i read", "what did i write", "what happened",
+                "note", "notes", "summary", "summarized", "summarize"));
+        INTENT_PHRASES.put("ROUTINE_QUERY", List.of(
+                "next", "routine", "schedule", "kya karna",
+                "ab kya", "uske baad", "time kya",
+                "रूटीन", "शेड्यूल", "क्या करना", "अब क्या", "उसके बाद", "समय क्या"));
+        INTENT_PHRASES.put("MEDICATION_QUERY", List.of(
+                "medicine", "dawai", "kab lena", "kab leni", "kya khana",
+                "medication", "pill", "dose", "tablet", "goli",
+                "दवाई", "दवा", "कब लेना", "क्या खाना", "गोली"));
+        INTENT_PHRASES.put("GREETING", List.of(
+                "hello", "hi", "hey", "namaste", "helo",
+                "good morning", "good afternoon", "good evening",
+                "how are you", "kaise ho", "हेलो", "हैलो", "नमस्ते", "कैसे हो"));
+
+        SUBTYPE_PHRASES.put("MEDICINE_TIME", List.of("time", "kab", "baje", "समय", "कब", "बजे"));
+        SUBTYPE_PHRASES.put("DOCTOR_VISIT", List.of("doctor", "dr", "hospital", "clinic", "डॉक्टर", "अस्पताल", "क्लिनिक"));
+        SUBTYPE_PHRASES.put("FAMILY", List.of("beta", "beti", "pati", "wife", "husband", "बेटा", "बेटी", "पति", "पत्नी"));
+
+        ENTITY_PHRASES.put("date", List.of("kal", "aaj", "parson", "yesterday", "today", "कल", "आज", "परसों"));
+        ENTITY_PHRASES.put("person", List.of("doctor", "beta", "beti", "pati", "डॉक्टर", "बेटा", "बेटी", "पति"));
+        ENTITY_PHRASES.put("medicine", List.of("dawai", "medicine", "tablet", "pill", "दवाई", "दवा", "गोली"));
+
+        TIME_PHRASES.put("YESTERDAY", List.of("kal", "yesterday"));
+        TIME_PHRASES.put("TODAY", List.of("aaj", "today"));
+        TIME_PHRASES.put("TOMORROW", List.of("parson", "tomorrow"));
+
+        EMERGENCY_TYPE_PHRASES.put("FALL", List.of("gir", "fall", "गिर"));
+        EMERGENCY_TYPE_PHRASES.put("MEDICAL", List.of("dard", "pain", "दर्द"));
+    }
+
+    private final PhraseMatcher matcher;
+
+    public PhraseIndex() {
+        PhraseMatcher.Builder builder = PhraseMatcher.builder();
+        INTENT_PHRASES.forEach((intent, phrases) -> builder.add(intent(intent), phrases));
+        SUBTYPE_PHRASES.forEach((subType, phrases) -> builder.add(subType(subType), phrases));
+        ENTITY_PHRASES.forEach((entity, phrases) -> builder.add(entity(entity), phrases));
+        TIME_PHRASES.forEach((time, phrases) -> builder.add(time(time), phrases));
+        EMERGENCY_TYPE_PHRASES.forEach((type, phrases) -> builder.add(emergencyType(type), phrases));
+        builder.add(EMERGENCY, EMERGENCY_PHRASES);
+        builder.add(SCORER_EMERGENCY, SCORER_EMERGENCY_PHRASES);
+        builder.add(MEMORY_TOPIC, MEMORY_TOPIC_PHRASES);
+        builder.add(SCHEDULE_QUERY, SCHEDULE_QUERY_PHRASES);
+        builder.add(ROMAN_HINDI, ROMAN_HINDI_PHRASES);
+        matcher = builder.build();
+        log.info("PhraseIndex compiled {} phrases", matcher.size());
+    }
+
+    /**
+     * All phrases in {@code text}, found in one pass (case-insensitive substring match)
+     */
+    public PhraseMatcher.Matches match(String text) {
+        return matcher.match(text);
+    }
+
+    public static String intent(String intent) {
+        return "intent:" + intent;
+    }
+
+    public static String subType(String subType) {
+        return "subtype:" + subType;
+    }
+
+    public static String entity(String entity) {
+        return "entity:" + entity;
+    }
+
+    public static String time(String reference) {
+        return "time:" + reference;
+    }
+
+    public static String emergencyType(String type) {
+        return "emergency-type:" + type;
+    }
+}
@@ -0,0 +1,379 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-process Roman Hindi → Devanagari conversion for display text.
+ * Words are looked up in a dictionary of common spoken Hindi (and everyday English
+ * loanwords); other lowercase words are spelled out by phonetic rules. Capitalised
+ * words (usually names) and common English are left as they were and counted, and
+ * callers send such text, or text resting mostly on the rules, to the LLM.
+ * Devanagari, digits and punctuation pass through unchanged, and recent conversions
+ * are cached.
+ *
+ * Words that are also common English (the, to, me, do, hi, time, ...) are left out of
+ * the dictionary on purpose, so an English reply never comes back as Hindi homographs.
+ * A reply whose only dictionary words are loanwords is English too and is returned as is.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class RomanHindiTransliterator {
+
+    private static final Map<String, String> DICTIONARY = new HashMap<>();
+    private static final Map<String, String> LOANWORDS = new HashMap<>();
+
+    static {
+        // Pronouns, question words, verbs and everyday nouns from patient conversations
+        String[][] words = {
+                {"mai", "मैं"}, {"mein", "में"}, {"mujhe", "मुझे"},
+                {"mujhko", "मुझको"}, {"mera", "मेरा"}, {"meri", "मेरी"}, {"mere", "मेरे"},
+                {"hum", "हम"}, {"hamara", "हमारा"}, {"hamari", "हमारी"}, {"tum", "तुम"},
+                {"tumhara", "तुम्हारा"}, {"aap", "आप"}, {"aapka", "आपका"}, {"aapki", "आपकी"},
+                {"aapke", "आपके"}, {"woh", "वह"}, {"wo", "वो"}, {"vo", "वो"}, {"yeh", "यह"},
+                {"ye", "ये"}, {"uska", "उसका"}, {"uski", "उसकी"}, {"uske", "उसके"}, {"unka", "उनका"},
+                {"kya", "क्या"}, {"kyun", "क्यों"}, {"kyon", "क्यों"}, {"kab", "कब"},
+                {"kahan", "कहाँ"}, {"kaha", "कहा"}, {"kaise", "कैसे"}, {"kaisa", "कैसा"},
+                {"kaisi", "कैसी"}, {"kaun", "कौन"}, {"kitna", "कितना"}, {"kitne", "कितने"},
+                {"kitni", "कितनी"}, {"konsa", "कौनसा"}, {"kaunsa", "कौनसा"},
+                {"hai", "है"}, {"hain", "हैं"}, {"hu", "हूँ"}, {"hoon", "हूँ"}, {"hun", "हूँ"},
+                {"tha", "था"}, {"thi", "थी"}, {"hoga", "होगा"},
+                {"hogi", "होगी"}, {"karna", "करना"}, {"karo", "करो"}, {"karu", "करूँ"},
+                {"karun", "करूँ"}, {"kar", "कर"}, {"karta", "करता"}, {"karti", "करती"},
+                {"kiya", "किया"}, {"lena", "लेना"}, {"lo", "लो"}, {"li", "ली"},
+                {"liya", "लिया"}, {"lijiye", "लीजिए"}, {"dena", "देना"},
+                {"diya", "दिया"}, {"dijiye", "दीजिए"}, {"jana", "जाना"}, {"jao", "जाओ"},
+                {"gaya", "गया"}, {"gayi", "गई"}, {"aana", "आना"}, {"aao", "आओ"}, {"aaya", "आया"},
+                {"aayi", "आई"}, {"khana", "खाना"}, {"khaya", "खाया"}, {"pina", "पीना"},
+                {"peena", "पीना"}, {"bolo", "बोलो"}, {"batao", "बताओ"}, {"bataiye", "बताइए"},
+                {"bataya", "बताया"}, {"poochhiye", "पूछिए"}, {"puchho", "पूछो"}, {"suno", "सुनो"},
+                {"dekho", "देखो"}, {"padha", "पढ़ा"}, {"likha", "लिखा"}, {"yaad", "याद"},
+                {"bhool", "भूल"}, {"bhul", "भूल"}, {"gaye", "गए"}, {"chahiye", "चाहिए"},
+                {"sakta", "सकता"}, {"sakti", "सकती"}, {"raha", "रहा"}, {"rahi", "रही"},
+                {"rahe", "रहे"},
+                {"aaj", "आज"}, {"kal", "कल"}, {"parson", "परसों"}, {"abhi", "अभी"}, {"ab", "अब"},
+                {"subah", "सुबह"}, {"shaam", "शाम"}, {"sham", "शाम"}, {"raat", "रात"},
+                {"dopahar", "दोपहर"}, {"din", "दिन"}, {"samay", "समय"}, {"baje", "बजे"},
+                {"baad", "बाद"}, {"pehle", "पहले"}, {"phir", "फिर"}, {"fir", "फिर"},
+                {"dawai", "दवाई"}, {"davai", "दवाई"}, {"dawa", "दवा"}, {"goli", "गोली"},
+                {"paani", "पानी"}, {"pani", "पानी"}, {"chai", "चाय"},
+                {"ghar", "घर"}, {"beta", "बेटा"}, {"beti", "बेटी"}, {"pati", "पति"},
+                {"patni", "पत्नी"}, {"maa", "माँ"}, {"papa", "पापा"}, {"bhai", "भाई"},
+                {"behen", "बहन"}, {"dost", "दोस्त"}, {"naam", "नाम"}, {"kaam", "काम"},
+                {"baat", "बात"}, {"dard", "दर्द"}, {"madad", "मदद"}, {"neend", "नींद"},
+                {"namaste", "नमस्ते"}, {"namaskar", "नमस्कार"}, {"dhanyavaad", "धन्यवाद"},
+                {"shukriya", "शुक्रिया"}, {"haan", "हाँ"}, {"han", "हाँ"}, {"nahi", "नहीं"},
+                {"nahin", "नहीं"}, {"na", "ना"}, {"theek", "ठीक"}, {"thik", "ठीक"},
+                {"accha", "अच्छा"}, {"achha", "अच्छा"}, {"achchha", "अच्छा"}, {"bahut", "बहुत"},
+                {"thoda", "थोड़ा"}, {"aur", "और"}, {"ya", "या"}, {"lekin", "लेकिन"},
+                {"ko", "को"}, {"ka", "का"}, {"ki", "की"}, {"ke", "के"},
+                {"se", "से"}, {"tak", "तक"}, {"bhi", "भी"},
+                {"sab", "सब"}, {"kuch", "कुछ"}, {"koi", "कोई"}, {"ek", "एक"},
+                {"teen", "तीन"}, {"char", "चार"}, {"paanch", "पाँच"}, {"saath", "साथ"},
+                {"liye", "लिए"}, {"ji", "जी"}, {"wala", "वाला"}, {"wali", "वाली"}, {"wale", "वाले"},
+        };
+        for (String[] word : words) {
+            DICTIONARY.put(word[0], word[1]);
+        }
+
+        // English loanwords patients use in Hindi sentences
+        String[][] loanwords = {
+                {"doctor", "डॉक्टर"}, {"medicine", "मेडिसिन"}, {"tablet", "टैबलेट"},
+                {"hospital", "हॉस्पिटल"}, {"clinic", "क्लिनिक"},
+                {"phone", "फ़ोन"},
+                {"routine", "रूटीन"}, {"schedule", "शेड्यूल"}, {"please", "प्लीज़"},
+                {"sorry", "सॉरी"}, {"okay", "ओके"}, {"ok", "ओके"}, {"hello", "हेलो"},
+                {"sugar", "शुगर"}, {"bp", "बीपी"}, {"walk", "वॉक"}, {"breakfast", "ब्रेकफास्ट"},
+                {"lunch", "लंच"}, {"dinner", "डिनर"}, {"appointment", "अपॉइंटमेंट"},
+        };
+        for (String[] word : loanwords) {
+            LOANWORDS.put(word[0], word[1]);
+        }
+    }
+
+    // Everyday English the spelling rules would otherwise read as Hindi
+    private static final Set<String> ENGLISH = Set.of(
+            "the", "to", "me", "do", "hi", "is", "am", "are", "was", "were", "be", "been", "my", "your",
+            "you", "he", "she", "it", "we", "they", "them", "him", "his", "her", "our", "their", "this",
+            "that", "these", "those", "what", "when", "where", "who", "why", "how", "which", "and", "or",
+            "but", "if", "then", "so", "not", "no", "yes", "in", "on", "at", "of", "for", "with", "from",
+            "by", "up", "out", "about", "after", "before", "can", "will", "would", "should", "could",
+            "have", "has", "had", "did", "does", "get", "got", "go", "going", "come", "take", "give",
+            "tell", "call", "note", "time", "today", "tomorrow", "yesterday", "morning", "evening",
+            "night", "now", "later", "remember", "remind", "reminder", "main", "need", "want", "like",
+            "good", "fine", "thank", "thanks", "there", "here", "some", "any", "all", "just", "also",
+            "very", "name", "son", "home", "water", "food", "pain", "help", "sleep", "an", "as", "us",
+            "let", "see", "say", "said", "know", "one", "two", "three", "five", "six", "nine", "ten",
+            "day", "week", "month", "year", "set", "add", "show", "list", "next", "last", "new", "old");
+
+    // Spelling rules for words not in the dictionary, longest match first
+    private static final String[][] CONSONANTS = {
+            {"chh", "छ"}, {"kh", "ख"}, {"gh", "घ"}, {"ch", "च"}, {"jh", "झ"}, {"th", "थ"},
+            {"dh", "ध"}, {"ph", "फ"}, {"bh", "भ"}, {"sh", "श"}, {"k", "क"}, {"g", "ग"},
+            {"j", "ज"}, {"t", "त"}, {"d", "द"}, {"n", "न"}, {"p", "प"}, {"b", "ब"}, {"m", "म"},
+            {"y", "य"}, {"r", "र"}, {"l", "ल"}, {"v", "व"}, {"w", "व"}, {"s", "स"}, {"h", "ह"},
+            {"f", "फ़"}, {"z", "ज़"},
+    };
+
+    // Latin spelling, independent vowel, vowel sign after a consonant
+    private static final String[][] VOWELS = {
+            {"aa", "आ", "ा"}, {"ai", "ऐ", "ै"}, {"au", "औ", "ौ"}, {"ee", "ई", "ी"}, {"oo", "ऊ", "ू"},
+            {"a", "अ", ""}, {"i", "इ", "ि"}, {"e", "ए", "े"}, {"o", "ओ", "ो"}, {"u", "उ", "ु"},
+    };
+
+    private static final Set<String> BEFORE_N_NASAL = Set.of(
+            "k", "kh", "g", "gh", "ch", "chh", "j", "jh", "t", "th", "d", "dh");
+    private static final Set<String> BEFORE_M_NASAL = Set.of("p", "ph", "b", "bh");
+
+    private static final String VIRAMA = "्";
+    private static final String ANUSVARA = "ं";
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.voice.transliteration.cache-size:1000}")
+    private int cacheSize;
+
+    // Recent conversions; transcripts and canned replies repeat within a conversation
+    private Map<String, Result> recent;
+
+    private Counter conversions;
+    private Counter unknownWords;
+    private Counter cacheHits;
+
+    @PostConstruct
+    public void init() {
+        recent = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Result> eldest) {
+                return size() > cacheSize;
+            }
+        };
+
+        conversions = Counter.builder("voice.transliteration.conversions")
+                .description("Roman Hindi texts converted locally")
+                .register(meterRegistry);
+        unknownWords = Counter.builder("voice.transliteration.unknown")
+                .description("Texts left to the LLM because the local conversion was not confident")
+                .register(meterRegistry);
+        cacheHits = Counter.builder("voice.transliteration.cache.hits")
+                .description("Conversions answered from the recent-conversion cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Converted text with how it was reached: Hindi words (from the dictionary, or already
+     * in Devanagari), words spelled out by the rules, and Latin words left as they were.
+     * Only a complete result is fit for display.
+     */
+    public record Result(String text, int hindiWords, int guessedWords, int unknownWords) {
+
+        /**
+         * No word was left over, and rule-spelled words are backed by at least as many
+         * dictionary words
+         */
+        public boolean isComplete() {
+            return unknownWords == 0 && guessedWords <= hindiWords;
+        }
+    }
+
+    public Result toDevanagari(String text) {
+        if (text == null || text.isBlank()) {
+            return new Result(text, 0, 0, 0);
+        }
+
+        Result result = cached(text);
+        if (result == null) {
+            result = convert(text);
+            if (cacheSize > 0) {
+                synchronized (this) {
+                    recent.put(text, result);
+                }
+            }
+        }
+
+        (result.isComplete() ? conversions : unknownWords).increment();
+        return result;
+    }
+
+    private Result cached(String text) {
+        if (cacheSize <= 0) {
+            return null;
+        }
+        Result result;
+        synchronized (this) {
+            result = recent.get(text);
+        }
+        if (result != null) {
+            cacheHits.increment();
+        }
+        return result;
+    }
+
+    private Result convert(String text) {
+        StringBuilder out = new StringBuilder(text.length() + 8);
+        int hindi = 0;
+        int guessed = 0;
+        int unknown = 0;
+
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            char c = text.charAt(i);
+            if (isDevanagari(c)) {
+                while (i < n && isDevanagari(text.charAt(i))) {
+                    out.append(text.charAt(i++));
+                }
+                hindi++;
+                continue;
+            }
+            if (!isLatinLetter(c)) {
+                out.append(c);
+                i++;
+                continue;
+            }
+
+            int start = i;
+            while (i < n && isLatinLetter(text.charAt(i))) {
+                i++;
+            }
+            String word = text.substring(start, i);
+            String lower = word.toLowerCase(Locale.ROOT);
+            String known = DICTIONARY.get(lower);
+            if (known != null) {
+                out.append(known);
+                hindi++;
+                continue;
+            }
+            known = LOANWORDS.get(lower);
+            if (known != null) {
+                out.append(known);
+                continue;
+            }
+            // Capitalised words are names far more often than Hindi
+            String spelled = word.equals(lower) && !ENGLISH.contains(lower) ? spell(lower) : null;
+            if (spelled != null) {
+                out.append(spelled);
+                guessed++;
+            } else {
+                out.append(word);
+                unknown++;
+            }
+        }
+
+        // Loanwords alone don't make a sentence Hindi: an English reply stays as it is
+        if (hindi == 0 && guessed == 0 && unknown == 0) {
+            return new Result(text.trim(), 0, 0, 0);
+        }
+        return new Result(out.toString().trim(), hindi, guessed, unknown);
+    }
+
+    /**
+     * Phonetic spelling of a lowercase Roman Hindi word, or null if it uses letters
+     * Roman Hindi doesn't (q, x, a lone c) or has no vowel. Consonants are joined with a
+     * virama only where Hindi writes a conjunct: doubled letters, after s/sh, and in a
+     * word-final cluster; elsewhere the inherent vowel is left for the reader to drop.
+     */
+    static String spell(String word) {
+        List<String[]> units = new ArrayList<>();
+        boolean hasVowel = false;
+        int i = 0;
+        while (i < word.length()) {
+            String[] unit = match(VOWELS, word, i);
+            if (unit != null) {
+                hasVowel = true;
+            } else {
+                unit = match(CONSONANTS, word, i);
+                if (unit == null) {
+                    return null;
+                }
+            }
+            units.add(unit);
+            i += unit[0].length();
+        }
+        if (!hasVowel) {
+            return null;
+        }
+
+        StringBuilder out = new StringBuilder(word.length() + 4);
+        for (int u = 0; u < units.size(); u++) {
+            String[] unit = units.get(u);
+            String[] prev = u > 0 ? units.get(u - 1) : null;
+            boolean last = u == units.size() - 1;
+
+            if (isVowel(unit)) {
+                if (prev == null || isVowel(prev)) {
+                    out.append(unit[1]);
+                } else if (last && unit[0].equals("i")) {
+                    // Word-final i and a are long in Roman Hindi (pani, khana)
+                    out.append("ी");
+                } else if (last && unit[0].equals("a")) {
+                    out.append("ा");
+                } else {
+                    out.append(unit[2]);
+                }
+                continue;
+            }
+
+            if (isNasal(units, u)) {
+                out.append(ANUSVARA);
+                continue;
+            }
+            if (prev != null && !isVowel(prev) && !isNasal(units, u - 1)
+                    && (prev[0].equals(unit[0]) || prev[0].equals("s") || prev[0].equals("sh") || last)) {
+                out.append(VIRAMA);
+            }
+            out.append(unit[1]);
+        }
+        return out.toString();
+    }
+
+    private static String[] match(String[][] table, String word, int at) {
+        for (String[] entry : table) {
+            if (word.startsWith(entry[0], at)) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isVowel(String[] unit) {
+        return unit.length == 3;
+    }
+
+    // Whether the consonant at index u is written as an anusvara: n or m after a vowel,
+    // before a consonant made in the same place (bandh, hindi, lamba)
+    private static boolean isNasal(List<String[]> units, int u) {
+        String[] unit = units.get(u);
+        if (u == 0 || !isVowel(units.get(u - 1)) || u + 1 >= units.size()) {
+            return false;
+        }
+        String next = units.get(u + 1)[0];
+        return switch (unit[0]) {
+            case "n" -> BEFORE_N_NASAL.contains(next);
+            case "m" -> BEFORE_M_NASAL.contains(next);
+            default -> false;
+        };
+    }
+
+    private static boolean isLatinLetter(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isDevanagari(char c) {
+        return c >= '\u0900' && c <= '\u097F';
+    }
+}
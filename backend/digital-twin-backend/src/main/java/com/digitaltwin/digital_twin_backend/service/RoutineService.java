@@ -1,23 +1,36 @@
 package com.digitaltwin.digital_twin_backend.service;
 
 import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.model.RoutineLogEntry;
+import com.digitaltwin.digital_twin_backend.repository.RoutineLogRepository;
 import com.digitaltwin.digital_twin_backend.repository.RoutineRepository;
+import com.digitaltwin.digital_twin_backend.scheduler.ClusterMembership;
+import com.digitaltwin.digital_twin_backend.scheduler.RoutineDueQueue;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class RoutineService {
     private final RoutineRepository routineRepository;
+    private final RoutineDueQueue dueQueue;
+    private final ClusterMembership clusterMembership;
+    private final RoutineLogRepository routineLogRepository;
+
+    private static final int RECENT_LOG_DAYS = 1;
 
     public Routine createRoutine(Routine routine){
         routine.setActive(true);
         routine.setCreatedAt(LocalDateTime.now());
-        return routineRepository.save(routine);
+        return scheduleChecks(routineRepository.save(routine));
     }
 
     public Routine getRoutineById(String id){
@@ -25,8 +38,15 @@ public class RoutineService {
                 .orElseThrow(()->new RuntimeException("Routine not found"));
     }
 
+    /**
+     * Routine with today's and yesterday's log entries, for API responses
+     */
+    public Routine getRoutineWithLogs(String id){
+        return withRecentLogs(getRoutineById(id));
+    }
+
     public List<Routine> getUserRoutines(String userId){
-        return routineRepository.findByUserId(userId);
+        return withRecentLogs(routineRepository.findByUserId(userId));
     }
 
     public List<Routine> getActiveRoutines(String userId){
@@ -49,11 +69,13 @@ public class RoutineService {
         existing.setReminderMinutesBefore(updatedRoutine.getReminderMinutesBefore());
         existing.setActive(updatedRoutine.isActive());
         existing.setUpdatedAt(LocalDateTime.now());
-        return routineRepository.save(existing);
+        return withRecentLogs(scheduleChecks(routineRepository.save(existing)));
     }
 
     public void deleteRoutine(String id) {
         routineRepository.deleteById(id);
+        routineLogRepository.deleteByRoutineId(id);
+        dueQueue.remove(id);
     }
 
     public List<Routine> seedDummyData(String userId) {
@@ -175,53 +197,94 @@ public class RoutineService {
 
     public Routine logRoutineCompleted(String routineId, String completedBy) {
         Routine routine = getRoutineById(routineId);
-        
-        Routine.RoutineLog log = new Routine.RoutineLog();
-        log.setScheduledDateTime(LocalDateTime.now());
-        log.setCompletedDateTime(LocalDateTime.now());
-        log.setStatus(Routine.RoutineStatus.COMPLETED);
-        log.setCompletedBy(completedBy);
-        log.setNotes("Completed manually");
-
-        if (routine.getLogs() == null) {
-            routine.setLogs(new ArrayList<>());
-        }
-        routine.getLogs().add(log);
-        return routineRepository.save(routine);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Completion is recorded against today's slot, so a second tap is a no-op
+        LocalDateTime slot = routine.getScheduledTime() != null
+                ? LocalDateTime.of(now.toLocalDate(), routine.getScheduledTime())
+                : now;
+        appendLog(routine, slot, now, Routine.RoutineStatus.COMPLETED, "Completed manually", completedBy);
+        return withRecentLogs(scheduleChecks(routine));
     }
 
-    public Routine logRoutineMissed(String routineId) {
-        return logRoutineMissed(routineId, LocalDateTime.now());
+    public boolean logRoutineMissed(String routineId) {
+        return logRoutineMissed(getRoutineById(routineId), LocalDateTime.now());
     }
 
-    public Routine logRoutineMissed(String routineId, LocalDateTime scheduledDateTime) {
-        Routine routine = getRoutineById(routineId);
-        
-        Routine.RoutineLog log = new Routine.RoutineLog();
-        log.setScheduledDateTime(scheduledDateTime);
-        log.setStatus(Routine.RoutineStatus.MISSED);
-        log.setNotes("Automatically marked missed by scheduler");
-
-        if (routine.getLogs() == null) {
-            routine.setLogs(new ArrayList<>());
-        }
-        routine.getLogs().add(log);
-        return routineRepository.save(routine);
+    /**
+     * @return false if this slot was already logged as missed
+     */
+    public boolean logRoutineMissed(Routine routine, LocalDateTime scheduledDateTime) {
+        return appendLog(routine, scheduledDateTime, null, Routine.RoutineStatus.MISSED,
+                "Automatically marked missed by scheduler", null);
     }
 
-    public Routine logRoutineReminderSent(String routineId, LocalDateTime scheduledDateTime) {
-        Routine routine = getRoutineById(routineId);
+    /**
+     * @return false if a reminder was already sent for this slot
+     */
+    public boolean logRoutineReminderSent(Routine routine, LocalDateTime scheduledDateTime) {
+        return appendLog(routine, scheduledDateTime, null, Routine.RoutineStatus.PENDING,
+                "Reminder sent by scheduler", null);
+    }
 
-        Routine.RoutineLog log = new Routine.RoutineLog();
-        log.setScheduledDateTime(scheduledDateTime);
-        log.setStatus(Routine.RoutineStatus.PENDING);
-        log.setNotes("Reminder sent by scheduler");
+    /**
+     * Completed or skipped on the day of this slot; an indexed point lookup
+     */
+    public boolean isCompletedForSchedule(String routineId, LocalDateTime scheduledDateTime) {
+        LocalDateTime startOfDay = scheduledDateTime.toLocalDate().atStartOfDay();
+        return routineLogRepository.existsByRoutineIdAndStatusInAndScheduledDateTimeBetween(
+                routineId,
+                List.of(Routine.RoutineStatus.COMPLETED, Routine.RoutineStatus.SKIPPED),
+                startOfDay.minusNanos(1),
+                startOfDay.plusDays(1));
+    }
 
-        if (routine.getLogs() == null) {
-            routine.setLogs(new ArrayList<>());
+    // Insert-only; the unique slot index turns a repeat into a no-op, even across instances
+    private boolean appendLog(Routine routine, LocalDateTime scheduledDateTime, LocalDateTime completedDateTime,
+                              Routine.RoutineStatus status, String notes, String completedBy) {
+        RoutineLogEntry entry = new RoutineLogEntry(null, routine.getId(), routine.getUserId(),
+                scheduledDateTime, completedDateTime, status, notes, completedBy, LocalDateTime.now());
+        try {
+            routineLogRepository.insert(entry);
+            return true;
+        } catch (DuplicateKeyException e) {
+            return false;
         }
-        routine.getLogs().add(log);
-        return routineRepository.save(routine);
     }
 
+    // The API still exposes routine.logs; yesterday and today are all the UI looks at
+    private List<Routine> withRecentLogs(List<Routine> routines) {
+        if (routines.isEmpty()) {
+            return routines;
+        }
+        Map<String, Routine> byId = routines.stream()
+                .collect(Collectors.toMap(Routine::getId, r -> r, (a, b) -> a));
+        byId.values().forEach(r -> r.setLogs(new ArrayList<>()));
+
+        LocalDateTime from = LocalDate.now().minusDays(RECENT_LOG_DAYS).atStartOfDay();
+        routineLogRepository.findByRoutineIdInAndScheduledDateTimeGreaterThanEqual(byId.keySet(), from)
+                .forEach(entry -> {
+                    Routine routine = byId.get(entry.getRoutineId());
+                    if (routine != null) {
+                        routine.getLogs().add(entry.toRoutineLog());
+                    }
+                });
+        return routines;
+    }
+
+    private Routine withRecentLogs(Routine routine) {
+        withRecentLogs(List.of(routine));
+        return routine;
+    }
+
+    // Keep the scheduler's due-queue in step with the routine's schedule; routines of
+    // patients owned by another node are picked up by that node's change sync
+    private Routine scheduleChecks(Routine routine) {
+        if (clusterMembership.owns(routine.getUserId())) {
+            dueQueue.schedule(routine, LocalDateTime.now());
+        } else {
+            dueQueue.remove(routine.getId());
+        }
+        return routine;
+    }
 }
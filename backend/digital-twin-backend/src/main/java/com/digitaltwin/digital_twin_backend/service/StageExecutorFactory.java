@@ -0,0 +1,44 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Builds {@link StageExecutor}s for the voice and review pipelines.
+ * {@code app.pipeline.executor.mode} selects virtual threads (default) or fixed platform pools.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StageExecutorFactory {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.pipeline.executor.mode:virtual}")
+    private String mode;
+
+    public StageExecutor create(String stage, int concurrency) {
+        if ("virtual".equalsIgnoreCase(mode)) {
+            ExecutorService executor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name(stage + "-", 0).factory());
+            log.info("Stage '{}' running on virtual threads (limit {})", stage, concurrency);
+            return new StageExecutor(stage, executor, new Semaphore(concurrency, true), meterRegistry);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency, r -> {
+            Thread t = new Thread(r);
+            t.setName(stage + "-" + t.threadId());
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("Stage '{}' running on {} platform threads", stage, concurrency);
+        return new StageExecutor(stage, executor, null, meterRegistry);
+    }
+}
@@ -0,0 +1,39 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.audio.AudioView;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Incremental speech-to-text engine fed chunk by chunk while the user is still speaking.
+ * Implementations push partial transcripts to the listener and resolve the final
+ * transcript when the utterance is finished.
+ */
+public interface StreamingSttEngine {
+
+    /**
+     * Open a recognition stream for one utterance
+     */
+    Stream open(String sessionId, String language, Consumer<String> partialListener);
+
+    interface Stream {
+
+        /**
+         * Feed one audio chunk; chunks may arrive out of order
+         */
+        void accept(int sequenceNumber, byte[] audioData);
+
+        /**
+         * Close the stream and resolve the final transcript for the requested language.
+         * The complete reassembled recording is passed so an engine that missed audio can
+         * still fall back to it; engines that keep it past the call must retain it.
+         */
+        CompletableFuture<String> finish(String language, AudioView completeAudio);
+
+        /**
+         * Abort the stream and drop any buffered audio
+         */
+        void cancel();
+    }
+}
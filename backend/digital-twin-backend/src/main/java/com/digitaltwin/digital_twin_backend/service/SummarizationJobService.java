@@ -0,0 +1,294 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob.Stage;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob.Status;
+import com.digitaltwin.digital_twin_backend.repository.SummarizationJobRepository;
+import com.digitaltwin.digital_twin_backend.websocket.WebSocketService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Background summarization jobs: submission, status, cancellation and the persisted
+ * state the worker moves them through. Every state change is pushed to the owner
+ * over WebSocket ({@code /user/queue/jobs.progress}).
+ *
+ * A running job is held under a lease by one node; stage updates only apply while
+ * that node still holds it, so a job taken over after a restart is never written
+ * by two nodes.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SummarizationJobService {
+
+    private static final List<Status> ACTIVE = List.of(Status.QUEUED, Status.RUNNING);
+
+    private final SummarizationJobRepository jobRepository;
+    private final MongoTemplate mongoTemplate;
+    private final WebSocketService webSocketService;
+
+    // Queued + running jobs one user may have; further submissions are refused
+    @Value("${app.jobs.summarize.per-user-max-active:10}")
+    private int perUserMaxActive;
+
+    private final List<Runnable> submitListeners = new CopyOnWriteArrayList<>();
+    private final List<Consumer<String>> cancelListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Queue a job and return it right away. An identical job that hasn't finished yet
+     * is returned instead of starting the same work twice.
+     *
+     * @throws IllegalStateException when the user already has the maximum number of active jobs
+     */
+    public SummarizationJob submit(String userId, String username, FileUpload file, SummarizationJob.JobType type,
+                                   String mode, boolean saveAsNote, boolean saveTranscription) {
+        String normalizedMode = "dementia".equalsIgnoreCase(mode) ? "dementia" : "standard";
+
+        var existing = jobRepository.findFirstByUserIdAndFileIdAndTypeAndModeAndStatusIn(
+                userId, file.getId(), type, normalizedMode, ACTIVE);
+        if (existing.isPresent()) {
+            log.info("📋 Reusing active job {} for file {}", existing.get().getId(), file.getId());
+            return existing.get();
+        }
+
+        if (jobRepository.countByUserIdAndStatusIn(userId, ACTIVE) >= perUserMaxActive) {
+            throw new IllegalStateException("Too many summarizations in progress (limit " + perUserMaxActive
+                    + "). Please wait for one to finish.");
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        SummarizationJob job = new SummarizationJob();
+        job.setUserId(userId);
+        job.setUsername(username);
+        job.setFileId(file.getId());
+        job.setFileName(file.getOriginalFileName());
+        job.setType(type);
+        job.setMode(normalizedMode);
+        job.setSaveAsNote(saveAsNote);
+        job.setSaveTranscription(saveTranscription);
+        job.setStatus(Status.QUEUED);
+        job.setStage(Stage.QUEUED);
+        job.setCreatedAt(now);
+        job.setUpdatedAt(now);
+
+        SummarizationJob saved = jobRepository.insert(job);
+        log.info("📋 Queued {} job {} for file {} ({})", type, saved.getId(), file.getId(), normalizedMode);
+        publish(saved);
+        submitListeners.forEach(Runnable::run);
+        return saved;
+    }
+
+    public SummarizationJob getJob(String jobId) {
+        return jobRepository.findById(jobId)
+                .orElseThrow(() -> new RuntimeException("Job not found"));
+    }
+
+    public List<SummarizationJob> getUserJobs(String userId) {
+        return jobRepository.findTop50ByUserIdOrderByCreatedAtDesc(userId);
+    }
+
+    /**
+     * Cancel a job. A queued job is cancelled at once; a running one is flagged and
+     * stops at its next stage boundary (the node running it also interrupts it).
+     */
+    public SummarizationJob cancel(SummarizationJob job) {
+        String jobId = job.getId();
+        if (job.getStatus().isFinished()) {
+            return job;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        SummarizationJob cancelled = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(jobId).and("status").is(Status.QUEUED)),
+                new Update().set("status", Status.CANCELLED)
+                        .set("cancelRequested", true)
+                        .set("finishedAt", now)
+                        .set("updatedAt", now),
+                FindAndModifyOptions.options().returnNew(true), SummarizationJob.class);
+        if (cancelled != null) {
+            log.info("🛑 Job {} cancelled before it started", jobId);
+            publish(cancelled);
+            return cancelled;
+        }
+
+        SummarizationJob flagged = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(jobId).and("status").is(Status.RUNNING)),
+                new Update().set("cancelRequested", true).set("updatedAt", now),
+                FindAndModifyOptions.options().returnNew(true), SummarizationJob.class);
+        if (flagged == null) {
+            // Finished in the meantime
+            return jobRepository.findById(jobId).orElse(job);
+        }
+        log.info("🛑 Cancellation requested for running job {}", jobId);
+        cancelListeners.forEach(listener -> listener.accept(jobId));
+        return flagged;
+    }
+
+    /**
+     * Called after every submission (the worker uses it to start immediately)
+     */
+    public void onSubmit(Runnable listener) {
+        submitListeners.add(listener);
+    }
+
+    /**
+     * Called with the job id when a running job is asked to cancel
+     */
+    public void onCancel(Consumer<String> listener) {
+        cancelListeners.add(listener);
+    }
+
+    /**
+     * Claim the oldest runnable job for this node. Jobs whose lease ran out (their node
+     * died mid-run) are runnable again; users already running {@code perUserConcurrency}
+     * jobs are skipped so one user's batch of videos can't take every worker.
+     * Nodes count each other's running jobs, so the quota holds across the cluster up
+     * to claims that race each other.
+     */
+    public SummarizationJob claim(String nodeId, long leaseMs, int perUserConcurrency) {
+        LocalDateTime now = LocalDateTime.now();
+        Criteria runnable = new Criteria().orOperator(
+                Criteria.where("status").is(Status.QUEUED),
+                Criteria.where("status").is(Status.RUNNING).and("lockedUntil").lt(now));
+
+        List<String> saturated = usersAtLimit(now, perUserConcurrency);
+        if (!saturated.isEmpty()) {
+            runnable = new Criteria().andOperator(runnable, Criteria.where("userId").nin(saturated));
+        }
+
+        Query query = new Query(runnable).with(Sort.by(Sort.Direction.ASC, "createdAt"));
+        Update lease = new Update()
+                .set("status", Status.RUNNING)
+                .set("lockedBy", nodeId)
+                .set("lockedUntil", now.plusNanos(leaseMs * 1_000_000))
+                .set("startedAt", now)
+                .set("updatedAt", now)
+                .inc("attempts", 1);
+        return mongoTemplate.findAndModify(query, lease,
+                FindAndModifyOptions.options().returnNew(true), SummarizationJob.class);
+    }
+
+    private List<String> usersAtLimit(LocalDateTime now, int perUserConcurrency) {
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("status").is(Status.RUNNING).and("lockedUntil").gte(now)),
+                Aggregation.group("userId").count().as("running"),
+                Aggregation.match(Criteria.where("running").gte(perUserConcurrency)));
+        List<String> users = new ArrayList<>();
+        for (Document row : mongoTemplate.aggregate(aggregation, SummarizationJob.class, Document.class)) {
+            users.add(row.getString("_id"));
+        }
+        return users;
+    }
+
+    /**
+     * Move a held job to the next stage, storing whatever that stage produced.
+     * Returns the updated job, or null when this node no longer holds it.
+     */
+    public SummarizationJob advance(SummarizationJob job, String nodeId, Stage stage, Update outputs) {
+        SummarizationJob updated = mongoTemplate.findAndModify(held(job, nodeId),
+                outputs.set("stage", stage).set("updatedAt", LocalDateTime.now()),
+                FindAndModifyOptions.options().returnNew(true), SummarizationJob.class);
+        if (updated != null) {
+            publish(updated);
+        }
+        return updated;
+    }
+
+    /**
+     * Final state of a held job; ignored when this node no longer holds it
+     */
+    public SummarizationJob finish(SummarizationJob job, String nodeId, Status status, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+                .set("status", status)
+                .set("finishedAt", now)
+                .set("updatedAt", now)
+                .unset("lockedBy")
+                .unset("lockedUntil");
+        if (status == Status.SUCCEEDED) {
+            update.set("stage", Stage.DONE);
+        }
+        if (error != null) {
+            update.set("error", error);
+        }
+        SummarizationJob finished = mongoTemplate.findAndModify(held(job, nodeId), update,
+                FindAndModifyOptions.options().returnNew(true), SummarizationJob.class);
+        if (finished != null) {
+            publish(finished);
+        }
+        return finished;
+    }
+
+    /**
+     * Extend the lease on jobs this node is still running and return the ids of those
+     * that were asked to cancel (possibly through another node)
+     */
+    public List<String> renewLeases(String nodeId, Collection<String> jobIds, long leaseMs) {
+        if (jobIds.isEmpty()) {
+            return List.of();
+        }
+        Query mine = new Query(Criteria.where("_id").in(jobIds)
+                .and("status").is(Status.RUNNING)
+                .and("lockedBy").is(nodeId));
+        mongoTemplate.updateMulti(mine,
+                new Update().set("lockedUntil", LocalDateTime.now().plusNanos(leaseMs * 1_000_000)),
+                SummarizationJob.class);
+
+        Query cancelling = new Query(Criteria.where("_id").in(jobIds)
+                .and("lockedBy").is(nodeId)
+                .and("cancelRequested").is(true));
+        cancelling.fields().include("_id");
+        return mongoTemplate.find(cancelling, SummarizationJob.class).stream()
+                .map(SummarizationJob::getId)
+                .toList();
+    }
+
+    private static Query held(SummarizationJob job, String nodeId) {
+        return new Query(Criteria.where("_id").is(job.getId())
+                .and("status").is(Status.RUNNING)
+                .and("lockedBy").is(nodeId));
+    }
+
+    private void publish(SummarizationJob job) {
+        if (job.getUsername() == null) {
+            return;
+        }
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("jobId", job.getId());
+        event.put("fileId", job.getFileId());
+        event.put("fileName", job.getFileName());
+        event.put("type", job.getType());
+        event.put("status", job.getStatus());
+        event.put("stage", job.getStage());
+        event.put("progress", job.getProgress());
+        if (job.getStatus() == Status.SUCCEEDED) {
+            event.put("summary", job.getSummary());
+        }
+        if (job.getError() != null) {
+            event.put("error", job.getError());
+        }
+        event.put("timestamp", System.currentTimeMillis());
+        webSocketService.sendJobProgress(job.getUsername(), event);
+    }
+}
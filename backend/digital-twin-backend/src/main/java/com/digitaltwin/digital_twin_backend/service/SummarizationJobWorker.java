@@ -0,0 +1,258 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.model.Note;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob.JobType;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob.Stage;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob.Status;
+import com.digitaltwin.digital_twin_backend.scheduler.ClusterMembership;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs summarization jobs off the request threads: claims runnable jobs up to the
+ * worker limit, runs extract/transcribe → summarize → save, and persists each stage's
+ * output so a job resumed after a restart skips the finished stages. Leases are
+ * renewed while a job runs; a node that dies leaves its jobs to be claimed again.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class SummarizationJobWorker {
+
+    private final SummarizationJobService jobService;
+    private final FileUploadService fileUploadService;
+    private final FileProcessingService fileProcessingService;
+    private final NoteService noteService;
+    private final ClusterMembership clusterMembership;
+    private final StageExecutorFactory stageExecutorFactory;
+
+    @Value("${app.jobs.summarize.workers:4}")
+    private int workers;
+
+    @Value("${app.jobs.summarize.per-user-concurrency:2}")
+    private int perUserConcurrency;
+
+    @Value("${app.jobs.summarize.lease-ms:60000}")
+    private long leaseMs;
+
+    @Value("${app.jobs.summarize.max-attempts:3}")
+    private int maxAttempts;
+
+    // Claiming runs here so submitting never waits on it; jobs run on the worker stage
+    private StageExecutor claimExecutor;
+    private StageExecutor jobExecutor;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Map<String, Thread> running = new ConcurrentHashMap<>();
+    private final Set<String> cancelling = ConcurrentHashMap.newKeySet();
+
+    @PostConstruct
+    public void init() {
+        claimExecutor = stageExecutorFactory.create("summarize-claim", 1);
+        jobExecutor = stageExecutorFactory.create("summarize-job", workers);
+        jobService.onSubmit(this::wakeUp);
+        jobService.onCancel(this::interrupt);
+        log.info("📋 Summarization worker ready ({} workers, {} per user)", workers, perUserConcurrency);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        claimExecutor.shutdown();
+        jobExecutor.shutdown();
+    }
+
+    public void wakeUp() {
+        claimExecutor.execute(this::fill);
+    }
+
+    @Scheduled(fixedDelayString = "${app.jobs.summarize.poll-ms:2000}")
+    public void poll() {
+        if (inFlight.get() < workers) {
+            claimExecutor.execute(this::fill);
+        }
+    }
+
+    /*
+     * Keeps running jobs' leases alive and picks up cancellations made on other nodes
+     */
+    @Scheduled(fixedDelayString = "${app.jobs.summarize.heartbeat-ms:15000}")
+    public void heartbeat() {
+        try {
+            List<String> cancelled = jobService.renewLeases(clusterMembership.getNodeId(), running.keySet(), leaseMs);
+            cancelled.forEach(this::interrupt);
+        } catch (Exception e) {
+            log.error("❌ Summarization job heartbeat failed: {}", e.getMessage());
+        }
+    }
+
+    // Only ever runs on the single claim thread, so inFlight can't overshoot
+    private void fill() {
+        try {
+            while (inFlight.get() < workers) {
+                SummarizationJob job = jobService.claim(clusterMembership.getNodeId(), leaseMs, perUserConcurrency);
+                if (job == null) {
+                    return;
+                }
+                inFlight.incrementAndGet();
+                jobExecutor.execute(() -> run(job));
+            }
+        } catch (Exception e) {
+            log.error("❌ Claiming summarization jobs failed: {}", e.getMessage(), e);
+        }
+    }
+
+    // Atomic with the removal in run(), so a pooled thread is never interrupted after its job ended
+    private void interrupt(String jobId) {
+        running.computeIfPresent(jobId, (id, thread) -> {
+            if (cancelling.add(id)) {
+                log.info("🛑 Interrupting job {}", id);
+                thread.interrupt();
+            }
+            return thread;
+        });
+    }
+
+    private void run(SummarizationJob claimed) {
+        String nodeId = clusterMembership.getNodeId();
+        String jobId = claimed.getId();
+        running.put(jobId, Thread.currentThread());
+        SummarizationJob job = claimed;
+        try {
+            if (job.isCancelRequested()) {
+                jobService.finish(job, nodeId, Status.CANCELLED, null);
+                return;
+            }
+            if (job.getAttempts() > maxAttempts) {
+                log.error("☠️ Job {} gave up after {} attempts", jobId, maxAttempts);
+                jobService.finish(job, nodeId, Status.FAILED, "Gave up after " + maxAttempts + " attempts");
+                return;
+            }
+            if (job.getAttempts() > 1) {
+                log.info("🔁 Resuming job {} at stage {} (attempt {})", jobId, job.getStage(), job.getAttempts());
+            }
+
+            FileUpload file = fileUploadService.getFileById(job.getFileId());
+
+            // Stage 1: PDF text or transcription; regenerate reuses the text already on the file
+            String text = job.getExtractedText();
+            if (text == null) {
+                if (job.getType() == JobType.REGENERATE
+                        && file.getExtractedText() != null && !file.getExtractedText().isEmpty()) {
+                    text = file.getExtractedText();
+                } else {
+                    job = step(job, nodeId, Stage.EXTRACTING, new Update());
+                    text = fileProcessingService.extractText(file);
+                }
+                job = step(job, nodeId, Stage.SUMMARIZING, new Update().set("extractedText", text));
+            }
+
+            // Stage 2: summary; regenerate replaces the cached one
+            String summary = job.getSummary();
+            if (summary == null) {
+                summary = fileProcessingService.summarize(file, text, job.getMode(), job.getType() == JobType.REGENERATE);
+                job = step(job, nodeId, Stage.SAVING, new Update().set("summary", summary));
+            }
+
+            // Stage 3: the file counts as processed only once the job completes; no longer cancellable.
+            // notesSaved is recorded before finishing so a resumed job doesn't create the notes twice
+            running.remove(jobId);
+            if (!job.isNotesSaved()) {
+                fileUploadService.markAsProcessed(file.getId(), text, summary);
+                saveNotes(job, file, text, summary);
+                job = jobService.advance(job, nodeId, Stage.SAVING, new Update().set("notesSaved", true));
+                if (job == null) {
+                    throw new LeaseLostException();
+                }
+            }
+            jobService.finish(job, nodeId, Status.SUCCEEDED, null);
+            log.info("✅ Job {} finished for file {}", jobId, file.getId());
+        } catch (LeaseLostException e) {
+            log.warn("⚠️ Job {} is no longer held by this node, stopping", jobId);
+        } catch (CancelledException e) {
+            jobService.finish(job, nodeId, Status.CANCELLED, null);
+            log.info("🛑 Job {} cancelled", jobId);
+        } catch (Exception e) {
+            if (cancelling.contains(jobId)) {
+                jobService.finish(job, nodeId, Status.CANCELLED, null);
+                log.info("🛑 Job {} cancelled", jobId);
+            } else {
+                log.error("❌ Job {} failed: {}", jobId, e.getMessage(), e);
+                jobService.finish(job, nodeId, Status.FAILED, e.getMessage());
+            }
+        } finally {
+            running.remove(jobId);
+            cancelling.remove(jobId);
+            Thread.interrupted();
+            inFlight.decrementAndGet();
+            wakeUp();
+        }
+    }
+
+    /*
+     * Persist a stage transition; also where a cancellation (here or on another node)
+     * takes effect between stages
+     */
+    private SummarizationJob step(SummarizationJob job, String nodeId, Stage stage, Update outputs) {
+        if (cancelling.contains(job.getId()) || Thread.currentThread().isInterrupted()) {
+            throw new CancelledException();
+        }
+        SummarizationJob updated = jobService.advance(job, nodeId, stage, outputs);
+        if (updated == null) {
+            throw new LeaseLostException();
+        }
+        if (updated.isCancelRequested()) {
+            throw new CancelledException();
+        }
+        return updated;
+    }
+
+    private void saveNotes(SummarizationJob job, FileUpload file, String text, String summary) {
+        String fileName = file.getOriginalFileName();
+        boolean media = file.getCategory() == FileUpload.FileCategory.AUDIO
+                || file.getCategory() == FileUpload.FileCategory.VIDEO;
+
+        // Save transcription as note if requested
+        if (job.getType() == JobType.SUMMARIZE && media && job.isSaveTranscription()) {
+            Note transcriptionNote = new Note();
+            transcriptionNote.setUserId(job.getUserId());
+            transcriptionNote.setTitle("Transcription: " + fileName);
+            transcriptionNote.setContent(text);
+            transcriptionNote.setType(Note.NoteType.TEXT);
+            transcriptionNote.setPriority(Note.NotePriority.MEDIUM);
+            transcriptionNote.setSourceFileId(file.getId());
+            transcriptionNote.setSourceFileName(fileName);
+            transcriptionNote.setColor("#DBEAFE"); // Blue for transcriptions
+            transcriptionNote.setCategory("Transcription");
+            transcriptionNote.setPinned(false);
+            transcriptionNote.setArchived(false);
+            noteService.createNote(transcriptionNote);
+        }
+
+        if (job.isSaveAsNote()) {
+            String title = job.getType() == JobType.REGENERATE
+                    ? file.getCategory() + " Summary (Regenerated): " + fileName
+                    : (media ? file.getCategory() + " Summary: " : "PDF Summary: ") + fileName;
+            noteService.createSummaryNote(job.getUserId(), title, summary, file.getId(), fileName);
+        }
+    }
+
+    private static final class CancelledException extends RuntimeException {
+    }
+
+    private static final class LeaseLostException extends RuntimeException {
+    }
+}
@@ -1,9 +1,11 @@
 package com.digitaltwin.digital_twin_backend.service;
 
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
 import org.apache.pdfbox.Loader;
 import org.apache.pdfbox.pdmodel.PDDocument;
@@ -11,18 +13,26 @@ import org.apache.pdfbox.text.PDFTextStripper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class SummarizationService {
 
+    private static final Duration TRANSCRIPTION_TIMEOUT = Duration.ofMinutes(10);
+
     @Value("${app.ai.service.url:https://openrouter.ai/api/v1}")
     private String aiServiceUrl;   // https://openrouter.ai/api/v1
 
@@ -32,11 +42,27 @@ public class SummarizationService {
     @Value("${app.assemblyai.api.key:}")
     private String assemblyAiApiKey;  // AssemblyAI API key
 
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(60, TimeUnit.SECONDS)
-            .readTimeout(120, TimeUnit.SECONDS)
-            .writeTimeout(120, TimeUnit.SECONDS)
-            .build();
+    @Value("${app.assemblyai.base-url:https://api.assemblyai.com}")
+    private String assemblyAiBaseUrl;
+
+    private final TranscriptionJobManager transcriptionJobManager;
+    private final OutboundHttpClients outboundHttpClients;
+
+    // Long documents and large media uploads need more time than the provider defaults;
+    // newBuilder() keeps the shared connection pool and interceptors
+    private OkHttpClient assemblyAiClient;
+    private OkHttpClient llmClient;
+
+    @PostConstruct
+    public void init() {
+        assemblyAiClient = outboundHttpClients.forProvider("assemblyai").newBuilder()
+                .readTimeout(120, TimeUnit.SECONDS)
+                .writeTimeout(120, TimeUnit.SECONDS)
+                .build();
+        llmClient = outboundHttpClients.forProvider("openrouter").newBuilder()
+                .readTimeout(120, TimeUnit.SECONDS)
+                .build();
+    }
 
     // ================= PDF Extraction =================
 
@@ -89,21 +115,24 @@ public class SummarizationService {
         try {
             // Step 1: Upload the audio file to AssemblyAI
             String uploadUrl = uploadFileToAssemblyAI(audioFile);
-            System.out.println("File uploaded to AssemblyAI: " + uploadUrl);
+            log.info("File {} uploaded to AssemblyAI", audioFile.getName());
 
-            // Step 2: Request transcription
-            String transcriptId = requestTranscription(uploadUrl);
-            System.out.println("Transcription requested. ID: " + transcriptId);
+            // Step 2: Request transcription; the job manager completes it (up to 10 minutes)
+            CompletableFuture<String> transcription = requestTranscription(uploadUrl);
 
-            // Step 3: Poll for transcription completion
-            String transcription = pollForTranscription(transcriptId);
-            System.out.println("Transcription completed successfully");
+            // Step 3: Wait for completion without polling on this thread
+            String text = transcription.get(TRANSCRIPTION_TIMEOUT.toMinutes(), TimeUnit.MINUTES);
+            log.info("Transcription of {} completed ({} chars)", audioFile.getName(), text.length());
 
-            return transcription;
+            return text;
 
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             throw new IOException("Transcription interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Transcription failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IOException("Transcription timed out after 10 minutes");
         }
     }
 
@@ -114,12 +143,12 @@ public class SummarizationService {
         RequestBody fileBody = RequestBody.create(audioFile, MediaType.parse("application/octet-stream"));
 
         Request request = new Request.Builder()
-                .url("https://api.assemblyai.com/v2/upload")
+                .url(assemblyAiBaseUrl + "/v2/upload")
                 .addHeader("authorization", assemblyAiApiKey)
                 .post(fileBody)
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = assemblyAiClient.newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "No error details";
                 throw new IOException("Failed to upload file to AssemblyAI: " + response.code() + " - " + errorBody);
@@ -135,7 +164,7 @@ public class SummarizationService {
     /**
      * Step 2: Request transcription from AssemblyAI
      */
-    private String requestTranscription(String audioUrl) throws IOException {
+    private CompletableFuture<String> requestTranscription(String audioUrl) throws IOException {
         JsonObject requestBody = new JsonObject();
         requestBody.addProperty("audio_url", audioUrl);
 
@@ -147,79 +176,9 @@ public class SummarizationService {
         // Optional: Add language detection
         requestBody.addProperty("language_detection", true);
 
-        RequestBody body = RequestBody.create(
-                requestBody.toString(),
-                MediaType.parse("application/json")
-        );
-
-        Request request = new Request.Builder()
-                .url("https://api.assemblyai.com/v2/transcript")
-                .addHeader("authorization", assemblyAiApiKey)
-                .addHeader("content-type", "application/json")
-                .post(body)
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No error details";
-                throw new IOException("Failed to request transcription: " + response.code() + " - " + errorBody);
-            }
-
-            String responseBody = response.body().string();
-            JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
-
-            return jsonResponse.get("id").getAsString();
-        }
-    }
-
-    /**
-     * Step 3: Poll for transcription completion
-     */
-    private String pollForTranscription(String transcriptId) throws IOException, InterruptedException {
-        String pollingUrl = "https://api.assemblyai.com/v2/transcript/" + transcriptId;
-
-        // Poll for up to 10 minutes (120 attempts * 5 seconds)
-        for (int i = 0; i < 120; i++) {
-            Request request = new Request.Builder()
-                    .url(pollingUrl)
-                    .addHeader("authorization", assemblyAiApiKey)
-                    .get()
-                    .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    throw new IOException("Polling failed: " + response.code());
-                }
-
-                String responseBody = response.body().string();
-                JsonObject jsonResponse = JsonParser.parseString(responseBody).getAsJsonObject();
-
-                String status = jsonResponse.get("status").getAsString();
-                System.out.println("Transcription status: " + status + " (attempt " + (i + 1) + "/120)");
-
-                switch (status) {
-                    case "completed":
-                        return jsonResponse.get("text").getAsString();
-
-                    case "error":
-                        String error = jsonResponse.has("error") ?
-                                jsonResponse.get("error").getAsString() :
-                                "Unknown error";
-                        throw new IOException("Transcription failed: " + error);
-
-                    case "queued":
-                    case "processing":
-                        // Wait 5 seconds before next poll
-                        Thread.sleep(5000);
-                        break;
-
-                    default:
-                        throw new IOException("Unknown status: " + status);
-                }
-            }
-        }
-
-        throw new IOException("Transcription timed out after 10 minutes");
+        TranscriptionJobManager.Submission submission = transcriptionJobManager.submit(requestBody, TRANSCRIPTION_TIMEOUT);
+        log.info("Transcription {} requested", submission.transcriptId());
+        return submission.transcript();
     }
 
     /**
@@ -398,7 +357,7 @@ public class SummarizationService {
                 .post(body)
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = llmClient.newCall(request).execute()) {
             String responseBody = response.body().string();
 
             if (!response.isSuccessful()) {
@@ -1,5 +1,6 @@
 package com.digitaltwin.digital_twin_backend.service;
 
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
 import com.digitaltwin.digital_twin_backend.model.FileUpload;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
@@ -9,13 +10,13 @@ import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.mongodb.core.query.Criteria;
 import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
 import org.springframework.data.mongodb.gridfs.GridFsTemplate;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Service
@@ -33,18 +34,18 @@ public class TTSService {
     @Value("${app.google.tts.api.key:}")
     private String googleTtsApiKey;
 
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(10, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+    private final OkHttpClient elevenLabsClient;
+    private final OkHttpClient googleTtsClient;
 
     private final GridFsTemplate gridFsTemplate;
     private final FileUploadService fileUploadService;
 
-    public TTSService(GridFsTemplate gridFsTemplate, FileUploadService fileUploadService) {
+    public TTSService(GridFsTemplate gridFsTemplate, FileUploadService fileUploadService,
+                      OutboundHttpClients outboundHttpClients) {
         this.gridFsTemplate = gridFsTemplate;
         this.fileUploadService = fileUploadService;
+        this.elevenLabsClient = outboundHttpClients.forProvider("elevenlabs");
+        this.googleTtsClient = outboundHttpClients.forProvider("google-tts");
     }
 
     /**
@@ -124,7 +125,7 @@ public class TTSService {
                         MediaType.parse("application/json")))
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = elevenLabsClient.newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 String errorBody = response.body() != null ? response.body().string() : "";
                 log.error("ElevenLabs TTS failed: {} - {}", response.code(), errorBody);
@@ -161,7 +162,7 @@ public class TTSService {
                         MediaType.parse("application/json")))
                 .build();
 
-        try (Response response = httpClient.newCall(request).execute()) {
+        try (Response response = googleTtsClient.newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Google TTS failed: " + response.code());
             }
@@ -212,9 +213,10 @@ public class TTSService {
     }
 
     /**
-     * Get audio file from GridFS
+     * Get audio file from GridFS as a streamable resource (length and content type are
+     * known up front); the caller reads it, nothing is loaded into memory here
      */
-    public byte[] getAudioFile(String fileId) throws IOException {
+    public GridFsResource getAudioFile(String fileId) throws IOException {
         Query query = new Query(Criteria.where("_id").is(fileId));
         var gridFsFile = gridFsTemplate.findOne(query);
 
@@ -222,6 +224,6 @@ public class TTSService {
             throw new IOException("Audio file not found");
         }
 
-        return gridFsTemplate.getResource(gridFsFile).getInputStream().readAllBytes();
+        return gridFsTemplate.getResource(gridFsFile);
     }
 }
\ No newline at end of file
@@ -0,0 +1,275 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tracks every in-flight AssemblyAI transcript in one table instead of one sleeping
+ * thread per transcript. Jobs complete from the webhook callback when one is configured,
+ * and from a single scheduler thread that polls outstanding ids in batches with
+ * non-blocking requests (backing off per job) as the fallback.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TranscriptionJobManager {
+
+    public static final String WEBHOOK_SECRET_HEADER = "X-Webhook-Secret";
+
+    private final MeterRegistry meterRegistry;
+    private final OutboundHttpClients outboundHttpClients;
+
+    @Value("${app.assemblyai.api.key:}")
+    private String assemblyAIApiKey;
+
+    @Value("${app.assemblyai.base-url:https://api.assemblyai.com}")
+    private String baseUrl;
+
+    // Public URL of TranscriptionWebhookController; empty disables webhooks
+    @Value("${app.assemblyai.webhook.url:}")
+    private String webhookUrl;
+
+    @Value("${app.assemblyai.webhook.secret:}")
+    private String webhookSecret;
+
+    @Value("${app.transcription.poll.tick-ms:250}")
+    private long tickMs;
+
+    @Value("${app.transcription.poll.initial-interval-ms:1000}")
+    private long initialPollIntervalMs;
+
+    @Value("${app.transcription.poll.max-interval-ms:5000}")
+    private long maxPollIntervalMs;
+
+    // With webhooks on, polling is only a safety net
+    @Value("${app.transcription.poll.webhook-fallback-interval-ms:15000}")
+    private long webhookFallbackIntervalMs;
+
+    @Value("${app.transcription.poll.batch-size:50}")
+    private int batchSize;
+
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    private OkHttpClient httpClient;
+
+    private ScheduledExecutorService poller;
+
+    @PostConstruct
+    public void init() {
+        httpClient = outboundHttpClients.forProvider("assemblyai");
+        poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName("transcription-poller-" + t.threadId());
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::pollTick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("transcription.jobs.outstanding", jobs, Map::size)
+                .description("Transcripts submitted but not yet completed")
+                .register(meterRegistry);
+
+        log.info("TranscriptionJobManager initialized (webhook {})", isWebhookEnabled() ? "enabled" : "disabled");
+    }
+
+    @PreDestroy
+    public void destroy() {
+        poller.shutdownNow();
+        jobs.values().forEach(job -> job.future.completeExceptionally(new IOException("Shutting down")));
+        jobs.clear();
+    }
+
+    /**
+     * A submitted transcript: the provider's id and a future completed with its text
+     */
+    public record Submission(String transcriptId, CompletableFuture<String> transcript) {
+    }
+
+    /**
+     * POST the transcript request and return the submission tracking it.
+     * The caller builds the provider-specific body (audio_url, language, models).
+     */
+    public Submission submit(JsonObject requestBody, Duration timeout) throws IOException {
+        if (isWebhookEnabled()) {
+            requestBody.addProperty("webhook_url", webhookUrl);
+            if (webhookSecret != null && !webhookSecret.isBlank()) {
+                requestBody.addProperty("webhook_auth_header_name", WEBHOOK_SECRET_HEADER);
+                requestBody.addProperty("webhook_auth_header_value", webhookSecret);
+            }
+        }
+
+        Request request = new Request.Builder()
+                .url(baseUrl + "/v2/transcript")
+                .header("authorization", assemblyAIApiKey)
+                .post(RequestBody.create(requestBody.toString(), MediaType.parse("application/json")))
+                .build();
+
+        String transcriptId;
+        try (Response response = httpClient.newCall(request).execute()) {
+            String responseBody = response.body() != null ? response.body().string() : "";
+            if (!response.isSuccessful()) {
+                throw new IOException("Transcription request failed: " + response.code() + " - " + responseBody);
+            }
+            JsonObject json = JsonParser.parseString(responseBody).getAsJsonObject();
+            if (!json.has("id")) {
+                throw new IOException("No transcript ID in response: " + responseBody);
+            }
+            transcriptId = json.get("id").getAsString();
+        }
+
+        Job job = new Job(transcriptId, System.currentTimeMillis() + timeout.toMillis());
+        job.nextPollAt = System.currentTimeMillis() + firstPollDelay();
+        jobs.put(transcriptId, job);
+        log.info("📝 Transcription job {} submitted ({} outstanding)", transcriptId, jobs.size());
+        return new Submission(transcriptId, job.future);
+    }
+
+    /**
+     * Webhook entry point: AssemblyAI only sends id and status, so fetch the text now
+     */
+    public boolean onWebhook(String transcriptId, String status, String secret) {
+        if (webhookSecret != null && !webhookSecret.isBlank() && !webhookSecret.equals(secret)) {
+            log.warn("⚠️ Rejected transcription webhook for {}: bad secret", transcriptId);
+            return false;
+        }
+
+        Job job = transcriptId != null ? jobs.get(transcriptId) : null;
+        if (job == null) {
+            log.debug("Webhook for unknown or finished transcript {}", transcriptId);
+            return true;
+        }
+
+        log.info("📬 Transcription webhook: {} -> {}", transcriptId, status);
+        if ("completed".equals(status) || "error".equals(status)) {
+            job.nextPollAt = 0;
+            dispatch(job);
+        }
+        return true;
+    }
+
+    private boolean isWebhookEnabled() {
+        return webhookUrl != null && !webhookUrl.isBlank();
+    }
+
+    private long firstPollDelay() {
+        return isWebhookEnabled() ? webhookFallbackIntervalMs : initialPollIntervalMs;
+    }
+
+    private void pollTick() {
+        try {
+            long now = System.currentTimeMillis();
+            int dispatched = 0;
+            for (Job job : jobs.values()) {
+                if (job.future.isDone()) {
+                    jobs.remove(job.id);
+                } else if (now > job.deadlineAt) {
+                    jobs.remove(job.id);
+                    job.future.completeExceptionally(
+                            new TimeoutException("Transcription " + job.id + " timed out"));
+                } else if (dispatched < batchSize && job.nextPollAt <= now && dispatch(job)) {
+                    dispatched++;
+                }
+            }
+        } catch (Exception e) {
+            log.error("❌ Transcription poll tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Non-blocking status fetch; at most one request per job is ever in flight
+     */
+    private boolean dispatch(Job job) {
+        if (!job.polling.compareAndSet(false, true)) {
+            return false;
+        }
+
+        Request request = new Request.Builder()
+                .url(baseUrl + "/v2/transcript/" + job.id)
+                .header("authorization", assemblyAIApiKey)
+                .get()
+                .build();
+
+        httpClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                log.warn("Poll for transcript {} failed: {}", job.id, e.getMessage());
+                reschedule(job);
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (!response.isSuccessful()) {
+                        log.warn("Poll for transcript {} returned {}", job.id, response.code());
+                        reschedule(job);
+                        return;
+                    }
+
+                    JsonObject json = JsonParser.parseString(response.body().string()).getAsJsonObject();
+                    String status = json.get("status").getAsString();
+                    if ("completed".equals(status)) {
+                        String text = json.has("text") && !json.get("text").isJsonNull()
+                                ? json.get("text").getAsString() : "";
+                        jobs.remove(job.id);
+                        job.future.complete(text);
+                        log.info("✅ Transcription job {} completed after {} polls", job.id, job.polls + 1);
+                    } else if ("error".equals(status)) {
+                        String error = json.has("error") ? json.get("error").getAsString() : "Unknown error";
+                        jobs.remove(job.id);
+                        job.future.completeExceptionally(new IOException("Transcription error: " + error));
+                    } else {
+                        reschedule(job);
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to read status for transcript {}: {}", job.id, e.getMessage());
+                    reschedule(job);
+                }
+            }
+        });
+        return true;
+    }
+
+    private void reschedule(Job job) {
+        job.polls++;
+        long interval = isWebhookEnabled()
+                ? webhookFallbackIntervalMs
+                : Math.min(maxPollIntervalMs, initialPollIntervalMs * (1L << Math.min(job.polls / 5, 3)));
+        job.nextPollAt = System.currentTimeMillis() + interval;
+        job.polling.set(false);
+    }
+
+    private static final class Job {
+        private final String id;
+        private final long deadlineAt;
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+        private final AtomicBoolean polling = new AtomicBoolean(false);
+        private volatile long nextPollAt;
+        private volatile int polls;
+
+        private Job(String id, long deadlineAt) {
+            this.id = id;
+            this.deadlineAt = deadlineAt;
+        }
+    }
+}
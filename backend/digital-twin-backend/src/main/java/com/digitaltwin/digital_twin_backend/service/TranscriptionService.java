@@ -0,0 +1,153 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.audio.AudioView;
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.*;
+import okio.BufferedSink;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * AssemblyAI batch transcription (upload, request, await) shared by the voice pipeline.
+ * Transient HTTP failures are retried once, in the shared client's Retry interceptor
+ * (app.http.assemblyai.*); a transcript that fails or times out is reported as is.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TranscriptionService {
+
+    private static final Duration TRANSCRIPTION_TIMEOUT = Duration.ofSeconds(45);
+
+    private final TranscriptionJobManager transcriptionJobManager;
+    private final OutboundHttpClients outboundHttpClients;
+
+    @Value("${app.assemblyai.api.key:}")
+    private String assemblyAIApiKey;
+
+    @Value("${app.assemblyai.base-url:https://api.assemblyai.com}")
+    private String baseUrl;
+
+    private OkHttpClient httpClient;
+
+    private final Gson gson = new Gson();
+
+    @PostConstruct
+    public void init() {
+        httpClient = outboundHttpClients.forProvider("assemblyai");
+
+        // Log API key status (masked)
+        if (assemblyAIApiKey == null || assemblyAIApiKey.isBlank() || assemblyAIApiKey.equals("your_key_here")) {
+            log.error("❌ AssemblyAI API Key NOT configured! Transcription will fail.");
+        } else {
+            log.info("✅ AssemblyAI API Key configured: {}...", assemblyAIApiKey.substring(0, 4));
+        }
+    }
+
+    /**
+     * Batch-transcribe a complete webm recording
+     */
+    public String transcribe(byte[] audioData, String language) throws Exception {
+        return transcribe(AudioView.wrap(audioData), language);
+    }
+
+    /**
+     * Batch-transcribe straight from a pooled audio view; the upload body is streamed
+     * from the view's segments, so no temp file or heap copy is made.
+     */
+    public String transcribe(AudioView audio, String language) throws Exception {
+        if (audio.size() < 1000) {
+            throw new IOException("Audio file too small: " + audio.size() + " bytes");
+        }
+
+        // No retry loop here: it multiplied the interceptor's retries and re-uploaded the audio each time
+        String uploadUrl = uploadToAssemblyAI(audio);
+        String text = requestTranscription(uploadUrl, language)
+                .get(TRANSCRIPTION_TIMEOUT.toSeconds(), TimeUnit.SECONDS);
+        log.info("Transcription completed: {}", text.substring(0, Math.min(50, text.length())));
+        return text;
+    }
+
+    private String uploadToAssemblyAI(AudioView audio) throws IOException {
+        log.info("Uploading to AssemblyAI: {} bytes", audio.size());
+
+        // ✅ Raw binary upload — NOT multipart
+        // AssemblyAI /v2/upload expects raw bytes, not form-data
+        RequestBody requestBody = new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return MediaType.parse("audio/webm"); // explicit webm
+            }
+
+            @Override
+            public long contentLength() {
+                return audio.size();
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                audio.writeTo(sink);
+            }
+        };
+
+        Request request = new Request.Builder()
+                .url(baseUrl + "/v2/upload")
+                .header("authorization", assemblyAIApiKey)
+                .post(requestBody)
+                .build();
+
+        try (Response response = httpClient.newCall(request).execute()) {
+            String responseBody = response.body().string();
+            log.info("Upload response: {} - {}", response.code(),
+                    responseBody.substring(0, Math.min(200, responseBody.length())));
+
+            if (!response.isSuccessful()) {
+                throw new IOException("Upload failed: " + response.code() + " - " + responseBody);
+            }
+
+            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
+            return json.get("upload_url").getAsString();
+        }
+    }
+
+    /**
+     * ✅ FIXED: AssemblyAI v2 API - removed problematic language_code, added proper
+     * error handling. Completion is tracked by TranscriptionJobManager (webhook or batched poll).
+     */
+    private CompletableFuture<String> requestTranscription(String audioUrl, String language) throws IOException {
+        log.info("Requesting transcription for: {}... Language: {}", audioUrl.substring(0, Math.min(50, audioUrl.length())), language);
+
+        JsonObject jsonBody = new JsonObject();
+        jsonBody.addProperty("audio_url", audioUrl);
+
+        // ✅ FIX: Use correct model names - "universal-2" or "universal-3-pro"
+        com.google.gson.JsonArray speechModels = new com.google.gson.JsonArray();
+        speechModels.add("universal-2"); // or "universal-3-pro" for higher accuracy
+        jsonBody.add("speech_models", speechModels);
+
+        jsonBody.addProperty("punctuate", true);
+
+        if (language != null && !language.isEmpty() && !language.equals("auto")) {
+            String mappedLang = language.toLowerCase();
+            if (mappedLang.equals("english")) mappedLang = "en";
+            else if (mappedLang.equals("hindi")) mappedLang = "hi";
+            else if (mappedLang.equals("marathi")) mappedLang = "mr";
+            jsonBody.addProperty("language_code", mappedLang);
+        } else {
+            jsonBody.addProperty("language_detection", true);
+        }
+
+        log.debug("Request body: {}", jsonBody);
+        return transcriptionJobManager.submit(jsonBody, TRANSCRIPTION_TIMEOUT).transcript();
+    }
+}
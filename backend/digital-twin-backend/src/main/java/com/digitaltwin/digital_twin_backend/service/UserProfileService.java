@@ -13,6 +13,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserProfileService {
 
     private final UserRepository userRepository;
+    private final CaregiverGraphService caregiverGraphService;
 
     @Transactional
     public UserDTO completeUserProfile(String userId, ProfileRequest request) {
@@ -63,6 +64,8 @@ public class UserProfileService {
 
         // 4. Save and Return
         User savedUser = userRepository.save(patient);
+        // Caregiver links, phone or emergency contacts may have changed
+        caregiverGraphService.invalidate(userId);
         return new UserDTO(savedUser);
     }
 
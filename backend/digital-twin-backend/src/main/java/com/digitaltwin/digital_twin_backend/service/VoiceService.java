@@ -1,5 +1,6 @@
 package com.digitaltwin.digital_twin_backend.service;
 
+import com.digitaltwin.digital_twin_backend.audio.AudioView;
 import com.digitaltwin.digital_twin_backend.dto.ConfidenceScore;
 import com.digitaltwin.digital_twin_backend.dto.Intent;
 import com.digitaltwin.digital_twin_backend.dto.VoiceResponse;
@@ -7,22 +8,17 @@ import com.digitaltwin.digital_twin_backend.model.AudioChunk;
 import com.digitaltwin.digital_twin_backend.model.Note;
 import com.digitaltwin.digital_twin_backend.model.Routine;
 import com.digitaltwin.digital_twin_backend.model.VoiceInteraction;
-import com.digitaltwin.digital_twin_backend.repository.RoutineRepository;
 import com.digitaltwin.digital_twin_backend.repository.VoiceInteractionRepository;
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
+import com.digitaltwin.digital_twin_backend.websocket.WebSocketService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.*;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import java.io.ByteArrayOutputStream;
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.ByteBuffer;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
@@ -34,6 +30,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -54,119 +51,178 @@ public class VoiceService {
     private final IntentClassifier intentClassifier;
     private final ContextRetrievalService contextRetrievalService;
 
-    // ✅ ADD: Repositories for personal assistant
-    private final com.digitaltwin.digital_twin_backend.repository.NoteRepository noteRepository;
-    private final RoutineRepository routineRepository;
+    private final TranscriptionService transcriptionService;
+    private final StreamingSttEngine streamingSttEngine;
+    private final WebSocketService webSocketService;
+    private final RomanHindiTransliterator romanHindiTransliterator;
+    private final PhraseIndex phraseIndex;
 
-    @Value("${app.assemblyai.api.key:}")
-    private String assemblyAIApiKey;
+    @Value("${app.voice.stt.streaming.enabled:true}")
+    private boolean streamingSttEnabled;
+
+    @Value("${app.voice.stt.streaming.final-timeout-ms:10000}")
+    private long streamingFinalTimeoutMs;
+
+    @Value("${app.ai.streaming.enabled:true}")
+    private boolean llmStreamingEnabled;
+
+    // Shorter sentences are merged with the next one before TTS
+    @Value("${app.ai.streaming.tts-min-chars:24}")
+    private int streamingTtsMinChars;
+
+    @Value("${app.ai.streaming.tts-drain-timeout-ms:15000}")
+    private long streamingTtsDrainTimeoutMs;
 
     private final Map<String, VoiceInteraction> pendingInteractions = new ConcurrentHashMap<>();
     private final Map<String, CompletableFuture<VoiceResponse>> processingFutures = new ConcurrentHashMap<>();
 
-    private final OkHttpClient httpClient = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(30, TimeUnit.SECONDS)
-            .writeTimeout(30, TimeUnit.SECONDS)
-            .build();
+    // Open incremental STT streams, one per utterance in progress
+    private final Map<String, StreamingSttEngine.Stream> sttStreams = new ConcurrentHashMap<>();
+
+    private final StageExecutorFactory stageExecutorFactory;
 
-    private final Gson gson = new Gson();
+    @Value("${app.voice.executor.chunk.concurrency:16}")
+    private int chunkConcurrency;
 
-    // Separate thread pools for different tasks
-    private ExecutorService chunkProcessorExecutor;
-    private ExecutorService transcriptionExecutor;
-    private ExecutorService responseExecutor;
+    @Value("${app.voice.executor.transcription.concurrency:32}")
+    private int transcriptionConcurrency;
+
+    @Value("${app.voice.executor.response.concurrency:32}")
+    private int responseConcurrency;
+
+    @Value("${app.voice.executor.tts.concurrency:16}")
+    private int ttsConcurrency;
+
+    // Separate stages for different tasks (virtual threads + semaphores, or fixed pools)
+    private StageExecutor chunkProcessorExecutor;
+    private StageExecutor transcriptionExecutor;
+    private StageExecutor responseExecutor;
+    private StageExecutor sentenceTtsExecutor;
 
     @PostConstruct
     public void init() {
-        // Log API key status (masked)
-        if (assemblyAIApiKey == null || assemblyAIApiKey.isBlank() || assemblyAIApiKey.equals("your_key_here")) {
-            log.error("❌ AssemblyAI API Key NOT configured! Transcription will fail.");
-        } else {
-            log.info("✅ AssemblyAI API Key configured: {}...", assemblyAIApiKey.substring(0, 4));
-        }
-
         // For audio chunk processing - lightweight, fast
-        chunkProcessorExecutor = Executors.newFixedThreadPool(5, r -> {
-            Thread t = new Thread(r);
-            t.setName("chunk-processor-" + t.getId());
-            t.setDaemon(true);
-            return t;
-        });
+        chunkProcessorExecutor = stageExecutorFactory.create("chunk-processor", chunkConcurrency);
 
-        // For transcription - can be slower, dedicated pool
-        transcriptionExecutor = Executors.newFixedThreadPool(3, r -> {
-            Thread t = new Thread(r);
-            t.setName("transcription-" + t.getId());
-            t.setDaemon(true);
-            return t;
-        });
+        // For transcription - mostly blocked on the STT provider
+        transcriptionExecutor = stageExecutorFactory.create("transcription", transcriptionConcurrency);
 
         // For response generation (LLM, TTS)
-        responseExecutor = Executors.newFixedThreadPool(5, r -> {
-            Thread t = new Thread(r);
-            t.setName("response-" + t.getId());
-            t.setDaemon(true);
-            return t;
-        });
+        responseExecutor = stageExecutorFactory.create("response", responseConcurrency);
+
+        // For per-sentence TTS while an LLM response streams (kept apart so response
+        // tasks waiting on their sentences can never starve them of permits)
+        sentenceTtsExecutor = stageExecutorFactory.create("sentence-tts", ttsConcurrency);
 
-        log.info("VoiceService initialized with dedicated thread pools");
+        log.info("VoiceService initialized with dedicated pipeline stages");
     }
 
     @PreDestroy
     public void destroy() {
-        shutdownExecutor(chunkProcessorExecutor, "ChunkProcessor");
-        shutdownExecutor(transcriptionExecutor, "Transcription");
-        shutdownExecutor(responseExecutor, "Response");
+        chunkProcessorExecutor.shutdown();
+        transcriptionExecutor.shutdown();
+        responseExecutor.shutdown();
+        sentenceTtsExecutor.shutdown();
     }
 
-    private void shutdownExecutor(ExecutorService executor, String name) {
-        if (executor != null && !executor.isShutdown()) {
-            executor.shutdown();
-            try {
-                if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
-                    executor.shutdownNow();
-                }
-            } catch (InterruptedException e) {
-                executor.shutdownNow();
-                Thread.currentThread().interrupt();
-            }
-            log.info("{} executor shutdown complete", name);
-        }
-    }
-
-    public void processAudioChunk(String sessionId, String userId, AudioChunk chunk) {
+    /**
+     * Feed a decoded chunk into the session's streaming STT engine so partial
+     * transcripts reach the client while the user is still speaking.
+     * A null username means an anonymous session, answered on its session topic.
+     */
+    public void processAudioChunk(String sessionId, String userId, String username,
+            AudioChunk chunk, byte[] audioData) {
         log.debug("Received chunk {} for session {} ({} bytes)",
                 chunk.getSequenceNumber(), sessionId, chunk.getChunkSizeBytes());
 
         if (chunk.getSequenceNumber() < 0) {
             log.warn("Invalid sequence number for chunk: {}", chunk.getSequenceNumber());
+            return;
+        }
+
+        if (!streamingSttEnabled || audioData == null || audioData.length == 0) {
+            return;
+        }
+
+        feedStreamingStt(sessionId, username, chunk.getSequenceNumber(), audioData);
+    }
+
+    /**
+     * Binary-frame variant of {@link #processAudioChunk}; the frame is copied only
+     * when streaming STT is actually enabled.
+     */
+    public void processAudioFrame(String sessionId, String username, int sequenceNumber, ByteBuffer audioData) {
+        if (!streamingSttEnabled || sequenceNumber < 0 || !audioData.hasRemaining()) {
+            return;
         }
+
+        byte[] copy = new byte[audioData.remaining()];
+        audioData.duplicate().get(copy);
+        feedStreamingStt(sessionId, username, sequenceNumber, copy);
     }
 
+    private void feedStreamingStt(String sessionId, String username, int sequenceNumber, byte[] audioData) {
+        StreamingSttEngine.Stream stream = sttStreams.computeIfAbsent(sessionId,
+                id -> streamingSttEngine.open(id, "auto",
+                        partial -> publishTranscription(sessionId, username, partial, false)));
+
+        chunkProcessorExecutor.execute(() -> stream.accept(sequenceNumber, audioData));
+    }
+
+    private void publishTranscription(String sessionId, String username, String text, boolean isFinal) {
+        if (username != null) {
+            webSocketService.sendTranscription(username, text, isFinal);
+        } else {
+            webSocketService.sendToTopic("/topic/voice.transcription/" + sessionId,
+                    Map.of("text", text, "isFinal", isFinal, "timestamp", System.currentTimeMillis()));
+        }
+    }
+
+    public CompletableFuture<VoiceResponse> processCompleteVoice(
+            String sessionId,
+            String userId,
+            String userType,
+            String mode,
+            String language,
+            AudioView audioData) {
+        return processCompleteVoice(sessionId, userId, userType, mode, language, audioData, null);
+    }
+
+    /**
+     * As above; when {@code deltaListener} is set, the LLM answer is streamed to it as
+     * STREAMING deltas (text, then per-sentence audio) before the final response completes.
+     */
     public CompletableFuture<VoiceResponse> processCompleteVoice(
             String sessionId,
             String userId,
             String userType,
             String mode,
             String language,
-            byte[] audioData) {
+            AudioView audioData,
+            Consumer<VoiceResponse> deltaListener) {
 
         log.info("Starting voice processing for session: {} ({} bytes)",
-                sessionId, audioData != null ? audioData.length : 0);
+                sessionId, audioData != null ? audioData.size() : 0);
 
         CompletableFuture<VoiceResponse> future = new CompletableFuture<>();
         processingFutures.put(sessionId, future);
 
-        transcriptionExecutor.submit(() -> {
+        // Detach the stream now so chunks of the next utterance open a fresh one
+        StreamingSttEngine.Stream sttStream = sttStreams.remove(sessionId);
+
+        transcriptionExecutor.execute(() -> {
             try {
-                VoiceResponse response = processVoiceSync(sessionId, userId, userType, mode, language, audioData);
+                VoiceResponse response = processVoiceSync(sessionId, userId, userType, mode, language,
+                        audioData, sttStream, deltaListener);
                 future.complete(response);
             } catch (Exception e) {
                 log.error("Voice processing failed: {}", e.getMessage(), e);
                 future.complete(createErrorResponse(sessionId, "Processing failed",
                         getLocalizedErrorMessage("PROCESSING_FAILED", language)));
             } finally {
+                if (audioData != null) {
+                    audioData.close();
+                }
                 processingFutures.remove(sessionId);
                 pendingInteractions.remove(sessionId);
             }
@@ -177,20 +233,27 @@ public class VoiceService {
 
     private VoiceResponse processVoiceSync(String sessionId, String userId,
             String userType, String mode, String language,
-            byte[] audioData) {
+            AudioView audioData, StreamingSttEngine.Stream sttStream,
+            Consumer<VoiceResponse> deltaListener) {
 
-        if (audioData == null || audioData.length == 0) {
+        if (audioData == null || audioData.isEmpty()) {
+            if (sttStream != null) {
+                sttStream.cancel();
+            }
             log.warn("No audio received for session: {}", sessionId);
             return createErrorResponse(sessionId, "No audio received",
                     getLocalizedErrorMessage("NO_AUDIO", language));
         }
 
         try {
-            log.info("Processing {} bytes for session {}", audioData.length, sessionId);
+            log.info("Processing {} bytes for session {}", audioData.size(), sessionId);
 
-            // Step 1: Transcribe
-            String rawTranscription = transcribeAudio(audioData, language);
-            return processTextInternally(sessionId, userId, userType, mode, language, rawTranscription);
+            // Step 1: Transcribe (streamed result when available, batch otherwise)
+            String rawTranscription = sttStream != null
+                    ? finishStreamingTranscription(sessionId, sttStream, audioData, language)
+                    : transcribeAudio(audioData, language);
+            return processTextInternally(sessionId, userId, userType, mode, language, rawTranscription,
+                    deltaListener);
 
         } catch (Exception e) {
             log.error("Voice processing error: {}", e.getMessage(), e);
@@ -199,15 +262,35 @@ public class VoiceService {
         }
     }
 
+    private String finishStreamingTranscription(String sessionId, StreamingSttEngine.Stream sttStream,
+            AudioView audioData, String language) throws Exception {
+        try {
+            return sttStream.finish(language, audioData).get(streamingFinalTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            sttStream.cancel();
+            log.warn("Streaming STT timed out for session {}, using batch", sessionId);
+            return transcribeAudio(audioData, language);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
     public CompletableFuture<VoiceResponse> processCompleteText(
             String sessionId, String userId, String userType, String mode, String language, String rawText) {
+        return processCompleteText(sessionId, userId, userType, mode, language, rawText, null);
+    }
+
+    public CompletableFuture<VoiceResponse> processCompleteText(
+            String sessionId, String userId, String userType, String mode, String language, String rawText,
+            Consumer<VoiceResponse> deltaListener) {
 
         CompletableFuture<VoiceResponse> future = new CompletableFuture<>();
         processingFutures.put(sessionId, future);
 
-        transcriptionExecutor.submit(() -> {
+        transcriptionExecutor.execute(() -> {
             try {
-                VoiceResponse response = processTextInternally(sessionId, userId, userType, mode, language, rawText);
+                VoiceResponse response = processTextInternally(sessionId, userId, userType, mode, language, rawText,
+                        deltaListener);
                 future.complete(response);
             } catch (Exception e) {
                 log.error("Text processing failed: {}", e.getMessage(), e);
@@ -224,7 +307,7 @@ public class VoiceService {
 
     private VoiceResponse processTextInternally(String sessionId, String userId,
             String userType, String mode, String language,
-            String rawTranscription) {
+            String rawTranscription, Consumer<VoiceResponse> deltaListener) {
         try {
             DisplayLanguage displayLanguage = detectDisplayLanguage(rawTranscription);
             String transcription = normalizeTextForDisplay(rawTranscription, displayLanguage, mode, true);
@@ -264,8 +347,14 @@ public class VoiceService {
             // Step 2: Classify intent
             Intent intent = intentClassifier.classify(transcription, userType);
 
-            // Step 3: Get context
-            String context = contextRetrievalService.retrieveContext(userId, transcription, intent);
+            // Step 3: Get context (strategies run in parallel under a deadline)
+            ContextRetrievalService.Result retrieval = contextRetrievalService.retrieve(userId, transcription, intent);
+            String context = retrieval.context();
+            VoiceInteraction interaction = pendingInteractions.get(sessionId);
+            if (interaction != null) {
+                interaction.setContextSources(new ArrayList<>(retrieval.sources()));
+                interaction.setRetrievedContext(context);
+            }
 
             // Step 4: Calculate confidence
             ConfidenceScore confidence = confidenceScorer.calculate(
@@ -273,7 +362,7 @@ public class VoiceService {
 
             // Step 5: Generate response
             VoiceResponse response = generateFinalResponse(transcription, context, userType, mode,
-                    userId, sessionId, confidence, language);
+                    userId, sessionId, confidence, language, deltaListener);
             return adaptVoiceResponseForDisplay(response, displayLanguage, mode);
 
         } catch (Exception e) {
@@ -356,6 +445,14 @@ public class VoiceService {
                 if (containsDevanagari(text) && !containsArabicScript(text)) {
                     return text.trim();
                 }
+                if (!containsArabicScript(text)) {
+                    RomanHindiTransliterator.Result local = romanHindiTransliterator.toDevanagari(text);
+                    if (local.isComplete()) {
+                        return local.text();
+                    }
+                    log.debug("Local transliteration of [{}] not confident ({} unknown, {} guessed), using LLM",
+                            text, local.unknownWords(), local.guessedWords());
+                }
                 return rewriteTextForDisplay(text, mode, transcription, true);
             }
 
@@ -399,17 +496,7 @@ public class VoiceService {
             return false;
         }
 
-        String normalized = text.toLowerCase(Locale.ROOT);
-        List<String> romanHindiMarkers = List.of(
-                "mujhe", "mera", "meri", "aaj", "kal", "kya", "kaise", "dawai", "davai",
-                "hai", "karna", "lena", "kab", "namaste", "yaad", "poochhiye"
-        );
-
-        long hits = romanHindiMarkers.stream()
-                .filter(normalized::contains)
-                .count();
-
-        return hits >= 2;
+        return phraseIndex.match(text).count(PhraseIndex.ROMAN_HINDI) >= 2;
     }
 
     private String buildGreetingResponse(String userType) {
@@ -423,70 +510,22 @@ public class VoiceService {
         String lowerQuery = query.toLowerCase(Locale.ROOT);
         boolean dementiaStyle = "dementia".equalsIgnoreCase(mode) || "DEMENTIA_PATIENT".equals(userType);
 
-        boolean isScheduleQuery = lowerQuery.contains("schedule") ||
-                lowerQuery.contains("dawai") ||
-                lowerQuery.contains("medicine") ||
-                lowerQuery.contains("tablet") ||
-                lowerQuery.contains("aaj kya hai") ||
-                lowerQuery.contains("reminder") ||
-                lowerQuery.contains("kaam") ||
-                lowerQuery.contains("task") ||
-                lowerQuery.contains("kya lena hai") ||
-                lowerQuery.contains("routine") ||
-                lowerQuery.contains("today") ||
-                lowerQuery.contains("what do i need") ||
-                lowerQuery.contains("what do i need today") ||
-                lowerQuery.contains("what should i do") ||
-                lowerQuery.contains("what should i take") ||
-                lowerQuery.contains("today plan") ||
-                lowerQuery.contains("my medications") ||
-                lowerQuery.contains("my medicine") ||
-                lowerQuery.contains("mera schedule") ||
-                lowerQuery.contains("meri dawai") ||
-                lowerQuery.contains("meri davai") ||
-                lowerQuery.contains("aaj mujhe kya karna hai") ||
-                lowerQuery.contains("aaj mujhe kya lena hai") ||
-                lowerQuery.contains("aaj ka schedule") ||
-                lowerQuery.contains("आज") ||
-                lowerQuery.contains("दवाई") ||
-                lowerQuery.contains("दवा") ||
-                lowerQuery.contains("गोली") ||
-                lowerQuery.contains("रूटीन") ||
-                lowerQuery.contains("शेड्यूल") ||
-                lowerQuery.contains("रिमाइंडर") ||
-                lowerQuery.contains("काम") ||
-                lowerQuery.contains("मुझे क्या करना है") ||
-                lowerQuery.contains("मुझे क्या लेना है");
+        boolean isScheduleQuery = phraseIndex.match(lowerQuery).hasTag(PhraseIndex.SCHEDULE_QUERY);
 
         if (!isScheduleQuery) {
             return null;
         }
 
         LocalDate today = LocalDate.now();
-        LocalDateTime startOfDay = today.atStartOfDay();
-        LocalDateTime endOfDay = today.plusDays(1).atStartOfDay();
-
-        List<Note> reminders = new ArrayList<>();
-        List<Routine> routines = new ArrayList<>();
 
-        try {
-            List<Note> reminderResults = noteRepository.findByUserIdAndTypeAndDateRange(
-                    userId, Note.NoteType.REMINDER, startOfDay, endOfDay);
-            reminders = reminderResults == null ? new ArrayList<>() : reminderResults;
-        } catch (Exception e) {
-            log.warn("Could not fetch reminders for user {}: {}", userId, e.getMessage());
-        }
-
-        try {
-            List<Routine> routineResults = routineRepository.findByUserIdAndActiveTrue(userId);
-            routines = routineResults == null ? new ArrayList<>() : routineResults.stream()
-                    .filter(this::isRoutineUpcomingToday)
-                    .sorted(Comparator.comparing(Routine::getScheduledTime, Comparator.nullsLast(Comparator.naturalOrder())))
-                    .limit(6)
-                    .toList();
-        } catch (Exception e) {
-            log.warn("Could not fetch routines for user {}: {}", userId, e.getMessage());
-        }
+        // Reminders and routines are fetched concurrently under the retrieval deadline
+        ContextRetrievalService.TodaySchedule schedule = contextRetrievalService.getTodaySchedule(userId);
+        List<Note> reminders = schedule.reminders();
+        List<Routine> routines = schedule.routines().stream()
+                .filter(this::isRoutineUpcomingToday)
+                .sorted(Comparator.comparing(Routine::getScheduledTime, Comparator.nullsLast(Comparator.naturalOrder())))
+                .limit(6)
+                .toList();
 
         List<Routine> medicationRoutines = routines.stream()
                 .filter(r -> r.getCategory() == Routine.ActivityCategory.MEDICATION)
@@ -626,7 +665,8 @@ public class VoiceService {
             String userType, String mode,
             String userId, String sessionId,
             ConfidenceScore confidence,
-            String language) {
+            String language,
+            Consumer<VoiceResponse> deltaListener) {
         log.info("🎯 Intent: {}, Score: {}, High: {}",
                 confidence.getIntentType(), confidence.getScore(), confidence.isHighConfidence());
         try {
@@ -634,10 +674,24 @@ public class VoiceService {
                 hitlQueueService.addToQueue(userId, userType, transcription, context, confidence, sessionId);
                 return handleEmergency(userId, transcription, sessionId, language);
             } else if (confidence.isHighConfidence()) {
+                LlmResponseStreamer streamer = deltaListener != null && llmStreamingEnabled
+                        ? new LlmResponseStreamer(sessionId, userId, ttsService, sentenceTtsExecutor,
+                                deltaListener, streamingTtsMinChars)
+                        : null;
                 CompletableFuture<VoiceResponse> future = CompletableFuture.supplyAsync(
-                        () -> handleDirectLLM(transcription, context, userType, mode, userId, sessionId, language),
+                        () -> handleDirectLLM(transcription, context, userType, mode, userId, sessionId, language,
+                                streamer),
                         responseExecutor);
-                return future.get(30, TimeUnit.SECONDS);
+                try {
+                    return future.get(30, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    // The error response replaces the answer, so withdraw whatever already streamed
+                    future.cancel(true);
+                    if (streamer != null) {
+                        streamer.abandon();
+                    }
+                    throw e;
+                }
             } else {
                 String reviewId = hitlQueueService.addToQueue(
                         userId, userType, transcription, context, confidence, sessionId);
@@ -668,183 +722,44 @@ public class VoiceService {
         }
     }
 
-    private String transcribeAudio(byte[] audioData, String language) throws Exception {
-        File tempFile = null;
-        int maxRetries = 2;
-        int retryCount = 0;
-
-        while (retryCount <= maxRetries) {
-            try {
-                // ✅ Always use .webm — frontend sends webm
-                tempFile = File.createTempFile("audio_", ".webm");
-                Files.write(tempFile.toPath(), audioData);
-                log.info("Created temp file: {} ({} bytes)",
-                        tempFile.getAbsolutePath(), tempFile.length());
-
-                if (tempFile.length() < 1000) {
-                    throw new IOException("Audio file too small: " + tempFile.length() + " bytes");
-                }
-
-                String uploadUrl = uploadToAssemblyAI(tempFile);
-                String transcriptId = requestTranscription(uploadUrl, language);
-                return pollTranscriptionWithTimeout(transcriptId, 45);
-
-            } catch (Exception e) {
-                retryCount++;
-                log.warn("Transcription attempt {} failed: {}", retryCount, e.getMessage());
-                if (retryCount > maxRetries)
-                    throw e;
-                Thread.sleep(1000 * retryCount);
-            } finally {
-                if (tempFile != null && tempFile.exists()) {
-                    tempFile.delete();
-                }
-            }
-        }
-        throw new IOException("Transcription failed after retries");
+    private String transcribeAudio(AudioView audioData, String language) throws Exception {
+        return transcriptionService.transcribe(audioData, language);
     }
 
-    private String pollTranscriptionWithTimeout(String transcriptId, int timeoutSeconds)
-            throws Exception {
-
-        long startTime = System.currentTimeMillis();
-        int attempts = 0;
-        int maxAttempts = 60;
-
-        while (attempts < maxAttempts &&
-                System.currentTimeMillis() - startTime < timeoutSeconds * 1000) {
-            attempts++;
-
-            Request request = new Request.Builder()
-                    .url("https://api.assemblyai.com/v2/transcript/" + transcriptId)
-                    .header("authorization", assemblyAIApiKey)
-                    .get()
-                    .build();
-
-            try (Response response = httpClient.newCall(request).execute()) {
-                if (!response.isSuccessful()) {
-                    log.warn("Poll attempt {} failed: {}", attempts, response.code());
-                    Thread.sleep(1000);
-                    continue;
-                }
-
-                String responseBody = response.body().string();
-                JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-                String status = json.get("status").getAsString();
+    private VoiceResponse handleDirectLLM(String transcription, String context,
+            String userType, String mode,
+            String userId, String sessionId,
+            String language,
+            LlmResponseStreamer streamer) {
+        try {
+            String prompt = buildPrompt(transcription, context, userType, language);
 
-                log.debug("Transcript status: {}", status);
+            // Answers built on the user's own notes/routines are cached per user only
+            String cacheScope = context != null && !context.isEmpty() ? userId : LlmResponseCache.SHARED_SCOPE;
 
-                if ("completed".equals(status)) {
-                    String text = json.get("text").getAsString();
-                    log.info("Transcription completed: {}", text.substring(0, Math.min(50, text.length())));
-                    return text;
-                } else if ("error".equals(status)) {
-                    String errorMsg = json.has("error") ? json.get("error").getAsString() : "Unknown error";
-                    throw new IOException("Transcription error: " + errorMsg);
+            String llmResponse = null;
+            List<String> segmentUrls = List.of();
+            if (streamer != null) {
+                try {
+                    llmResponse = llmService.streamLLM(prompt, mode, language, cacheScope, streamer::onToken);
+                    if (llmResponse != null && llmResponse.contains(LlmResponseStreamer.UNKNOWN_QUERY)) {
+                        // Handed to a caregiver: withdraw any text released before the sentinel
+                        // and don't wait for its sentence audio
+                        streamer.abandon();
+                    } else {
+                        segmentUrls = streamer.complete(streamingTtsDrainTimeoutMs);
+                    }
+                } catch (Exception e) {
+                    streamer.abandon();
+                    log.warn("⚠️ LLM streaming failed for session {}, using blocking call: {}",
+                            sessionId, e.getMessage());
                 }
-
-                Thread.sleep(1000);
             }
-        }
-
-        throw new IOException("Transcription timeout after " + timeoutSeconds + " seconds");
-    }
-
-    private String uploadToAssemblyAI(File audioFile) throws IOException {
-        log.info("Uploading to AssemblyAI: {} ({} bytes)", audioFile.getName(), audioFile.length());
-
-        // ✅ Raw binary upload — NOT multipart
-        // AssemblyAI /v2/upload expects raw bytes, not form-data
-        byte[] fileBytes = Files.readAllBytes(audioFile.toPath());
-
-        RequestBody requestBody = RequestBody.create(
-                fileBytes,
-                MediaType.parse("audio/webm") // explicit webm
-        );
-
-        Request request = new Request.Builder()
-                .url("https://api.assemblyai.com/v2/upload")
-                .header("authorization", assemblyAIApiKey)
-                .post(requestBody)
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            String responseBody = response.body().string();
-            log.info("Upload response: {} - {}", response.code(),
-                    responseBody.substring(0, Math.min(200, responseBody.length())));
-
-            if (!response.isSuccessful()) {
-                throw new IOException("Upload failed: " + response.code() + " - " + responseBody);
-            }
-
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-            return json.get("upload_url").getAsString();
-        }
-    }
-
-    /**
-     * ✅ FIXED: AssemblyAI v2 API - removed problematic language_code, added proper
-     * error handling
-     */
-    private String requestTranscription(String audioUrl, String language) throws IOException {
-        log.info("Requesting transcription for: {}... Language: {}", audioUrl.substring(0, Math.min(50, audioUrl.length())), language);
-
-        JsonObject jsonBody = new JsonObject();
-        jsonBody.addProperty("audio_url", audioUrl);
-
-        // ✅ FIX: Use correct model names - "universal-2" or "universal-3-pro"
-        com.google.gson.JsonArray speechModels = new com.google.gson.JsonArray();
-        speechModels.add("universal-2"); // or "universal-3-pro" for higher accuracy
-        jsonBody.add("speech_models", speechModels);
-
-        jsonBody.addProperty("punctuate", true);
-
-        if (language != null && !language.isEmpty() && !language.equals("auto")) {
-            String mappedLang = language.toLowerCase();
-            if (mappedLang.equals("english")) mappedLang = "en";
-            else if (mappedLang.equals("hindi")) mappedLang = "hi";
-            else if (mappedLang.equals("marathi")) mappedLang = "mr";
-            jsonBody.addProperty("language_code", mappedLang);
-        } else {
-            jsonBody.addProperty("language_detection", true);
-        }
-
-        String jsonString = jsonBody.toString();
-        log.debug("Request body: {}", jsonString);
-
-        Request request = new Request.Builder()
-                .url("https://api.assemblyai.com/v2/transcript")
-                .header("authorization", assemblyAIApiKey)
-                .header("content-type", "application/json")
-                .post(RequestBody.create(jsonString, MediaType.parse("application/json")))
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            String responseBody = response.body().string();
-            log.info("Transcription request response: {} - {}", response.code(),
-                    responseBody.substring(0, Math.min(200, responseBody.length())));
-
-            if (!response.isSuccessful()) {
-                throw new IOException("Transcription request failed: " + response.code() + " - " + responseBody);
+            if (llmResponse == null) {
+                llmResponse = llmService.callLLM(prompt, mode, language, cacheScope);
             }
 
-            JsonObject json = gson.fromJson(responseBody, JsonObject.class);
-            if (!json.has("id")) {
-                throw new IOException("No transcript ID in response: " + responseBody);
-            }
-            return json.get("id").getAsString();
-        }
-    }
-
-    private VoiceResponse handleDirectLLM(String transcription, String context,
-            String userType, String mode,
-            String userId, String sessionId,
-            String language) {
-        try {
-            String prompt = buildPrompt(transcription, context, userType, language);
-            String llmResponse = llmService.callLLM(prompt, mode, language);
-            
-            if (llmResponse != null && llmResponse.contains("UNKNOWN_QUERY")) {
+            if (llmResponse != null && llmResponse.contains(LlmResponseStreamer.UNKNOWN_QUERY)) {
                 ConfidenceScore fallbackScore = ConfidenceScore.builder()
                         .score(0.0)
                         .highConfidence(false)
@@ -876,6 +791,14 @@ public class VoiceService {
                 return resp;
             }
             
+            if (!segmentUrls.isEmpty()) {
+                // Audio already went out sentence by sentence; don't synthesize it twice
+                VoiceResponse resp = VoiceResponse.success(sessionId, transcription, llmResponse, null);
+                resp.setStreamed(true);
+                resp.setAudioSegmentUrls(segmentUrls);
+                return resp;
+            }
+
             String audioUrl = ttsService.textToSpeech(llmResponse, userId);
             return VoiceResponse.success(sessionId, transcription, llmResponse, audioUrl);
         } catch (Exception e) {
@@ -973,6 +896,11 @@ public class VoiceService {
     public void cancelProcessing(String sessionId) {
         pendingInteractions.remove(sessionId);
 
+        StreamingSttEngine.Stream sttStream = sttStreams.remove(sessionId);
+        if (sttStream != null) {
+            sttStream.cancel();
+        }
+
         CompletableFuture<VoiceResponse> future = processingFutures.remove(sessionId);
         if (future != null && !future.isDone()) {
             future.complete(createErrorResponse(sessionId, "Cancelled", "Processing cancelled"));
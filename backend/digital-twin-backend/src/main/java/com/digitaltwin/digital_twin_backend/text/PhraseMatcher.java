@@ -0,0 +1,298 @@
+package com.digitaltwin.digital_twin_backend.text;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Aho–Corasick automaton over a fixed set of tagged phrases. One left-to-right pass
+ * over the text reports every phrase that occurs as a substring (the same semantics
+ * as {@code String.contains}), case-insensitively. Immutable and thread-safe once built.
+ */
+public final class PhraseMatcher {
+
+    private static final int[] NONE = new int[0];
+
+    private final String[] phrases;
+    private final Map<String, BitSet> phrasesByTag;
+    // Same phrases per tag, in the order they were added under that tag
+    private final Map<String, int[]> orderedByTag;
+
+    // Trie edges per state, sorted by char for binary search
+    private final char[][] edgeChars;
+    private final int[][] edgeTargets;
+    private final int[] failure;
+    // Phrase ids ending at each state, including those reached via failure links
+    private final int[][] outputs;
+
+    private PhraseMatcher(String[] phrases, Map<String, BitSet> phrasesByTag, Map<String, int[]> orderedByTag,
+                          char[][] edgeChars, int[][] edgeTargets, int[] failure, int[][] outputs) {
+        this.phrases = phrases;
+        this.phrasesByTag = phrasesByTag;
+        this.orderedByTag = orderedByTag;
+        this.edgeChars = edgeChars;
+        this.edgeTargets = edgeTargets;
+        this.failure = failure;
+        this.outputs = outputs;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Matches match(String text) {
+        BitSet found = new BitSet(phrases.length);
+        BitSet wholeWord = new BitSet(phrases.length);
+        int[] firstStart = new int[phrases.length];
+        if (text == null || text.isEmpty()) {
+            return new Matches(found, wholeWord, firstStart, 0);
+        }
+
+        int state = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            int next;
+            while ((next = transition(state, c)) < 0 && state != 0) {
+                state = failure[state];
+            }
+            state = Math.max(next, 0);
+            for (int phraseId : outputs[state]) {
+                int start = i - phrases[phraseId].length() + 1;
+                if (!found.get(phraseId)) {
+                    found.set(phraseId);
+                    firstStart[phraseId] = start;
+                }
+                if (isWordBoundary(text, start - 1) && isWordBoundary(text, i + 1)) {
+                    wholeWord.set(phraseId);
+                }
+            }
+        }
+        return new Matches(found, wholeWord, firstStart, text.length());
+    }
+
+    private static boolean isWordBoundary(String text, int index) {
+        return index < 0 || index >= text.length() || !Character.isLetterOrDigit(text.charAt(index));
+    }
+
+    public int size() {
+        return phrases.length;
+    }
+
+    private int transition(int state, char c) {
+        int index = Arrays.binarySearch(edgeChars[state], c);
+        return index >= 0 ? edgeTargets[state][index] : -1;
+    }
+
+    /**
+     * Phrases found in one text
+     */
+    public final class Matches {
+
+        private final BitSet found;
+        private final BitSet wholeWord;
+        private final int[] firstStart;
+        private final int textLength;
+
+        private Matches(BitSet found, BitSet wholeWord, int[] firstStart, int textLength) {
+            this.found = found;
+            this.wholeWord = wholeWord;
+            this.firstStart = firstStart;
+            this.textLength = textLength;
+        }
+
+        public int textLength() {
+            return textLength;
+        }
+
+        /**
+         * Matched phrases carrying {@code tag} with where they first occur, in tag order
+         */
+        public List<Hit> hits(String tag) {
+            List<Hit> result = new ArrayList<>();
+            for (int id : orderedByTag.getOrDefault(tag, NONE)) {
+                if (found.get(id)) {
+                    result.add(new Hit(phrases[id], firstStart[id], wholeWord.get(id)));
+                }
+            }
+            return result;
+        }
+
+        public boolean isEmpty() {
+            return found.isEmpty();
+        }
+
+        public boolean contains(String phrase) {
+            String normalized = phrase.toLowerCase(Locale.ROOT);
+            for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+                if (phrases[id].equals(normalized)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public boolean hasTag(String tag) {
+            BitSet tagged = phrasesByTag.get(tag);
+            return tagged != null && tagged.intersects(found);
+        }
+
+        public int count(String tag) {
+            BitSet tagged = phrasesByTag.get(tag);
+            if (tagged == null) {
+                return 0;
+            }
+            BitSet both = (BitSet) tagged.clone();
+            both.and(found);
+            return both.cardinality();
+        }
+
+        /**
+         * Matched phrases carrying {@code tag}, in the order they were added under that tag
+         */
+        public List<String> phrases(String tag) {
+            List<String> result = new ArrayList<>();
+            for (int id : orderedByTag.getOrDefault(tag, NONE)) {
+                if (found.get(id)) {
+                    result.add(phrases[id]);
+                }
+            }
+            return result;
+        }
+
+        /**
+         * First matched phrase carrying {@code tag} in the order added under that tag, or null
+         */
+        public String first(String tag) {
+            for (int id : orderedByTag.getOrDefault(tag, NONE)) {
+                if (found.get(id)) {
+                    return phrases[id];
+                }
+            }
+            return null;
+        }
+
+        public Set<String> all() {
+            Set<String> result = new LinkedHashSet<>();
+            for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+                result.add(phrases[id]);
+            }
+            return Collections.unmodifiableSet(result);
+        }
+    }
+
+    /**
+     * One matched phrase: start of its first occurrence, and whether any occurrence
+     * stands as a whole word (not inside a longer word)
+     */
+    public record Hit(String phrase, int start, boolean wholeWord) {
+    }
+
+    public static final class Builder {
+
+        // Phrase -> tags; a phrase listed under several tags is stored once
+        private final Map<String, Set<String>> tagsByPhrase = new LinkedHashMap<>();
+        private final Map<String, Set<String>> phrasesInTagOrder = new LinkedHashMap<>();
+
+        private Builder() {
+        }
+
+        public Builder add(String tag, Iterable<String> phrases) {
+            for (String phrase : phrases) {
+                add(tag, phrase);
+            }
+            return this;
+        }
+
+        public Builder add(String tag, String phrase) {
+            String normalized = phrase.toLowerCase(Locale.ROOT);
+            if (!normalized.isEmpty()) {
+                tagsByPhrase.computeIfAbsent(normalized, p -> new LinkedHashSet<>()).add(tag);
+                phrasesInTagOrder.computeIfAbsent(tag, t -> new LinkedHashSet<>()).add(normalized);
+            }
+            return this;
+        }
+
+        public PhraseMatcher build() {
+            String[] phrases = tagsByPhrase.keySet().toArray(new String[0]);
+            Map<String, Integer> idByPhrase = new HashMap<>();
+            for (int id = 0; id < phrases.length; id++) {
+                idByPhrase.put(phrases[id], id);
+            }
+            Map<String, BitSet> phrasesByTag = new HashMap<>();
+            Map<String, int[]> orderedByTag = new HashMap<>();
+            phrasesInTagOrder.forEach((tag, tagged) ->
+                    orderedByTag.put(tag, tagged.stream().mapToInt(idByPhrase::get).toArray()));
+            List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+            List<List<Integer>> ends = new ArrayList<>();
+            edges.add(new TreeMap<>());
+            ends.add(new ArrayList<>());
+
+            for (int id = 0; id < phrases.length; id++) {
+                for (String tag : tagsByPhrase.get(phrases[id])) {
+                    phrasesByTag.computeIfAbsent(tag, t -> new BitSet()).set(id);
+                }
+                int state = 0;
+                for (char c : phrases[id].toCharArray()) {
+                    Integer next = edges.get(state).get(c);
+                    if (next == null) {
+                        next = edges.size();
+                        edges.get(state).put(c, next);
+                        edges.add(new TreeMap<>());
+                        ends.add(new ArrayList<>());
+                    }
+                    state = next;
+                }
+                ends.get(state).add(id);
+            }
+
+            // Breadth-first failure links; outputs inherit from the failure state
+            int[] failure = new int[edges.size()];
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            for (int child : edges.get(0).values()) {
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                for (Map.Entry<Character, Integer> edge : edges.get(state).entrySet()) {
+                    int child = edge.getValue();
+                    int fallback = failure[state];
+                    while (fallback != 0 && !edges.get(fallback).containsKey(edge.getKey())) {
+                        fallback = failure[fallback];
+                    }
+                    Integer target = edges.get(fallback).get(edge.getKey());
+                    failure[child] = target != null && target != child ? target : 0;
+                    ends.get(child).addAll(ends.get(failure[child]));
+                    queue.add(child);
+                }
+            }
+
+            char[][] edgeChars = new char[edges.size()][];
+            int[][] edgeTargets = new int[edges.size()][];
+            int[][] outputs = new int[edges.size()][];
+            for (int state = 0; state < edges.size(); state++) {
+                TreeMap<Character, Integer> stateEdges = edges.get(state);
+                edgeChars[state] = new char[stateEdges.size()];
+                edgeTargets[state] = new int[stateEdges.size()];
+                int i = 0;
+                for (Map.Entry<Character, Integer> edge : stateEdges.entrySet()) {
+                    edgeChars[state][i] = edge.getKey();
+                    edgeTargets[state][i] = edge.getValue();
+                    i++;
+                }
+                outputs[state] = ends.get(state).stream().mapToInt(Integer::intValue).distinct().toArray();
+            }
+
+            return new PhraseMatcher(phrases, phrasesByTag, orderedByTag, edgeChars, edgeTargets, failure, outputs);
+        }
+    }
+}
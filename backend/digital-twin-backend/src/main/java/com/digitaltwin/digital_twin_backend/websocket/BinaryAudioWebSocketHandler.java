@@ -0,0 +1,174 @@
+package com.digitaltwin.digital_twin_backend.websocket;
+
+import com.digitaltwin.digital_twin_backend.audio.SessionAudioBuffer;
+import com.digitaltwin.digital_twin_backend.service.VoiceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Raw binary audio channel (/ws-voice-audio), used next to the STOMP endpoint.
+ * Control messages (connect, stop, cancel) stay on STOMP; this socket only carries audio.
+ *
+ * Frame layout (big-endian):
+ * <pre>
+ *   byte 0     version (1)
+ *   byte 1     flags (bit 0 = isLast)
+ *   byte 2     format (0 webm, 1 ogg, 2 wav, 3 pcm16, 4 mp4)
+ *   byte 3     session id length N
+ *   bytes 4-7  sequence number
+ *   bytes 8..  session id (UTF-8, N bytes), then raw audio
+ * </pre>
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class BinaryAudioWebSocketHandler extends BinaryWebSocketHandler {
+
+    private static final byte PROTOCOL_VERSION = 1;
+    private static final int FIXED_HEADER_BYTES = 8;
+    private static final int FLAG_LAST = 0x01;
+    private static final String[] FORMATS = {"webm", "ogg", "wav", "pcm16", "mp4"};
+    private static final String BOUND_SESSIONS = "boundVoiceSessions";
+
+    private final VoiceWebSocketController voiceWebSocketController;
+    private final VoiceService voiceService;
+    private final ObjectMapper objectMapper;
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession wsSession) {
+        log.info("🔌 Binary audio channel opened: {}", wsSession.getId());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession wsSession, BinaryMessage message) throws IOException {
+        ByteBuffer frame = message.getPayload();
+        if (frame.remaining() < FIXED_HEADER_BYTES || frame.get(frame.position()) != PROTOCOL_VERSION) {
+            sendError(wsSession, null, -1, "Malformed audio frame");
+            return;
+        }
+
+        int base = frame.position();
+        int flags = frame.get(base + 1) & 0xFF;
+        int formatCode = frame.get(base + 2) & 0xFF;
+        int idLength = frame.get(base + 3) & 0xFF;
+        int sequenceNumber = frame.getInt(base + 4);
+        if (frame.remaining() < FIXED_HEADER_BYTES + idLength) {
+            sendError(wsSession, null, sequenceNumber, "Truncated audio frame header");
+            return;
+        }
+
+        byte[] idBytes = new byte[idLength];
+        frame.position(base + FIXED_HEADER_BYTES);
+        frame.get(idBytes);
+        String sessionId = new String(idBytes, StandardCharsets.UTF_8);
+        ByteBuffer audio = frame.slice();
+        boolean isLast = (flags & FLAG_LAST) != 0;
+
+        VoiceWebSocketController.VoiceSession session = voiceWebSocketController.getActiveSession(sessionId);
+        if (session == null) {
+            log.warn("⚠️ No active session for binary frame: {}", sessionId);
+            sendError(wsSession, sessionId, sequenceNumber, "Session not found");
+            return;
+        }
+
+        // A session opened by a logged-in user only takes audio from that user's sockets
+        String principalName = wsSession.getPrincipal() != null ? wsSession.getPrincipal().getName() : null;
+        if (session.getOwnerPrincipal() != null && !session.getOwnerPrincipal().equals(principalName)) {
+            log.warn("⚠️ Binary frame for session {} rejected: principal mismatch", sessionId);
+            sendError(wsSession, sessionId, sequenceNumber, "Session does not belong to this user");
+            return;
+        }
+
+        // ...and, logged in or not, only from the one socket that started sending its audio
+        if (!session.bindBinarySocket(wsSession.getId())) {
+            log.warn("⚠️ Binary frame for session {} rejected: bound to another socket", sessionId);
+            sendError(wsSession, sessionId, sequenceNumber, "Session is bound to another audio socket");
+            return;
+        }
+        boundSessions(wsSession).add(sessionId);
+
+        log.debug("📥 BINARY FRAME - Session: {}, Seq: {}, Format: {}, Size: {} bytes, Last: {}",
+                sessionId, sequenceNumber, formatCode < FORMATS.length ? FORMATS[formatCode] : formatCode,
+                audio.remaining(), isLast);
+
+        int size = audio.remaining();
+        SessionAudioBuffer.AppendResult result = session.storeChunk(sequenceNumber, audio.duplicate());
+        if (result == SessionAudioBuffer.AppendResult.REJECTED_SESSION_LIMIT
+                || result == SessionAudioBuffer.AppendResult.REJECTED_GLOBAL_LIMIT) {
+            log.warn("⚠️ Binary chunk {} rejected for session {}: {}", sequenceNumber, sessionId, result);
+            sendError(wsSession, sessionId, sequenceNumber, result.name());
+            return;
+        }
+
+        if (result == SessionAudioBuffer.AppendResult.ACCEPTED) {
+            voiceService.processAudioFrame(sessionId, principalName != null ? session.getUsername() : null,
+                    sequenceNumber, audio);
+        }
+
+        session.setLastChunkReceived(LocalDateTime.now());
+        session.setTotalChunks(session.getTotalChunks() + 1);
+        session.setTotalBytes(session.getTotalBytes() + size);
+        sendJson(wsSession, Map.of(
+                "ack", sequenceNumber,
+                "sessionId", sessionId,
+                "timestamp", System.currentTimeMillis()));
+
+        if (isLast) {
+            session.markLastChunk(sequenceNumber, size > 0);
+        }
+        if (session.checkLastChunkSeen()) {
+            voiceWebSocketController.fireStop(session);
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession wsSession, Throwable exception) {
+        log.error("❌ Binary audio channel error on {}: {}", wsSession.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession wsSession, CloseStatus status) {
+        log.info("🔌 Binary audio channel closed: {} ({})", wsSession.getId(), status);
+        // A reconnecting client may pick its sessions up again from a new socket
+        for (String sessionId : boundSessions(wsSession)) {
+            VoiceWebSocketController.VoiceSession session = voiceWebSocketController.getActiveSession(sessionId);
+            if (session != null) {
+                session.unbindBinarySocket(wsSession.getId());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<String> boundSessions(WebSocketSession wsSession) {
+        return (Set<String>) wsSession.getAttributes()
+                .computeIfAbsent(BOUND_SESSIONS, key -> ConcurrentHashMap.newKeySet());
+    }
+
+    private void sendError(WebSocketSession wsSession, String sessionId, int sequenceNumber, String error)
+            throws IOException {
+        sendJson(wsSession, Map.of(
+                "nack", sequenceNumber,
+                "sessionId", sessionId != null ? sessionId : "",
+                "error", error,
+                "timestamp", System.currentTimeMillis()));
+    }
+
+    private void sendJson(WebSocketSession wsSession, Map<String, Object> payload) throws IOException {
+        wsSession.sendMessage(new TextMessage(objectMapper.writeValueAsString(payload)));
+    }
+}
@@ -1,5 +1,8 @@
 package com.digitaltwin.digital_twin_backend.websocket;
 
+import com.digitaltwin.digital_twin_backend.audio.AudioBufferPool;
+import com.digitaltwin.digital_twin_backend.audio.AudioView;
+import com.digitaltwin.digital_twin_backend.audio.SessionAudioBuffer;
 import com.digitaltwin.digital_twin_backend.dto.VoiceResponse;
 import com.digitaltwin.digital_twin_backend.model.AudioChunk;
 import com.digitaltwin.digital_twin_backend.model.User;
@@ -7,6 +10,7 @@ import com.digitaltwin.digital_twin_backend.security.CustomUserDetails;
 import com.digitaltwin.digital_twin_backend.service.VoiceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.EventListener;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.MessageExceptionHandler;
@@ -21,14 +25,16 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.socket.messaging.SessionConnectedEvent;
 import org.springframework.web.socket.messaging.SessionDisconnectEvent;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import java.security.Principal;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.Collectors;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 @Slf4j
 @Controller
@@ -38,6 +44,7 @@ public class VoiceWebSocketController {
     private final VoiceService voiceService;
     private final SimpMessageSendingOperations messagingTemplate;
     private final VoiceSessionRegistry voiceSessionRegistry;
+    private final AudioBufferPool audioBufferPool;
 
     // ✅ REMOVED: These fields don't belong here - moved to VoiceSession inner class
     // private final Map<String, VoiceSession> activeSessions = new
@@ -46,6 +53,38 @@ public class VoiceWebSocketController {
     // ✅ KEPT ONLY: This is the only field at controller level
     private final Map<String, VoiceSession> activeSessions = new ConcurrentHashMap<>();
 
+    // Idle time after the last chunk before a stopped utterance is processed
+    @Value("${app.voice.stop.idle-timeout-ms:300}")
+    private long stopIdleTimeoutMs;
+
+    // Upper bound on waiting for audio after /voice.stop when nothing has arrived
+    @Value("${app.voice.stop.max-wait-ms:2000}")
+    private long stopMaxWaitMs;
+
+    private ScheduledExecutorService stopScheduler;
+
+    @PostConstruct
+    public void init() {
+        stopScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r);
+            t.setName("voice-stop-" + t.threadId());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopScheduler.shutdownNow();
+    }
+
+    /**
+     * Lookup used by the binary audio channel, which shares sessions with STOMP
+     */
+    public VoiceSession getActiveSession(String sessionId) {
+        return sessionId != null ? activeSessions.get(sessionId) : null;
+    }
+
     @MessageMapping("/voice.connect")
     public void connect(Principal principal,
             @Header("sessionId") String sessionId,
@@ -71,8 +110,10 @@ public class VoiceWebSocketController {
                 newSession.setUserId(userId);
                 newSession.setUserType(userType);
                 newSession.setUsername(username);
+                newSession.setOwnerPrincipal(principal != null ? principal.getName() : null);
                 newSession.setConnectedAt(LocalDateTime.now());
                 newSession.setActive(true);
+                newSession.setAudioBuffer(audioBufferPool.newSessionBuffer());
                 return newSession;
             });
 
@@ -128,11 +169,24 @@ public class VoiceWebSocketController {
             if (chunk.getData() != null) {
                 try {
                     byte[] audioData = java.util.Base64.getDecoder().decode(chunk.getData());
-                    session.storeChunk(chunk.getSequenceNumber(), audioData);
+                    SessionAudioBuffer.AppendResult result = session.storeChunk(chunk.getSequenceNumber(), audioData);
+                    if (result == SessionAudioBuffer.AppendResult.REJECTED_SESSION_LIMIT
+                            || result == SessionAudioBuffer.AppendResult.REJECTED_GLOBAL_LIMIT) {
+                        log.warn("⚠️ Chunk {} rejected for session {}: {}",
+                                chunk.getSequenceNumber(), sessionId, result);
+                        rejectChunk(principal, username, sessionId, chunk.getSequenceNumber(), result);
+                        return;
+                    }
 
                     log.debug("Stored chunk {} ({} bytes), total chunks: {}",
                             chunk.getSequenceNumber(), audioData.length, session.getChunkCount());
 
+                    // ✅ Feed incremental STT so partial transcripts arrive while the user speaks
+                    if (result == SessionAudioBuffer.AppendResult.ACCEPTED) {
+                        voiceService.processAudioChunk(sessionId, session.getUserId(),
+                                principal != null ? username : null, chunk, audioData);
+                    }
+
                 } catch (IllegalArgumentException e) {
                     log.warn("Failed to decode base64 data for chunk {}: {}",
                             chunk.getSequenceNumber(), e.getMessage());
@@ -144,6 +198,15 @@ public class VoiceWebSocketController {
             session.setTotalChunks(session.getTotalChunks() + 1);
             session.setTotalBytes(session.getTotalBytes() + chunk.getChunkSizeBytes());
 
+            // ✅ Final chunk completes a pending stop without waiting for the idle timeout,
+            // but only once every earlier chunk is in; a late one re-checks on arrival
+            if (chunk.isLast()) {
+                session.markLastChunk(chunk.getSequenceNumber(), chunk.getData() != null && !chunk.getData().isEmpty());
+            }
+            if (session.checkLastChunkSeen()) {
+                fireStop(session);
+            }
+
             // Send acknowledgment
             if (principal != null) {
                 messagingTemplate.convertAndSendToUser(
@@ -190,26 +253,6 @@ public class VoiceWebSocketController {
 
             log.info("🛑 Voice streaming stopped - User: {}, Type: {}, Session: {}", username, userType, sessionId);
 
-            // ✅ KEY FIX: Wait up to 2 seconds for in-flight chunks to arrive
-            // Frontend sends stream + stop almost simultaneously — stop often wins the race
-            int waitMs = 0;
-            while (session.getChunkCount() == 0 && waitMs < 2000) {
-                try {
-                    Thread.sleep(100);
-                    waitMs += 100;
-                    log.debug("⏳ Waiting for chunks... {}ms elapsed", waitMs);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
-                }
-            }
-
-            log.info("🔍 After wait - Session: {}, Chunks stored: {}",
-                    sessionId, session.getChunkCount());
-
-            session.setActive(false);
-            session.setCompletedAt(LocalDateTime.now());
-
             String mode;
             String language = "auto";
             if (payload != null) {
@@ -225,66 +268,142 @@ public class VoiceWebSocketController {
                 mode = (userType == User.UserType.DEMENTIA_PATIENT) ? "dementia" : "standard";
             }
 
-            byte[] audioData = session.getReassembledAudio();
+            // ✅ No inbound thread is parked here: the pipeline starts once the last chunk
+            // is seen or the session goes idle (see checkPendingStop)
+            final String finalMode = mode;
+            final String finalLanguage = language;
+            session.armStop(() -> startVoicePipeline(principal, sessionId, session,
+                    userId, username, userType, finalMode, finalLanguage));
 
-            log.info("📦 Reassembled {} chunks into {} bytes of audio for session {}",
-                    session.getChunkCount(), audioData.length, sessionId);
+            if (session.isLastChunkSeen()) {
+                fireStop(session);
+            } else {
+                stopScheduler.schedule(() -> checkPendingStop(session), stopIdleTimeoutMs, TimeUnit.MILLISECONDS);
+            }
 
-            session.resetBuffer();
+        } catch (Exception e) {
+            log.error("❌ Error in stop handler: {}", e.getMessage(), e);
+        }
+    }
 
-            final String finalUserId = userId;
-            final String finalUsername = username;
-            final User.UserType finalUserType = userType;
+    /**
+     * Idle-timeout side of the stop condition; re-arms itself until the session is idle
+     */
+    private void checkPendingStop(VoiceSession session) {
+        if (!session.hasPendingStop()) {
+            return;
+        }
 
-            voiceService.processCompleteVoice(
-                    sessionId,
-                    finalUserId,
-                    finalUserType.name(),
-                    mode,
-                    language,
-                    audioData).thenAccept(response -> {
-                        try {
-                            if (principal != null) {
-                                messagingTemplate.convertAndSendToUser(
-                                        finalUsername,
-                                        "/queue/voice.response",
-                                        response);
-                            } else {
-                                messagingTemplate.convertAndSend(
-                                        "/topic/voice.response/" + sessionId,
-                                        response);
-                            }
-                            log.info("✅ Voice response sent to: {}", finalUsername);
-                        } catch (Exception e) {
-                            log.error("Failed to send response: {}", e.getMessage());
-                        }
-                    }).exceptionally(throwable -> {
-                        log.error("❌ Voice processing failed: {}", throwable.getMessage());
-                        try {
-                            Map<String, Object> errorResponse = Map.of(
-                                    "error", "Processing failed",
-                                    "message", throwable.getMessage(),
-                                    "timestamp", System.currentTimeMillis());
+        long now = System.currentTimeMillis();
+        long idleMs = now - Math.max(session.getLastChunkAtMillis(), session.getStopRequestedAtMillis());
+        long sinceStopMs = now - session.getStopRequestedAtMillis();
 
-                            if (principal != null) {
-                                messagingTemplate.convertAndSendToUser(
-                                        finalUsername,
-                                        "/queue/voice.error",
-                                        errorResponse);
-                            } else {
-                                messagingTemplate.convertAndSend(
-                                        "/topic/voice.error/" + sessionId,
-                                        errorResponse);
-                            }
-                        } catch (Exception e) {
-                            log.error("Failed to send error: {}", e.getMessage());
-                        }
-                        return null;
-                    });
+        boolean idle = session.getChunkCount() > 0 && idleMs >= stopIdleTimeoutMs;
+        boolean gaveUp = sinceStopMs >= stopMaxWaitMs;
 
-        } catch (Exception e) {
-            log.error("❌ Error in stop handler: {}", e.getMessage(), e);
+        if (session.isLastChunkSeen() || idle || gaveUp) {
+            log.info("🔍 Stop condition met - Session: {}, Chunks stored: {}, lastChunkSeen: {}, waited: {}ms",
+                    session.getSessionId(), session.getChunkCount(), session.isLastChunkSeen(), sinceStopMs);
+            fireStop(session);
+            return;
         }
+
+        long delay = session.getChunkCount() > 0
+                ? Math.max(10, stopIdleTimeoutMs - idleMs)
+                : Math.min(stopIdleTimeoutMs, stopMaxWaitMs - sinceStopMs);
+        stopScheduler.schedule(() -> checkPendingStop(session), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Run the armed stop action at most once, whichever condition fires first
+     */
+    void fireStop(VoiceSession session) {
+        Runnable action = session.takePendingStop();
+        if (action != null) {
+            try {
+                action.run();
+            } catch (Exception e) {
+                log.error("❌ Failed to start voice pipeline for {}: {}", session.getSessionId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void startVoicePipeline(Principal principal, String sessionId, VoiceSession session,
+            String userId, String username, User.UserType userType, String mode, String language) {
+
+        session.setActive(false);
+        session.setCompletedAt(LocalDateTime.now());
+
+        int chunkCount = session.getChunkCount();
+        AudioView audioData = session.takeRecording();
+
+        log.info("📦 Reassembled {} chunks into {} bytes of audio for session {}",
+                chunkCount, audioData.size(), sessionId);
+
+        voiceService.processCompleteVoice(
+                sessionId,
+                userId,
+                userType.name(),
+                mode,
+                language,
+                audioData,
+                responseDeltaSender(principal, username, sessionId)).thenAccept(response -> {
+                    try {
+                        if (principal != null) {
+                            messagingTemplate.convertAndSendToUser(
+                                    username,
+                                    "/queue/voice.response",
+                                    response);
+                        } else {
+                            messagingTemplate.convertAndSend(
+                                    "/topic/voice.response/" + sessionId,
+                                    response);
+                        }
+                        log.info("✅ Voice response sent to: {}", username);
+                    } catch (Exception e) {
+                        log.error("Failed to send response: {}", e.getMessage());
+                    }
+                }).exceptionally(throwable -> {
+                    log.error("❌ Voice processing failed: {}", throwable.getMessage());
+                    try {
+                        Map<String, Object> errorResponse = Map.of(
+                                "error", "Processing failed",
+                                "message", throwable.getMessage(),
+                                "timestamp", System.currentTimeMillis());
+
+                        if (principal != null) {
+                            messagingTemplate.convertAndSendToUser(
+                                    username,
+                                    "/queue/voice.error",
+                                    errorResponse);
+                        } else {
+                            messagingTemplate.convertAndSend(
+                                    "/topic/voice.error/" + sessionId,
+                                    errorResponse);
+                        }
+                    } catch (Exception e) {
+                        log.error("Failed to send error: {}", e.getMessage());
+                    }
+                    return null;
+                });
+    }
+
+    /**
+     * Streaming deltas go next to the final response: /queue/voice.response.delta for
+     * authenticated users, /topic/voice.response.delta/{sessionId} otherwise
+     */
+    private Consumer<VoiceResponse> responseDeltaSender(Principal principal, String username, String sessionId) {
+        return delta -> {
+            try {
+                if (principal != null) {
+                    messagingTemplate.convertAndSendToUser(username, "/queue/voice.response.delta", delta);
+                } else {
+                    messagingTemplate.convertAndSend("/topic/voice.response.delta/" + sessionId, delta);
+                }
+            } catch (Exception e) {
+                log.error("Failed to send response delta: {}", e.getMessage());
+            }
+        };
     }
 
     @MessageMapping("/voice.text")
@@ -333,7 +452,8 @@ public class VoiceWebSocketController {
                     finalUserType.name(),
                     mode,
                     language,
-                    text).thenAccept(response -> {
+                    text,
+                    responseDeltaSender(principal, finalUsername, sessionId)).thenAccept(response -> {
                         try {
                             if (principal != null) {
                                 messagingTemplate.convertAndSendToUser(
@@ -392,6 +512,7 @@ public class VoiceWebSocketController {
             if (session != null) {
                 session.setActive(false);
                 session.setDisconnectedAt(LocalDateTime.now());
+                session.releaseBuffer();
                 voiceService.cancelProcessing(sessionId);
             }
             voiceSessionRegistry.markDisconnected(sessionId);
@@ -418,6 +539,20 @@ public class VoiceWebSocketController {
         }
     }
 
+    private void rejectChunk(Principal principal, String username, String sessionId,
+            int sequenceNumber, SessionAudioBuffer.AppendResult reason) {
+        Map<String, Object> nack = Map.of(
+                "nack", sequenceNumber,
+                "reason", reason.name(),
+                "timestamp", System.currentTimeMillis(),
+                "sessionId", sessionId);
+        if (principal != null) {
+            messagingTemplate.convertAndSendToUser(username, "/queue/voice.error", nack);
+        } else {
+            messagingTemplate.convertAndSend("/topic/voice.error/" + sessionId, nack);
+        }
+    }
+
     private VoiceUserContext resolveUserContext(Principal principal, Map<String, Object> payload, String sessionId, VoiceSession session) {
         if (principal != null) {
             CustomUserDetails user = (CustomUserDetails) ((Authentication) principal).getPrincipal();
@@ -478,6 +613,7 @@ public class VoiceWebSocketController {
             if (session != null) {
                 session.setActive(false);
                 session.setDisconnectedAt(LocalDateTime.now());
+                session.releaseBuffer();
                 voiceService.cancelProcessing(sessionId);
                 log.info("Session {} removed from active sessions", sessionId);
             }
@@ -511,6 +647,7 @@ public class VoiceWebSocketController {
         if (session != null) {
             session.setActive(false);
             session.setDisconnectedAt(LocalDateTime.now());
+            session.releaseBuffer();
             voiceService.cancelProcessing(sessionId);
             log.info("Session {} cleaned up on disconnect", sessionId);
         }
@@ -553,12 +690,12 @@ public class VoiceWebSocketController {
     // ✅ INNER CLASS: VoiceSession with chunk storage
     public static class VoiceSession {
 
-        private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(VoiceSession.class);
-
         private String sessionId;
         private String userId;
         private String userType;
         private String username;
+        private String ownerPrincipal;   // Set when a logged-in user opened it; anonymous frames are refused
+        private String binarySocketId;   // /ws-voice-audio socket allowed to write audio into it
         private boolean active;
         private int expectedSequence = 0;
         private int totalChunks = 0;
@@ -569,52 +706,119 @@ public class VoiceWebSocketController {
         private LocalDateTime disconnectedAt;
         private String interactionId;
         private boolean processing = false;
-
-        // ✅ NEW: Store chunks by sequence number
-        private Map<Integer, byte[]> chunkMap = new ConcurrentHashMap<>();
-
-        // ✅ NEW: Store chunk by sequence number
-        public void storeChunk(int sequenceNumber, byte[] data) {
-            if (data != null && data.length > 0) {
-                chunkMap.put(sequenceNumber, data);
+        private volatile boolean lastChunkSeen = false;
+        private int lastChunkEnd = -1;   // Sequence number just past the isLast chunk, once it arrives
+        private volatile long lastChunkAtMillis = 0;
+        private volatile long stopRequestedAtMillis = 0;
+        private Runnable pendingStop;
+
+        // ✅ Pooled, bounded audio storage (see AudioBufferPool)
+        private SessionAudioBuffer audioBuffer;
+
+        // ✅ Store chunk by sequence number; late chunks within the reorder window are parked
+        public SessionAudioBuffer.AppendResult storeChunk(int sequenceNumber, byte[] data) {
+            if (data == null || data.length == 0 || audioBuffer == null) {
+                return SessionAudioBuffer.AppendResult.ACCEPTED;
             }
+            lastChunkAtMillis = System.currentTimeMillis();
+            return audioBuffer.append(sequenceNumber, data);
         }
 
-        // ✅ NEW: Get reassembled audio from all chunks
-        public byte[] getReassembledAudio() {
-            if (chunkMap.isEmpty()) {
-                return new byte[0];
+        // ✅ Binary frames: copy straight from the transport buffer into pooled segments
+        public SessionAudioBuffer.AppendResult storeChunk(int sequenceNumber, java.nio.ByteBuffer data) {
+            if (data == null || !data.hasRemaining() || audioBuffer == null) {
+                return SessionAudioBuffer.AppendResult.ACCEPTED;
             }
+            lastChunkAtMillis = System.currentTimeMillis();
+            return audioBuffer.append(sequenceNumber, data);
+        }
 
-            List<Integer> sortedSequences = chunkMap.keySet().stream()
-                    .sorted()
-                    .collect(Collectors.toList());
+        // ✅ Detach the utterance as a read-only view; the caller must close it
+        public AudioView takeRecording() {
+            resetLastChunk();
+            return audioBuffer != null ? audioBuffer.takeRecording() : AudioView.empty();
+        }
 
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-            for (Integer seq : sortedSequences) {
-                byte[] chunk = chunkMap.get(seq);
-                if (chunk != null) {
-                    try {
-                        output.write(chunk);
-                    } catch (IOException e) {
-                        log.error("Failed to write chunk {}", seq, e);
-                    }
-                }
+        // ✅ isLast may overtake earlier chunks; an empty marker closes the chunks before it
+        public synchronized void markLastChunk(int sequenceNumber, boolean hasData) {
+            lastChunkEnd = hasData ? sequenceNumber + 1 : sequenceNumber;
+        }
+
+        // ✅ The last chunk counts as seen only when no sequence number before it is missing
+        public synchronized boolean checkLastChunkSeen() {
+            if (!lastChunkSeen && lastChunkEnd >= 0
+                    && (audioBuffer == null || audioBuffer.nextSequence() >= lastChunkEnd)) {
+                lastChunkSeen = true;
             }
-            return output.toByteArray();
+            return lastChunkSeen;
+        }
+
+        private synchronized void resetLastChunk() {
+            lastChunkSeen = false;
+            lastChunkEnd = -1;
+        }
+
+        // ✅ Completion condition for /voice.stop: runs once on isLast or idle timeout
+        public synchronized void armStop(Runnable action) {
+            pendingStop = action;
+            stopRequestedAtMillis = System.currentTimeMillis();
+        }
+
+        public synchronized boolean hasPendingStop() {
+            return pendingStop != null;
+        }
+
+        public synchronized Runnable takePendingStop() {
+            Runnable action = pendingStop;
+            pendingStop = null;
+            return action;
         }
 
-        // ✅ NEW: Get chunk count
         public int getChunkCount() {
-            return chunkMap.size();
+            return audioBuffer != null ? audioBuffer.getChunkCount() : 0;
         }
 
-        // ✅ MODIFIED: Reset clears the map
-        public void resetBuffer() {
-            chunkMap.clear();
+        // ✅ Return buffered segments to the pool
+        public void releaseBuffer() {
+            takePendingStop();
+            if (audioBuffer != null) {
+                audioBuffer.release();
+            }
+            resetLastChunk();
             expectedSequence = 0;
         }
 
+        // ✅ First binary socket to send audio owns the session until it closes
+        public synchronized boolean bindBinarySocket(String socketId) {
+            if (binarySocketId == null) {
+                binarySocketId = socketId;
+                return true;
+            }
+            return binarySocketId.equals(socketId);
+        }
+
+        public synchronized void unbindBinarySocket(String socketId) {
+            if (socketId.equals(binarySocketId)) {
+                binarySocketId = null;
+            }
+        }
+
+        public String getOwnerPrincipal() {
+            return ownerPrincipal;
+        }
+
+        public void setOwnerPrincipal(String ownerPrincipal) {
+            this.ownerPrincipal = ownerPrincipal;
+        }
+
+        public SessionAudioBuffer getAudioBuffer() {
+            return audioBuffer;
+        }
+
+        public void setAudioBuffer(SessionAudioBuffer audioBuffer) {
+            this.audioBuffer = audioBuffer;
+        }
+
         // Existing getters/setters...
         public String getSessionId() {
             return sessionId;
@@ -727,5 +931,21 @@ public class VoiceWebSocketController {
         public void setProcessing(boolean processing) {
             this.processing = processing;
         }
+
+        public boolean isLastChunkSeen() {
+            return lastChunkSeen;
+        }
+
+        public void setLastChunkSeen(boolean lastChunkSeen) {
+            this.lastChunkSeen = lastChunkSeen;
+        }
+
+        public long getLastChunkAtMillis() {
+            return lastChunkAtMillis;
+        }
+
+        public long getStopRequestedAtMillis() {
+            return stopRequestedAtMillis;
+        }
     }
 }
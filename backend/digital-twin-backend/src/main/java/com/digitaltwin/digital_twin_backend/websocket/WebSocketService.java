@@ -98,6 +98,20 @@ public class WebSocketService {
         }
     }
 
+    /**
+     * Send background job progress (file summarization) to its owner
+     */
+    public void sendJobProgress(String username, Map<String, Object> event) {
+        try {
+            messagingTemplate.convertAndSendToUser(
+                    username,
+                    "/queue/jobs.progress",
+                    event);
+        } catch (Exception e) {
+            log.error("❌ Failed to send job progress to {}: {}", username, e.getMessage());
+        }
+    }
+
     /**
      * Notify reviewers about new HITL item
      */
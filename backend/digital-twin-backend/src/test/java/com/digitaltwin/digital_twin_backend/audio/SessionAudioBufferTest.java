@@ -0,0 +1,81 @@
+package com.digitaltwin.digital_twin_backend.audio;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionAudioBufferTest {
+
+    // 4-byte segments, 16 bytes for the whole node, reorder window of 4
+    private final AudioBufferPool pool = new AudioBufferPool(new SimpleMeterRegistry(), 4, 16, 1024, 4, 16);
+
+    @Test
+    void reordersChunksWithinWindow() {
+        SessionAudioBuffer buffer = pool.newSessionBuffer();
+
+        assertThat(buffer.append(1, new byte[]{3, 4})).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+        assertThat(buffer.append(0, new byte[]{1, 2})).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+        assertThat(buffer.append(2, new byte[]{5})).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+
+        try (AudioView recording = buffer.takeRecording()) {
+            assertThat(recording.toByteArray()).containsExactly(1, 2, 3, 4, 5);
+        }
+    }
+
+    @Test
+    void duplicatesAreIgnored() {
+        SessionAudioBuffer buffer = pool.newSessionBuffer();
+        buffer.append(0, new byte[]{1});
+        buffer.append(2, new byte[]{3});
+
+        assertThat(buffer.append(0, new byte[]{9})).isEqualTo(SessionAudioBuffer.AppendResult.DUPLICATE);
+        assertThat(buffer.append(2, new byte[]{9})).isEqualTo(SessionAudioBuffer.AppendResult.DUPLICATE);
+        buffer.release();
+    }
+
+    @Test
+    void parkedChunkOverGlobalLimitIsRejectedOnArrival() {
+        SessionAudioBuffer first = pool.newSessionBuffer();
+        SessionAudioBuffer second = pool.newSessionBuffer();
+
+        // Parked chunks hold 12 of the 16 bytes before anything is written
+        assertThat(first.append(1, new byte[8])).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+        assertThat(first.append(2, new byte[4])).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+        assertThat(second.append(0, new byte[4])).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+
+        // Nothing is left for another parked chunk or for the missing head
+        assertThat(second.append(2, new byte[1])).isEqualTo(SessionAudioBuffer.AppendResult.REJECTED_GLOBAL_LIMIT);
+        assertThat(first.append(0, new byte[1])).isEqualTo(SessionAudioBuffer.AppendResult.REJECTED_GLOBAL_LIMIT);
+
+        // Once room frees up, the gap fills and every accepted parked chunk makes it in
+        second.release();
+        assertThat(first.append(0, new byte[]{7})).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+        try (AudioView recording = first.takeRecording()) {
+            assertThat(recording.size()).isEqualTo(13);
+            assertThat(recording.toByteArray()[0]).isEqualTo((byte) 7);
+        }
+    }
+
+    @Test
+    void releaseReturnsParkedReservations() {
+        SessionAudioBuffer buffer = pool.newSessionBuffer();
+        buffer.append(1, new byte[16]);
+        assertThat(pool.newSessionBuffer().append(0, new byte[1]))
+                .isEqualTo(SessionAudioBuffer.AppendResult.REJECTED_GLOBAL_LIMIT);
+
+        buffer.release();
+
+        assertThat(pool.newSessionBuffer().append(0, new byte[16])).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+    }
+
+    @Test
+    void sessionLimitApplies() {
+        AudioBufferPool small = new AudioBufferPool(new SimpleMeterRegistry(), 4, 1024, 6, 4, 16);
+        SessionAudioBuffer buffer = small.newSessionBuffer();
+
+        assertThat(buffer.append(0, new byte[4])).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+        assertThat(buffer.append(2, new byte[2])).isEqualTo(SessionAudioBuffer.AppendResult.ACCEPTED);
+        assertThat(buffer.append(1, new byte[1])).isEqualTo(SessionAudioBuffer.AppendResult.REJECTED_SESSION_LIMIT);
+    }
+}
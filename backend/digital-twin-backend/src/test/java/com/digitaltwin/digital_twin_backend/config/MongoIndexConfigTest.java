@@ -0,0 +1,61 @@
+package com.digitaltwin.digital_twin_backend.config;
+
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MongoIndexConfigTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final MongoIndexConfig config = new MongoIndexConfig(mongoTemplate);
+    private final List<String> steps = new CopyOnWriteArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        config.destroy();
+    }
+
+    @Test
+    void unreachableMongoIsRetriedInTheBackground() throws Exception {
+        ReflectionTestUtils.setField(config, "startupRetryMs", 50L);
+        AtomicInteger pings = new AtomicInteger();
+        when(mongoTemplate.executeCommand(any(Document.class))).thenAnswer(inv -> {
+            if (pings.incrementAndGet() < 3) {
+                // Stands in for the driver's server selection timeout
+                Thread.sleep(300);
+                throw new IllegalStateException("Timed out while waiting for a server");
+            }
+            return new Document("ok", 1);
+        });
+        IndexOperations indexOps = mock(IndexOperations.class);
+        when(indexOps.createIndex(any())).thenAnswer(inv -> {
+            steps.add("index");
+            return "ok";
+        });
+        when(mongoTemplate.indexOps(any(Class.class))).thenReturn(indexOps);
+        when(mongoTemplate.indexOps(anyString())).thenReturn(indexOps);
+
+        long start = System.currentTimeMillis();
+        config.ensureIndexesInBackground();
+        assertThat(System.currentTimeMillis() - start).isLessThan(200);
+
+        config.afterIndexes(() -> steps.add("migration")).get(5, TimeUnit.SECONDS);
+
+        assertThat(pings).hasValue(3);
+        assertThat(steps).contains("index").last().isEqualTo("migration");
+    }
+}
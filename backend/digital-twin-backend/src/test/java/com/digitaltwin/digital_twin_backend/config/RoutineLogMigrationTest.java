@@ -0,0 +1,84 @@
+package com.digitaltwin.digital_twin_backend.config;
+
+import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.model.RoutineLogEntry;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.convert.MongoConverter;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.RETURNS_SELF;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RoutineLogMigrationTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulk = mock(BulkOperations.class, RETURNS_SELF);
+    private final RoutineLogMigration migration = new RoutineLogMigration(mongoTemplate, mock(MongoIndexConfig.class));
+
+    @BeforeEach
+    void setUp() {
+        Document routine = new Document("_id", "r1")
+                .append("userId", "u1")
+                .append("logs", List.of(new Document("status", "COMPLETED")));
+        when(mongoTemplate.find(any(Query.class), eq(Document.class), eq("routines"))).thenReturn(List.of(routine));
+
+        MongoConverter converter = mock(MongoConverter.class);
+        when(mongoTemplate.getConverter()).thenReturn(converter);
+        when(converter.read(eq(Routine.RoutineLog.class), any(Document.class))).thenReturn(
+                new Routine.RoutineLog(LocalDateTime.of(2026, 1, 5, 8, 0), null, Routine.RoutineStatus.COMPLETED,
+                        null, "u1"));
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, RoutineLogEntry.class)).thenReturn(bulk);
+        when(bulk.insert(anyList())).thenReturn(bulk);
+    }
+
+    @Test
+    void duplicatesOnlyStillRemoveEmbeddedLogs() {
+        when(bulk.execute()).thenThrow(bulkFailure(11000, 11000));
+
+        migration.migrateEmbeddedLogs();
+
+        verify(mongoTemplate).updateFirst(any(Query.class), any(Update.class), eq("routines"));
+    }
+
+    @Test
+    void otherWriteErrorsKeepEmbeddedLogs() {
+        when(bulk.execute()).thenThrow(bulkFailure(11000, 121));
+
+        migration.migrateEmbeddedLogs();
+
+        verify(mongoTemplate, never()).updateFirst(any(Query.class), any(Update.class), eq("routines"));
+    }
+
+    private static BulkOperationException bulkFailure(int... codes) {
+        List<BulkWriteError> errors = new ArrayList<>();
+        for (int i = 0; i < codes.length; i++) {
+            errors.add(new BulkWriteError(codes[i], "error " + codes[i], new BsonDocument(), i));
+        }
+        MongoBulkWriteException source = new MongoBulkWriteException(BulkWriteResult.acknowledged(0, 0, 0, 0, List.of(), List.of()), errors,
+                null, new ServerAddress(), Set.of());
+        return new BulkOperationException("bulk write failed", source);
+    }
+}
@@ -0,0 +1,244 @@
+package com.digitaltwin.digital_twin_backend.controller;
+
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.model.User;
+import com.digitaltwin.digital_twin_backend.security.CustomUserDetails;
+import com.digitaltwin.digital_twin_backend.service.BatchSummarizationService;
+import com.digitaltwin.digital_twin_backend.service.FileUploadService;
+import com.digitaltwin.digital_twin_backend.service.NoteService;
+import com.digitaltwin.digital_twin_backend.service.SummarizationJobService;
+import com.digitaltwin.digital_twin_backend.service.SummarizationService;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import org.bson.BsonObjectId;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class FileUploadControllerTest {
+
+    private static final String OWNER = "patient-1";
+    private static final String HASH = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+    private static final int LENGTH = 1_000;
+
+    private final FileUploadService fileUploadService = mock(FileUploadService.class);
+    private final GridFsTemplate gridFsTemplate = mock(GridFsTemplate.class);
+    private final byte[] content = new byte[LENGTH];
+
+    private FileUploadController controller;
+    private FileUpload file;
+    private TrackingStream stream;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        controller = new FileUploadController(fileUploadService, mock(SummarizationService.class),
+                mock(SummarizationJobService.class), mock(BatchSummarizationService.class),
+                mock(NoteService.class), gridFsTemplate);
+
+        for (int i = 0; i < LENGTH; i++) {
+            content[i] = (byte) i;
+        }
+        file = new FileUpload();
+        file.setId("file-1");
+        file.setUserId(OWNER);
+        file.setOriginalFileName("Doctor visit – März.mp3");
+        file.setFileType("audio/mpeg");
+        file.setGridFsFileId("grid-1");
+        file.setContentHash(HASH);
+        when(fileUploadService.getFileById("file-1")).thenReturn(file);
+
+        GridFSFile gridFsFile = new GridFSFile(new BsonObjectId(new ObjectId()), "grid-1", LENGTH, 255,
+                new Date(), new Document());
+        when(fileUploadService.downloadFile("grid-1")).thenReturn(gridFsFile);
+        GridFsResource resource = mock(GridFsResource.class);
+        when(gridFsTemplate.getResource(gridFsFile)).thenReturn(resource);
+        when(resource.getInputStream()).thenAnswer(inv -> stream = new TrackingStream(content));
+
+        signIn(OWNER);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void fullDownloadStreamsEveryByteWithValidators() throws IOException {
+        ResponseEntity<?> response = download(new HttpHeaders(), false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(response.getHeaders().getETag()).isEqualTo("\"" + HASH + "\"");
+        assertThat(response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeaders().getCacheControl()).isEqualTo("max-age=86400, private");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(LENGTH);
+        assertThat(response.getHeaders().getContentDisposition().getType()).isEqualTo("attachment");
+        assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("Doctor visit – März.mp3");
+        assertThat(body(response)).isEqualTo(content);
+    }
+
+    @Test
+    void singleRangeIsPartialContentAndSkipsTheStart() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=600-699");
+
+        ResponseEntity<?> response = download(headers, true);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+        assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 600-699/1000");
+        assertThat(response.getHeaders().getContentLength()).isEqualTo(100);
+        assertThat(response.getHeaders().getContentDisposition().getType()).isEqualTo("inline");
+        assertThat(body(response)).isEqualTo(Arrays.copyOfRange(content, 600, 700));
+        // The first 600 bytes were skipped, not read and thrown away
+        assertThat(stream.skipped).isEqualTo(600);
+        assertThat(stream.read).isEqualTo(100);
+    }
+
+    @Test
+    void suffixAndOpenEndedRangesAreClampedToTheFile() throws IOException {
+        HttpHeaders suffix = new HttpHeaders();
+        suffix.set(HttpHeaders.RANGE, "bytes=-10");
+        ResponseEntity<?> tail = download(suffix, false);
+
+        assertThat(tail.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 990-999/1000");
+        assertThat(body(tail)).isEqualTo(Arrays.copyOfRange(content, 990, 1000));
+
+        HttpHeaders openEnded = new HttpHeaders();
+        openEnded.set(HttpHeaders.RANGE, "bytes=995-5000");
+        ResponseEntity<?> end = download(openEnded, false);
+
+        assertThat(end.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 995-999/1000");
+        assertThat(body(end)).isEqualTo(Arrays.copyOfRange(content, 995, 1000));
+    }
+
+    @Test
+    void unsatisfiableOrMalformedRangesGet416() {
+        for (String range : List.of("bytes=1000-", "bytes=2000-3000", "bytes=50-10", "pages=1-2")) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.set(HttpHeaders.RANGE, range);
+
+            ResponseEntity<?> response = download(headers, false);
+
+            assertThat(response.getStatusCode()).as(range).isEqualTo(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+            assertThat(response.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE)).as(range).isEqualTo("bytes */1000");
+        }
+    }
+
+    @Test
+    void multipleRangesGetTheWholeFile() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RANGE, "bytes=0-9,20-29");
+
+        ResponseEntity<?> response = download(headers, false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(response)).isEqualTo(content);
+    }
+
+    @Test
+    void matchingIfNoneMatchIsNotModified() {
+        for (String tag : List.of("\"" + HASH + "\"", "W/\"" + HASH + "\"", "*")) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.setIfNoneMatch(tag);
+
+            ResponseEntity<?> response = download(headers, false);
+
+            assertThat(response.getStatusCode()).as(tag).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(response.getBody()).as(tag).isNull();
+        }
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeFile() throws IOException {
+        HttpHeaders stale = new HttpHeaders();
+        stale.set(HttpHeaders.RANGE, "bytes=0-9");
+        stale.set(HttpHeaders.IF_RANGE, "\"older\"");
+        ResponseEntity<?> full = download(stale, false);
+
+        assertThat(full.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(body(full)).isEqualTo(content);
+
+        HttpHeaders current = new HttpHeaders();
+        current.set(HttpHeaders.RANGE, "bytes=0-9");
+        current.set(HttpHeaders.IF_RANGE, "\"" + HASH + "\"");
+        assertThat(download(current, false).getStatusCode()).isEqualTo(HttpStatus.PARTIAL_CONTENT);
+    }
+
+    @Test
+    void fileWithoutContentHashUsesTheGridFsIdAsETag() {
+        file.setContentHash(null);
+
+        assertThat(download(new HttpHeaders(), false).getHeaders().getETag()).isEqualTo("\"grid-1\"");
+    }
+
+    @Test
+    void someoneElsesFileIsForbidden() {
+        signIn("patient-2");
+
+        assertThat(download(new HttpHeaders(), false).getStatusCode()).isEqualTo(HttpStatus.FORBIDDEN);
+    }
+
+    private ResponseEntity<?> download(HttpHeaders headers, boolean inline) {
+        return controller.downloadFile("file-1", inline, headers);
+    }
+
+    private static byte[] body(ResponseEntity<?> response) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ((StreamingResponseBody) response.getBody()).writeTo(out);
+        return out.toByteArray();
+    }
+
+    private static void signIn(String userId) {
+        User user = new User();
+        user.setId(userId);
+        user.setUsername(userId);
+        CustomUserDetails principal = new CustomUserDetails(user);
+        SecurityContextHolder.getContext()
+                .setAuthentication(new UsernamePasswordAuthenticationToken(principal, null, List.of()));
+    }
+
+    // Tells bytes skipped apart from bytes actually read
+    private static final class TrackingStream extends ByteArrayInputStream {
+        private long skipped;
+        private long read;
+
+        TrackingStream(byte[] content) {
+            super(content);
+        }
+
+        @Override
+        public synchronized long skip(long n) {
+            long s = super.skip(n);
+            skipped += s;
+            return s;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            int r = super.read(b, off, len);
+            if (r > 0) {
+                read += r;
+            }
+            return r;
+        }
+    }
+}
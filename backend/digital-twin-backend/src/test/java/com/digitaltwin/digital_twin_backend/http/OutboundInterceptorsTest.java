@@ -0,0 +1,181 @@
+package com.digitaltwin.digital_twin_backend.http;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OutboundInterceptorsTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+
+    private final OutboundHttpSettings settings = OutboundHttpSettings.from(new MockEnvironment()
+            .withProperty("app.http.test.max-retries", "2")
+            .withProperty("app.http.test.retry-base-delay-ms", "1")
+            .withProperty("app.http.test.retry-max-delay-ms", "5")
+            .withProperty("app.http.test.max-concurrent-per-host", "1")
+            .withProperty("app.http.test.acquire-timeout-ms", "50"), "test");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final Provider provider = new Provider();
+
+    @Test
+    void postIsNotRetriedOnBadGateway() throws IOException {
+        provider.respond(502).respond(200);
+
+        try (Response response = client().newCall(post()).execute()) {
+            assertThat(response.code()).isEqualTo(502);
+        }
+        assertThat(provider.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void postIsRetriedOnServiceUnavailableWithRetryAfter() throws IOException {
+        provider.respond(503, "0").respond(200);
+
+        try (Response response = client().newCall(post()).execute()) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+        assertThat(provider.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void postIsNotRetriedOnServiceUnavailableWithoutRetryAfter() throws IOException {
+        provider.respond(503).respond(200);
+
+        try (Response response = client().newCall(post()).execute()) {
+            assertThat(response.code()).isEqualTo(503);
+        }
+    }
+
+    @Test
+    void postIsRetriedWhenConnectionWasNeverMade() throws IOException {
+        provider.fail(new ConnectException("refused")).respond(200);
+
+        try (Response response = client().newCall(post()).execute()) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+        assertThat(provider.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void postIsNotRetriedAfterItWasSent() {
+        provider.fail(new IOException("unexpected end of stream")).respond(200);
+
+        assertThatThrownBy(() -> client().newCall(post()).execute()).isInstanceOf(IOException.class);
+        assertThat(provider.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void getIsRetriedOnBadGatewayAndIoErrors() throws IOException {
+        provider.respond(502).fail(new IOException("reset")).respond(200);
+
+        try (Response response = client().newCall(get()).execute()) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+        assertThat(provider.calls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void hostPermitIsHeldUntilBodyIsClosed() throws IOException {
+        provider.respond(200).respond(200).respond(200);
+        OkHttpClient client = client();
+
+        Response streaming = client.newCall(get()).execute();
+        assertThatThrownBy(() -> client.newCall(get()).execute())
+                .hasMessageContaining("Too many concurrent requests");
+
+        streaming.close();
+        try (Response response = client.newCall(get()).execute()) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+    }
+
+    @Test
+    void latencyIsRecordedWhenBodyIsClosed() throws IOException {
+        provider.respond(200);
+
+        Response response = client().newCall(get()).execute();
+        assertThat(meterRegistry.find("http.client.outbound").timer()).isNull();
+
+        response.close();
+        Timer timer = meterRegistry.find("http.client.outbound").tag("outcome", "SUCCESS").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+    }
+
+    private OkHttpClient client() {
+        return new OkHttpClient.Builder()
+                .addInterceptor(new OutboundInterceptors.Metrics("test", meterRegistry))
+                .addInterceptor(new OutboundInterceptors.Retry("test", settings))
+                .addInterceptor(new OutboundInterceptors.HostLimit(settings))
+                .addInterceptor(provider)
+                .build();
+    }
+
+    private static Request post() {
+        return new Request.Builder().url("http://provider.test/v1/transcript")
+                .post(RequestBody.create("{}", JSON)).build();
+    }
+
+    private static Request get() {
+        return new Request.Builder().url("http://provider.test/v1/transcript/abc123def").get().build();
+    }
+
+    // Stands in for the network: answers from a script without opening a connection
+    private static final class Provider implements Interceptor {
+
+        private final Deque<Object> script = new ArrayDeque<>();
+        private final AtomicInteger calls = new AtomicInteger();
+
+        Provider respond(int code) {
+            return respond(code, null);
+        }
+
+        Provider respond(int code, String retryAfter) {
+            script.add(new int[]{code, retryAfter != null ? Integer.parseInt(retryAfter) : -1});
+            return this;
+        }
+
+        Provider fail(IOException e) {
+            script.add(e);
+            return this;
+        }
+
+        @Override
+        public Response intercept(Chain chain) throws IOException {
+            calls.incrementAndGet();
+            Object next = script.poll();
+            if (next instanceof IOException e) {
+                throw e;
+            }
+            int[] status = (int[]) next;
+            Response.Builder response = new Response.Builder()
+                    .request(chain.request())
+                    .protocol(Protocol.HTTP_1_1)
+                    .code(status[0])
+                    .message("status " + status[0])
+                    .body(ResponseBody.create("{}", JSON));
+            if (status[1] >= 0) {
+                response.header("Retry-After", String.valueOf(status[1]));
+            }
+            return response.build();
+        }
+    }
+}
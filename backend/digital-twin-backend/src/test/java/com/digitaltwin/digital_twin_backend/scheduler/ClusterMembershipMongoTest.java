@@ -0,0 +1,97 @@
+package com.digitaltwin.digital_twin_backend.scheduler;
+
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/**
+ * Several nodes, each with its own Mongo client, heartbeating into one real database
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ClusterMembershipMongoTest {
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private final List<MongoClient> clients = new ArrayList<>();
+    private final List<ClusterMembership> nodes = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ClusterMembership::leave);
+        clients.forEach(MongoClient::close);
+    }
+
+    @Test
+    void nodesDiscoverEachOtherAndSplitKeys() {
+        ClusterMembership a = start("node-a");
+        ClusterMembership b = start("node-b");
+
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThat(a.getMembers()).containsExactly("node-a", "node-b");
+            assertThat(b.getMembers()).containsExactly("node-a", "node-b");
+        });
+
+        for (int i = 0; i < 1_000; i++) {
+            String key = "patient-" + i;
+            assertThat(a.owns(key)).as(key).isNotEqualTo(b.owns(key));
+        }
+    }
+
+    @Test
+    void departedNodeHandsOverItsKeys() {
+        ClusterMembership a = start("node-a");
+        ClusterMembership b = start("node-b");
+        await().atMost(Duration.ofSeconds(5)).until(() -> a.getMembers().size() == 2);
+
+        b.leave();
+        nodes.remove(b);
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> a.getMembers().equals(List.of("node-a")));
+        for (int i = 0; i < 1_000; i++) {
+            assertThat(a.owns("patient-" + i)).isTrue();
+        }
+    }
+
+    @Test
+    void silentNodeExpiresAfterTtl() {
+        ClusterMembership a = start("node-a");
+        ClusterMembership b = start("node-b");
+        await().atMost(Duration.ofSeconds(5)).until(() -> a.getMembers().size() == 2);
+
+        // Stop b's heartbeat without deregistering, as if the process died
+        ((ExecutorService) ReflectionTestUtils.getField(b, "heartbeater")).shutdownNow();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> a.getMembers().equals(List.of("node-a")));
+    }
+
+    private ClusterMembership start(String nodeId) {
+        MongoClient client = MongoClients.create(MONGO.getReplicaSetUrl());
+        clients.add(client);
+        ClusterMembership node = new ClusterMembership(new MongoTemplate(client, "cluster_test"),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "configuredNodeId", nodeId);
+        ReflectionTestUtils.setField(node, "nodeTtlMs", 1_000L);
+        ReflectionTestUtils.setField(node, "heartbeatMs", 200L);
+        ReflectionTestUtils.setField(node, "startupWaitMs", 5_000L);
+        node.init();
+        nodes.add(node);
+        return node;
+    }
+}
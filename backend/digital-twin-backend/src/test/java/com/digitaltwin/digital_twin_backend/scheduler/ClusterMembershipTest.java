@@ -0,0 +1,148 @@
+package com.digitaltwin.digital_twin_backend.scheduler;
+
+import com.digitaltwin.digital_twin_backend.model.SchedulerNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ClusterMembershipTest {
+
+    private static final int KEYS = 10_000;
+
+    @Test
+    void standaloneNodeOwnsEverything() {
+        ClusterMembership node = node("a", false, List.of("a", "b"));
+
+        assertThat(node.owns("patient-1")).isTrue();
+        assertThat(node.getMembers()).containsExactly("a");
+    }
+
+    @Test
+    void everyKeyHasExactlyOneOwner() {
+        List<String> ids = List.of("a", "b", "c");
+        List<ClusterMembership> nodes = ids.stream().map(id -> node(id, true, ids)).toList();
+
+        Map<String, Integer> share = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            String key = "patient-" + i;
+            List<String> owners = nodes.stream().filter(n -> n.owns(key)).map(ClusterMembership::getNodeId).toList();
+            assertThat(owners).as(key).hasSize(1);
+            share.merge(owners.get(0), 1, Integer::sum);
+        }
+
+        // Roughly a third each
+        assertThat(share.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS / 3 - 500, KEYS / 3 + 500));
+    }
+
+    @Test
+    void onlyTheDeadNodesKeysMove() {
+        ClusterMembership before = node("a", true, List.of("a", "b", "c"));
+        ClusterMembership after = node("a", true, List.of("a", "b"));
+        ClusterMembership c = node("c", true, List.of("a", "b", "c"));
+
+        for (int i = 0; i < KEYS; i++) {
+            String key = "patient-" + i;
+            if (before.owns(key)) {
+                assertThat(after.owns(key)).as(key).isTrue();
+            } else if (!c.owns(key)) {
+                // Owned by b before, still b's
+                assertThat(after.owns(key)).as(key).isFalse();
+            }
+        }
+    }
+
+    @Test
+    void membershipChangeBumpsVersion() {
+        List<String> live = new ArrayList<>(List.of("a"));
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        when(mongo.find(any(Query.class), eq(SchedulerNode.class)))
+                .thenAnswer(inv -> live.stream().map(ClusterMembershipTest::record).toList());
+        ClusterMembership node = node("a", true, mongo);
+        long version = node.getVersion();
+
+        live.add("b");
+        node.heartbeat();
+        assertThat(node.getVersion()).isEqualTo(version + 1);
+        assertThat(node.getMembers()).containsExactly("a", "b");
+
+        node.heartbeat();
+        assertThat(node.getVersion()).isEqualTo(version + 1);
+        node.leave();
+    }
+
+    @Test
+    void failedHeartbeatKeepsLastMembership() {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        when(mongo.find(any(Query.class), eq(SchedulerNode.class)))
+                .thenReturn(List.of(record("a"), record("b")))
+                .thenThrow(new IllegalStateException("mongo down"));
+        ClusterMembership node = node("a", true, mongo);
+
+        node.heartbeat();
+
+        assertThat(node.getMembers()).containsExactly("a", "b");
+        node.leave();
+    }
+
+    @Test
+    void unreachableMongoDoesNotHoldUpStartup() {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        when(mongo.upsert(any(Query.class), any(Update.class), eq(SchedulerNode.class))).thenAnswer(inv -> {
+            // Stands in for the driver's 30 s server selection timeout
+            Thread.sleep(10_000);
+            return null;
+        });
+        ClusterMembership node = new ClusterMembership(mongo, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(node, "enabled", true);
+        ReflectionTestUtils.setField(node, "configuredNodeId", "a");
+        ReflectionTestUtils.setField(node, "nodeTtlMs", 15_000L);
+        ReflectionTestUtils.setField(node, "heartbeatMs", 60_000L);
+        ReflectionTestUtils.setField(node, "startupWaitMs", 200L);
+
+        long start = System.currentTimeMillis();
+        node.init();
+
+        assertThat(System.currentTimeMillis() - start).isLessThan(2_000);
+        assertThat(node.owns("patient-1")).isTrue();
+        node.leave();
+    }
+
+    private static ClusterMembership node(String id, boolean enabled, List<String> live) {
+        MongoTemplate mongo = mock(MongoTemplate.class);
+        when(mongo.find(any(Query.class), eq(SchedulerNode.class)))
+                .thenReturn(live.stream().map(ClusterMembershipTest::record).toList());
+        ClusterMembership node = node(id, enabled, mongo);
+        node.leave();
+        return node;
+    }
+
+    private static ClusterMembership node(String id, boolean enabled, MongoTemplate mongo) {
+        ClusterMembership node = new ClusterMembership(mongo, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(node, "enabled", enabled);
+        ReflectionTestUtils.setField(node, "configuredNodeId", id);
+        ReflectionTestUtils.setField(node, "nodeTtlMs", 15_000L);
+        ReflectionTestUtils.setField(node, "heartbeatMs", 60_000L);
+        ReflectionTestUtils.setField(node, "startupWaitMs", 2_000L);
+        node.init();
+        return node;
+    }
+
+    private static SchedulerNode record(String id) {
+        return new SchedulerNode(id, "host", LocalDateTime.now(), LocalDateTime.now());
+    }
+}
@@ -0,0 +1,200 @@
+package com.digitaltwin.digital_twin_backend.scheduler;
+
+import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.scheduler.RoutineDueQueue.Due;
+import com.digitaltwin.digital_twin_backend.scheduler.RoutineDueQueue.Kind;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class RoutineDueQueueTest {
+
+    // A Wednesday
+    private static final LocalDate DAY = LocalDate.of(2026, 10, 14);
+
+    private SimpleMeterRegistry registry;
+    private RoutineDueQueue queue;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        queue = new RoutineDueQueue(registry);
+        queue.init();
+    }
+
+    @Test
+    void reminderThenMissedCheckBecomeDueInOrder() {
+        queue.schedule(routine("r1", "09:00"), at("08:00"));
+
+        assertThat(queue.pollDue(at("08:44"))).isEmpty();
+
+        List<Due> reminder = queue.pollDue(at("08:45"));
+        assertThat(reminder).singleElement().satisfies(due -> {
+            assertThat(due.kind()).isEqualTo(Kind.REMINDER);
+            assertThat(due.scheduledDateTime()).isEqualTo(at("09:00"));
+        });
+        // Polled entries are gone
+        assertThat(queue.pollDue(at("08:50"))).isEmpty();
+
+        assertThat(queue.pollDue(at("09:02"))).isEmpty();
+        assertThat(queue.pollDue(at("09:03"))).singleElement().satisfies(due -> {
+            assertThat(due.kind()).isEqualTo(Kind.MISSED_CHECK);
+            assertThat(due.scheduledDateTime()).isEqualTo(at("09:00"));
+            assertThat(due.dueAt()).isEqualTo(at("09:03"));
+        });
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void pollReturnsEarliestFirstAcrossRoutines() {
+        queue.schedule(routine("late", "11:00"), at("08:00"));
+        queue.schedule(routine("early", "09:00"), at("08:00"));
+
+        List<Due> due = queue.pollDue(at("12:00"));
+
+        assertThat(due).extracting(Due::dueAt).isSorted();
+        assertThat(due).extracting(Due::routineId).containsExactly("early", "early", "late", "late");
+    }
+
+    @Test
+    void reschedulingReplacesTheOldEntries() {
+        Routine routine = routine("r1", "09:00");
+        queue.schedule(routine, at("08:00"));
+
+        routine.setScheduledTime(LocalTime.of(10, 0));
+        queue.schedule(routine, at("08:00"));
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.pollDue(at("09:30"))).isEmpty();
+        assertThat(queue.pollDue(at("09:45"))).singleElement()
+                .extracting(Due::scheduledDateTime).isEqualTo(at("10:00"));
+    }
+
+    @Test
+    void inactiveOrRemovedRoutinesAreNeverDue() {
+        Routine inactive = routine("inactive", "09:00");
+        inactive.setActive(false);
+        Routine noReminder = routine("no-reminder", "09:00");
+        noReminder.setReminderEnabled(false);
+        Routine removed = routine("removed", "09:00");
+
+        queue.schedule(inactive, at("08:00"));
+        queue.schedule(noReminder, at("08:00"));
+        queue.schedule(removed, at("08:00"));
+        queue.remove("removed");
+
+        assertThat(queue.size()).isZero();
+        assertThat(queue.pollDue(DAY.plusDays(9).atStartOfDay())).isEmpty();
+    }
+
+    @Test
+    void deactivatingAScheduledRoutineDropsIt() {
+        Routine routine = routine("r1", "09:00");
+        queue.schedule(routine, at("08:00"));
+
+        routine.setActive(false);
+        queue.schedule(routine, at("08:00"));
+
+        assertThat(queue.pollDue(at("12:00"))).isEmpty();
+    }
+
+    @Test
+    void weeklyRoutineWaitsForItsDay() {
+        Routine routine = routine("r1", "09:00");
+        routine.setDaysOfWeek(List.of("monday"));
+        queue.schedule(routine, at("08:00"));
+
+        LocalDate monday = DAY.plusDays(DayOfWeek.MONDAY.getValue() + 7 - DAY.getDayOfWeek().getValue());
+        assertThat(queue.pollDue(monday.atTime(8, 44))).isEmpty();
+        assertThat(queue.pollDue(monday.atTime(9, 3)))
+                .extracting(Due::kind, Due::scheduledDateTime)
+                .containsExactly(
+                        tuple(Kind.REMINDER, monday.atTime(9, 0)),
+                        tuple(Kind.MISSED_CHECK, monday.atTime(9, 0)));
+    }
+
+    @Test
+    void lateEveningRoutineIsStillCheckedAfterMidnight() {
+        // Scheduled at startup just after midnight: yesterday's 23:59 grace period ends at 00:02
+        queue.schedule(routine("r1", "23:59"), DAY.plusDays(1).atTime(0, 1));
+
+        assertThat(queue.pollDue(DAY.plusDays(1).atTime(0, 2))).singleElement().satisfies(due -> {
+            assertThat(due.kind()).isEqualTo(Kind.MISSED_CHECK);
+            assertThat(due.scheduledDateTime()).isEqualTo(at("23:59"));
+        });
+    }
+
+    @Test
+    void advanceMovesOnlyThatCheckToTheNextOccurrence() {
+        Routine routine = routine("r1", "09:00");
+        queue.schedule(routine, at("08:00"));
+        Due reminder = queue.pollDue(at("08:45")).get(0);
+
+        queue.advance(routine, Kind.REMINDER, reminder.scheduledDateTime(), at("08:45"));
+
+        // Today's missed check is untouched; tomorrow's reminder is queued
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.pollDue(at("09:03"))).extracting(Due::kind).containsExactly(Kind.MISSED_CHECK);
+        assertThat(queue.pollDue(DAY.plusDays(1).atTime(8, 45))).singleElement().satisfies(due -> {
+            assertThat(due.kind()).isEqualTo(Kind.REMINDER);
+            assertThat(due.scheduledDateTime()).isEqualTo(DAY.plusDays(1).atTime(9, 0));
+        });
+    }
+
+    @Test
+    void lateReminderAdvanceSkipsOccurrencesAlreadyStarted() {
+        Routine routine = routine("r1", "09:00");
+
+        // The tick ran late: handling today's reminder after the routine already started
+        queue.advance(routine, Kind.REMINDER, at("09:00"), DAY.plusDays(1).atTime(9, 30));
+
+        assertThat(queue.pollDue(DAY.plusDays(2).atTime(8, 45))).singleElement()
+                .extracting(Due::scheduledDateTime).isEqualTo(DAY.plusDays(2).atTime(9, 0));
+    }
+
+    @Test
+    void supersededEntriesAreCompacted() {
+        Routine routine = routine("r1", "09:00");
+        for (int i = 0; i < 10_000; i++) {
+            queue.schedule(routine, at("08:00"));
+        }
+
+        PriorityQueue<?> entries = (PriorityQueue<?>) ReflectionTestUtils.getField(queue, "queue");
+        assertThat(entries).hasSizeLessThanOrEqualTo(8 * 64 + 2);
+        assertThat(queue.size()).isEqualTo(2);
+    }
+
+    @Test
+    void sizeGaugeTracksLiveEntries() {
+        queue.schedule(routine("r1", "09:00"), at("08:00"));
+        queue.schedule(routine("r2", "10:00"), at("08:00"));
+
+        assertThat(registry.get("routines.due.queue.size").gauge().value()).isEqualTo(4.0);
+
+        queue.clear();
+        assertThat(registry.get("routines.due.queue.size").gauge().value()).isZero();
+    }
+
+    private static Routine routine(String id, String time) {
+        Routine routine = new Routine();
+        routine.setId(id);
+        routine.setActivityName(id);
+        routine.setScheduledTime(LocalTime.parse(time));
+        return routine;
+    }
+
+    private static LocalDateTime at(String time) {
+        return DAY.atTime(LocalTime.parse(time));
+    }
+}
@@ -0,0 +1,156 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BatchSummarizationServiceTest {
+
+    private final FileUploadService fileUploadService = mock(FileUploadService.class);
+    private final FileProcessingService fileProcessingService = mock(FileProcessingService.class);
+    private final NoteService noteService = mock(NoteService.class);
+    private BatchSummarizationService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new BatchSummarizationService(fileUploadService, fileProcessingService, noteService,
+                new StageExecutorFactory(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "extractConcurrency", 4);
+        ReflectionTestUtils.setField(service, "transcribeConcurrency", 4);
+        ReflectionTestUtils.setField(service, "summarizeConcurrency", 4);
+        ReflectionTestUtils.setField(service, "maxFiles", 5);
+        ReflectionTestUtils.setField(service, "perUserConcurrency", 2);
+        service.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void timedOutFileIsNotSaved() throws Exception {
+        FileUpload file = pdf("f1");
+        when(fileUploadService.getFileById("f1")).thenReturn(file);
+        when(fileProcessingService.extractText(file)).thenReturn("text");
+        CountDownLatch release = new CountDownLatch(1);
+        when(fileProcessingService.summarize(eq(file), anyString(), anyString(), anyBoolean())).thenAnswer(inv -> {
+            release.await();
+            return "summary";
+        });
+
+        List<BatchSummarizationService.FileResult> results = service
+                .summarize("u1", List.of("f1"), "standard", true, Duration.ofMillis(200), r -> { })
+                .get(5, TimeUnit.SECONDS);
+        release.countDown();
+
+        assertThat(results).singleElement().satisfies(r -> {
+            assertThat(r.success()).isFalse();
+            assertThat(r.error()).isEqualTo("Batch deadline exceeded");
+        });
+        verify(fileUploadService, after(500).never()).markAsProcessed(anyString(), anyString(), anyString());
+        verify(noteService, never()).createSummaryNote(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void userRunsAtMostPerUserConcurrencyFiles() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        for (String id : List.of("a", "b", "c", "d", "e")) {
+            FileUpload file = pdf(id);
+            when(fileUploadService.getFileById(id)).thenReturn(file);
+            when(fileProcessingService.extractText(file)).thenAnswer(inv -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(50);
+                return "text";
+            });
+            when(fileProcessingService.summarize(eq(file), anyString(), anyString(), anyBoolean())).thenAnswer(inv -> {
+                running.decrementAndGet();
+                return "summary " + id;
+            });
+        }
+
+        List<BatchSummarizationService.FileResult> results = service
+                .summarize("u1", List.of("a", "b", "c", "d", "e"), "standard", false, Duration.ofSeconds(10), r -> { })
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(results).allMatch(BatchSummarizationService.FileResult::success);
+        assertThat(peak.get()).isLessThanOrEqualTo(2);
+    }
+
+    @Test
+    void loneUserFillsEveryExtractSlot() throws Exception {
+        // Sum of the stage limits, as app.batch.per-user-concurrency defaults to
+        ReflectionTestUtils.setField(service, "perUserConcurrency", 12);
+        CountDownLatch allExtracting = new CountDownLatch(4);
+        for (String id : List.of("a", "b", "c", "d", "e")) {
+            FileUpload file = pdf(id);
+            when(fileUploadService.getFileById(id)).thenReturn(file);
+            when(fileProcessingService.extractText(file)).thenAnswer(inv -> {
+                allExtracting.countDown();
+                // Only returns once four files are extracting side by side
+                return allExtracting.await(5, TimeUnit.SECONDS) ? "text" : null;
+            });
+            when(fileProcessingService.summarize(eq(file), anyString(), anyString(), anyBoolean())).thenReturn("s");
+        }
+
+        List<BatchSummarizationService.FileResult> results = service
+                .summarize("u1", List.of("a", "b", "c", "d", "e"), "standard", false, Duration.ofSeconds(10), r -> { })
+                .get(10, TimeUnit.SECONDS);
+
+        assertThat(allExtracting.getCount()).isZero();
+        assertThat(results).allMatch(BatchSummarizationService.FileResult::success);
+    }
+
+    @Test
+    void secondBatchOverLimitIsRefused() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        for (String id : List.of("a", "b", "c")) {
+            FileUpload file = pdf(id);
+            when(fileUploadService.getFileById(id)).thenReturn(file);
+            when(fileProcessingService.extractText(file)).thenAnswer(inv -> {
+                release.await();
+                return "text";
+            });
+            when(fileProcessingService.summarize(eq(file), anyString(), anyString(), anyBoolean())).thenReturn("s");
+        }
+
+        var first = service.summarize("u1", List.of("a", "b", "c"), "standard", false, Duration.ofSeconds(10), r -> { });
+        assertThatThrownBy(() -> service.summarize("u1", List.of("a", "b", "c"), "standard", false,
+                Duration.ofSeconds(10), r -> { }))
+                .isInstanceOf(IllegalStateException.class);
+
+        release.countDown();
+        assertThat(first.get(10, TimeUnit.SECONDS)).allMatch(BatchSummarizationService.FileResult::success);
+    }
+
+    private static FileUpload pdf(String id) {
+        FileUpload file = new FileUpload();
+        file.setId(id);
+        file.setUserId("u1");
+        file.setOriginalFileName(id + ".pdf");
+        file.setCategory(FileUpload.FileCategory.PDF);
+        return file;
+    }
+}
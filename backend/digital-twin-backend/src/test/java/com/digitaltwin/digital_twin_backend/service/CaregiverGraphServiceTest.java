@@ -0,0 +1,155 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.User;
+import com.digitaltwin.digital_twin_backend.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CaregiverGraphServiceTest {
+
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private CaregiverGraphService service;
+    private User patient;
+
+    @BeforeEach
+    void setUp() {
+        service = service(60);
+        patient = user("patient-1", "c2", "c1", "c2", "gone");
+        when(userRepository.findById("patient-1")).thenReturn(Optional.of(patient));
+        when(userRepository.findCaregiversByIds(anyList())).thenReturn(List.of(user("c1"), user("c2")));
+    }
+
+    @Test
+    void caregiversAreLoadedInOneQueryInLinkOrder() {
+        CaregiverGraphService.CareCircle circle = service.getCareCircle("patient-1").orElseThrow();
+
+        // Duplicate links collapse and a deleted caregiver is dropped
+        assertThat(circle.caregivers()).extracting(User::getId).containsExactly("c2", "c1");
+        verify(userRepository, times(1)).findCaregiversByIds(List.of("c2", "c1", "c2", "gone"));
+        verify(userRepository, never()).findById("c1");
+        verify(userRepository, never()).findById("c2");
+    }
+
+    @Test
+    void secondLookupIsServedFromCache() {
+        service.getCareCircle("patient-1");
+        service.getCareCircle("patient-1");
+        service.getCareCircle(patient);
+
+        verify(userRepository, times(1)).findById("patient-1");
+        verify(userRepository, times(1)).findCaregiversByIds(anyList());
+        assertThat(registry.get("caregiver.graph.requests").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(registry.get("caregiver.graph.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(registry.get("caregiver.graph.size").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void patientWithoutCaregiversNeedsNoCaregiverQuery() {
+        User alone = user("patient-2");
+
+        CaregiverGraphService.CareCircle circle = service.getCareCircle(alone);
+
+        assertThat(circle.caregivers()).isEmpty();
+        assertThat(circle.emergencyContacts()).isEmpty();
+        verify(userRepository, never()).findCaregiversByIds(anyList());
+    }
+
+    @Test
+    void unknownPatientHasNoCircle() {
+        when(userRepository.findById("missing")).thenReturn(Optional.empty());
+
+        assertThat(service.getCareCircle("missing")).isEmpty();
+        assertThat(service.getCareCircle((String) null)).isEmpty();
+        assertThat(service.size()).isZero();
+    }
+
+    @Test
+    void invalidatingAnyMemberDropsTheCircle() {
+        service.getCareCircle("patient-1");
+        service.invalidate("someone-else");
+        assertThat(service.size()).isEqualTo(1);
+
+        // A caregiver changing their phone number affects the patient's circle too
+        service.invalidate("c1");
+        assertThat(service.size()).isZero();
+
+        service.getCareCircle("patient-1");
+        service.invalidate("patient-1");
+        assertThat(service.size()).isZero();
+        verify(userRepository, times(2)).findCaregiversByIds(anyList());
+    }
+
+    @Test
+    void expiredCircleIsReloaded() {
+        CaregiverGraphService expiring = service(-1);
+
+        expiring.getCareCircle("patient-1");
+        expiring.getCareCircle("patient-1");
+
+        verify(userRepository, times(2)).findCaregiversByIds(anyList());
+    }
+
+    @Test
+    void loadThatRacedAnInvalidationIsNotCached() {
+        // The caregiver edits their profile while the circle is being loaded
+        when(userRepository.findCaregiversByIds(anyList())).thenAnswer(inv -> {
+            service.invalidate("c1");
+            return List.of(user("c1"), user("c2"));
+        });
+
+        CaregiverGraphService.CareCircle circle = service.getCareCircle("patient-1").orElseThrow();
+
+        assertThat(circle.caregivers()).hasSize(2);
+        assertThat(service.size()).isZero();
+    }
+
+    @Test
+    void oldestCircleIsEvictedPastMaxEntries() {
+        ReflectionTestUtils.setField(service, "maxEntries", 2);
+        service.init();
+        when(userRepository.findById(any())).thenAnswer(inv -> Optional.of(user(inv.getArgument(0))));
+
+        service.getCareCircle("p1");
+        service.getCareCircle("p2");
+        service.getCareCircle("p1");
+        service.getCareCircle("p3");
+
+        assertThat(service.size()).isEqualTo(2);
+        service.getCareCircle("p2");
+        verify(userRepository, times(2)).findById("p2");
+        verify(userRepository, times(1)).findById("p1");
+    }
+
+    private CaregiverGraphService service(long ttlSeconds) {
+        CaregiverGraphService graph = new CaregiverGraphService(userRepository, registry);
+        ReflectionTestUtils.setField(graph, "ttlSeconds", ttlSeconds);
+        ReflectionTestUtils.setField(graph, "maxEntries", 100);
+        graph.init();
+        return graph;
+    }
+
+    private static User user(String id, String... caregiverIds) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(id);
+        user.setCaregiverIds(new ArrayList<>(List.of(caregiverIds)));
+        return user;
+    }
+}
@@ -0,0 +1,179 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.dto.Intent;
+import com.digitaltwin.digital_twin_backend.model.Note;
+import com.digitaltwin.digital_twin_backend.model.Routine;
+import com.digitaltwin.digital_twin_backend.model.VoiceInteraction;
+import com.digitaltwin.digital_twin_backend.repository.NoteRepository;
+import com.digitaltwin.digital_twin_backend.repository.RoutineRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContextRetrievalServiceTest {
+
+    private static final String USER = "patient-1";
+    private static final long DEADLINE_MS = 300;
+
+    private final NoteRepository noteRepository = mock(NoteRepository.class);
+    private final RoutineRepository routineRepository = mock(RoutineRepository.class);
+    private final NoteIndex noteIndex = mock(NoteIndex.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private ContextRetrievalService service;
+
+    @BeforeEach
+    void setUp() {
+        StageExecutorFactory factory = new StageExecutorFactory(registry);
+        ReflectionTestUtils.setField(factory, "mode", "virtual");
+
+        service = new ContextRetrievalService(noteRepository, routineRepository, noteIndex, factory, registry);
+        ReflectionTestUtils.setField(service, "deadlineMs", DEADLINE_MS);
+        ReflectionTestUtils.setField(service, "concurrency", 8);
+        service.init();
+
+        when(noteIndex.isEnabled()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.destroy();
+    }
+
+    @Test
+    void strategiesRunConcurrently() {
+        when(routineRepository.findByUserIdAndCategory(USER, Routine.ActivityCategory.MEDICATION))
+                .thenAnswer(inv -> after(200, List.of(medication("m1", "Metformin"))));
+        when(noteIndex.search(eq(USER), any(), anyInt()))
+                .thenAnswer(inv -> after(200, List.of(note("n1", "Doctor said take it after food"))));
+
+        long start = System.nanoTime();
+        ContextRetrievalService.Result result = service.retrieve(USER, "metformin dose", intent("MEDICATION_QUERY"));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        // Run one after the other they would need 400 ms, beyond the deadline
+        assertThat(elapsedMs).isLessThan(DEADLINE_MS);
+        assertThat(result.skippedStrategies()).isEmpty();
+        assertThat(result.context())
+                .contains("Current medications:", "Metformin at 08:00")
+                .contains("Related information:", "Doctor said take it after food");
+        // Merge order is fixed regardless of which strategy finished first
+        assertThat(result.context().indexOf("Current medications:"))
+                .isLessThan(result.context().indexOf("Related information:"));
+    }
+
+    @Test
+    void lateStrategyIsSkippedAndTheRestAreUsed() {
+        when(routineRepository.findByUserIdAndCategory(USER, Routine.ActivityCategory.MEDICATION))
+                .thenAnswer(inv -> after(1_000, List.of(medication("m1", "Metformin"))));
+        when(noteIndex.search(eq(USER), any(), anyInt()))
+                .thenReturn(List.of(note("n1", "Doctor said take it after food")));
+
+        long start = System.nanoTime();
+        ContextRetrievalService.Result result = service.retrieve(USER, "metformin dose", intent("MEDICATION_QUERY"));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertThat(elapsedMs).isBetween(DEADLINE_MS, 900L);
+        assertThat(result.skippedStrategies()).containsExactly("MEDICATION");
+        assertThat(result.context()).contains("Doctor said take it after food").doesNotContain("Metformin");
+        assertThat(registry.get("context.retrieval.skipped").tag("strategy", "MEDICATION").counter().count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void failedStrategyIsReportedAndTheRestAreUsed() {
+        when(routineRepository.findByUserIdAndActiveTrue(USER)).thenThrow(new IllegalStateException("mongo down"));
+        when(noteIndex.search(eq(USER), any(), anyInt()))
+                .thenReturn(List.of(note("n1", "Walk in the park after lunch")));
+
+        ContextRetrievalService.Result result = service.retrieve(USER, "walk today", intent("ROUTINE_QUERY"));
+
+        assertThat(result.sources())
+                .extracting(VoiceInteraction.ContextSource::getStrategy, VoiceInteraction.ContextSource::getStatus)
+                .containsExactly(
+                        tuple("ROUTINE", VoiceInteraction.ContextSource.FAILED),
+                        tuple("KEYWORD", VoiceInteraction.ContextSource.RETRIEVED));
+        assertThat(result.context()).contains("Walk in the park after lunch");
+    }
+
+    @Test
+    void noteFoundByTwoStrategiesIsUsedOnce() {
+        Note shared = note("n1", "Dr. Sharma appointment at 11");
+        when(noteRepository.findByUserIdAndCreatedAtBetween(eq(USER), any(), any())).thenReturn(List.of(shared));
+        when(noteIndex.search(eq(USER), any(), anyInt())).thenReturn(List.of(shared, note("n2", "Bring reports")));
+
+        Intent intent = intent("GENERAL_QUERY");
+        intent.setTimeReference(Intent.TimeReference.YESTERDAY);
+        ContextRetrievalService.Result result = service.retrieve(USER, "sharma appointment", intent);
+
+        assertThat(result.sources()).extracting(VoiceInteraction.ContextSource::getSourceId)
+                .containsExactly("n1", "n2");
+        assertThat(result.sources()).extracting(VoiceInteraction.ContextSource::getStrategy)
+                .containsExactly("TIME", "KEYWORD");
+        assertThat(result.context().split("Dr. Sharma appointment at 11", -1)).hasSize(2);
+    }
+
+    @Test
+    void nothingFoundGivesNoContext() {
+        when(noteIndex.search(eq(USER), any(), anyInt())).thenReturn(List.of());
+
+        ContextRetrievalService.Result result = service.retrieve(USER, "hello there", intent("GREETING"));
+
+        assertThat(result.context()).isNull();
+        assertThat(result.sources()).isEmpty();
+    }
+
+    @Test
+    void todayScheduleDropsASourceThatMissesTheDeadline() {
+        when(noteRepository.findByUserIdAndTypeAndDateRange(eq(USER), eq(Note.NoteType.REMINDER), any(), any()))
+                .thenReturn(List.of(note("r1", "Call Priya")));
+        when(routineRepository.findByUserIdAndActiveTrue(USER))
+                .thenAnswer(inv -> after(1_000, List.of(medication("m1", "Metformin"))));
+
+        ContextRetrievalService.TodaySchedule schedule = service.getTodaySchedule(USER);
+
+        assertThat(schedule.reminders()).extracting(Note::getId).containsExactly("r1");
+        assertThat(schedule.routines()).isEmpty();
+    }
+
+    private static <T> T after(long millis, T value) throws InterruptedException {
+        Thread.sleep(millis);
+        return value;
+    }
+
+    private static Intent intent(String type) {
+        return Intent.builder().type(type).timeReference(Intent.TimeReference.NO_REFERENCE).build();
+    }
+
+    private static Note note(String id, String content) {
+        Note note = new Note();
+        note.setId(id);
+        note.setUserId(USER);
+        note.setTitle(id);
+        note.setContent(content);
+        return note;
+    }
+
+    private static Routine medication(String id, String name) {
+        Routine routine = new Routine();
+        routine.setId(id);
+        routine.setUserId(USER);
+        routine.setActivityName(name);
+        routine.setCategory(Routine.ActivityCategory.MEDICATION);
+        routine.setScheduledTime(LocalTime.of(8, 0));
+        return routine;
+    }
+}
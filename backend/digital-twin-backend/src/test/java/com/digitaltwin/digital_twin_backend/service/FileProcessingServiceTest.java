@@ -0,0 +1,149 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.DerivedArtifact;
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.repository.DerivedArtifactRepository;
+import com.mongodb.client.gridfs.model.GridFSFile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.gridfs.GridFsResource;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class FileProcessingServiceTest {
+
+    private static final String HASH = "ab12";
+
+    private final FileUploadService fileUploadService = mock(FileUploadService.class);
+    private final SummarizationService summarizationService = mock(SummarizationService.class);
+    private final DerivedArtifactRepository artifacts = mock(DerivedArtifactRepository.class);
+    private final GridFsTemplate gridFsTemplate = mock(GridFsTemplate.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    // Stands in for the derived_artifacts collection
+    private final Map<String, DerivedArtifact> stored = new HashMap<>();
+
+    private FileProcessingService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        service = new FileProcessingService(fileUploadService, summarizationService, artifacts, gridFsTemplate, registry);
+
+        when(artifacts.findById(anyString())).thenAnswer(inv -> Optional.ofNullable(stored.get(inv.<String>getArgument(0))));
+        when(artifacts.save(any(DerivedArtifact.class))).thenAnswer(inv -> {
+            DerivedArtifact artifact = inv.getArgument(0);
+            stored.put(artifact.getId(), artifact);
+            return artifact;
+        });
+
+        GridFSFile gridFsFile = mock(GridFSFile.class);
+        GridFsResource resource = mock(GridFsResource.class);
+        when(fileUploadService.downloadFile(anyString())).thenReturn(gridFsFile);
+        when(gridFsTemplate.getResource(gridFsFile)).thenReturn(resource);
+        when(resource.getInputStream()).thenAnswer(inv -> new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+        when(summarizationService.extractTextFromPDF(any(InputStream.class))).thenReturn("pdf text");
+        when(summarizationService.transcribeAudio(any(InputStream.class), anyString())).thenReturn("spoken text");
+        when(summarizationService.summarizeText(anyString())).thenReturn("standard summary");
+        when(summarizationService.summarizeForDementiaPatient(anyString())).thenReturn("simple summary");
+    }
+
+    @Test
+    void sameContentUploadedAgainIsAnsweredFromCache() throws Exception {
+        FileProcessingService.Result first = service.process(file("f1", FileUpload.FileCategory.PDF, HASH), "standard");
+        // A different upload (and owner) of the same bytes
+        FileProcessingService.Result second = service.process(file("f2", FileUpload.FileCategory.PDF, HASH), "standard");
+
+        assertThat(second).isEqualTo(first);
+        assertThat(first).isEqualTo(new FileProcessingService.Result("pdf text", "standard summary"));
+        verify(summarizationService, times(1)).extractTextFromPDF(any(InputStream.class));
+        verify(summarizationService, times(1)).summarizeText("pdf text");
+        assertThat(stored).containsOnlyKeys(HASH + ":pdf-text", HASH + ":summary:standard");
+        assertThat(count("pdf-text", "hit")).isEqualTo(1);
+        assertThat(count("pdf-text", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void transcriptionIsSharedButSummariesArePerMode() throws Exception {
+        FileUpload audio = file("f1", FileUpload.FileCategory.AUDIO, HASH);
+
+        FileProcessingService.Result standard = service.process(audio, "standard");
+        FileProcessingService.Result dementia = service.process(audio, "DEMENTIA");
+
+        assertThat(standard.summary()).isEqualTo("standard summary");
+        assertThat(dementia.summary()).isEqualTo("simple summary");
+        verify(summarizationService, times(1)).transcribeAudio(any(InputStream.class), anyString());
+        assertThat(stored).containsOnlyKeys(HASH + ":transcription", HASH + ":summary:standard",
+                HASH + ":summary:dementia");
+    }
+
+    @Test
+    void refreshReplacesTheCachedSummary() throws Exception {
+        FileUpload pdf = file("f1", FileUpload.FileCategory.PDF, HASH);
+        service.process(pdf, "standard");
+        when(summarizationService.summarizeText("pdf text")).thenReturn("better summary");
+
+        assertThat(service.summarize(pdf, "pdf text", "standard", true)).isEqualTo("better summary");
+        assertThat(service.summarize(pdf, "pdf text", "standard", false)).isEqualTo("better summary");
+        verify(summarizationService, times(2)).summarizeText("pdf text");
+        assertThat(count("summary:standard", "refresh")).isEqualTo(1);
+    }
+
+    @Test
+    void fileWithoutContentHashIsNeverCached() throws Exception {
+        FileUpload legacy = file("old", FileUpload.FileCategory.PDF, null);
+
+        service.process(legacy, "standard");
+        service.process(legacy, "standard");
+
+        verify(summarizationService, times(2)).extractTextFromPDF(any(InputStream.class));
+        verify(artifacts, never()).findById(anyString());
+        verify(artifacts, never()).save(any());
+        assertThat(count("pdf-text", "uncached")).isEqualTo(2);
+    }
+
+    @Test
+    void failureToCacheStillReturnsTheResult() throws Exception {
+        when(artifacts.save(any(DerivedArtifact.class))).thenThrow(new IllegalStateException("mongo down"));
+
+        assertThat(service.process(file("f1", FileUpload.FileCategory.PDF, HASH), "standard").summary())
+                .isEqualTo("standard summary");
+    }
+
+    @Test
+    void otherFileTypesAreRejected() {
+        assertThatThrownBy(() -> service.extractText(file("img", FileUpload.FileCategory.IMAGE, HASH)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private double count(String kind, String result) {
+        return registry.get("files.artifacts.requests").tag("kind", kind).tag("result", result).counter().count();
+    }
+
+    private static FileUpload file(String id, FileUpload.FileCategory category, String hash) {
+        FileUpload file = new FileUpload();
+        file.setId(id);
+        file.setUserId("user-" + id);
+        file.setOriginalFileName(id + ".bin");
+        file.setCategory(category);
+        file.setGridFsFileId("grid-" + id);
+        file.setContentHash(hash);
+        return file;
+    }
+}
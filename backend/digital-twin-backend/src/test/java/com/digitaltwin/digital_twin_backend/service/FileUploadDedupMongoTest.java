@@ -0,0 +1,165 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.DerivedArtifact;
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.model.StoredBlob;
+import com.digitaltwin.digital_twin_backend.repository.DerivedArtifactRepository;
+import com.digitaltwin.digital_twin_backend.repository.FileUploadRepository;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.gridfs.GridFsTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.springframework.mock.web.MockMultipartFile;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reference counting of shared content against a real MongoDB and GridFS
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class FileUploadDedupMongoTest {
+
+    private static final byte[] REPORT = "%PDF-1.4\nblood test report\n%%EOF\n".getBytes(StandardCharsets.US_ASCII);
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static GridFsTemplate gridFsTemplate;
+    private static DerivedArtifactRepository artifacts;
+    private static FileUploadService service;
+
+    @BeforeAll
+    static void connect() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+        mongoTemplate = new MongoTemplate(client, "file_dedup");
+        gridFsTemplate = new GridFsTemplate(mongoTemplate.getMongoDatabaseFactory(), mongoTemplate.getConverter());
+        MongoRepositoryFactory repositories = new MongoRepositoryFactory(mongoTemplate);
+        artifacts = repositories.getRepository(DerivedArtifactRepository.class);
+        service = new FileUploadService(repositories.getRepository(FileUploadRepository.class),
+                gridFsTemplate, mongoTemplate, artifacts);
+    }
+
+    @AfterAll
+    static void close() {
+        client.close();
+    }
+
+    @BeforeEach
+    void clean() {
+        mongoTemplate.getDb().drop();
+    }
+
+    @Test
+    void identicalUploadsShareOneGridFsObject() throws Exception {
+        FileUpload first = upload("patient-1", REPORT);
+        FileUpload second = upload("patient-2", REPORT);
+
+        assertThat(second.getGridFsFileId()).isEqualTo(first.getGridFsFileId());
+        assertThat(second.getContentHash()).isEqualTo(first.getContentHash());
+        assertThat(gridFsObjects()).isEqualTo(1);
+        assertThat(blob(first).getRefCount()).isEqualTo(2);
+    }
+
+    @Test
+    void differentContentIsStoredSeparately() throws Exception {
+        FileUpload first = upload("patient-1", REPORT);
+        FileUpload second = upload("patient-1", "%PDF-1.4\nx-ray\n%%EOF\n".getBytes(StandardCharsets.US_ASCII));
+
+        assertThat(second.getGridFsFileId()).isNotEqualTo(first.getGridFsFileId());
+        assertThat(gridFsObjects()).isEqualTo(2);
+    }
+
+    @Test
+    void contentAndArtifactsGoWithTheLastReference() throws Exception {
+        FileUpload first = upload("patient-1", REPORT);
+        FileUpload second = upload("patient-2", REPORT);
+        FileUpload other = upload("patient-1", "%PDF-1.4\nx-ray\n%%EOF\n".getBytes(StandardCharsets.US_ASCII));
+        artifacts.save(new DerivedArtifact(DerivedArtifact.key(first.getContentHash(), "pdf-text"),
+                first.getContentHash(), "pdf-text", "blood test report", LocalDateTime.now()));
+        artifacts.save(new DerivedArtifact(DerivedArtifact.key(other.getContentHash(), "pdf-text"),
+                other.getContentHash(), "pdf-text", "x-ray", LocalDateTime.now()));
+
+        service.deleteFile(first.getId());
+
+        // The other owner can still download it
+        assertThat(service.downloadFile(second.getGridFsFileId())).isNotNull();
+        assertThat(blob(second).getRefCount()).isEqualTo(1);
+        assertThat(artifacts.count()).isEqualTo(2);
+
+        service.deleteFile(second.getId());
+
+        assertThat(service.downloadFile(second.getGridFsFileId())).isNull();
+        assertThat(mongoTemplate.findById(second.getContentHash(), StoredBlob.class)).isNull();
+        assertThat(artifacts.findAll()).extracting(DerivedArtifact::getContentHash)
+                .containsExactly(other.getContentHash());
+        assertThat(gridFsObjects()).isEqualTo(1);
+    }
+
+    @Test
+    void contentUploadedAgainAfterDeletionIsStoredAgain() throws Exception {
+        FileUpload first = upload("patient-1", REPORT);
+        service.deleteFile(first.getId());
+
+        FileUpload again = upload("patient-1", REPORT);
+
+        assertThat(service.downloadFile(again.getGridFsFileId())).isNotNull();
+        assertThat(blob(again).getRefCount()).isEqualTo(1);
+        assertThat(gridFsObjects()).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentIdenticalUploadsEndUpWithOneObject() throws Exception {
+        int uploads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(uploads);
+        try {
+            List<Future<FileUpload>> results = new ArrayList<>();
+            for (int i = 0; i < uploads; i++) {
+                String userId = "patient-" + i;
+                results.add(executor.submit(() -> upload(userId, REPORT)));
+            }
+
+            List<String> gridFsIds = new ArrayList<>();
+            for (Future<FileUpload> result : results) {
+                gridFsIds.add(result.get().getGridFsFileId());
+            }
+
+            assertThat(gridFsIds).containsOnly(gridFsIds.get(0));
+            assertThat(gridFsObjects()).isEqualTo(1);
+            assertThat(blob(results.get(0).get()).getRefCount()).isEqualTo(uploads);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static FileUpload upload(String userId, byte[] content) throws Exception {
+        return service.uploadFile(new MockMultipartFile("file", "report.pdf", "application/pdf", content),
+                userId, null);
+    }
+
+    private static StoredBlob blob(FileUpload file) {
+        return mongoTemplate.findById(file.getContentHash(), StoredBlob.class);
+    }
+
+    private static long gridFsObjects() {
+        return mongoTemplate.count(new Query(), "fs.files");
+    }
+}
@@ -0,0 +1,111 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Utterances per second through the scored classifier on the labelled corpus, next to
+ * what the detectors' per-phrase {@code contains} scans over the same phrase lists cost
+ * before they shared one {@link PhraseIndex} pass.
+ *
+ * Opt-in: {@code mvn test -Dtest=IntentClassifierBenchmarkTest -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class IntentClassifierBenchmarkTest {
+
+    private static final int WARMUP = 50_000;
+    private static final int ROUNDS = 10;
+    private static final int CALLS_PER_ROUND = 50_000;
+
+    private final PhraseIndex phraseIndex = new PhraseIndex();
+    private final IntentClassifier classifier = new IntentClassifier(phraseIndex);
+
+    @Test
+    void classifierThroughput() throws Exception {
+        List<String> corpus = loadCorpus();
+        List<List<String>> phraseLists = allPhraseLists();
+
+        double classifyPerSecond = medianPerSecond(corpus, text -> classifier.classify(text, "PATIENT").getType().length());
+        double matchPerSecond = medianPerSecond(corpus, text -> phraseIndex.match(text).all().size());
+        double scanPerSecond = medianPerSecond(corpus, text -> scanEveryPhrase(text, phraseLists));
+        System.out.printf("intent classification: classify %.0f/s, one-pass match %.0f/s, per-phrase scan %.0f/s "
+                + "(%d utterances, median of %d rounds)%n",
+                classifyPerSecond, matchPerSecond, scanPerSecond, corpus.size(), ROUNDS);
+
+        // Well under a millisecond per utterance, next to the STT and LLM calls around it
+        assertThat(classifyPerSecond).isGreaterThan(10_000);
+    }
+
+    private interface Work {
+        int run(String text);
+    }
+
+    private static double medianPerSecond(List<String> corpus, Work work) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += work.run(corpus.get(i % corpus.size()));
+        }
+
+        double[] rounds = new double[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS_PER_ROUND; i++) {
+                sink += work.run(corpus.get(i % corpus.size()));
+            }
+            rounds[r] = CALLS_PER_ROUND / ((System.nanoTime() - start) / 1e9);
+        }
+        // Keeps the JIT from dropping the calls as dead code
+        assertThat(sink).isPositive();
+        Arrays.sort(rounds);
+        return rounds[ROUNDS / 2];
+    }
+
+    private static int scanEveryPhrase(String text, List<List<String>> phraseLists) {
+        String lower = text.toLowerCase(Locale.ROOT);
+        int found = 1;
+        for (List<String> phrases : phraseLists) {
+            for (String phrase : phrases) {
+                if (lower.contains(phrase)) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static List<List<String>> allPhraseLists() {
+        List<List<String>> lists = new ArrayList<>();
+        for (Map<String, List<String>> group : List.of(PhraseIndex.INTENT_PHRASES, PhraseIndex.SUBTYPE_PHRASES,
+                PhraseIndex.ENTITY_PHRASES, PhraseIndex.TIME_PHRASES, PhraseIndex.EMERGENCY_TYPE_PHRASES)) {
+            lists.addAll(group.values());
+        }
+        lists.addAll(List.of(PhraseIndex.EMERGENCY_PHRASES, PhraseIndex.SCORER_EMERGENCY_PHRASES,
+                PhraseIndex.MEMORY_TOPIC_PHRASES, PhraseIndex.SCHEDULE_QUERY_PHRASES, PhraseIndex.ROMAN_HINDI_PHRASES));
+        return lists;
+    }
+
+    private static List<String> loadCorpus() throws Exception {
+        List<String> corpus = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                IntentClassifierBenchmarkTest.class.getResourceAsStream("/intent-corpus.csv"), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    corpus.add(line.substring(0, line.indexOf('|')));
+                }
+            }
+        }
+        return corpus;
+    }
+}
@@ -0,0 +1,68 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.dto.Intent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvFileSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntentClassifierTest {
+
+    private final IntentClassifier classifier = new IntentClassifier(new PhraseIndex());
+
+    /*
+     * Labelled utterances in English, Roman Hindi and Devanagari. A change to the phrase
+     * lists or scoring constants that flips any of these needs a deliberate label update.
+     */
+    @ParameterizedTest(name = "{0} -> {1}")
+    @CsvFileSource(resources = "/intent-corpus.csv", delimiter = '|')
+    void classifiesLabelledCorpus(String text, String expected) {
+        assertThat(classifier.classify(text, "PATIENT").getType()).isEqualTo(expected);
+    }
+
+    @Test
+    void questionOutweighsLeadingGreeting() {
+        Intent intent = classifier.classify("hello, meri dawai kab leni hai", "PATIENT");
+
+        assertThat(intent.getRankedIntents()).extracting(Intent.Candidate::getType)
+                .containsExactly("MEDICATION_QUERY", "GREETING");
+        assertThat(intent.getConfidence()).isGreaterThan(intent.getRankedIntents().get(1).getConfidence());
+    }
+
+    @Test
+    void clearSingleIntentIsConfident() {
+        assertThat(classifier.classify("meri dawai kab leni hai", "PATIENT").getConfidence()).isGreaterThan(0.8f);
+    }
+
+    @Test
+    void closeCallIsLessConfidentThanClearOne() {
+        float close = classifier.classify("medicine schedule", "PATIENT").getConfidence();
+        float clear = classifier.classify("medicine dawai tablet", "PATIENT").getConfidence();
+
+        assertThat(close).isLessThan(clear);
+    }
+
+    @Test
+    void loneGreetingKeepsFixedConfidence() {
+        assertThat(classifier.classify("namaste", "PATIENT").getConfidence()).isEqualTo(0.95f);
+    }
+
+    @Test
+    void noMatchIsGeneralChat() {
+        Intent intent = classifier.classify("tell me a story", "PATIENT");
+
+        assertThat(intent.getRankedIntents()).isEmpty();
+        assertThat(intent.getConfidence()).isEqualTo(0.3f);
+    }
+
+    @Test
+    void extractsEntitiesTimeAndEmergency() {
+        Intent intent = classifier.classify("kal doctor ke paas gir gaya, bachao", "PATIENT");
+
+        assertThat(intent.getTimeReference()).isEqualTo(Intent.TimeReference.YESTERDAY);
+        assertThat(intent.getEntities()).containsEntry("person", "doctor").containsEntry("date", "kal");
+        assertThat(intent.isEmergency()).isTrue();
+        assertThat(intent.getEmergencyType()).isEqualTo("FALL");
+    }
+}
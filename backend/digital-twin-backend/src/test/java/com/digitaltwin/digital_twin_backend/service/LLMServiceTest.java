@@ -0,0 +1,83 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LLMServiceTest {
+
+    private final AtomicInteger providerCalls = new AtomicInteger();
+    private String completion;
+    private LlmResponseCache cache;
+    private LLMService llmService;
+
+    @BeforeEach
+    void setUp() {
+        // The provider answers every request with the current completion
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    providerCalls.incrementAndGet();
+                    boolean stream = chain.request().header("Accept") != null;
+                    String body = stream
+                            ? "data: {\"choices\":[{\"delta\":{\"content\":\"" + completion + "\"}}]}\n\ndata: [DONE]\n\n"
+                            : "{\"choices\":[{\"message\":{\"content\":\"" + completion + "\"}}]}";
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create(body, MediaType.parse("application/json")))
+                            .build();
+                })
+                .build();
+        OutboundHttpClients clients = mock(OutboundHttpClients.class);
+        when(clients.forProvider("openrouter")).thenReturn(client);
+
+        cache = new LlmResponseCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 600L);
+        cache.init();
+
+        llmService = new LLMService(clients, cache);
+        ReflectionTestUtils.setField(llmService, "aiServiceUrl", "http://llm.test");
+        ReflectionTestUtils.setField(llmService, "model", "m");
+        llmService.init();
+    }
+
+    @Test
+    void answersAreServedFromTheCache() throws Exception {
+        completion = "Your medicine is at eight.";
+
+        llmService.callLLM("when is my medicine", "standard", "en", LlmResponseCache.SHARED_SCOPE);
+        String again = llmService.callLLM("when is my medicine", "standard", "en", LlmResponseCache.SHARED_SCOPE);
+
+        assertThat(again).isEqualTo(completion);
+        assertThat(providerCalls).hasValue(1);
+    }
+
+    @Test
+    void unknownQueryIsNeverCached() throws Exception {
+        completion = "UNKNOWN_QUERY";
+
+        llmService.callLLM("who visited me", "standard", "en", "patient-1");
+        llmService.streamLLM("who visited me", "standard", "en", "patient-1", token -> { });
+        llmService.callLLM("who visited me", "standard", "en", "patient-1");
+
+        assertThat(providerCalls).hasValue(3);
+        assertThat(cache.size()).isZero();
+    }
+}
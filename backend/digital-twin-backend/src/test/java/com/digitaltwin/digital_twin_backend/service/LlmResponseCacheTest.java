@@ -0,0 +1,112 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.offset;
+
+class LlmResponseCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void keyIgnoresCaseUnicodeFormAndWhitespace() {
+        LlmResponseCache cache = cache(true, 100, 600);
+
+        String key = cache.key("*", "What is  my\nmedicine?", "standard", "EN", "m", 0.7);
+
+        assertThat(cache.key("*", "  what is my medicine?  ", "standard", "en", "m", 0.7)).isEqualTo(key);
+        // Full-width characters fold to ASCII under NFKC
+        assertThat(cache.key("*", "ＷＨＡＴ is my medicine?", "standard", "en", "m", 0.7)).isEqualTo(key);
+        assertThat(cache.key("*", "What is my medicine?", "standard", "en", "m", 0.72)).isEqualTo(key);
+    }
+
+    @Test
+    void keySeparatesEverythingThatChangesTheAnswer() {
+        LlmResponseCache cache = cache(true, 100, 600);
+        String key = cache.key("patient-1", "hello", "standard", "en", "m", 0.7);
+
+        assertThat(cache.key("patient-2", "hello", "standard", "en", "m", 0.7)).isNotEqualTo(key);
+        assertThat(cache.key(LlmResponseCache.SHARED_SCOPE, "hello", "standard", "en", "m", 0.7)).isNotEqualTo(key);
+        assertThat(cache.key("patient-1", "hello!", "standard", "en", "m", 0.7)).isNotEqualTo(key);
+        assertThat(cache.key("patient-1", "hello", "dementia", "en", "m", 0.7)).isNotEqualTo(key);
+        assertThat(cache.key("patient-1", "hello", "standard", "hi", "m", 0.7)).isNotEqualTo(key);
+        assertThat(cache.key("patient-1", "hello", "standard", "en", "other", 0.7)).isNotEqualTo(key);
+        assertThat(cache.key("patient-1", "hello", "standard", "en", "m", 0.2)).isNotEqualTo(key);
+    }
+
+    @Test
+    void hitsAndMissesAreCounted() {
+        LlmResponseCache cache = cache(true, 100, 600);
+        String key = cache.key("*", "hello", null, null, "m", 0.7);
+
+        assertThat(cache.get(key)).isNull();
+        cache.put(key, "Hi there", 850);
+
+        assertThat(cache.get(key)).isEqualTo("Hi there");
+        assertThat(cache.get(key)).isEqualTo("Hi there");
+        assertThat(registry.get("llm.cache.requests").tag("result", "hit").counter().count()).isEqualTo(2);
+        assertThat(registry.get("llm.cache.requests").tag("result", "miss").counter().count()).isEqualTo(1);
+        assertThat(registry.get("llm.cache.hit.ratio").gauge().value()).isCloseTo(2.0 / 3, offset(1e-9));
+        assertThat(registry.get("llm.cache.saved.latency").timer().totalTime(TimeUnit.MILLISECONDS))
+                .isEqualTo(1700);
+    }
+
+    @Test
+    void blankCompletionsAreNotCached() {
+        LlmResponseCache cache = cache(true, 100, 600);
+
+        cache.put("k1", "   ", 10);
+        cache.put("k2", null, 10);
+
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        LlmResponseCache cache = cache(true, 2, 600);
+        cache.put("a", "A", 1);
+        cache.put("b", "B", 1);
+
+        // Reading "a" makes "b" the eldest
+        cache.get("a");
+        cache.put("c", "C", 1);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isEqualTo("A");
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("c")).isEqualTo("C");
+    }
+
+    @Test
+    void expiredEntriesAreMissesAndDropped() {
+        LlmResponseCache cache = cache(true, 100, -1);
+        cache.put("a", "A", 1);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void disabledCacheStoresNothing() {
+        LlmResponseCache cache = cache(false, 100, 600);
+        cache.put("a", "A", 1);
+
+        assertThat(cache.isEnabled()).isFalse();
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    private LlmResponseCache cache(boolean enabled, int maxEntries, long ttlSeconds) {
+        LlmResponseCache cache = new LlmResponseCache(registry);
+        ReflectionTestUtils.setField(cache, "enabled", enabled);
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", ttlSeconds);
+        cache.init();
+        return cache;
+    }
+}
@@ -0,0 +1,85 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.dto.VoiceResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LlmResponseStreamerTest {
+
+    private final TTSService ttsService = mock(TTSService.class);
+    private final List<VoiceResponse> deltas = new CopyOnWriteArrayList<>();
+
+    @Test
+    void releasedOutputIsWithdrawnWhenStreamFails() {
+        LlmResponseStreamer streamer = streamer(Runnable::run);
+
+        streamer.onToken("Aapki dawa ");
+        streamer.onToken("subah 8 baje");
+        streamer.abandon();
+
+        assertThat(deltas).hasSize(3);
+        VoiceResponse last = deltas.get(2);
+        assertThat(last.isStreamReset()).isTrue();
+        assertThat(last.getDeltaSequence()).isEqualTo(2);
+    }
+
+    @Test
+    void nothingIsSentWhenFailingBeforeRelease() {
+        LlmResponseStreamer streamer = streamer(Runnable::run);
+
+        streamer.onToken("UNKNOWN");
+        streamer.abandon();
+
+        assertThat(deltas).isEmpty();
+    }
+
+    @Test
+    void sentinelIsNeverReleased() {
+        LlmResponseStreamer streamer = streamer(Runnable::run);
+
+        streamer.onToken("UNKNOWN_");
+        streamer.onToken("QUERY");
+
+        assertThat(streamer.hasReleasedOutput()).isFalse();
+        assertThat(streamer.complete(100)).isEmpty();
+        assertThat(deltas).isEmpty();
+    }
+
+    @Test
+    void sentenceAudioFinishingAfterResetIsDropped() throws Exception {
+        List<Runnable> queued = new CopyOnWriteArrayList<>();
+        when(ttsService.textToSpeech(anyString(), anyString())).thenReturn("/audio/1.mp3");
+        LlmResponseStreamer streamer = streamer(queued::add);
+
+        streamer.onToken("Aapki dawa subah 8 baje hai. ");
+        streamer.abandon();
+        queued.forEach(Runnable::run);
+
+        assertThat(deltas).noneMatch(d -> d.getAudioUrl() != null);
+        assertThat(deltas.get(deltas.size() - 1).isStreamReset()).isTrue();
+    }
+
+    @Test
+    void sentencesAreSynthesizedInOrder() throws Exception {
+        when(ttsService.textToSpeech("Pehla vaakya hai.", "u1")).thenReturn("/audio/1.mp3");
+        when(ttsService.textToSpeech("Doosra vaakya.", "u1")).thenReturn("/audio/2.mp3");
+        LlmResponseStreamer streamer = streamer(Runnable::run);
+
+        streamer.onToken("Pehla vaakya hai. ");
+        streamer.onToken("Doosra vaakya.");
+
+        assertThat(streamer.complete(1000)).containsExactly("/audio/1.mp3", "/audio/2.mp3");
+    }
+
+    private LlmResponseStreamer streamer(Executor ttsExecutor) {
+        return new LlmResponseStreamer("s1", "u1", ttsService, ttsExecutor, deltas::add, 5);
+    }
+}
@@ -0,0 +1,176 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.audio.AudioView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LocalStreamingSttEngineTest {
+
+    private static final int HEADER_BYTES = 100;
+    private static final int CHUNK_BYTES = 1500;
+
+    private final TranscriptionService transcriptionService = mock(TranscriptionService.class);
+    private final List<Integer> uploads = new CopyOnWriteArrayList<>();
+    private final List<String> partials = new CopyOnWriteArrayList<>();
+    private final ByteArrayOutputStream recording = new ByteArrayOutputStream();
+
+    private LocalStreamingSttEngine engine;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        StageExecutorFactory factory = new StageExecutorFactory(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(factory, "mode", "virtual");
+
+        engine = new LocalStreamingSttEngine(transcriptionService, factory);
+        ReflectionTestUtils.setField(engine, "partialIntervalMs", 0L);
+        ReflectionTestUtils.setField(engine, "minNewBytes", 2 * CHUNK_BYTES);
+        ReflectionTestUtils.setField(engine, "concurrency", 4);
+        engine.init();
+
+        // Each upload is answered with its own size, so the transcript shows what was sent
+        when(transcriptionService.transcribe(any(byte[].class), anyString())).thenAnswer(inv -> {
+            int length = inv.<byte[]>getArgument(0).length;
+            uploads.add(length);
+            return "w" + length;
+        });
+        when(transcriptionService.transcribe(any(AudioView.class), anyString())).thenReturn("batch");
+    }
+
+    @AfterEach
+    void tearDown() {
+        engine.destroy();
+    }
+
+    @Test
+    void eachDeltaIsUploadedOnceBehindTheInitSegment() throws Exception {
+        StreamingSttEngine.Stream stream = engine.open("s1", "auto", partials::add);
+
+        feed(stream, 0, 1);
+        await().atMost(Duration.ofSeconds(2)).until(() -> partials.size() == 1);
+        feed(stream, 2, 3);
+        await().atMost(Duration.ofSeconds(2)).until(() -> partials.size() == 2);
+        feed(stream, 4);
+
+        String text = stream.finish("auto", recordingView()).get(2, TimeUnit.SECONDS);
+
+        // The first delta carries its own header; later ones get it prepended, the tail included
+        assertThat(uploads).containsExactly(2 * CHUNK_BYTES, HEADER_BYTES + 2 * CHUNK_BYTES,
+                HEADER_BYTES + CHUNK_BYTES);
+        assertThat(partials).containsExactly("w3000", "w3000 w3100");
+        assertThat(text).isEqualTo("w3000 w3100 w1600");
+        verify(transcriptionService, never()).transcribe(any(AudioView.class), anyString());
+    }
+
+    @Test
+    void outOfOrderChunksAreTranscribedInOrder() throws Exception {
+        StreamingSttEngine.Stream stream = engine.open("s1", "auto", partials::add);
+        byte[] first = chunk(0);
+        byte[] second = chunk(1);
+        recording.write(first);
+        recording.write(second);
+
+        stream.accept(1, second);
+        assertThat(uploads).isEmpty();
+        stream.accept(0, first);
+
+        assertThat(stream.finish("auto", recordingView()).get(2, TimeUnit.SECONDS)).isEqualTo("w3000");
+    }
+
+    @Test
+    void finishWithoutNewAudioNeedsNoUpload() throws Exception {
+        StreamingSttEngine.Stream stream = engine.open("s1", "auto", partials::add);
+        feed(stream, 0, 1);
+        await().atMost(Duration.ofSeconds(2)).until(() -> partials.size() == 1);
+
+        assertThat(stream.finish("auto", recordingView()).get(2, TimeUnit.SECONDS)).isEqualTo("w3000");
+        assertThat(uploads).hasSize(1);
+    }
+
+    @Test
+    void recordingTheStreamDidNotSeeIsTranscribedWhole() throws Exception {
+        StreamingSttEngine.Stream stream = engine.open("s1", "auto", partials::add);
+        feed(stream, 0);
+        // A chunk that reached the buffer but never the stream
+        recording.write(chunk(1));
+
+        assertThat(stream.finish("auto", recordingView()).get(2, TimeUnit.SECONDS)).isEqualTo("batch");
+    }
+
+    @Test
+    void explicitLanguageOtherThanTheStreamsIsTranscribedWhole() throws Exception {
+        StreamingSttEngine.Stream stream = engine.open("s1", "auto", partials::add);
+        feed(stream, 0);
+
+        assertThat(stream.finish("hi", recordingView()).get(2, TimeUnit.SECONDS)).isEqualTo("batch");
+    }
+
+    @Test
+    void failedDeltaFallsBackToTheWholeRecording() throws Exception {
+        when(transcriptionService.transcribe(any(byte[].class), anyString()))
+                .thenThrow(new IllegalStateException("provider down"));
+        StreamingSttEngine.Stream stream = engine.open("s1", "auto", partials::add);
+        feed(stream, 0, 1);
+
+        assertThat(stream.finish("auto", recordingView()).get(2, TimeUnit.SECONDS)).isEqualTo("batch");
+        assertThat(partials).isEmpty();
+    }
+
+    @Test
+    void cancelledStreamPublishesNothing() throws Exception {
+        StreamingSttEngine.Stream stream = engine.open("s1", "auto", partials::add);
+        stream.cancel();
+        feed(stream, 0, 1);
+
+        Thread.sleep(100);
+        assertThat(uploads).isEmpty();
+        assertThat(partials).isEmpty();
+    }
+
+    @Test
+    void initSegmentEndsAtTheFirstCluster() {
+        assertThat(LocalStreamingSttEngine.initSegment(chunk(0))).hasSize(HEADER_BYTES);
+        assertThat(LocalStreamingSttEngine.initSegment(new byte[]{1, 2, 3})).isEmpty();
+    }
+
+    private void feed(StreamingSttEngine.Stream stream, int... sequences) throws Exception {
+        for (int sequence : sequences) {
+            byte[] chunk = chunk(sequence);
+            recording.write(chunk);
+            stream.accept(sequence, chunk);
+        }
+    }
+
+    private AudioView recordingView() {
+        return AudioView.wrap(recording.toByteArray());
+    }
+
+    // Chunk 0 opens with a fake init segment followed by a WebM Cluster id
+    private static byte[] chunk(int sequence) {
+        byte[] chunk = new byte[CHUNK_BYTES];
+        if (sequence == 0) {
+            chunk[HEADER_BYTES] = 0x1F;
+            chunk[HEADER_BYTES + 1] = 0x43;
+            chunk[HEADER_BYTES + 2] = (byte) 0xB6;
+            chunk[HEADER_BYTES + 3] = 0x75;
+        }
+        return chunk;
+    }
+}
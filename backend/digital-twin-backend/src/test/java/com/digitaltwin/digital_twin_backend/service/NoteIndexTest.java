@@ -0,0 +1,126 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.Note;
+import com.digitaltwin.digital_twin_backend.repository.NoteRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NoteIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    private final NoteRepository noteRepository = mock(NoteRepository.class);
+    private NoteIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new NoteIndex(noteRepository, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxUsers", 10);
+        ReflectionTestUtils.setField(index, "refreshCheckSeconds", 3600L);
+        index.init();
+    }
+
+    @Test
+    void titleHitOutranksPassingMention() {
+        when(noteRepository.findByUserId("u1")).thenReturn(List.of(
+                note("n1", "Shopping", "milk, bread and the blood pressure tablets", T0),
+                note("n2", "Blood pressure", "check every morning", T0)));
+
+        List<Note> hits = index.search("u1", List.of("pressure"), 5);
+
+        assertThat(hits).extracting(Note::getId).containsExactly("n2", "n1");
+    }
+
+    @Test
+    void localWritesAreAppliedWithoutReload() {
+        when(noteRepository.findByUserId("u1")).thenReturn(List.of(note("n1", "Dawa", "subah ki dawa", T0)));
+        index.search("u1", List.of("dawa"), 5);
+
+        index.upsert(note("n2", "Doctor", "doctor ke paas jana hai", T0));
+        index.remove("u1", "n1");
+
+        assertThat(index.search("u1", List.of("dawa"), 5)).isEmpty();
+        assertThat(index.search("u1", List.of("doctor"), 5)).extracting(Note::getId).containsExactly("n2");
+        verify(noteRepository, times(1)).findByUserId("u1");
+    }
+
+    @Test
+    void noFreshnessCheckWithinInterval() {
+        when(noteRepository.findByUserId("u1")).thenReturn(List.of(note("n1", "Dawa", "", T0)));
+
+        index.search("u1", List.of("dawa"), 5);
+        index.search("u1", List.of("dawa"), 5);
+
+        verify(noteRepository, never()).countByUserId("u1");
+        verify(noteRepository, times(1)).findByUserId("u1");
+    }
+
+    @Test
+    void noteCreatedOnAnotherNodeTriggersRebuild() {
+        ReflectionTestUtils.setField(index, "refreshCheckSeconds", 0L);
+        Note first = note("n1", "Dawa", "", T0);
+        Note remote = note("n2", "Doctor", "", T0.plusHours(1));
+        when(noteRepository.findByUserId("u1")).thenReturn(List.of(first), List.of(first, remote));
+        index.search("u1", List.of("doctor"), 5);
+
+        when(noteRepository.countByUserId("u1")).thenReturn(2L);
+
+        assertThat(index.search("u1", List.of("doctor"), 5)).extracting(Note::getId).containsExactly("n2");
+    }
+
+    @Test
+    void noteEditedOnAnotherNodeTriggersRebuild() {
+        ReflectionTestUtils.setField(index, "refreshCheckSeconds", 0L);
+        Note edited = note("n1", "Doctor", "", T0.plusHours(1));
+        when(noteRepository.findByUserId("u1")).thenReturn(List.of(note("n1", "Dawa", "", T0)), List.of(edited));
+        index.search("u1", List.of("doctor"), 5);
+
+        when(noteRepository.countByUserId("u1")).thenReturn(1L);
+        when(noteRepository.findFirstByUserIdOrderByUpdatedAtDesc("u1")).thenReturn(Optional.of(edited));
+
+        assertThat(index.search("u1", List.of("doctor"), 5)).extracting(Note::getId).containsExactly("n1");
+    }
+
+    @Test
+    void unchangedNotesAreNotReloaded() {
+        ReflectionTestUtils.setField(index, "refreshCheckSeconds", 0L);
+        Note only = note("n1", "Dawa", "", T0);
+        when(noteRepository.findByUserId("u1")).thenReturn(List.of(only));
+        when(noteRepository.countByUserId("u1")).thenReturn(1L);
+        when(noteRepository.findFirstByUserIdOrderByUpdatedAtDesc("u1")).thenReturn(Optional.of(only));
+
+        index.search("u1", List.of("dawa"), 5);
+        index.search("u1", List.of("dawa"), 5);
+
+        verify(noteRepository, times(1)).findByUserId("u1");
+    }
+
+    @Test
+    void tokenizeNormalizesAndDropsSingleCharacters() {
+        assertThat(NoteIndex.tokenize("Dawa-Time: 8 AM, ｂｐ")).containsExactly("dawa", "time", "am", "bp");
+    }
+
+    private static Note note(String id, String title, String content, LocalDateTime updatedAt) {
+        Note note = new Note();
+        note.setId(id);
+        note.setUserId("u1");
+        note.setTitle(title);
+        note.setContent(content);
+        note.setUpdatedAt(updatedAt);
+        return note;
+    }
+}
@@ -0,0 +1,161 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.config.MongoIndexConfig;
+import com.digitaltwin.digital_twin_backend.model.Note;
+import com.digitaltwin.digital_twin_backend.repository.NoteRepository;
+import com.mongodb.ExplainVerbosity;
+import com.mongodb.client.MongoClient;
+import com.mongodb.client.MongoClients;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.repository.support.MongoRepositoryFactory;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * 50k notes for one user (and as many for another) in a real MongoDB: the $text
+ * search must use the notes_user_text index, find the same notes the old
+ * load-everything-and-filter path did, and be faster than it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class NoteSearchBenchmarkTest {
+
+    private static final int NOTES = 50_000;
+    private static final int RUNS = 20;
+    private static final String USER = "patient-1";
+    private static final String[] FILLER = {
+            "walk", "breakfast", "subah", "shaam", "family", "garden", "chai", "paani", "market", "news"};
+
+    @Container
+    static final MongoDBContainer MONGO = new MongoDBContainer("mongo:7.0");
+
+    private static MongoClient client;
+    private static MongoTemplate mongoTemplate;
+    private static NoteRepository noteRepository;
+    private static NoteService noteService;
+
+    @BeforeAll
+    static void load() {
+        client = MongoClients.create(MONGO.getReplicaSetUrl());
+        mongoTemplate = new MongoTemplate(client, "note_search_bench");
+        noteRepository = new MongoRepositoryFactory(mongoTemplate).getRepository(NoteRepository.class);
+        noteService = new NoteService(noteRepository, mock(NoteIndex.class));
+
+        new MongoIndexConfig(mongoTemplate).ensureIndexes();
+        insertNotes(USER);
+        insertNotes("patient-2");
+    }
+
+    @AfterAll
+    static void close() {
+        client.close();
+    }
+
+    @Test
+    void textSearchUsesIndexAndBeatsFullScan() {
+        // Warm both paths before timing
+        noteService.searchNotes(USER, "cardiologist", 0, 20);
+        fullScan("cardiologist");
+
+        long indexed = medianMillis(() -> noteService.searchNotes(USER, "cardiologist", 0, 20));
+        long scanned = medianMillis(() -> fullScan("cardiologist"));
+        System.out.printf("notes search over %d notes: $text %d ms, full scan %d ms (median of %d)%n",
+                NOTES, indexed, scanned, RUNS);
+
+        List<Note> hits = new ArrayList<>();
+        for (int page = 0; ; page++) {
+            List<Note> batch = noteService.searchNotes(USER, "cardiologist", page, 100);
+            if (batch.isEmpty()) {
+                break;
+            }
+            hits.addAll(batch);
+        }
+        assertThat(hits).extracting(Note::getId)
+                .containsExactlyInAnyOrderElementsOf(fullScan("cardiologist").stream().map(Note::getId).toList());
+        assertThat(hits.get(0).getTitle()).containsIgnoringCase("cardiologist");
+        assertThat(indexed).isLessThan(scanned);
+    }
+
+    @Test
+    void textSearchOnlyExaminesMatchingNotes() {
+        Document explain = mongoTemplate.getCollection("notes")
+                .find(new Document("userId", USER)
+                        .append("$text", new Document("$search", "cardiologist")
+                                .append("$language", MongoIndexConfig.NOTES_TEXT_LANGUAGE)))
+                .explain(ExplainVerbosity.EXECUTION_STATS);
+        Document stats = explain.get("executionStats", Document.class);
+
+        assertThat(explain.toJson()).contains(MongoIndexConfig.NOTES_TEXT_INDEX);
+        assertThat(stats.getInteger("totalDocsExamined")).isLessThanOrEqualTo(NOTES / 100);
+    }
+
+    @Test
+    void resultsArePaged() {
+        List<Note> first = noteService.searchNotes(USER, "cardiologist", 0, 10);
+        List<Note> second = noteService.searchNotes(USER, "cardiologist", 1, 10);
+
+        assertThat(first).hasSize(10);
+        assertThat(second).hasSize(10);
+        assertThat(first).extracting(Note::getId).doesNotContainAnyElementsOf(second.stream().map(Note::getId).toList());
+    }
+
+    // The search NoteService ran before the text index
+    private static List<Note> fullScan(String keyword) {
+        String lower = keyword.toLowerCase(Locale.ROOT);
+        return noteService.getUserNotes(USER).stream()
+                .filter(note -> note.getTitle().toLowerCase(Locale.ROOT).contains(lower)
+                        || note.getContent().toLowerCase(Locale.ROOT).contains(lower))
+                .toList();
+    }
+
+    private static long medianMillis(Supplier<List<Note>> search) {
+        long[] runs = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            search.get();
+            runs[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(runs);
+        return runs[RUNS / 2];
+    }
+
+    // One note in 200 mentions the cardiologist; the rest are everyday filler
+    private static void insertNotes(String userId) {
+        BulkOperations bulk = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, Note.class);
+        List<Note> batch = new ArrayList<>();
+        for (int i = 0; i < NOTES; i++) {
+            Note note = new Note();
+            note.setUserId(userId);
+            boolean match = i % 200 == 0;
+            note.setTitle(match ? "Cardiologist visit " + i : "Note " + i + " " + FILLER[i % FILLER.length]);
+            note.setContent(match
+                    ? "Appointment with the cardiologist, carry the ECG report"
+                    : "Aaj " + FILLER[(i + 3) % FILLER.length] + " ke baad " + FILLER[(i + 7) % FILLER.length]);
+            note.setType(Note.NoteType.PERSONAL);
+            note.setCreatedAt(LocalDateTime.now().minusMinutes(i));
+            note.setUpdatedAt(note.getCreatedAt());
+            batch.add(note);
+            if (batch.size() == 5_000) {
+                bulk.insert(batch);
+                batch = new ArrayList<>();
+            }
+        }
+        bulk.insert(batch);
+        bulk.execute();
+    }
+}
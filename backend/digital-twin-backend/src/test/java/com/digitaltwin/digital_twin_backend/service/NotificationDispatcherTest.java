@@ -0,0 +1,167 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
+import com.digitaltwin.digital_twin_backend.model.NotificationOutboxEntry;
+import com.digitaltwin.digital_twin_backend.scheduler.ClusterMembership;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationDispatcherTest {
+
+    private final NotificationOutbox outbox = mock(NotificationOutbox.class);
+    private final NotificationService notificationService = mock(NotificationService.class);
+    private final ClusterMembership clusterMembership = mock(ClusterMembership.class);
+    private final OutboundHttpClients outboundHttpClients = mock(OutboundHttpClients.class);
+    private final AtomicInteger tinyUrlCalls = new AtomicInteger();
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        when(clusterMembership.getNodeId()).thenReturn("node-1");
+        // TinyURL answered in-process
+        when(outboundHttpClients.forProvider("tinyurl")).thenReturn(new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    tinyUrlCalls.incrementAndGet();
+                    return new Response.Builder()
+                            .request(chain.request())
+                            .protocol(Protocol.HTTP_1_1)
+                            .code(200)
+                            .message("OK")
+                            .body(ResponseBody.create("https://tinyurl.com/sos1", MediaType.get("text/plain")))
+                            .build();
+                })
+                .build());
+
+        dispatcher = new NotificationDispatcher(outbox, notificationService, mock(MongoTemplate.class),
+                clusterMembership, new StageExecutorFactory(new SimpleMeterRegistry()), outboundHttpClients,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "concurrency", 4);
+        ReflectionTestUtils.setField(dispatcher, "urgentConcurrency", 2);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 10);
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", 60_000L);
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutMs", 120_000L);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 5);
+        ReflectionTestUtils.setField(dispatcher, "retryBaseMs", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "retryMaxMs", 10_000L);
+        dispatcher.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.destroy();
+    }
+
+    @Test
+    void sosSmsCarriesShortLinkResolvedOncePerBatch() {
+        NotificationOutboxEntry first = sos("n1", "+911111111111");
+        NotificationOutboxEntry second = sos("n2", "+912222222222");
+        when(outbox.claim(eq("node-1"), anyInt(), anyLong(), eq(true))).thenReturn(List.of(first, second), List.of());
+        when(notificationService.sendSMS(anyString(), anyString())).thenReturn(true);
+
+        dispatcher.wakeUp();
+
+        verify(notificationService, timeout(2000)).sendSMS("+911111111111", "SOS 📍 Live Location: https://tinyurl.com/sos1");
+        verify(notificationService, timeout(2000)).sendSMS("+912222222222", "SOS 📍 Live Location: https://tinyurl.com/sos1");
+        verify(outbox, timeout(2000)).complete(eq("node-1"), any());
+        assertThat(tinyUrlCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void leaseIsRenewedWhileSendingAndStuckSendIsInterrupted() throws Exception {
+        ReflectionTestUtils.setField(dispatcher, "leaseMs", 90L);
+        ReflectionTestUtils.setField(dispatcher, "sendTimeoutMs", 300L);
+        NotificationOutboxEntry entry = NotificationOutboxEntry.sms("+913333333333", "Reminder");
+        entry.setId("n3");
+        entry.setAttempts(1);
+        when(outbox.claim(eq("node-1"), anyInt(), anyLong(), eq(false))).thenReturn(List.of(entry), List.of());
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(notificationService.sendSMS(anyString(), anyString())).thenAnswer(inv -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+            return false;
+        });
+
+        dispatcher.wakeUp();
+
+        verify(outbox, timeout(2000).atLeastOnce()).renew(eq("node-1"), eq(List.of("n3")), eq(90L));
+        verify(outbox, timeout(2000)).complete(eq("node-1"), argThat((Collection<NotificationOutbox.Attempt> attempts) ->
+                attempts.size() == 1
+                        && attempts.iterator().next().status() == NotificationOutboxEntry.Status.PENDING
+                        && attempts.iterator().next().error().startsWith("send timed out")));
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        verify(outbox, atLeastOnce()).claim(eq("node-1"), anyInt(), anyLong(), eq(false));
+    }
+
+    @Test
+    void sosIsSentWhileARoutineBatchIsStillSending() throws Exception {
+        NotificationOutboxEntry reminder = NotificationOutboxEntry.sms("+914444444444", "Reminder");
+        reminder.setId("n4");
+        reminder.setAttempts(1);
+        when(outbox.claim(eq("node-1"), anyInt(), anyLong(), eq(false))).thenReturn(List.of(reminder), List.of());
+        List<NotificationOutboxEntry> sosQueue = new CopyOnWriteArrayList<>();
+        when(outbox.claim(eq("node-1"), anyInt(), anyLong(), eq(true))).thenAnswer(inv -> {
+            List<NotificationOutboxEntry> claimed = List.copyOf(sosQueue);
+            sosQueue.clear();
+            return claimed;
+        });
+        CountDownLatch reminderSending = new CountDownLatch(1);
+        CountDownLatch releaseReminder = new CountDownLatch(1);
+        when(notificationService.sendSMS(eq("+914444444444"), anyString())).thenAnswer(inv -> {
+            reminderSending.countDown();
+            releaseReminder.await(5, TimeUnit.SECONDS);
+            return true;
+        });
+        when(notificationService.sendSMS(eq("+915555555555"), anyString())).thenReturn(true);
+
+        dispatcher.wakeUp();
+        assertThat(reminderSending.await(2, TimeUnit.SECONDS)).isTrue();
+        sosQueue.add(sos("n5", "+915555555555"));
+        dispatcher.wakeUp();
+
+        verify(notificationService, timeout(2000)).sendSMS(eq("+915555555555"), anyString());
+        assertThat(releaseReminder.getCount()).isEqualTo(1);
+        releaseReminder.countDown();
+        verify(outbox, timeout(2000).times(2)).complete(eq("node-1"), any());
+    }
+
+    private static NotificationOutboxEntry sos(String id, String phone) {
+        NotificationOutboxEntry entry = NotificationOutboxEntry.sms(phone, "SOS 📍 Live Location: https://maps.google.com/?q=28.61,77.20");
+        entry.setId(id);
+        entry.setAlertId("alert-1");
+        entry.setCaregiverId("c-" + id);
+        entry.setAttempts(1);
+        return entry.urgent();
+    }
+}
@@ -0,0 +1,76 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Time per utterance for local transliteration, with the recent-conversion cache off
+ * (every text converted) and on (every text repeated). The target is under 1 ms for a
+ * typical utterance either way; the LLM round trip it replaces takes about a second.
+ *
+ * Opt-in: {@code mvn test -Dtest=RomanHindiTransliteratorBenchmarkTest -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class RomanHindiTransliteratorBenchmarkTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int ROUNDS = 15;
+    private static final int CALLS_PER_ROUND = 20_000;
+
+    private static final List<String> UTTERANCES = List.of(
+            "Aapki dawa subah 8 baje hai.",
+            "Mujhe yaad nahi ki maine khana khaya ya nahi",
+            "Beta aaj shaam ko ghar aayega kya?",
+            "doctor ke paas kab jana hai, please bataiye",
+            "mujhe paas ki dukaan se doodh lena hai",
+            "Ramesh aur Sunita ko phone karo",
+            "What time is my medicine tomorrow morning?",
+            "Theek hai, main abhi paani pi leti hoon",
+            "Okay, doctor appointment please.",
+            "Raat ko neend nahi aati, bahut dard hai");
+
+    @Test
+    void typicalUtteranceIsConvertedWellUnderAMillisecond() {
+        double uncachedMicros = medianMicrosPerCall(transliterator(0));
+        double cachedMicros = medianMicrosPerCall(transliterator(1000));
+        System.out.printf("transliteration per utterance: uncached %.2f us, cached %.2f us (median of %d rounds)%n",
+                uncachedMicros, cachedMicros, ROUNDS);
+
+        assertThat(uncachedMicros).isLessThan(1000);
+        assertThat(cachedMicros).isLessThan(uncachedMicros);
+    }
+
+    private static RomanHindiTransliterator transliterator(int cacheSize) {
+        RomanHindiTransliterator transliterator = new RomanHindiTransliterator(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(transliterator, "cacheSize", cacheSize);
+        transliterator.init();
+        return transliterator;
+    }
+
+    private static double medianMicrosPerCall(RomanHindiTransliterator transliterator) {
+        int sink = 0;
+        for (int i = 0; i < WARMUP; i++) {
+            sink += transliterator.toDevanagari(UTTERANCES.get(i % UTTERANCES.size())).text().length();
+        }
+
+        double[] rounds = new double[ROUNDS];
+        for (int r = 0; r < ROUNDS; r++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS_PER_ROUND; i++) {
+                sink += transliterator.toDevanagari(UTTERANCES.get(i % UTTERANCES.size())).text().length();
+            }
+            rounds[r] = (System.nanoTime() - start) / 1_000.0 / CALLS_PER_ROUND;
+        }
+        // Keeps the JIT from dropping the calls as dead code
+        assertThat(sink).isPositive();
+        Arrays.sort(rounds);
+        return rounds[ROUNDS / 2];
+    }
+}
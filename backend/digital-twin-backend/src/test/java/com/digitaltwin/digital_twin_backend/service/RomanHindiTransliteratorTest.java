@@ -0,0 +1,140 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RomanHindiTransliteratorTest {
+
+    private RomanHindiTransliterator transliterator;
+
+    @BeforeEach
+    void setUp() {
+        transliterator = new RomanHindiTransliterator(new SimpleMeterRegistry());
+        transliterator.init();
+    }
+
+    @Test
+    void convertsRomanHindiMadeOfDictionaryWords() {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari("Aapki dawa subah 8 baje hai.");
+
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.text()).isEqualTo("आपकी दवा सुबह 8 बजे है.");
+    }
+
+    @Test
+    void keepsDevanagariAndPunctuation() {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari("डॉक्टर se baat karo, please!");
+
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.text()).isEqualTo("डॉक्टर से बात करो, प्लीज़!");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "hi",
+            "the time",
+            "call me",
+            "note to do",
+            "Do you remember the main doctor?",
+            "What time is my medicine?",
+    })
+    void englishIsLeftToTheLlm(String text) {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari(text);
+
+        assertThat(result.isComplete()).isFalse();
+        assertThat(result.text()).doesNotContain("थे", "तो", "में", "दो", "ही", "मैं", "टाइम");
+    }
+
+    @Test
+    void mixedSentenceCountsEveryUnknownWord() {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari("Mujhe tomorrow morning doctor ke paas jana hai");
+
+        assertThat(result.isComplete()).isFalse();
+        assertThat(result.unknownWords()).isEqualTo(2);
+        assertThat(result.guessedWords()).isEqualTo(1);
+    }
+
+    @Test
+    void wordsOutsideTheDictionaryAreSpelledByRule() {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari("mujhe paas ki dukaan se doodh lena hai");
+
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.guessedWords()).isEqualTo(3);
+        assertThat(result.text()).isEqualTo("मुझे पास की दुकान से दूध लेना है");
+    }
+
+    @ParameterizedTest
+    @CsvSource({
+            "paas, पास",
+            "gussa, गुस्सा",
+            "naashta, नाश्ता",
+            "bandh, बंध",
+            "kamra, कमरा",
+            "dost, दोस्त",
+            "khushi, खुशी",
+    })
+    void spellingRules(String word, String expected) {
+        assertThat(RomanHindiTransliterator.spell(word)).isEqualTo(expected);
+    }
+
+    @Test
+    void lettersRomanHindiDoesNotUseAreNotSpelled() {
+        assertThat(RomanHindiTransliterator.spell("quick")).isNull();
+        assertThat(RomanHindiTransliterator.spell("box")).isNull();
+        assertThat(RomanHindiTransliterator.spell("hmm")).isNull();
+    }
+
+    @Test
+    void textMostlyLeftToTheRulesIsNotConfident() {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari("kitaab padho");
+
+        assertThat(result.unknownWords()).isZero();
+        assertThat(result.isComplete()).isFalse();
+    }
+
+    @Test
+    void englishReplyOfLoanwordsPassesThrough() {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari("Okay, doctor appointment please.");
+
+        assertThat(result.isComplete()).isTrue();
+        assertThat(result.text()).isEqualTo("Okay, doctor appointment please.");
+    }
+
+    @Test
+    void recentConversionsAreCached() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RomanHindiTransliterator cached = new RomanHindiTransliterator(registry);
+        ReflectionTestUtils.setField(cached, "cacheSize", 2);
+        cached.init();
+
+        RomanHindiTransliterator.Result first = cached.toDevanagari("Aapki dawa subah 8 baje hai.");
+        assertThat(cached.toDevanagari("Aapki dawa subah 8 baje hai.")).isSameAs(first);
+        cached.toDevanagari("paani piyo");
+        cached.toDevanagari("khana khaya");
+
+        // Least recently used entry was evicted
+        assertThat(cached.toDevanagari("Aapki dawa subah 8 baje hai.")).isNotSameAs(first).isEqualTo(first);
+        assertThat(registry.counter("voice.transliteration.cache.hits").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void namesAreLeftToTheLlm() {
+        RomanHindiTransliterator.Result result = transliterator.toDevanagari("Ramesh aur Sunita ko phone karo");
+
+        assertThat(result.isComplete()).isFalse();
+        assertThat(result.unknownWords()).isEqualTo(2);
+        assertThat(result.text()).contains("Ramesh", "Sunita");
+    }
+
+    @Test
+    void blankTextIsComplete() {
+        assertThat(transliterator.toDevanagari("  ").isComplete()).isTrue();
+    }
+}
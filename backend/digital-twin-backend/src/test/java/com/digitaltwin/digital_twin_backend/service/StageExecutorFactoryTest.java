@@ -0,0 +1,124 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class StageExecutorFactoryTest {
+
+    private static final int LIMIT = 3;
+    private static final int TASKS = 40;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void virtualModeRunsEachTaskOnANamedVirtualThread() throws Exception {
+        StageExecutor executor = factory("virtual").create("stt", LIMIT);
+        AtomicReference<Thread> ran = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            ran.set(Thread.currentThread());
+            done.countDown();
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran.get().isVirtual()).isTrue();
+        assertThat(ran.get().getName()).startsWith("stt-");
+        executor.shutdown();
+    }
+
+    @Test
+    void platformModeRunsOnDaemonPoolThreads() throws Exception {
+        StageExecutor executor = factory("platform").create("tts", LIMIT);
+        AtomicReference<Thread> ran = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            ran.set(Thread.currentThread());
+            done.countDown();
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(ran.get().isVirtual()).isFalse();
+        assertThat(ran.get().isDaemon()).isTrue();
+        assertThat(ran.get().getName()).startsWith("tts-");
+        executor.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"virtual", "platform"})
+    void neverRunsMoreThanTheStageLimitAtOnce(String mode) throws Exception {
+        StageExecutor executor = factory(mode).create("llm", LIMIT);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(TASKS);
+
+        for (int i = 0; i < TASKS; i++) {
+            executor.execute(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                    finished.countDown();
+                }
+            });
+        }
+
+        // The limit fills up, the active gauge shows it, and nothing else gets in
+        await().atMost(5, TimeUnit.SECONDS).until(() -> running.get() == LIMIT);
+        assertThat(registry.get("pipeline.stage.active").tag("stage", "llm").gauge().value()).isEqualTo(LIMIT);
+        Thread.sleep(100);
+        assertThat(peak.get()).isEqualTo(LIMIT);
+
+        release.countDown();
+        assertThat(finished.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(peak.get()).isEqualTo(LIMIT);
+        await().atMost(5, TimeUnit.SECONDS).until(() ->
+                registry.get("pipeline.stage.queue.wait").tag("stage", "llm").timer().count() == TASKS);
+        executor.shutdown();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"virtual", "platform"})
+    void shutdownLetsRunningTasksFinish(String mode) throws Exception {
+        StageExecutor executor = factory(mode).create("review", LIMIT);
+        AtomicInteger completed = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                Thread.sleep(200);
+                completed.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        executor.shutdown();
+
+        assertThat(completed.get()).isEqualTo(1);
+    }
+
+    private StageExecutorFactory factory(String mode) {
+        StageExecutorFactory factory = new StageExecutorFactory(registry);
+        ReflectionTestUtils.setField(factory, "mode", mode);
+        return factory;
+    }
+}
@@ -0,0 +1,107 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.model.FileUpload;
+import com.digitaltwin.digital_twin_backend.model.SummarizationJob;
+import com.digitaltwin.digital_twin_backend.scheduler.ClusterMembership;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SummarizationJobWorkerTest {
+
+    private final SummarizationJobService jobService = mock(SummarizationJobService.class);
+    private final FileUploadService fileUploadService = mock(FileUploadService.class);
+    private final FileProcessingService fileProcessingService = mock(FileProcessingService.class);
+    private final NoteService noteService = mock(NoteService.class);
+    private final ClusterMembership clusterMembership = mock(ClusterMembership.class);
+    private SummarizationJobWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        when(clusterMembership.getNodeId()).thenReturn("node-1");
+        worker = new SummarizationJobWorker(jobService, fileUploadService, fileProcessingService, noteService,
+                clusterMembership, new StageExecutorFactory(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(worker, "workers", 1);
+        ReflectionTestUtils.setField(worker, "maxAttempts", 3);
+        worker.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.destroy();
+    }
+
+    @Test
+    void resumedJobWithNotesSavedOnlyFinishes() {
+        SummarizationJob job = job(2);
+        job.setNotesSaved(true);
+        when(jobService.claim(eq("node-1"), anyLong(), anyInt())).thenReturn(job, (SummarizationJob) null);
+
+        worker.wakeUp();
+
+        verify(jobService, timeout(2000)).finish(job, "node-1", SummarizationJob.Status.SUCCEEDED, null);
+        verify(noteService, never()).createSummaryNote(any(), any(), any(), any(), any());
+        verify(fileUploadService, never()).markAsProcessed(any(), any(), any());
+    }
+
+    @Test
+    void notesAreMarkedSavedBeforeFinishing() {
+        SummarizationJob job = job(1);
+        SummarizationJob marked = job(1);
+        marked.setNotesSaved(true);
+        when(jobService.claim(eq("node-1"), anyLong(), anyInt())).thenReturn(job, (SummarizationJob) null);
+        when(jobService.advance(eq(job), eq("node-1"), eq(SummarizationJob.Stage.SAVING), any())).thenReturn(marked);
+
+        worker.wakeUp();
+
+        verify(jobService, timeout(2000)).finish(marked, "node-1", SummarizationJob.Status.SUCCEEDED, null);
+        verify(noteService).createSummaryNote(eq("u1"), any(), eq("summary"), eq("f1"), any());
+    }
+
+    @Test
+    void lostLeaseAfterNotesDoesNotFinish() {
+        SummarizationJob job = job(1);
+        when(jobService.claim(eq("node-1"), anyLong(), anyInt())).thenReturn(job, (SummarizationJob) null);
+        when(jobService.advance(any(), any(), any(), any())).thenReturn(null);
+
+        worker.wakeUp();
+
+        verify(noteService, timeout(2000)).createSummaryNote(any(), any(), any(), any(), any());
+        verify(jobService, never()).finish(any(), any(), any(), isNull());
+    }
+
+    private SummarizationJob job(int attempts) {
+        FileUpload file = new FileUpload();
+        file.setId("f1");
+        file.setOriginalFileName("report.pdf");
+        file.setCategory(FileUpload.FileCategory.PDF);
+        when(fileUploadService.getFileById("f1")).thenReturn(file);
+
+        SummarizationJob job = new SummarizationJob();
+        job.setId("job-1");
+        job.setUserId("u1");
+        job.setFileId("f1");
+        job.setType(SummarizationJob.JobType.SUMMARIZE);
+        job.setMode("standard");
+        job.setSaveAsNote(true);
+        job.setStatus(SummarizationJob.Status.RUNNING);
+        job.setStage(SummarizationJob.Stage.SAVING);
+        job.setAttempts(attempts);
+        job.setExtractedText("text");
+        job.setSummary("summary");
+        return job;
+    }
+}
@@ -0,0 +1,125 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.http.OutboundHttpClients;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Runs upload, transcript request and polling against an in-process fake AssemblyAI
+ */
+class TranscriptionServiceTest {
+
+    private HttpServer server;
+    private OutboundHttpClients clients;
+    private TranscriptionJobManager jobManager;
+    private TranscriptionService transcriptionService;
+
+    private final AtomicInteger uploads = new AtomicInteger();
+    private final AtomicInteger submits = new AtomicInteger();
+    private final AtomicInteger polls = new AtomicInteger();
+    private volatile int uploadStatus = 200;
+    private volatile int unavailableSubmits = 0;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v2/upload", exchange -> {
+            uploads.incrementAndGet();
+            exchange.getRequestBody().readAllBytes();
+            reply(exchange, uploadStatus, uploadStatus == 200 ? "{\"upload_url\":\"https://cdn.test/a1\"}" : "{}");
+        });
+        server.createContext("/v2/transcript", exchange -> {
+            if ("POST".equals(exchange.getRequestMethod())) {
+                if (submits.incrementAndGet() <= unavailableSubmits) {
+                    exchange.getResponseHeaders().add("Retry-After", "0");
+                    reply(exchange, 503, "{}");
+                } else {
+                    reply(exchange, 200, "{\"id\":\"t1\",\"status\":\"queued\"}");
+                }
+            } else if (polls.incrementAndGet() < 3) {
+                reply(exchange, 200, "{\"id\":\"t1\",\"status\":\"processing\"}");
+            } else {
+                reply(exchange, 200, "{\"id\":\"t1\",\"status\":\"completed\",\"text\":\"namaste doctor\"}");
+            }
+        });
+        server.start();
+        String baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+
+        clients = new OutboundHttpClients(new MockEnvironment()
+                .withProperty("app.http.assemblyai.retry-base-delay-ms", "1")
+                .withProperty("app.http.assemblyai.retry-max-delay-ms", "5"), new SimpleMeterRegistry());
+
+        jobManager = new TranscriptionJobManager(new SimpleMeterRegistry(), clients);
+        ReflectionTestUtils.setField(jobManager, "assemblyAIApiKey", "test-key");
+        ReflectionTestUtils.setField(jobManager, "baseUrl", baseUrl);
+        ReflectionTestUtils.setField(jobManager, "webhookUrl", "");
+        ReflectionTestUtils.setField(jobManager, "tickMs", 10L);
+        ReflectionTestUtils.setField(jobManager, "initialPollIntervalMs", 10L);
+        ReflectionTestUtils.setField(jobManager, "maxPollIntervalMs", 20L);
+        ReflectionTestUtils.setField(jobManager, "batchSize", 10);
+        jobManager.init();
+
+        transcriptionService = new TranscriptionService(jobManager, clients);
+        ReflectionTestUtils.setField(transcriptionService, "assemblyAIApiKey", "test-key");
+        ReflectionTestUtils.setField(transcriptionService, "baseUrl", baseUrl);
+        transcriptionService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobManager.destroy();
+        clients.destroy();
+        server.stop(0);
+    }
+
+    @Test
+    void transcribesThroughUploadSubmitAndPolling() throws Exception {
+        String text = transcriptionService.transcribe(new byte[4096], "hindi");
+
+        assertThat(text).isEqualTo("namaste doctor");
+        assertThat(uploads.get()).isEqualTo(1);
+        assertThat(submits.get()).isEqualTo(1);
+        assertThat(polls.get()).isEqualTo(3);
+    }
+
+    @Test
+    void unavailableSubmitIsRetriedOnlyByTheClient() throws Exception {
+        unavailableSubmits = 1;
+
+        assertThat(transcriptionService.transcribe(new byte[4096], "auto")).isEqualTo("namaste doctor");
+        // The audio is uploaded once; only the rejected request is sent again
+        assertThat(uploads.get()).isEqualTo(1);
+        assertThat(submits.get()).isEqualTo(2);
+    }
+
+    @Test
+    void failedUploadIsNotRetriedAgainByTheService() {
+        uploadStatus = 500;
+
+        assertThatThrownBy(() -> transcriptionService.transcribe(new byte[4096], "english"))
+                .hasMessageContaining("Upload failed: 500");
+        assertThat(uploads.get()).isEqualTo(1);
+    }
+
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+        exchange.close();
+    }
+}
@@ -0,0 +1,114 @@
+package com.digitaltwin.digital_twin_backend.service;
+
+import com.digitaltwin.digital_twin_backend.dto.ConfidenceScore;
+import com.digitaltwin.digital_twin_backend.dto.VoiceResponse;
+import com.digitaltwin.digital_twin_backend.repository.VoiceInteractionRepository;
+import com.digitaltwin.digital_twin_backend.websocket.WebSocketService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class VoiceServiceDirectLlmTest {
+
+    private static final String SENTENCE = "Your medicine is at eight tonight.";
+
+    private final LLMService llmService = mock(LLMService.class);
+    private final TTSService ttsService = mock(TTSService.class);
+    private final List<VoiceResponse> deltas = new CopyOnWriteArrayList<>();
+
+    private VoiceService voiceService;
+
+    @BeforeEach
+    void setUp() {
+        StageExecutorFactory factory = new StageExecutorFactory(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(factory, "mode", "virtual");
+
+        voiceService = new VoiceService(mock(VoiceInteractionRepository.class), llmService, ttsService,
+                mock(HITLQueueService.class), mock(ConfidenceScorer.class), mock(IntentClassifier.class),
+                mock(ContextRetrievalService.class), mock(TranscriptionService.class),
+                mock(StreamingSttEngine.class), mock(WebSocketService.class),
+                mock(RomanHindiTransliterator.class), mock(PhraseIndex.class), factory);
+        ReflectionTestUtils.setField(voiceService, "llmStreamingEnabled", true);
+        ReflectionTestUtils.setField(voiceService, "streamingTtsMinChars", 24);
+        ReflectionTestUtils.setField(voiceService, "streamingTtsDrainTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(voiceService, "chunkConcurrency", 2);
+        ReflectionTestUtils.setField(voiceService, "transcriptionConcurrency", 2);
+        ReflectionTestUtils.setField(voiceService, "responseConcurrency", 2);
+        ReflectionTestUtils.setField(voiceService, "ttsConcurrency", 2);
+        voiceService.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        voiceService.destroy();
+    }
+
+    @Test
+    void sentinelAfterReleasedTextIsWithdrawnWithoutWaitingForItsAudio() throws Exception {
+        // Audio for the released sentence would hold up a drain well past the assertion below
+        when(ttsService.textToSpeech(eq(SENTENCE), anyString())).thenAnswer(inv -> {
+            Thread.sleep(2000);
+            return "/audio/sentence.mp3";
+        });
+        when(ttsService.textToSpeech(eq("I am informing your caregiver. They will contact you shortly."), anyString()))
+                .thenReturn("/audio/wait.mp3");
+        when(llmService.streamLLM(anyString(), anyString(), anyString(), anyString(), any())).thenAnswer(inv -> {
+            Consumer<String> onToken = inv.getArgument(4);
+            onToken.accept(SENTENCE + " ");
+            onToken.accept("UNKNOWN_QUERY");
+            return SENTENCE + " UNKNOWN_QUERY";
+        });
+
+        long start = System.currentTimeMillis();
+        VoiceResponse response = respond();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertThat(response.getStatus()).isEqualTo(VoiceResponse.ResponseStatus.REVIEW_REQUIRED);
+        assertThat(response.getAudioUrl()).isEqualTo("/audio/wait.mp3");
+        assertThat(deltas).isNotEmpty();
+        assertThat(deltas.get(deltas.size() - 1).isStreamReset()).isTrue();
+        assertThat(elapsed).isLessThan(1500);
+    }
+
+    @Test
+    void answerWithoutSentinelKeepsItsStreamedAudio() throws Exception {
+        when(ttsService.textToSpeech(eq(SENTENCE), anyString())).thenReturn("/audio/sentence.mp3");
+        when(llmService.streamLLM(anyString(), anyString(), anyString(), anyString(), any())).thenAnswer(inv -> {
+            Consumer<String> onToken = inv.getArgument(4);
+            onToken.accept(SENTENCE);
+            return SENTENCE;
+        });
+
+        VoiceResponse response = respond();
+
+        assertThat(response.getStatus()).isEqualTo(VoiceResponse.ResponseStatus.SUCCESS);
+        assertThat(response.getAudioSegmentUrls()).containsExactly("/audio/sentence.mp3");
+        assertThat(deltas).noneMatch(VoiceResponse::isStreamReset);
+    }
+
+    private VoiceResponse respond() {
+        ConfidenceScore confidence = ConfidenceScore.builder()
+                .score(0.95)
+                .highConfidence(true)
+                .decision(ConfidenceScore.Decision.DIRECT_LLM)
+                .intentType("MEDICATION")
+                .reasons(List.of())
+                .build();
+        Consumer<VoiceResponse> deltaListener = deltas::add;
+        return ReflectionTestUtils.invokeMethod(voiceService, "generateFinalResponse",
+                "when is my medicine", "", "NORMAL", "chat", "u1", "s1", confidence, "en", deltaListener);
+    }
+}
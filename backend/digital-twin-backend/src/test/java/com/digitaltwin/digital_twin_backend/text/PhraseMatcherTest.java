@@ -0,0 +1,110 @@
+package com.digitaltwin.digital_twin_backend.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PhraseMatcherTest {
+
+    // Small alphabet so phrases overlap and share prefixes and suffixes; includes Devanagari
+    private static final String ALPHABET = "abAB दवा ";
+
+    @Test
+    void agreesWithStringContainsOnRandomInput() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            Set<String> phrases = new LinkedHashSet<>();
+            while (phrases.size() < 1 + random.nextInt(20)) {
+                String phrase = randomString(random, 1 + random.nextInt(5)).toLowerCase(Locale.ROOT);
+                if (!phrase.isEmpty()) {
+                    phrases.add(phrase);
+                }
+            }
+            PhraseMatcher matcher = PhraseMatcher.builder().add("t", phrases).build();
+
+            for (int sample = 0; sample < 20; sample++) {
+                String text = randomString(random, random.nextInt(40));
+                String lower = text.toLowerCase(Locale.ROOT);
+                PhraseMatcher.Matches matches = matcher.match(text);
+
+                List<String> expected = new ArrayList<>();
+                for (String phrase : phrases) {
+                    if (lower.contains(phrase)) {
+                        expected.add(phrase);
+                    }
+                }
+                assertThat(matches.phrases("t")).as("phrases %s in [%s]", phrases, text).isEqualTo(expected);
+                for (PhraseMatcher.Hit hit : matches.hits("t")) {
+                    assertThat(hit.start()).as("start of [%s] in [%s]", hit.phrase(), text)
+                            .isEqualTo(lower.indexOf(hit.phrase()));
+                    assertThat(hit.wholeWord()).as("whole word [%s] in [%s]", hit.phrase(), text)
+                            .isEqualTo(occursAsWholeWord(lower, hit.phrase()));
+                }
+            }
+        }
+    }
+
+    @Test
+    void reportsTagsCountsAndOrder() {
+        PhraseMatcher matcher = PhraseMatcher.builder()
+                .add("medicine", List.of("dawai", "tablet", "goli"))
+                .add("time", List.of("kab", "baje"))
+                .add("shared", "tablet")
+                .build();
+
+        PhraseMatcher.Matches matches = matcher.match("Goli aur TABLET kab leni hai?");
+
+        assertThat(matcher.size()).isEqualTo(5);
+        assertThat(matches.phrases("medicine")).containsExactly("tablet", "goli");
+        assertThat(matches.first("medicine")).isEqualTo("tablet");
+        assertThat(matches.count("medicine")).isEqualTo(2);
+        assertThat(matches.hasTag("shared")).isTrue();
+        assertThat(matches.hasTag("unknown")).isFalse();
+        assertThat(matches.contains("KAB")).isTrue();
+        assertThat(matches.contains("baje")).isFalse();
+        assertThat(matches.all()).containsExactlyInAnyOrder("goli", "tablet", "kab");
+    }
+
+    @Test
+    void distinguishesWholeWordsFromSubstrings() {
+        PhraseMatcher matcher = PhraseMatcher.builder().add("greeting", List.of("hi")).build();
+
+        assertThat(matcher.match("this").hits("greeting")).containsExactly(new PhraseMatcher.Hit("hi", 1, false));
+        assertThat(matcher.match("this, hi!").hits("greeting")).containsExactly(new PhraseMatcher.Hit("hi", 1, true));
+    }
+
+    @Test
+    void emptyTextMatchesNothing() {
+        PhraseMatcher matcher = PhraseMatcher.builder().add("t", "a").build();
+
+        assertThat(matcher.match("").isEmpty()).isTrue();
+        assertThat(matcher.match(null).isEmpty()).isTrue();
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder out = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            out.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return out.toString();
+    }
+
+    private static boolean occursAsWholeWord(String text, String phrase) {
+        for (int at = text.indexOf(phrase); at >= 0; at = text.indexOf(phrase, at + 1)) {
+            int end = at + phrase.length();
+            boolean before = at == 0 || !Character.isLetterOrDigit(text.charAt(at - 1));
+            boolean after = end == text.length() || !Character.isLetterOrDigit(text.charAt(end));
+            if (before && after) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,294 @@
+package com.digitaltwin.digital_twin_backend.websocket;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.digitaltwin.digital_twin_backend.audio.AudioBufferPool;
+import com.digitaltwin.digital_twin_backend.model.AudioChunk;
+import com.digitaltwin.digital_twin_backend.service.VoiceService;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * CPU spent per second of received audio on the Base64/STOMP chunk path versus the
+ * binary frame path, for 250 ms webm/opus chunks at 32 kbit/s. The STOMP side is
+ * charged only for the JSON body and the Base64 decode, not the STOMP frame parse,
+ * so the gap it reports is a lower bound.
+ *
+ * Opt-in: {@code mvn test -Dtest=AudioIngestCpuBenchmarkTest -Dbenchmarks=true}
+ */
+@EnabledIfSystemProperty(named = "benchmarks", matches = "true")
+class AudioIngestCpuBenchmarkTest {
+
+    private static final int CHUNK_BYTES = 1_000;
+    private static final double CHUNK_SECONDS = 0.25;
+    private static final int SESSIONS = 200;
+    private static final int CHUNKS = 120;
+    private static final int ROUNDS = 5;
+
+    // Per-chunk log lines would swamp what is being measured
+    private final Logger appLogger = (Logger) LoggerFactory.getLogger("com.digitaltwin");
+    private Level appLogLevel;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    // Lenient like the STOMP message converter's mapper
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final byte[] audio = new byte[CHUNK_BYTES];
+
+    private VoiceWebSocketController controller;
+    private BinaryAudioWebSocketHandler binaryHandler;
+    private WebSocketSession socket;
+
+    @BeforeEach
+    void setUp() {
+        appLogLevel = appLogger.getLevel();
+        appLogger.setLevel(Level.WARN);
+        ThreadLocalRandom.current().nextBytes(audio);
+
+        // Both paths serialize their ack for real and hand it to a sink that drops it
+        VoiceService voiceService = mock(VoiceService.class, withSettings().stubOnly());
+        AudioBufferPool pool = new AudioBufferPool(new SimpleMeterRegistry(), 16 * 1024, 256L << 20, 1 << 20, 8, 512);
+        controller = new VoiceWebSocketController(voiceService,
+                new SimpMessagingTemplate((message, timeout) -> true), new VoiceSessionRegistry(), pool);
+        controller.init();
+        binaryHandler = new BinaryAudioWebSocketHandler(controller, voiceService, objectMapper);
+        socket = new DiscardingSocket();
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.destroy();
+        appLogger.setLevel(appLogLevel);
+    }
+
+    @Test
+    void binaryFramesCostLessCpuPerAudioSecondThanBase64Stomp() throws Exception {
+        List<String> stompBodies = new ArrayList<>();
+        List<byte[]> binaryFrames = new ArrayList<>();
+        for (int seq = 0; seq < CHUNKS; seq++) {
+            stompBodies.add(stompBody(seq));
+            binaryFrames.add(binaryFrame(seq));
+        }
+
+        // Warm both paths so the JIT has compiled them before anything is timed
+        runStomp("warm", stompBodies);
+        runBinary("warm", binaryFrames);
+
+        long stompNanos = 0;
+        long binaryNanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            stompNanos += runStomp("stomp" + round, stompBodies);
+            binaryNanos += runBinary("binary" + round, binaryFrames);
+        }
+
+        double audioSeconds = ROUNDS * SESSIONS * CHUNKS * CHUNK_SECONDS;
+        double stompPerSecond = stompNanos / audioSeconds / 1_000;
+        double binaryPerSecond = binaryNanos / audioSeconds / 1_000;
+        System.out.printf("audio ingest CPU per audio-second: Base64/STOMP %.1f us, binary %.1f us (%.1fx)%n",
+                stompPerSecond, binaryPerSecond, stompPerSecond / binaryPerSecond);
+
+        assertThat(binaryNanos).isLessThan(stompNanos);
+    }
+
+    // Each call opens fresh sessions so every chunk is appended, not dropped as a duplicate
+    private long runStomp(String prefix, List<String> bodies) throws Exception {
+        List<String> sessionIds = connectAll(prefix);
+        long start = threads.getCurrentThreadCpuTime();
+        for (String sessionId : sessionIds) {
+            for (String body : bodies) {
+                AudioChunk chunk = objectMapper.readValue(body, AudioChunk.class);
+                controller.handleAudioChunk(chunk, null, sessionId);
+            }
+        }
+        long elapsed = threads.getCurrentThreadCpuTime() - start;
+        releaseAll(sessionIds);
+        return elapsed;
+    }
+
+    private long runBinary(String prefix, List<byte[]> payloads) throws Exception {
+        List<String> sessionIds = connectAll(prefix);
+        List<List<BinaryMessage>> frames = new ArrayList<>();
+        for (String sessionId : sessionIds) {
+            List<BinaryMessage> sessionFrames = new ArrayList<>();
+            for (byte[] payload : payloads) {
+                sessionFrames.add(new BinaryMessage(withSessionId(payload, sessionId)));
+            }
+            frames.add(sessionFrames);
+        }
+
+        long start = threads.getCurrentThreadCpuTime();
+        for (List<BinaryMessage> sessionFrames : frames) {
+            for (BinaryMessage frame : sessionFrames) {
+                binaryHandler.handleBinaryMessage(socket, frame);
+            }
+        }
+        long elapsed = threads.getCurrentThreadCpuTime() - start;
+        releaseAll(sessionIds);
+        return elapsed;
+    }
+
+    private List<String> connectAll(String prefix) {
+        List<String> sessionIds = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            String sessionId = prefix + "-" + s;
+            SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+            headers.setSessionAttributes(new HashMap<>());
+            controller.connect(null, sessionId, Map.of("userId", "u-" + sessionId, "userType", "NORMAL"), headers);
+            sessionIds.add(sessionId);
+        }
+        return sessionIds;
+    }
+
+    private void releaseAll(List<String> sessionIds) {
+        for (String sessionId : sessionIds) {
+            controller.getActiveSession(sessionId).releaseBuffer();
+        }
+    }
+
+    private String stompBody(int seq) throws Exception {
+        AudioChunk chunk = new AudioChunk();
+        chunk.setSessionId("bench");
+        chunk.setSequenceNumber(seq);
+        chunk.setData(Base64.getEncoder().encodeToString(audio));
+        chunk.setFormat("webm");
+        chunk.setSampleRate(16000);
+        chunk.setChunkSizeBytes(CHUNK_BYTES);
+        chunk.setTimestamp(System.currentTimeMillis());
+        return objectMapper.writeValueAsString(chunk);
+    }
+
+    // Frame body without the session id; filled in per session by withSessionId
+    private byte[] binaryFrame(int seq) {
+        ByteBuffer frame = ByteBuffer.allocate(8 + CHUNK_BYTES);
+        frame.put((byte) 1).put((byte) 0).put((byte) 0).put((byte) 0).putInt(seq);
+        frame.put(audio);
+        return frame.array();
+    }
+
+    private static ByteBuffer withSessionId(byte[] payload, String sessionId) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(payload.length + id.length);
+        frame.put(payload, 0, 8).put(id).put(payload, 8, payload.length - 8);
+        frame.put(3, (byte) id.length);
+        frame.flip();
+        return frame;
+    }
+
+    // A Mockito mock here would cost more per frame than the handler itself
+    private static final class DiscardingSocket implements WebSocketSession {
+
+        private final Map<String, Object> attributes = new HashMap<>();
+
+        @Override
+        public String getId() {
+            return "ws-1";
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return HttpHeaders.EMPTY;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return Integer.MAX_VALUE;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return List.of();
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+    }
+}
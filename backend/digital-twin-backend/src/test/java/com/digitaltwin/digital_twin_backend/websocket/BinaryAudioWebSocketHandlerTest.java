@@ -0,0 +1,118 @@
+package com.digitaltwin.digital_twin_backend.websocket;
+
+import com.digitaltwin.digital_twin_backend.service.VoiceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.HashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BinaryAudioWebSocketHandlerTest {
+
+    private final VoiceWebSocketController controller = mock(VoiceWebSocketController.class);
+    private final VoiceService voiceService = mock(VoiceService.class);
+    private final BinaryAudioWebSocketHandler handler =
+            new BinaryAudioWebSocketHandler(controller, voiceService, new ObjectMapper());
+    private VoiceWebSocketController.VoiceSession session;
+
+    @BeforeEach
+    void setUp() {
+        session = new VoiceWebSocketController.VoiceSession();
+        session.setSessionId("s1");
+        session.setUsername("alice");
+        when(controller.getActiveSession("s1")).thenReturn(session);
+    }
+
+    @Test
+    void anonymousSocketCannotWriteIntoOwnedSession() throws Exception {
+        session.setOwnerPrincipal("alice");
+        WebSocketSession anonymous = socket("ws-1", null);
+
+        handler.handleBinaryMessage(anonymous, frame("s1", 0));
+
+        assertThat(session.getTotalChunks()).isZero();
+        verify(voiceService, never()).processAudioFrame(any(), any(), anyInt(), any());
+        verify(anonymous).sendMessage(argThat(m -> ((TextMessage) m).getPayload().contains("nack")));
+    }
+
+    @Test
+    void otherUserCannotWriteIntoOwnedSession() throws Exception {
+        session.setOwnerPrincipal("alice");
+
+        handler.handleBinaryMessage(socket("ws-1", "mallory"), frame("s1", 0));
+
+        assertThat(session.getTotalChunks()).isZero();
+    }
+
+    @Test
+    void ownerIsAccepted() throws Exception {
+        session.setOwnerPrincipal("alice");
+
+        handler.handleBinaryMessage(socket("ws-1", "alice"), frame("s1", 0));
+
+        assertThat(session.getTotalChunks()).isEqualTo(1);
+        // Accepted audio also feeds streaming STT, answered on the owner's queue
+        verify(voiceService).processAudioFrame(eq("s1"), eq("alice"), eq(0), any());
+    }
+
+    @Test
+    void anonymousSessionIsBoundToFirstSocket() throws Exception {
+        WebSocketSession first = socket("ws-1", null);
+        WebSocketSession second = socket("ws-2", null);
+
+        handler.handleBinaryMessage(first, frame("s1", 0));
+        handler.handleBinaryMessage(second, frame("s1", 1));
+
+        assertThat(session.getTotalChunks()).isEqualTo(1);
+        verify(second).sendMessage(argThat(m -> ((TextMessage) m).getPayload().contains("nack")));
+    }
+
+    @Test
+    void bindingIsReleasedWhenSocketCloses() throws Exception {
+        WebSocketSession first = socket("ws-1", null);
+        WebSocketSession second = socket("ws-2", null);
+
+        handler.handleBinaryMessage(first, frame("s1", 0));
+        handler.afterConnectionClosed(first, CloseStatus.GOING_AWAY);
+        handler.handleBinaryMessage(second, frame("s1", 1));
+
+        assertThat(session.getTotalChunks()).isEqualTo(2);
+    }
+
+    private static WebSocketSession socket(String id, String principalName) {
+        WebSocketSession socket = mock(WebSocketSession.class);
+        when(socket.getId()).thenReturn(id);
+        when(socket.getAttributes()).thenReturn(new HashMap<>());
+        if (principalName != null) {
+            Principal principal = () -> principalName;
+            when(socket.getPrincipal()).thenReturn(principal);
+        }
+        return socket;
+    }
+
+    private static BinaryMessage frame(String sessionId, int sequence) {
+        byte[] id = sessionId.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer frame = ByteBuffer.allocate(8 + id.length + 4);
+        frame.put((byte) 1).put((byte) 0).put((byte) 0).put((byte) id.length).putInt(sequence);
+        frame.put(id).put(new byte[]{1, 2, 3, 4});
+        frame.flip();
+        return new BinaryMessage(frame);
+    }
+}
@@ -0,0 +1,262 @@
+package com.digitaltwin.digital_twin_backend.websocket;
+
+import com.digitaltwin.digital_twin_backend.audio.AudioBufferPool;
+import com.digitaltwin.digital_twin_backend.audio.AudioView;
+import com.digitaltwin.digital_twin_backend.dto.VoiceResponse;
+import com.digitaltwin.digital_twin_backend.model.AudioChunk;
+import com.digitaltwin.digital_twin_backend.service.VoiceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageSendingOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Many sessions stopping at once, with /voice.stop racing the last chunks. Every
+ * utterance must reach the pipeline exactly once and with all of its audio, and
+ * pending stops must not hold up chunk delivery on the inbound channel.
+ */
+class VoiceStopFlowTest {
+
+    private static final int SESSIONS = 200;
+    private static final int CHUNKS = 10;
+    private static final int CHUNK_BYTES = 100;
+    private static final int STRESS_SESSIONS = 500;
+    // clientInboundChannel's max pool size in WebSocketConfig
+    private static final int INBOUND_THREADS = 50;
+    private static final int PROBES = 200;
+
+    private final VoiceService voiceService = mock(VoiceService.class);
+    private final Map<String, List<Long>> pipelineRuns = new ConcurrentHashMap<>();
+    private VoiceWebSocketController controller;
+    private ExecutorService clients;
+
+    @BeforeEach
+    void setUp() {
+        AudioBufferPool pool = new AudioBufferPool(new SimpleMeterRegistry(), 1024, 64L << 20, 1 << 20, 8, 512);
+        controller = new VoiceWebSocketController(voiceService, mock(SimpMessageSendingOperations.class),
+                new VoiceSessionRegistry(), pool);
+        ReflectionTestUtils.setField(controller, "stopIdleTimeoutMs", 50L);
+        ReflectionTestUtils.setField(controller, "stopMaxWaitMs", 2000L);
+        controller.init();
+
+        when(voiceService.processCompleteVoice(anyString(), anyString(), anyString(), anyString(), anyString(),
+                any(AudioView.class), any())).thenAnswer(inv -> {
+                    try (AudioView audio = inv.getArgument(5)) {
+                        pipelineRuns.computeIfAbsent(inv.getArgument(0), id -> new CopyOnWriteArrayList<>())
+                                .add(audio.size());
+                    }
+                    return CompletableFuture.completedFuture(VoiceResponse.builder().build());
+                });
+
+        clients = Executors.newFixedThreadPool(16);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        clients.shutdownNow();
+        clients.awaitTermination(5, TimeUnit.SECONDS);
+        controller.destroy();
+    }
+
+    @Test
+    void stopRacingLastChunkRunsPipelineOnceWithAllAudio() {
+        // Only the isLast chunk may complete these; a descheduled sender must not look idle
+        ReflectionTestUtils.setField(controller, "stopIdleTimeoutMs", 1000L);
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            String sessionId = "s" + s;
+            int stopAfter = ThreadLocalRandom.current().nextInt(CHUNKS + 1);
+            runs.add(CompletableFuture.runAsync(() -> {
+                connect(sessionId);
+                for (int seq = 0; seq < CHUNKS; seq++) {
+                    if (seq == stopAfter) {
+                        // Stop arrives from another thread while chunks are still coming
+                        clients.execute(() -> stop(sessionId));
+                    }
+                    controller.handleAudioChunk(chunk(sessionId, seq, seq == CHUNKS - 1), null, sessionId);
+                }
+                if (stopAfter == CHUNKS) {
+                    stop(sessionId);
+                }
+            }, clients));
+        }
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> pipelineRuns.size() == SESSIONS);
+        assertThat(pipelineRuns.values()).allSatisfy(sizes ->
+                assertThat(sizes).containsExactly((long) CHUNKS * CHUNK_BYTES));
+    }
+
+    @Test
+    void clientWithoutLastFlagIsProcessedOnceAfterIdleTimeout() {
+        List<CompletableFuture<Void>> runs = new ArrayList<>();
+        for (int s = 0; s < SESSIONS; s++) {
+            String sessionId = "idle" + s;
+            runs.add(CompletableFuture.runAsync(() -> {
+                connect(sessionId);
+                for (int seq = 0; seq < CHUNKS; seq++) {
+                    controller.handleAudioChunk(chunk(sessionId, seq, false), null, sessionId);
+                }
+                stop(sessionId);
+                // A retried stop must not start a second run
+                stop(sessionId);
+            }, clients));
+        }
+        CompletableFuture.allOf(runs.toArray(CompletableFuture[]::new)).join();
+
+        await().atMost(10, TimeUnit.SECONDS).until(() -> pipelineRuns.size() == SESSIONS);
+        // Give a duplicate run time to show up
+        await().pollDelay(200, TimeUnit.MILLISECONDS).until(() -> true);
+        assertThat(pipelineRuns.values()).allSatisfy(sizes ->
+                assertThat(sizes).containsExactly((long) CHUNKS * CHUNK_BYTES));
+    }
+
+    @Test
+    void stopWithoutAudioGivesUpAfterMaxWait() {
+        ReflectionTestUtils.setField(controller, "stopMaxWaitMs", 200L);
+        connect("silent");
+
+        long start = System.nanoTime();
+        stop("silent");
+
+        await().atMost(2, TimeUnit.SECONDS).until(() -> pipelineRuns.containsKey("silent"));
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isGreaterThanOrEqualTo(200);
+        assertThat(pipelineRuns.get("silent")).containsExactly(0L);
+    }
+
+    @Test
+    void lastChunkOvertakingAnEarlierOneWaitsForTheGap() {
+        ReflectionTestUtils.setField(controller, "stopIdleTimeoutMs", 1000L);
+        connect("gap");
+        for (int seq = 0; seq < CHUNKS - 2; seq++) {
+            controller.handleAudioChunk(chunk("gap", seq, false), null, "gap");
+        }
+        controller.handleAudioChunk(chunk("gap", CHUNKS - 1, true), null, "gap");
+        stop("gap");
+
+        assertThat(pipelineRuns).doesNotContainKey("gap");
+
+        // The missing chunk completes the utterance well before the idle timeout
+        long start = System.nanoTime();
+        controller.handleAudioChunk(chunk("gap", CHUNKS - 2, false), null, "gap");
+
+        assertThat(pipelineRuns.get("gap")).containsExactly((long) CHUNKS * CHUNK_BYTES);
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(1000);
+    }
+
+    @Test
+    void emptyLastMarkerCompletesOnceEveryChunkBeforeItArrived() {
+        ReflectionTestUtils.setField(controller, "stopIdleTimeoutMs", 1000L);
+        connect("marker");
+        controller.handleAudioChunk(chunk("marker", 1, false), null, "marker");
+        AudioChunk marker = chunk("marker", 2, true);
+        marker.setData("");
+        controller.handleAudioChunk(marker, null, "marker");
+        stop("marker");
+
+        assertThat(pipelineRuns).doesNotContainKey("marker");
+
+        controller.handleAudioChunk(chunk("marker", 0, false), null, "marker");
+
+        assertThat(pipelineRuns.get("marker")).containsExactly(2L * CHUNK_BYTES);
+    }
+
+    @Test
+    void pendingStopsDoNotSlowChunkDeliveryOnTheInboundChannel() throws Exception {
+        // Long enough that every stressed stop is still pending while the probes run
+        ReflectionTestUtils.setField(controller, "stopIdleTimeoutMs", 2000L);
+        ReflectionTestUtils.setField(controller, "stopMaxWaitMs", 4000L);
+        ExecutorService inbound = Executors.newFixedThreadPool(INBOUND_THREADS);
+        try {
+            connect("probe");
+            long baselineP99 = probeChunkLatencyP99(inbound, 0);
+
+            // Every session sends its audio and then stops without an isLast chunk
+            List<Future<?>> stressed = new ArrayList<>();
+            for (int s = 0; s < STRESS_SESSIONS; s++) {
+                String sessionId = "stress" + s;
+                stressed.add(inbound.submit(() -> {
+                    connect(sessionId);
+                    for (int seq = 0; seq < CHUNKS; seq++) {
+                        controller.handleAudioChunk(chunk(sessionId, seq, false), null, sessionId);
+                    }
+                    stop(sessionId);
+                }));
+            }
+            for (Future<?> task : stressed) {
+                task.get(5, TimeUnit.SECONDS);
+            }
+
+            long loadedP99 = probeChunkLatencyP99(inbound, PROBES);
+            long pendingStops = pipelineRuns.keySet().stream().filter(id -> id.startsWith("stress")).count();
+            System.out.printf("inbound chunk latency p99: %d us idle, %d us with %d stops pending%n",
+                    baselineP99 / 1_000, loadedP99 / 1_000, STRESS_SESSIONS - pendingStops);
+
+            assertThat(pendingStops).isZero();
+            // A parked inbound thread per stop would queue the probes for seconds
+            assertThat(loadedP99).isLessThan(baselineP99 + TimeUnit.MILLISECONDS.toNanos(20));
+
+            await().atMost(10, TimeUnit.SECONDS).until(() -> pipelineRuns.size() == STRESS_SESSIONS);
+        } finally {
+            inbound.shutdownNow();
+        }
+    }
+
+    // Submit-to-done time of single chunks handed to the inbound pool one after another
+    private long probeChunkLatencyP99(ExecutorService inbound, int firstSequence) throws Exception {
+        long[] latencies = new long[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            AudioChunk probe = chunk("probe", firstSequence + i, false);
+            long submitted = System.nanoTime();
+            inbound.submit(() -> controller.handleAudioChunk(probe, null, "probe")).get(5, TimeUnit.SECONDS);
+            latencies[i] = System.nanoTime() - submitted;
+        }
+        Arrays.sort(latencies);
+        return latencies[PROBES * 99 / 100];
+    }
+
+    private void connect(String sessionId) {
+        SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create();
+        headers.setSessionAttributes(new HashMap<>());
+        controller.connect(null, sessionId, Map.of("userId", "u-" + sessionId, "userType", "NORMAL"), headers);
+    }
+
+    private void stop(String sessionId) {
+        controller.stopStreaming(null, sessionId, Map.of("mode", "standard", "language", "en"));
+    }
+
+    private static AudioChunk chunk(String sessionId, int sequence, boolean last) {
+        AudioChunk chunk = new AudioChunk();
+        chunk.setSessionId(sessionId);
+        chunk.setSequenceNumber(sequence);
+        chunk.setData(Base64.getEncoder().encodeToString(new byte[CHUNK_BYTES]));
+        chunk.setChunkSizeBytes(CHUNK_BYTES);
+        chunk.setLast(last);
+        return chunk;
+    }
+}
@@ -105,7 +105,8 @@ export const fileApi = {
                 params: { mode, saveAsNote }
             }
         );
-        return response.data;
+        const job = await fileApi.waitForJob(response.data.data.jobId);
+        return { success: true, data: job.summary };
     },
 
     /**
@@ -127,7 +128,8 @@ export const fileApi = {
                 params: { mode, saveAsNote, saveTranscription }
             }
         );
-        return response.data;
+        const job = await fileApi.waitForJob(response.data.data.jobId);
+        return { success: true, data: { transcription: job.extractedText, summary: job.summary } };
     },
 
     /**
@@ -149,7 +151,8 @@ export const fileApi = {
                 params: { mode, saveAsNote, saveTranscription }
             }
         );
-        return response.data;
+        const job = await fileApi.waitForJob(response.data.data.jobId);
+        return { success: true, data: { transcription: job.extractedText, summary: job.summary } };
     },
 
     /**
@@ -234,9 +237,54 @@ export const fileApi = {
                 params: { mode, saveAsNote }
             }
         );
+        const job = await fileApi.waitForJob(response.data.data.jobId);
+        return { success: true, data: job.summary };
+    },
+
+    // ==================== SUMMARIZATION JOBS ====================
+
+    /**
+     * Get a summarization job (status, stage, progress, results)
+     * @param {string} jobId - Job ID
+     * @returns {Promise} Response with the job
+     */
+    getJob: async (jobId) => {
+        const response = await axios.get(`/files/jobs/${jobId}`);
+        return response.data;
+    },
+
+    /**
+     * Cancel a queued or running summarization job
+     * @param {string} jobId - Job ID
+     * @returns {Promise} Response with the updated job
+     */
+    cancelJob: async (jobId) => {
+        const response = await axios.post(`/files/jobs/${jobId}/cancel`);
         return response.data;
     },
 
+    /**
+     * Wait until a summarization job finishes (live progress is also sent on /user/queue/jobs.progress)
+     * @param {string} jobId - Job ID
+     * @param {number} intervalMs - Polling interval (default: 2000)
+     * @returns {Promise} The finished job; rejects like a failed request if it failed or was cancelled
+     */
+    waitForJob: async (jobId, intervalMs = 2000) => {
+        for (;;) {
+            const { data: job } = await fileApi.getJob(jobId);
+            if (job.status === 'SUCCEEDED') {
+                return job;
+            }
+            if (job.status === 'FAILED' || job.status === 'CANCELLED') {
+                const message = job.status === 'CANCELLED' ? 'Summarization was cancelled' : job.error;
+                const error = new Error(message);
+                error.response = { data: { success: false, message } };
+                throw error;
+            }
+            await new Promise((resolve) => setTimeout(resolve, intervalMs));
+        }
+    },
+
     // ==================== UTILITY FUNCTIONS ====================
 
     /**
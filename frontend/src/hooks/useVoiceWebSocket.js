@@ -33,11 +33,17 @@ export const useVoiceWebSocket = () => {
     const pingInterval = useRef(null);
     const reconnectTimeout = useRef(null);
     const pendingChunks = useRef([]);
+    const chunkSendChain = useRef(Promise.resolve());
     const modeRef = useRef("standard");
     const languageRef = useRef("auto");
     const subscriptionsRef = useRef([]);
     const lastHandledMessageRef = useRef(null);
     const isUnmountedRef = useRef(false);
+    const streamingTextRef = useRef("");
+    const lastDeltaSeqRef = useRef(-1);
+    const audioQueueRef = useRef([]);
+    const audioPlayingRef = useRef(false);
+    const currentAudioRef = useRef(null);
 
     // ✅ Check if user is anonymous
     const isAnonymous = !user || !user.id;
@@ -118,6 +124,7 @@ export const useVoiceWebSocket = () => {
         mediaRecorder.current = null;
         audioChunks.current = [];
         chunkCount.current = 0;
+        chunkSendChain.current = Promise.resolve();
         stopInProgress.current = false;
         setIsRecording(false);
         if (!keepProcessing) {
@@ -134,6 +141,9 @@ export const useVoiceWebSocket = () => {
         setError(null);
         setIsProcessing(false);
         lastHandledMessageRef.current = null;
+        streamingTextRef.current = "";
+        lastDeltaSeqRef.current = -1;
+        audioQueueRef.current = [];
         clearStoredResponse();
     };
 
@@ -255,6 +265,18 @@ export const useVoiceWebSocket = () => {
                         });
                     });
 
+                    subscribe(`/topic/voice.response.delta/${sid}`, (message) => {
+                        handleMessage(message, "✏️ Response delta on topic", (data) => {
+                            handleResponseDelta(data);
+                        });
+                    });
+
+                    subscribe("/user/queue/voice.response.delta", (message) => {
+                        handleMessage(message, "✏️ Response delta on queue", (data) => {
+                            handleResponseDelta(data);
+                        });
+                    });
+
                     subscribe(`/topic/voice.error/${sid}`, (message) => {
                         handleMessage(message, "❌ Error received on topic", (data) => {
                             setError(data.message || data.error || "Processing error");
@@ -331,6 +353,44 @@ export const useVoiceWebSocket = () => {
         }
     };
 
+    // Streaming answer: text grows as deltas arrive, sentence audio is queued in order
+    const handleResponseDelta = (data) => {
+        if (!data || data.status !== "STREAMING") {
+            return;
+        }
+        if (typeof data.deltaSequence === "number") {
+            if (data.deltaSequence <= lastDeltaSeqRef.current) {
+                return;
+            }
+            lastDeltaSeqRef.current = data.deltaSequence;
+        }
+
+        // The stream broke after some of it was shown; drop it, the full answer follows
+        if (data.streamReset) {
+            streamingTextRef.current = "";
+            stopQueuedAudio();
+            setResponse(null);
+            return;
+        }
+
+        if (data.textDelta) {
+            streamingTextRef.current += data.textDelta;
+            setResponse({
+                interactionId: data.interactionId,
+                status: "STREAMING",
+                textResponse: streamingTextRef.current,
+            });
+        }
+        if (data.audioUrl) {
+            enqueueAudio(data.audioUrl);
+        }
+    };
+
+    const resetStreamingState = () => {
+        streamingTextRef.current = "";
+        lastDeltaSeqRef.current = -1;
+    };
+
     const handleVoiceResponse = (data) => {
         console.log("🔍 Handling voice response:", data);
         if (!data || typeof data !== "object") {
@@ -353,6 +413,7 @@ export const useVoiceWebSocket = () => {
             return;
         }
         lastHandledMessageRef.current = messageKey;
+        resetStreamingState();
 
         if (normalizedData.transcription) {
             setTranscription(normalizedData.transcription);
@@ -383,7 +444,8 @@ export const useVoiceWebSocket = () => {
             setWaitingForReview(false);
             setReviewId(null);
             rememberLatestResponse(normalizedData);
-            if (normalizedData.audioUrl) playAudio(normalizedData.audioUrl);
+            // Streamed answers already played sentence by sentence
+            if (normalizedData.audioUrl && !normalizedData.streamed) playAudio(normalizedData.audioUrl);
         } else if (normalizedData.status === "TIMEOUT") {
             console.log("⌛ Timeout response");
             setIsProcessing(false);
@@ -461,10 +523,10 @@ export const useVoiceWebSocket = () => {
         }
     };
 
-    const sendAudioChunk = (base64Data, seqNum, sizeBytes) => {
+    const sendAudioChunk = (base64Data, seqNum, sizeBytes, isLast = false, mimeType = "audio/webm") => {
         if (!stompClient.current || !stompClient.current.connected) {
             console.warn("⚠️ Queuing chunk - not connected");
-            pendingChunks.current.push({ base64Data, seqNum, sizeBytes });
+            pendingChunks.current.push({ base64Data, seqNum, sizeBytes, isLast, mimeType });
             return;
         }
 
@@ -475,14 +537,34 @@ export const useVoiceWebSocket = () => {
                 sessionId: sessionId.current,
                 sequenceNumber: seqNum,
                 data: base64Data,
-                format: "webm",
+                format: mimeType.includes("mp4") ? "mp4" : "webm",
+                mimeType: mimeType,
                 sampleRate: 16000,
                 chunkSizeBytes: sizeBytes,
                 timestamp: Date.now(),
-                isLast: false,
+                isLast: isLast,
             }),
         });
-        console.debug(`📤 Sent chunk ${seqNum}`);
+        console.debug(`📤 Sent chunk ${seqNum}${isLast ? " (last)" : ""}`);
+    };
+
+    const blobToBase64 = (blob) => new Promise((resolve, reject) => {
+        const reader = new FileReader();
+        reader.onload = () => {
+            const encoded = typeof reader.result === "string" ? reader.result : "";
+            resolve(encoded.includes(",") ? encoded.split(",")[1] : "");
+        };
+        reader.onerror = reject;
+        reader.readAsDataURL(blob);
+    });
+
+    // Chunks go out live, in order, so the server can transcribe while the user speaks
+    const streamRecordedChunk = (blob, mimeType) => {
+        const seqNum = chunkCount.current++;
+        chunkSendChain.current = chunkSendChain.current
+            .then(() => blobToBase64(blob))
+            .then((base64Data) => sendAudioChunk(base64Data, seqNum, blob.size, false, mimeType))
+            .catch((err) => console.error(`Failed to send chunk ${seqNum}:`, err));
     };
 
     useEffect(() => {
@@ -490,7 +572,8 @@ export const useVoiceWebSocket = () => {
             console.log(`🔄 Flushing ${pendingChunks.current.length} queued chunks`);
             const chunks = [...pendingChunks.current];
             pendingChunks.current = [];
-            chunks.forEach((chunk) => sendAudioChunk(chunk.base64Data, chunk.seqNum, chunk.sizeBytes));
+            chunks.forEach((chunk) => sendAudioChunk(chunk.base64Data, chunk.seqNum, chunk.sizeBytes,
+                chunk.isLast, chunk.mimeType));
         }
     }, [connected]);
 
@@ -520,6 +603,8 @@ export const useVoiceWebSocket = () => {
             setReviewId(null);
             setIsProcessing(false);
             lastHandledMessageRef.current = null;
+            streamingTextRef.current = "";
+            lastDeltaSeqRef.current = -1;
             clearStoredResponse();
 
             const stream = await navigator.mediaDevices.getUserMedia({
@@ -548,11 +633,13 @@ export const useVoiceWebSocket = () => {
             mediaRecorder.current = recorder;
             audioChunks.current = [];
             chunkCount.current = 0;
+            chunkSendChain.current = Promise.resolve();
 
             recorder.ondataavailable = (event) => {
                 if (event.data && event.data.size > 0) {
                     audioChunks.current.push(event.data);
-                    console.log(`🎙️ Chunk collected: ${event.data.size} bytes`);
+                    streamRecordedChunk(event.data, recorder.mimeType || mimeType || "audio/webm");
+                    console.log(`🎙️ Chunk streamed: ${event.data.size} bytes`);
                 }
             };
 
@@ -603,73 +690,48 @@ export const useVoiceWebSocket = () => {
                 return;
             }
 
-            const completeBlob = new Blob(audioChunks.current, { type: mimeType });
-            console.log(`📦 Complete audio blob: ${completeBlob.size} bytes, type: ${mimeType}`);
+            const totalBytes = audioChunks.current.reduce((sum, chunk) => sum + chunk.size, 0);
+            console.log(`📦 Recorded audio: ${totalBytes} bytes, type: ${mimeType}`);
 
-            if (completeBlob.size < 1000) {
+            if (totalBytes < 1000) {
                 safeSetError("Recording was too short. Please speak a little longer.");
                 resetRecorderState();
+                // Drop the chunks already streamed so they don't prefix the next recording
+                if (stompClient.current?.connected) {
+                    stompClient.current.publish({
+                        destination: "/app/voice.cancel",
+                        headers: { sessionId: sessionId.current },
+                        body: JSON.stringify(buildVoiceUserContext()),
+                    });
+                }
                 return;
             }
 
-            const reader = new FileReader();
-            reader.onload = () => {
-                const encodedAudio = typeof reader.result === "string" ? reader.result : "";
-                const base64Data = encodedAudio.includes(",") ? encodedAudio.split(",")[1] : "";
-                if (!base64Data) {
-                    safeSetError("Could not prepare the recorded audio.");
-                    resetRecorderState();
-                    return;
-                }
-
-                if (!stompClient.current?.connected) {
-                    safeSetError("Connection was lost before the audio could be sent.");
-                    resetRecorderState();
-                    return;
-                }
-
-                stompClient.current.publish({
-                    destination: "/app/voice.stream",
-                    headers: { sessionId: sessionId.current },
-                    body: JSON.stringify({
-                        sessionId: sessionId.current,
-                        sequenceNumber: 0,
-                        data: base64Data,
-                        format: mimeType.includes("mp4") ? "mp4" : "webm",
-                        mimeType: mimeType,
-                        sampleRate: 16000,
-                        chunkSizeBytes: completeBlob.size,
-                        timestamp: Date.now(),
-                        isLast: true,
-                    }),
-                });
-
-                console.log("📤 Complete audio sent, size:", completeBlob.size);
-
-                setTimeout(() => {
-                    if (stompClient.current?.connected) {
-                        stompClient.current.publish({
-                            destination: "/app/voice.stop",
-                            headers: { sessionId: sessionId.current },
-                            body: JSON.stringify({
-                                mode: modeRef.current,
-                                language: languageRef.current,
-                                ...buildVoiceUserContext(),
-                            }),
-                        });
-                        console.log("🛑 Stop signal sent, mode:", modeRef.current);
-                    }
-                }, 300);
-            };
+            // The audio itself is already on its way; close the utterance once the last chunk is sent
+            const lastSeq = chunkCount.current;
+            const sendChain = chunkSendChain.current;
+            resetRecorderState({ keepProcessing: true });
+            await sendChain;
 
-            reader.onerror = (err) => {
-                console.error("FileReader error:", err);
-                safeSetError("Failed to process the recorded audio.");
+            if (!stompClient.current?.connected) {
+                safeSetError("Connection was lost before the audio could be sent.");
                 resetRecorderState();
-            };
+                return;
+            }
 
-            reader.readAsDataURL(completeBlob);
-            resetRecorderState({ keepProcessing: true });
+            sendAudioChunk("", lastSeq, 0, true, mimeType);
+            console.log("📤 Last chunk marker sent, chunks:", lastSeq);
+
+            stompClient.current.publish({
+                destination: "/app/voice.stop",
+                headers: { sessionId: sessionId.current },
+                body: JSON.stringify({
+                    mode: modeRef.current,
+                    language: languageRef.current,
+                    ...buildVoiceUserContext(),
+                }),
+            });
+            console.log("🛑 Stop signal sent, mode:", modeRef.current);
         };
 
         recorder.stop();
@@ -726,6 +788,41 @@ export const useVoiceWebSocket = () => {
         }
     }, []);
 
+    const enqueueAudio = (audioUrl) => {
+        audioQueueRef.current.push(audioUrl);
+        if (!audioPlayingRef.current) {
+            playNextQueuedAudio();
+        }
+    };
+
+    const playNextQueuedAudio = () => {
+        const next = audioQueueRef.current.shift();
+        if (!next) {
+            audioPlayingRef.current = false;
+            return;
+        }
+        audioPlayingRef.current = true;
+        const audio = new Audio(next);
+        currentAudioRef.current = audio;
+        audio.onended = playNextQueuedAudio;
+        audio.onerror = playNextQueuedAudio;
+        audio.play().catch((err) => {
+            console.error("Audio playback failed:", err);
+            playNextQueuedAudio();
+        });
+    };
+
+    const stopQueuedAudio = () => {
+        audioQueueRef.current = [];
+        audioPlayingRef.current = false;
+        if (currentAudioRef.current) {
+            currentAudioRef.current.onended = null;
+            currentAudioRef.current.onerror = null;
+            currentAudioRef.current.pause();
+            currentAudioRef.current = null;
+        }
+    };
+
     const playAudio = (audioUrl) => {
         if (!audioUrl) {
             return;